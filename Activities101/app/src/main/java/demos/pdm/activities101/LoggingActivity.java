@@ -4,13 +4,27 @@ import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.util.Log;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 /**
  * Base class for activities that perform logging of lifecycle callbacks.
+ *
+ * <p>Callbacks are traced (see {@link LifecycleTracer}) with their timestamps, together with the
+ * activity's time to interactive (from {@link #onCreate(Bundle)} to {@link #onResume()}) and the
+ * cost of its recreation due to configuration changes. The trace is included in the activity's
+ * dump (i.e. {@literal adb shell dumpsys activity <activity>}).</p>
+ *
+ * <p>Callbacks are always logged; tracing only adds the bookkeeping (and the measurements appended
+ * to the log messages).</p>
  */
 public class LoggingActivity extends AppCompatActivity {
 
     protected final String TAG = getClass().getSimpleName();
 
+    /** The moment the activity was created, in nanoseconds, or 0 if it was not traced. */
+    private long createdAt;
+
     /**
      * Helper method that produces a log message with the given method name and suffix.
      * @param methodName The name of the method whose execution is being logged.
@@ -30,60 +44,139 @@ public class LoggingActivity extends AppCompatActivity {
         return createLogMessage(methodName, "");
     }
 
+    /**
+     * Helper method that logs the execution of the given method.
+     * @param methodName The name of the method whose execution is being logged.
+     * @param suffix The suffix to be appended to the log message.
+     */
+    private void log(String methodName, String suffix) {
+        Log.v(TAG, createLogMessage(methodName, suffix));
+    }
+
+    /**
+     * Helper method that traces the execution of the given method, and logs it. It must only be
+     * called while tracing is enabled.
+     * @param methodName The name of the method whose execution is being traced.
+     * @param event The name of the traced event, which qualifies the method's name.
+     * @param timestamp The execution's timestamp, in nanoseconds.
+     * @param duration The duration associated to the execution, in nanoseconds, or
+     *                 {@link LifecycleTracer#NO_DURATION}.
+     * @param suffix The suffix to be appended to the log message.
+     */
+    private void trace(String methodName, String event, long timestamp, long duration,
+                       String suffix) {
+        LifecycleTracer.record(TAG, hashCode(), event, timestamp, duration);
+        log(methodName, suffix);
+    }
+
+    /**
+     * Helper method that traces the execution of the given method, if tracing is enabled, and
+     * logs it.
+     * @param methodName The name of the method whose execution is being traced.
+     */
+    private void trace(String methodName) {
+        if (LifecycleTracer.isEnabled())
+            trace(methodName, methodName, LifecycleTracer.now(), LifecycleTracer.NO_DURATION, "");
+        else
+            log(methodName, "");
+    }
+
+    /**
+     * Helper method that marks the start of the activity's recreation, if it is being destroyed
+     * due to a configuration change.
+     */
+    private void markRecreationStart() {
+        if (LifecycleTracer.isEnabled() && isChangingConfigurations())
+            LifecycleTracer.markRecreationStart(TAG, LifecycleTracer.now());
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        createdAt = LifecycleTracer.isEnabled() ? LifecycleTracer.now() : 0;
         super.onCreate(savedInstanceState);
 
-        Log.v(TAG, createLogMessage("onCreate", String.format(": savedInstanceState is%s null",
-                savedInstanceState != null ? " not" : "")));
+        final String suffix = savedInstanceState != null
+                ? ": savedInstanceState is not null" : ": savedInstanceState is null";
+        if (createdAt != 0)
+            trace("onCreate", "onCreate", createdAt, LifecycleTracer.NO_DURATION, suffix);
+        else
+            log("onCreate", suffix);
     }
 
     /** {@inheritDoc} */
     @Override
     protected void onStart() {
         super.onStart();
-        Log.v(TAG, createLogMessage("onStart"));
+        trace("onStart");
     }
 
     /** {@inheritDoc} */
     @Override
     protected void onResume() {
         super.onResume();
-        Log.v(TAG, createLogMessage("onResume"));
+        if (!LifecycleTracer.isEnabled()) {
+            log("onResume", "");
+            return;
+        }
+
+        final long now = LifecycleTracer.now();
+        final long recreationStart = LifecycleTracer.takeRecreationStart(TAG);
+        if (recreationStart != LifecycleTracer.NO_DURATION) {
+            final long duration = now - recreationStart;
+            trace("onResume", "onResume (recreated)", now, duration,
+                    ": recreated in " + LifecycleTracer.formatDuration(duration));
+        } else if (createdAt != 0) {
+            final long duration = now - createdAt;
+            trace("onResume", "onResume (interactive)", now, duration,
+                    ": interactive in " + LifecycleTracer.formatDuration(duration));
+        } else {
+            trace("onResume", "onResume", now, LifecycleTracer.NO_DURATION, "");
+        }
+        // Subsequent resumes (e.g. after onRestart) are not measured from the creation
+        createdAt = 0;
     }
 
     /** {@inheritDoc} */
     @Override
     protected void onRestart() {
         super.onRestart();
-        Log.v(TAG, createLogMessage("onRestart"));
+        trace("onRestart");
     }
 
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
-        Log.v(TAG, createLogMessage("onSaveInstanceState"));
+        trace("onSaveInstanceState");
     }
 
     /** {@inheritDoc} */
     @Override
     protected void onPause() {
-        Log.v(TAG, createLogMessage("onPause"));
+        markRecreationStart();
+        trace("onPause");
         super.onPause();
     }
 
     /** {@inheritDoc} */
     @Override
     protected void onStop() {
-        Log.v(TAG, createLogMessage("onStop"));
+        trace("onStop");
         super.onStop();
     }
 
     /** {@inheritDoc} */
     @Override
     protected void onDestroy() {
-        Log.v(TAG, createLogMessage("onDestroy"));
+        markRecreationStart();
+        trace("onDestroy");
         super.onDestroy();
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        LifecycleTracer.dump(writer, prefix);
+    }
 }
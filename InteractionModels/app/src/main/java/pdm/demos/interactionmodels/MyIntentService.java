@@ -13,9 +13,8 @@ import java.io.IOException;
 import pdm.demos.interactionmodels.openweathermap.DataMapper;
 import pdm.demos.interactionmodels.openweathermap.WeatherInfoDTO;
 import pdm.demos.interactionmodels.openweathermap.WebAPI;
+import pdm.demos.interactionmodels.openweathermap.WebAPIFactory;
 import retrofit.Call;
-import retrofit.GsonConverterFactory;
-import retrofit.Retrofit;
 
 
 /**
@@ -136,14 +135,8 @@ public class MyIntentService extends IntentService {
 
         Log.v(getClass().getSimpleName(), "MyIntentService.onHandleIntent() started");
 
-        // Configure retrofit object
-        final Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(WebAPI.BASE_URL)
-                .addConverterFactory(GsonConverterFactory.create())
-                .build();
-
-        // Create web api proxy
-        WebAPI service = retrofit.create(WebAPI.class);
+        // Get the process-wide web api proxy
+        final WebAPI service = WebAPIFactory.getInstance(this);
         final Call<WeatherInfoDTO> call = service
                 .getCurrentWeather(
                         WebAPI.API_KEY,
@@ -13,10 +13,10 @@ import android.util.Log;
 import pdm.demos.interactionmodels.openweathermap.DataMapper;
 import pdm.demos.interactionmodels.openweathermap.WeatherInfoDTO;
 import pdm.demos.interactionmodels.openweathermap.WebAPI;
+import pdm.demos.interactionmodels.openweathermap.WebAPIFactory;
 import pdm.demos.interactionmodels.utils.LifecycleLoggingService;
 import retrofit.Call;
 import retrofit.Callback;
-import retrofit.GsonConverterFactory;
 import retrofit.Response;
 import retrofit.Retrofit;
 
@@ -127,14 +127,8 @@ public class MyStartedService extends LifecycleLoggingService {
     public int onStartCommand(final Intent intent, int flags, final int startId) {
         super.onStartCommand(intent, flags, startId);
 
-        // Configure retrofit object
-        final Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(WebAPI.BASE_URL)
-                .addConverterFactory(GsonConverterFactory.create())
-                .build();
-
-        // Create web api proxy
-        WebAPI service = retrofit.create(WebAPI.class);
+        // Get the process-wide web api proxy
+        final WebAPI service = WebAPIFactory.getInstance(this);
         final Call<WeatherInfoDTO> call = service
                 .getCurrentWeather(WebAPI.API_KEY,
                         intent.getStringExtra(ContractHelper.EXTRA_CITY_NAME),
@@ -8,7 +8,8 @@ import android.os.Parcelable;
  *
  * <p>Instances can also be used to transport weather information between components of the
  * application (e.g. Activities, Services). Because those interactions may cross process
- * boundaries, the class supports the {@link Parcelable} contract and conventions.</p>
+ * boundaries, the class supports the {@link Parcelable} contract and conventions. The parcelled
+ * form is the compact representation produced by {@link WeatherInfoCodec}.</p>
  *
  * <p>Instances are designed to be immutable, and are therefore thread-safe.</p>
  */
@@ -39,7 +40,7 @@ public final class WeatherInfo implements Parcelable {
     public static final Creator<WeatherInfo> CREATOR = new Creator<WeatherInfo>() {
         @Override
         public WeatherInfo createFromParcel(Parcel in) {
-            return new WeatherInfo(in);
+            return WeatherInfoCodec.decode(in.createByteArray());
         }
 
         @Override
@@ -48,22 +49,6 @@ public final class WeatherInfo implements Parcelable {
         }
     };
 
-    /**
-     * Creates an instance from the given {@link Parcel}.
-     * @param in The {@link Parcel} containing the instance's data.
-     */
-    private WeatherInfo(Parcel in) {
-        name = in.readString();
-        description = in.readString();
-        iconURL = in.readString();
-        speed = in.readDouble();
-        windDirection = in.readDouble();
-        currentTemperature = in.readDouble();
-        maxTemperature = in.readDouble();
-        minTemperature = in.readDouble();
-        humidity = in.readInt();
-    }
-
     /**
      * Initiates an instance with the given arguments.
      * @param name The city's name.
@@ -165,14 +150,6 @@ public final class WeatherInfo implements Parcelable {
     /** {@inheritDoc} */
     @Override
     public void writeToParcel(Parcel dest, int flags) {
-        dest.writeString(name);
-        dest.writeString(description);
-        dest.writeString(iconURL);
-        dest.writeDouble(speed);
-        dest.writeDouble(windDirection);
-        dest.writeDouble(currentTemperature);
-        dest.writeDouble(maxTemperature);
-        dest.writeDouble(minTemperature);
-        dest.writeInt(humidity);
+        dest.writeByteArray(WeatherInfoCodec.encode(this));
     }
 }
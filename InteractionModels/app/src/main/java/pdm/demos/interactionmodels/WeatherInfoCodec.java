@@ -0,0 +1,325 @@
+package pdm.demos.interactionmodels;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Utility class that implements a compact binary representation of {@link WeatherInfo} instances,
+ * used to transport them between components (see {@link WeatherInfo#writeToParcel}).
+ *
+ * <p>The representation starts with the format version, followed by the fields, in declaration
+ * order:</p>
+ * <ul>
+ *     <li>The city name is written inline, as UTF-8. City names are open-ended (and localized by
+ *     the web API), and representations outlive any list of them bundled with the application,
+ *     so they are not interned.</li>
+ *     <li>The description is interned: descriptions contained in the dictionary of well-known
+ *     ones are written as their index, all others are written inline, as UTF-8.</li>
+ *     <li>The icon URL is written as the icon code (e.g. {@literal 01d}) whenever it refers to one
+ *     of the OpenWeatherMap icons, and inline otherwise.</li>
+ *     <li>Wind speed, wind direction and temperatures are written in fixed-point, with two decimal
+ *     places. This is the precision of the wind speed and temperatures produced by the web API,
+ *     which therefore round-trip exactly. The wind direction is not limited to two decimal places
+ *     by the web API: its round trip is lossy, to the nearest hundredth of a degree, which is
+ *     well below the precision of any wind vane.</li>
+ * </ul>
+ * <p>Integers are written as variable length quantities (7 bits per byte), signed ones in zigzag
+ * encoding, so that small values of either sign take a single byte.</p>
+ *
+ * <p>Representations produced by previous versions of the format are still decoded: the
+ * dictionary of descriptions may only grow by appending entries, which requires a new version.</p>
+ */
+public final class WeatherInfoCodec {
+
+    /** The current version of the format. */
+    public static final int VERSION = 1;
+
+    /** The URL prefix of the OpenWeatherMap icons (see {@code WeatherInfoDTO}). */
+    private static final String ICON_URL_PREFIX = "http://api.openweathermap.org/img/w/";
+    /** The URL suffix of the OpenWeatherMap icons. */
+    private static final String ICON_URL_SUFFIX = ".png";
+
+    /** The scale of fixed-point values (i.e. two decimal places). */
+    private static final double FIXED_POINT_SCALE = 100;
+
+    /** The tag of absent strings. */
+    private static final int TAG_NULL = 0;
+    /** The tag of strings written inline. */
+    private static final int TAG_INLINE = 1;
+    /** The first tag of interned strings (or encoded icons). */
+    private static final int TAG_FIRST_ID = 2;
+
+    /** The charset used for inline strings. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The well-known weather descriptions, as produced by the web API in English (see
+     * <a href="http://openweathermap.org/weather-conditions">here</a>). Descriptions in other
+     * languages are written inline. Entries may only be appended.
+     */
+    private static final String[] DICTIONARY = {
+            "clear sky", "few clouds", "scattered clouds", "broken clouds", "overcast clouds",
+            "light rain", "moderate rain", "heavy intensity rain", "very heavy rain",
+            "extreme rain", "freezing rain", "light intensity shower rain", "shower rain",
+            "heavy intensity shower rain", "ragged shower rain", "light intensity drizzle",
+            "drizzle", "heavy intensity drizzle", "light intensity drizzle rain", "drizzle rain",
+            "heavy intensity drizzle rain", "shower rain and drizzle",
+            "heavy shower rain and drizzle", "shower drizzle", "thunderstorm with light rain",
+            "thunderstorm with rain", "thunderstorm with heavy rain", "light thunderstorm",
+            "thunderstorm", "heavy thunderstorm", "ragged thunderstorm",
+            "thunderstorm with light drizzle", "thunderstorm with drizzle",
+            "thunderstorm with heavy drizzle", "light snow", "snow", "heavy snow", "sleet",
+            "shower sleet", "light rain and snow", "rain and snow", "light shower snow",
+            "shower snow", "heavy shower snow", "mist", "smoke", "haze", "sand, dust whirls",
+            "fog", "sand", "dust", "volcanic ash", "squalls", "tornado"
+    };
+
+    /** The indexes of the dictionary entries. */
+    private static final Map<String, Integer> DICTIONARY_INDEX;
+
+    static {
+        DICTIONARY_INDEX = new HashMap<>(DICTIONARY.length * 2);
+        for (int idx = 0; idx < DICTIONARY.length; ++idx)
+            DICTIONARY_INDEX.put(DICTIONARY[idx], idx);
+    }
+
+    /**
+     * Class whose instances accumulate the bytes of a representation.
+     */
+    private static final class Writer {
+        private byte[] buffer = new byte[64];
+        private int size;
+
+        void writeByte(int value) {
+            if (size == buffer.length)
+                buffer = Arrays.copyOf(buffer, size * 2);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeUnsigned(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        void writeSigned(int value) {
+            writeUnsigned((value << 1) ^ (value >> 31));
+        }
+
+        void writeFixedPoint(double value) {
+            writeSigned((int) Math.round(value * FIXED_POINT_SCALE));
+        }
+
+        void writeInline(@NonNull String value) {
+            final byte[] bytes = value.getBytes(UTF8);
+            writeUnsigned(bytes.length);
+            if (size + bytes.length > buffer.length)
+                buffer = Arrays.copyOf(buffer, Math.max(size * 2, size + bytes.length));
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    /**
+     * Class whose instances read the bytes of a representation.
+     */
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        Reader(@NonNull byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int readByte() {
+            if (position == buffer.length)
+                throw new IllegalArgumentException("Truncated representation");
+            return buffer[position++] & 0xFF;
+        }
+
+        int readUnsigned() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                final int next = readByte();
+                value |= (next & 0x7F) << shift;
+                if ((next & 0x80) == 0)
+                    return value;
+            }
+            throw new IllegalArgumentException("Malformed integer");
+        }
+
+        int readSigned() {
+            final int value = readUnsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        double readFixedPoint() {
+            return readSigned() / FIXED_POINT_SCALE;
+        }
+
+        @NonNull
+        String readInline() {
+            final int length = readUnsigned();
+            if (length < 0 || length > buffer.length - position)
+                throw new IllegalArgumentException("Truncated representation");
+            final String value = new String(buffer, position, length, UTF8);
+            position += length;
+            return value;
+        }
+    }
+
+    /**
+     * Prevent instantiation.
+     */
+    private WeatherInfoCodec() { }
+
+    /**
+     * Writes the given string inline, without looking it up in the dictionary.
+     */
+    private static void writeInlineString(@NonNull Writer out, @Nullable String value) {
+        if (value == null) {
+            out.writeUnsigned(TAG_NULL);
+            return;
+        }
+
+        out.writeUnsigned(TAG_INLINE);
+        out.writeInline(value);
+    }
+
+    /**
+     * Writes the given string, interned if it is contained in the dictionary.
+     */
+    private static void writeString(@NonNull Writer out, @Nullable String value) {
+        final Integer id = value == null ? null : DICTIONARY_INDEX.get(value);
+        if (id != null) {
+            out.writeUnsigned(TAG_FIRST_ID + id);
+            return;
+        }
+
+        writeInlineString(out, value);
+    }
+
+    @Nullable
+    private static String readString(@NonNull Reader in) {
+        final int tag = in.readUnsigned();
+        if (tag == TAG_NULL)
+            return null;
+        if (tag == TAG_INLINE)
+            return in.readInline();
+        if (tag - TAG_FIRST_ID >= DICTIONARY.length)
+            throw new IllegalArgumentException("Unknown string id " + (tag - TAG_FIRST_ID));
+        return DICTIONARY[tag - TAG_FIRST_ID];
+    }
+
+    /**
+     * Computes the code of the icon referred by the given URL.
+     * @param url The icon URL.
+     * @return The icon code, i.e. the icon number followed by the night bit, or -1 if the URL does
+     * not refer to one of the OpenWeatherMap icons.
+     */
+    static int iconCodeOf(@NonNull String url) {
+        // The icon name is a two digit number followed by 'd' (day) or 'n' (night)
+        final int start = ICON_URL_PREFIX.length();
+        if (url.length() != start + 3 + ICON_URL_SUFFIX.length()
+                || !url.startsWith(ICON_URL_PREFIX) || !url.endsWith(ICON_URL_SUFFIX))
+            return -1;
+
+        final char tens = url.charAt(start), units = url.charAt(start + 1);
+        final char period = url.charAt(start + 2);
+        if (tens < '0' || tens > '9' || units < '0' || units > '9'
+                || (period != 'd' && period != 'n'))
+            return -1;
+
+        return ((tens - '0') * 10 + (units - '0')) << 1 | (period == 'n' ? 1 : 0);
+    }
+
+    /**
+     * Produces the URL of the icon with the given code.
+     * @param code The icon code (see {@link #iconCodeOf(String)}).
+     * @return The icon URL.
+     */
+    @NonNull
+    static String iconURLOf(int code) {
+        final int number = code >> 1;
+        if (number > 99)
+            throw new IllegalArgumentException("Unknown icon code " + code);
+        return new StringBuilder(ICON_URL_PREFIX.length() + 3 + ICON_URL_SUFFIX.length())
+                .append(ICON_URL_PREFIX)
+                .append((char) ('0' + number / 10)).append((char) ('0' + number % 10))
+                .append((code & 1) == 0 ? 'd' : 'n')
+                .append(ICON_URL_SUFFIX)
+                .toString();
+    }
+
+    private static void writeIcon(@NonNull Writer out, @Nullable String url) {
+        final int code = url == null ? -1 : iconCodeOf(url);
+        if (code == -1) {
+            // Inline only, for interned ids would be read back as icon codes
+            writeInlineString(out, url);
+            return;
+        }
+        out.writeUnsigned(TAG_FIRST_ID + code);
+    }
+
+    @Nullable
+    private static String readIcon(@NonNull Reader in) {
+        final int tag = in.readUnsigned();
+        if (tag == TAG_NULL)
+            return null;
+        if (tag == TAG_INLINE)
+            return in.readInline();
+        return iconURLOf(tag - TAG_FIRST_ID);
+    }
+
+    /**
+     * Produces the representation of the given weather information.
+     * @param info The weather information.
+     * @return The representation, in the current version of the format.
+     */
+    @NonNull
+    public static byte[] encode(@NonNull WeatherInfo info) {
+        final Writer out = new Writer();
+        out.writeUnsigned(VERSION);
+        writeInlineString(out, info.getCityName());
+        writeString(out, info.getDescription());
+        writeIcon(out, info.getIconURL());
+        out.writeFixedPoint(info.getWindSpeed());
+        out.writeFixedPoint(info.getWindDirection());
+        out.writeFixedPoint(info.getTemperature());
+        out.writeFixedPoint(info.getMinTemperature());
+        out.writeFixedPoint(info.getMaxTemperature());
+        out.writeSigned(info.getHumidity());
+        return out.toByteArray();
+    }
+
+    /**
+     * Produces the weather information from the given representation.
+     * @param representation The representation, in the current or in a previous version of the
+     * format.
+     * @return The weather information.
+     * @throws IllegalArgumentException If the representation is malformed, or was produced by an
+     * unknown version of the format.
+     */
+    @NonNull
+    public static WeatherInfo decode(@NonNull byte[] representation) {
+        final Reader in = new Reader(representation);
+        final int version = in.readUnsigned();
+        if (version < 1 || version > VERSION)
+            throw new IllegalArgumentException("Unknown format version " + version);
+
+        return new WeatherInfo(readString(in), readString(in), readIcon(in),
+                in.readFixedPoint(), in.readFixedPoint(), in.readFixedPoint(),
+                in.readFixedPoint(), in.readFixedPoint(), in.readSigned());
+    }
+}
@@ -0,0 +1,47 @@
+package pdm.demos.interactionmodels.openweathermap;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import pdm.demos.interactionmodels.utils.HttpClientFactory;
+import retrofit.GsonConverterFactory;
+import retrofit.Retrofit;
+
+/**
+ * Class that provides the process-wide {@link WebAPI} proxy. Creating the proxy (and its HTTP
+ * client) once per process, instead of once per request, preserves keep-alive connections, DNS
+ * results and cached responses across requests.
+ */
+public final class WebAPIFactory {
+
+    /** The shared proxy. */
+    private static WebAPI instance;
+
+    /**
+     * Prevent instantiation.
+     */
+    private WebAPIFactory() { }
+
+    /**
+     * Gets the shared proxy, creating it if needed.
+     * @param context The context used to initialize the shared HTTP client.
+     * @return The shared proxy.
+     */
+    @NonNull
+    public static synchronized WebAPI getInstance(@NonNull Context context) {
+        if (instance == null) {
+            HttpClientFactory.init(context);
+
+            // Configure retrofit object
+            final Retrofit retrofit = new Retrofit.Builder()
+                    .baseUrl(WebAPI.BASE_URL)
+                    .client(HttpClientFactory.getClient())
+                    .addConverterFactory(GsonConverterFactory.create())
+                    .build();
+
+            // Create web api proxy
+            instance = retrofit.create(WebAPI.class);
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,92 @@
+package pdm.demos.interactionmodels.utils;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import com.squareup.okhttp.Cache;
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.OkHttpClient;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class that provides the process-wide HTTP client, shared by all the Retrofit proxies of the
+ * application. Sharing the client means sharing its connection pool (and therefore keep-alive
+ * connections), its response cache and its dispatcher threads.
+ *
+ * <p>The client transparently requests gzip compressed responses and decompresses them. The
+ * response cache is only available once {@link #init(Context)} has been called, which should be
+ * done before any request is performed (see
+ * {@link pdm.demos.interactionmodels.openweathermap.WebAPIFactory}).</p>
+ */
+public final class HttpClientFactory {
+
+    /** The maximum number of idle connections kept in the pool. */
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    /** The time during which idle connections are kept alive, in milliseconds. */
+    private static final long KEEP_ALIVE_DURATION = 5 * 60 * 1000;
+    /** The connect timeout, in seconds. */
+    private static final int CONNECT_TIMEOUT = 10;
+    /** The read timeout, in seconds. */
+    private static final int READ_TIMEOUT = 15;
+    /** The maximum size of the HTTP response cache, in bytes. */
+    private static final long RESPONSE_CACHE_SIZE = 2 * 1024 * 1024;
+    /** The name of the directory, within the application's cache directory, of the response cache. */
+    private static final String RESPONSE_CACHE_DIRECTORY = "http";
+
+    /** The shared client. */
+    private static OkHttpClient client;
+    /** The metrics of the requests performed through the shared client. */
+    private static final HttpMetrics metrics = new HttpMetrics();
+
+    /**
+     * Prevent instantiation.
+     */
+    private HttpClientFactory() { }
+
+    /**
+     * Creates an HTTP client with the application's settings.
+     * @param cacheDirectory The directory of the response cache, or {@literal null} if no response
+     *                       cache is to be used.
+     * @return The new client.
+     */
+    @NonNull
+    private static OkHttpClient createClient(File cacheDirectory) {
+        final OkHttpClient newClient = new OkHttpClient();
+        newClient.setConnectTimeout(CONNECT_TIMEOUT, TimeUnit.SECONDS);
+        newClient.setReadTimeout(READ_TIMEOUT, TimeUnit.SECONDS);
+        newClient.setConnectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION));
+        if (cacheDirectory != null)
+            newClient.setCache(new Cache(cacheDirectory, RESPONSE_CACHE_SIZE));
+        newClient.networkInterceptors().add(metrics);
+        return newClient;
+    }
+
+    /**
+     * Initializes the shared client, enabling its response cache. Subsequent calls have no effect.
+     * @param context The context used to determine the location of the response cache.
+     */
+    public static synchronized void init(@NonNull Context context) {
+        if (client == null)
+            client = createClient(new File(context.getCacheDir(), RESPONSE_CACHE_DIRECTORY));
+    }
+
+    /**
+     * Gets the shared client. If {@link #init(Context)} has not yet been called, the client is
+     * created without a response cache.
+     * @return The shared client.
+     */
+    @NonNull
+    public static synchronized OkHttpClient getClient() {
+        if (client == null)
+            client = createClient(null);
+        return client;
+    }
+
+    /** @return The metrics of the requests performed through the shared client. */
+    @NonNull
+    public static HttpMetrics getMetrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,120 @@
+package pdm.demos.interactionmodels.utils;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.squareup.okhttp.Connection;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class whose instances collect metrics of the HTTP requests performed through the shared client
+ * (see {@link HttpClientFactory}), namely connection reuse and time to first byte.
+ *
+ * <p>Instances are OkHttp network interceptors, and therefore observe each request that actually
+ * reaches the network (i.e. requests served by the response cache are not included). The time to
+ * first byte is measured from the moment the request is handed to the connection until the moment
+ * the response headers are received.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public final class HttpMetrics implements Interceptor {
+
+    /** Debugging tag used by the Android logger. */
+    private static final String TAG = "HttpMetrics";
+
+    /** The connections already observed. Weak keys prevent retaining evicted connections. */
+    private final Map<Connection, Boolean> knownConnections;
+    /** The number of requests that reached the network. */
+    private final AtomicLong requestCount;
+    /** The number of requests performed over a previously used connection. */
+    private final AtomicLong reusedConnectionCount;
+    /** The accumulated time to first byte, in nanoseconds. */
+    private final AtomicLong totalTimeToFirstByte;
+    /** The time to first byte of the most recent request, in nanoseconds. */
+    private final AtomicLong lastTimeToFirstByte;
+
+    /**
+     * Initiates an instance.
+     */
+    public HttpMetrics() {
+        knownConnections = new WeakHashMap<>();
+        requestCount = new AtomicLong();
+        reusedConnectionCount = new AtomicLong();
+        totalTimeToFirstByte = new AtomicLong();
+        lastTimeToFirstByte = new AtomicLong();
+    }
+
+    /**
+     * Records the use of the given connection.
+     * @param connection The connection.
+     * @return {@literal true} if the connection had already been used, {@literal false} otherwise.
+     */
+    private boolean recordConnection(Connection connection) {
+        if (connection == null)
+            return false;
+        synchronized (knownConnections) {
+            return knownConnections.put(connection, Boolean.TRUE) != null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        final Request request = chain.request();
+        final boolean reused = recordConnection(chain.connection());
+
+        final long start = System.nanoTime();
+        final Response response = chain.proceed(request);
+        final long timeToFirstByte = System.nanoTime() - start;
+
+        requestCount.incrementAndGet();
+        if (reused)
+            reusedConnectionCount.incrementAndGet();
+        totalTimeToFirstByte.addAndGet(timeToFirstByte);
+        lastTimeToFirstByte.set(timeToFirstByte);
+
+        Log.v(TAG, String.format("%s %s: %d ms to first byte (%s connection)",
+                request.method(), request.httpUrl().encodedPath(),
+                TimeUnit.NANOSECONDS.toMillis(timeToFirstByte), reused ? "reused" : "new"));
+        return response;
+    }
+
+    /** @return The number of requests that reached the network. */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /** @return The number of requests performed over a previously used connection. */
+    public long getReusedConnectionCount() {
+        return reusedConnectionCount.get();
+    }
+
+    /** @return The average time to first byte, in milliseconds. */
+    public long getAverageTimeToFirstByte() {
+        final long count = requestCount.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalTimeToFirstByte.get() / count);
+    }
+
+    /** @return The time to first byte of the most recent request, in milliseconds. */
+    public long getLastTimeToFirstByte() {
+        return TimeUnit.NANOSECONDS.toMillis(lastTimeToFirstByte.get());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return new StringBuilder("HttpMetrics [requests=").append(getRequestCount())
+                .append(", reused=").append(getReusedConnectionCount())
+                .append(", avgTTFB=").append(getAverageTimeToFirstByte()).append("ms")
+                .append(", lastTTFB=").append(getLastTimeToFirstByte()).append("ms]")
+                .toString();
+    }
+}
@@ -0,0 +1,68 @@
+package coursera.android.projects.modernart;
+
+import android.os.Debug;
+import android.util.Log;
+
+import junit.framework.Assert;
+
+/**
+ * Class that runs microbenchmarks of the color computations performed while the user drags the
+ * sliders and the color picker, that is, on every touch event. These are not unit tests: they are
+ * executed on a device, because the computations rely on the platform's color conversions.
+ * 
+ * <p>Timings are only reported (in the log), because they depend on the device. Allocations do not,
+ * and the published baseline is that the color computations do not allocate at all: allocations on
+ * every touch event eventually cause garbage collection pauses, and therefore dropped frames.</p>
+ */
+public final class Microbenchmark {
+
+	/**
+	 * Contract of the operations being measured. Operations return their result, which is
+	 * consumed so that it is not optimized away.
+	 */
+	public interface Operation {
+		int run(int iteration);
+	}
+
+	private static final String TAG = "Microbenchmark";
+
+	private static final int WARMUP_ITERATIONS = 10000;
+	private static final int MEASURED_ITERATIONS = 100000;
+	/** The bytes allocated per operation in the baseline. */
+	private static final double BASELINE_BYTES_PER_OP = 0;
+
+	/** Consumes the operations' results. */
+	private static volatile int sink;
+
+	/** Prevent instantiation. */
+	private Microbenchmark() { }
+
+	/**
+	 * Measures the given operation, logs the result and checks it against the baseline.
+	 * @param name The operation's name.
+	 * @param operation The operation.
+	 */
+	@SuppressWarnings("deprecation")
+	public static void measure(String name, Operation operation) {
+		int consumed = 0;
+		for (int idx = 0; idx < WARMUP_ITERATIONS; ++idx)
+			consumed += operation.run(idx);
+
+		Debug.startAllocCounting();
+		try {
+			Debug.resetThreadAllocSize();
+			final long start = System.nanoTime();
+			for (int idx = 0; idx < MEASURED_ITERATIONS; ++idx)
+				consumed += operation.run(idx);
+			final long elapsed = System.nanoTime() - start;
+			final double bytesPerOp = (double) Debug.getThreadAllocSize() / MEASURED_ITERATIONS;
+			sink += consumed;
+
+			Log.i(TAG, String.format("%s: %.1f ns/op, %.2f B/op",
+					name, (double) elapsed / MEASURED_ITERATIONS, bytesPerOp));
+			Assert.assertTrue(name + " allocates", bytesPerOp <= BASELINE_BYTES_PER_OP);
+		} finally {
+			Debug.stopAllocCounting();
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package coursera.android.projects.modernart.transforms;
+
+import android.test.AndroidTestCase;
+
+import coursera.android.projects.modernart.Microbenchmark;
+
+/**
+ * Microbenchmarks of {@link LinearHSVTransformation}, which is applied to every tile whenever the
+ * slider moves.
+ */
+public class LinearHSVTransformationBenchmark extends AndroidTestCase {
+
+	private static final int[] COLORS = { 0xFFFF0000, 0xFF00FF00, 0xFF0000FF, 0xFF808080 };
+
+	private void measure(HSVComponent component) {
+		final LinearHSVTransformation transformation = new LinearHSVTransformation(component);
+		Microbenchmark.measure("LinearHSVTransformation.apply(" + component + ")",
+				new Microbenchmark.Operation() {
+					@Override
+					public int run(int iteration) {
+						return transformation.apply(COLORS[iteration % COLORS.length],
+								iteration % 101);
+					}
+				});
+	}
+
+	public void testApplyToHue() {
+		measure(HSVComponent.HUE);
+	}
+
+	public void testApplyToSaturation() {
+		measure(HSVComponent.SATURATION);
+	}
+
+	public void testApplyToValue() {
+		measure(HSVComponent.VALUE);
+	}
+}
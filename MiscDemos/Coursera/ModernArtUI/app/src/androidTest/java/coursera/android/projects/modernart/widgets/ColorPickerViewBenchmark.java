@@ -0,0 +1,26 @@
+package coursera.android.projects.modernart.widgets;
+
+import android.test.AndroidTestCase;
+
+import coursera.android.projects.modernart.Microbenchmark;
+
+/**
+ * Microbenchmarks of the color interpolation of {@link ColorPickerView}, which is performed on
+ * every move of the user's finger over the color wheel.
+ */
+public class ColorPickerViewBenchmark extends AndroidTestCase {
+
+	private static final int[] COLORS = new int[] {
+		0xFFFF0000, 0xFFFF00FF, 0xFF0000FF, 0xFF00FFFF, 0xFF00FF00,
+		0xFFFFFF00, 0xFFFF0000
+	};
+
+	public void testInterpColor() {
+		Microbenchmark.measure("ColorPickerView.interpColor", new Microbenchmark.Operation() {
+			@Override
+			public int run(int iteration) {
+				return ColorPickerView.interpColor(COLORS, (iteration % 1000) / 1000f);
+			}
+		});
+	}
+}
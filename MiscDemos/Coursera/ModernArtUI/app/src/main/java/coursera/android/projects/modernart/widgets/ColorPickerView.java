@@ -116,11 +116,12 @@ public class ColorPickerView extends View {
     }
 
     
-    private int ave(int s, int d, float p) {
+    private static int ave(int s, int d, float p) {
         return s + java.lang.Math.round(p * (d - s));
     }
 
-    private int interpColor(int colors[], float unit) {
+    // Package-private, so that it can be benchmarked (see ColorPickerViewBenchmark)
+    static int interpColor(int colors[], float unit) {
         if (unit <= 0) {
             return colors[0];
         }
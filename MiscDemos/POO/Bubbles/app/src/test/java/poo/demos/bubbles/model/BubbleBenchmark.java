@@ -0,0 +1,100 @@
+package poo.demos.bubbles.model;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the microbenchmarks of the bubbles' hit tests, which are performed for every
+ * bubble on each touch event and on each animation step.
+ *
+ * <p>The benchmarks report the time per operation, which depends on the machine running the
+ * tests, and check that the hit tests do not allocate (the published baseline), because
+ * allocations on each animation frame eventually cause garbage collection pauses.</p>
+ */
+public class BubbleBenchmark {
+
+    /**
+     * Contract of the operations being measured.
+     */
+    private interface Operation {
+        boolean run(float x, float y);
+    }
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int ITERATIONS_PER_ROUND = 1000000;
+    /** The bytes allocated per operation in the baseline. */
+    private static final double BASELINE_BYTES_PER_OP = 0;
+    /** The allocation tolerated, in bytes per operation, due to measurement noise. */
+    private static final double ALLOCATION_TOLERANCE = 0.01;
+
+    /** Consumes the operations' results, so that the compiler does not eliminate them. */
+    private static volatile int sink;
+
+    /**
+     * Gets the number of bytes allocated so far by the current thread, if the JVM supports it.
+     * @return The number of bytes, or -1 if not supported.
+     */
+    private static long allocatedBytes() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        return ((com.sun.management.ThreadMXBean) bean)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Measures the given operation, prints the result and checks it against the baseline.
+     */
+    private static void measure(String name, Operation operation) {
+        double bestNanos = Double.MAX_VALUE, bestBytes = Double.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; ++round) {
+            int hits = 0;
+            final long allocatedBefore = allocatedBytes();
+            final long start = System.nanoTime();
+            for (int idx = 0; idx < ITERATIONS_PER_ROUND; ++idx)
+                if (operation.run(idx % 640, (idx >> 4) % 480))
+                    hits += 1;
+            final long elapsed = System.nanoTime() - start;
+            final long allocated = allocatedBytes() - allocatedBefore;
+            sink += hits;
+
+            if (round >= WARMUP_ROUNDS) {
+                bestNanos = Math.min(bestNanos, (double) elapsed / ITERATIONS_PER_ROUND);
+                bestBytes = allocatedBefore < 0 ? -1 :
+                        Math.min(bestBytes, (double) allocated / ITERATIONS_PER_ROUND);
+            }
+        }
+
+        System.out.println(String.format("%-20s %6.2f ns/op %6.2f B/op",
+                name, bestNanos, bestBytes));
+        if (bestBytes >= 0)
+            assertTrue(name + " allocates",
+                    bestBytes <= BASELINE_BYTES_PER_OP + ALLOCATION_TOLERANCE);
+    }
+
+    @Test
+    public void benchmark_contains() {
+        final Bubble bubble = new Bubble(320, 240, 100);
+        measure("Bubble.contains", new Operation() {
+            @Override
+            public boolean run(float x, float y) {
+                return bubble.contains(x, y);
+            }
+        });
+    }
+
+    @Test
+    public void benchmark_intersects() {
+        final Bubble bubble = new Bubble(320, 240, 100);
+        measure("Bubble.intersects", new Operation() {
+            @Override
+            public boolean run(float x, float y) {
+                return bubble.intersects(x, y, x + 50, y + 50);
+            }
+        });
+    }
+}
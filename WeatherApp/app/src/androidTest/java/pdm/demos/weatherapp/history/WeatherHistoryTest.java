@@ -0,0 +1,92 @@
+package pdm.demos.weatherapp.history;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import pdm.demos.weatherapp.providers.WeatherInfo;
+import pdm.demos.weatherapp.providers.WeatherInfoProvider;
+import pdm.demos.weatherapp.providers.WeatherQuery;
+
+import static junit.framework.Assert.*;
+
+/**
+ * Class that contains the tests of the weather history store, which require an actual SQLite
+ * database and are therefore executed on a device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WeatherHistoryTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    /** The store under test. */
+    private WeatherHistory history;
+    /** A query for a city that exists only within each test. */
+    private WeatherQuery query;
+
+    @Before
+    public void setUp() {
+        history = new WeatherHistory(InstrumentationRegistry.getTargetContext());
+        query = new WeatherQuery("Test City " + System.nanoTime(), "eng",
+                WeatherInfoProvider.UnitSystem.METRIC);
+    }
+
+    private static WeatherInfo infoWithTemperature(double temperature) {
+        return new WeatherInfo("Test City", "clear sky", "01d", 4.1, 320,
+                temperature, temperature - 1, temperature + 1, 60);
+    }
+
+    @Test
+    public void getObservations_withinRange_returnsChronologicalObservations() {
+        final long now = System.currentTimeMillis();
+        history.record(query, infoWithTemperature(12), now - 2 * HOUR);
+        history.record(query, infoWithTemperature(10), now - 3 * HOUR);
+        history.record(query, infoWithTemperature(30), now - 30 * HOUR);
+
+        final List<WeatherHistory.Observation> observations =
+                history.getObservations(query, now - 24 * HOUR, now);
+
+        assertEquals(2, observations.size());
+        assertEquals(10.0, observations.get(0).getInfo().getTemperature());
+        assertEquals(12.0, observations.get(1).getInfo().getTemperature());
+        assertEquals(12.0, history.getLatest(query).getInfo().getTemperature());
+    }
+
+    @Test
+    public void getTemperatureStats_withObservations_computesAggregates() {
+        final long now = System.currentTimeMillis();
+        history.record(query, infoWithTemperature(10), now - HOUR);
+        history.record(query, infoWithTemperature(20), now - 2 * HOUR);
+
+        final WeatherHistory.TemperatureStats stats =
+                history.getTemperatureStats(query, now - 24 * HOUR, now);
+
+        assertEquals(10.0, stats.getMin());
+        assertEquals(20.0, stats.getMax());
+        assertEquals(15.0, stats.getAverage());
+        assertEquals(2, stats.getSampleCount());
+        assertNull(history.getTemperatureStats(query, now, now + HOUR));
+    }
+
+    @Test
+    public void compact_withOldObservations_keepsHourlyAverages() {
+        final long now = System.currentTimeMillis();
+        final long hourStart = (now - 48 * HOUR) / HOUR * HOUR;
+        history.record(query, infoWithTemperature(10), hourStart);
+        history.record(query, infoWithTemperature(14), hourStart + HOUR / 2);
+
+        history.compact(now);
+
+        final List<WeatherHistory.Observation> observations =
+                history.getObservations(query, hourStart, now);
+        assertEquals(1, observations.size());
+        assertEquals(hourStart, observations.get(0).getTimestamp());
+        assertEquals(12.0, observations.get(0).getInfo().getTemperature());
+        assertEquals(2, history.getTemperatureStats(query, hourStart, now).getSampleCount());
+    }
+}
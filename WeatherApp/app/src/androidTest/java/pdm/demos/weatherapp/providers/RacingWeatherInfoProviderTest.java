@@ -0,0 +1,138 @@
+package pdm.demos.weatherapp.providers;
+
+import android.support.annotation.NonNull;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import pdm.demos.weatherapp.providers.WeatherInfoProvider.UnitSystem;
+import pdm.demos.weatherapp.providers.stub.StubWeatherInfoProvider;
+
+import static junit.framework.Assert.*;
+
+/**
+ * Class that contains the tests of the {@link RacingWeatherInfoProvider} class, using
+ * {@link StubWeatherInfoProvider} backends.
+ *
+ * <p>These are not unit tests: backends complete their requests on the main thread, and are
+ * therefore executed on a device.</p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class RacingWeatherInfoProviderTest {
+
+    private static final String CITY = "Lisbon";
+    private static final String LANGUAGE = "eng";
+    /** The maximum time to wait for each request, in seconds. */
+    private static final int TIMEOUT = 5;
+
+    private static final WeatherInfoProvider.Callback IGNORE = new WeatherInfoProvider.Callback() {
+        @Override
+        public void onResult(@NonNull WeatherInfoProvider.CallResult result) { }
+    };
+
+    private static WeatherInfo request(WeatherInfoProvider provider) throws Exception {
+        return provider.getWeatherInfoAsync(CITY, LANGUAGE, UnitSystem.METRIC, IGNORE)
+                .get(TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void getWeatherInfoAsync_withColdBackends_fastestWinsAndLosersAreCancelled()
+            throws Exception {
+        final StubWeatherInfoProvider slow = new StubWeatherInfoProvider(1000);
+        final StubWeatherInfoProvider fast = new StubWeatherInfoProvider(10);
+        final RacingWeatherInfoProvider provider = new RacingWeatherInfoProvider(slow, fast);
+
+        final long start = System.nanoTime();
+        final WeatherInfo info = request(provider);
+
+        assertEquals(CITY, info.getCityName());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(1, slow.getRequestCount());
+        assertEquals(1, slow.getCancelledCount());
+        assertEquals(1, provider.getStats().get(1).getSampleCount());
+    }
+
+    @Test
+    public void getWeatherInfoAsync_afterWarmUp_routesToFastestBackendOnly() throws Exception {
+        final StubWeatherInfoProvider slow = new StubWeatherInfoProvider(200);
+        final StubWeatherInfoProvider fast = new StubWeatherInfoProvider(10);
+        final RacingWeatherInfoProvider provider = new RacingWeatherInfoProvider(slow, fast);
+
+        // The first request is raced in both backends; the slow one completes once, by itself
+        request(provider);
+        fast.setFailing(true);
+        request(provider);
+        fast.setFailing(false);
+        for (int idx = 0; idx < 3; ++idx)
+            request(provider);
+
+        final int slowRequests = slow.getRequestCount();
+        request(provider);
+        request(provider);
+
+        assertEquals(slowRequests, slow.getRequestCount());
+    }
+
+    @Test
+    public void getWeatherInfoAsync_whenPreferredFails_fallsBackToOtherBackend()
+            throws Exception {
+        final StubWeatherInfoProvider failing = new StubWeatherInfoProvider(10);
+        final StubWeatherInfoProvider healthy = new StubWeatherInfoProvider(50);
+        failing.setFailing(true);
+        final RacingWeatherInfoProvider provider = new RacingWeatherInfoProvider(failing, healthy);
+
+        for (int idx = 0; idx < 5; ++idx)
+            assertEquals(CITY, request(provider).getCityName());
+
+        assertFalse(provider.getStats().get(0).isHealthy());
+        assertTrue(provider.getStats().get(1).isPreferableTo(provider.getStats().get(0)));
+    }
+
+    @Test
+    public void getWeatherInfoAsync_whenAllBackendsFail_completesWithError() throws Exception {
+        final StubWeatherInfoProvider first = new StubWeatherInfoProvider(10);
+        final StubWeatherInfoProvider second = new StubWeatherInfoProvider(20);
+        first.setFailing(true);
+        second.setFailing(true);
+        final RacingWeatherInfoProvider provider = new RacingWeatherInfoProvider(first, second);
+
+        try {
+            request(provider);
+            fail("The request should have failed");
+        } catch (ExecutionException expected) {
+            assertEquals(1, first.getRequestCount());
+            assertEquals(1, second.getRequestCount());
+        }
+    }
+
+    @Test
+    public void cancel_whenRacing_cancelsAllBackendRequests() {
+        final StubWeatherInfoProvider first = new StubWeatherInfoProvider(1000);
+        final StubWeatherInfoProvider second = new StubWeatherInfoProvider(1000);
+        final RacingWeatherInfoProvider provider = new RacingWeatherInfoProvider(first, second);
+
+        final WeatherInfoFuture future =
+                provider.getWeatherInfoAsync(CITY, LANGUAGE, UnitSystem.METRIC, IGNORE);
+
+        assertTrue(future.cancel());
+        assertEquals(1, first.getCancelledCount());
+        assertEquals(1, second.getCancelledCount());
+    }
+
+    @Test
+    public void getWeatherInfo_whenPreferredFails_triesNextBackend() throws Exception {
+        final StubWeatherInfoProvider failing = new StubWeatherInfoProvider(0);
+        final StubWeatherInfoProvider healthy = new StubWeatherInfoProvider(0);
+        failing.setFailing(true);
+        final RacingWeatherInfoProvider provider = new RacingWeatherInfoProvider(failing, healthy);
+
+        assertEquals(CITY, provider.getWeatherInfo(CITY, LANGUAGE, UnitSystem.METRIC)
+                .getCityName());
+        assertEquals(1, failing.getRequestCount());
+        assertEquals(1, healthy.getRequestCount());
+    }
+}
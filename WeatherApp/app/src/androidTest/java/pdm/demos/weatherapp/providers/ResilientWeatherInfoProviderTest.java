@@ -0,0 +1,100 @@
+package pdm.demos.weatherapp.providers;
+
+import android.support.annotation.NonNull;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import pdm.demos.weatherapp.providers.WeatherInfoProvider.UnitSystem;
+import pdm.demos.weatherapp.providers.stub.StubWeatherInfoProvider;
+
+import static junit.framework.Assert.*;
+
+/**
+ * Class that contains the tests of the {@link ResilientWeatherInfoProvider} class, using a
+ * {@link StubWeatherInfoProvider} backend.
+ *
+ * <p>These are not unit tests: retries are scheduled on the main thread, and are therefore
+ * executed on a device.</p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class ResilientWeatherInfoProviderTest {
+
+    private static final String CITY = "Lisbon";
+    private static final String LANGUAGE = "eng";
+    /** The maximum time to wait for each request, in seconds. */
+    private static final int TIMEOUT = 5;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int FAILURE_THRESHOLD = 5;
+
+    private static final WeatherInfoProvider.Callback IGNORE = new WeatherInfoProvider.Callback() {
+        @Override
+        public void onResult(@NonNull WeatherInfoProvider.CallResult result) { }
+    };
+
+    private static ResilientWeatherInfoProvider resilient(WeatherInfoProvider source) {
+        return new ResilientWeatherInfoProvider(source,
+                new CircuitBreaker(FAILURE_THRESHOLD, 60 * 1000, 60 * 1000),
+                new RetryPolicy(MAX_ATTEMPTS, 10, 50, new Random(42)));
+    }
+
+    private static WeatherInfo request(WeatherInfoProvider provider) throws Exception {
+        return provider.getWeatherInfoAsync(CITY, LANGUAGE, UnitSystem.METRIC, IGNORE)
+                .get(TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void getWeatherInfoAsync_withTransientFailures_retriesUpToMaxAttempts()
+            throws Exception {
+        final StubWeatherInfoProvider stub = new StubWeatherInfoProvider(0);
+        stub.setFailing(true);
+        final ResilientWeatherInfoProvider provider = resilient(stub);
+
+        try {
+            request(provider);
+            fail("The request should have failed");
+        } catch (ExecutionException expected) {
+            assertEquals(MAX_ATTEMPTS, stub.getRequestCount());
+            assertEquals(MAX_ATTEMPTS - 1, provider.getRetryCount());
+        }
+    }
+
+    @Test
+    public void getWeatherInfoAsync_afterRepeatedFailures_failsFastWithoutReachingSource()
+            throws Exception {
+        final StubWeatherInfoProvider stub = new StubWeatherInfoProvider(0);
+        stub.setFailing(true);
+        final ResilientWeatherInfoProvider provider = resilient(stub);
+
+        for (int idx = 0; idx < FAILURE_THRESHOLD; ++idx)
+            try { provider.getWeatherInfo(CITY, LANGUAGE, UnitSystem.METRIC); }
+            catch (Exception ignored) { }
+        assertEquals(CircuitBreaker.State.OPEN, provider.getCircuitBreaker().getState());
+
+        final int requestsBefore = stub.getRequestCount();
+        final long rejectedBefore = provider.getCircuitBreaker().getRejectedCount();
+        try {
+            request(provider);
+            fail("The request should have been rejected");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof CircuitBreaker.OpenException);
+            assertEquals(requestsBefore, stub.getRequestCount());
+            assertEquals(rejectedBefore + 1, provider.getCircuitBreaker().getRejectedCount());
+        }
+    }
+
+    @Test
+    public void getWeatherInfoAsync_afterRecovery_succeeds() throws Exception {
+        final StubWeatherInfoProvider stub = new StubWeatherInfoProvider(0);
+        final ResilientWeatherInfoProvider provider = resilient(stub);
+
+        assertEquals(CITY, request(provider).getCityName());
+        assertEquals(0, provider.getRetryCount());
+        assertEquals(1, provider.getCircuitBreaker().getSuccessCount());
+    }
+}
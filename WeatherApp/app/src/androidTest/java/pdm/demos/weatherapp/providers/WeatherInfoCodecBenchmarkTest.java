@@ -0,0 +1,144 @@
+package pdm.demos.weatherapp.providers;
+
+import android.os.Parcel;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.*;
+
+/**
+ * Class that compares the parcelled form of {@link WeatherInfo} instances produced by
+ * {@link WeatherInfoCodec} with the field by field form used before, both in size and in encoding
+ * and decoding times.
+ *
+ * <p>These are not unit tests: they require actual {@link Parcel} instances and are therefore
+ * executed on a device. Timings are reported but not asserted, because they depend on the
+ * device.</p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class WeatherInfoCodecBenchmarkTest {
+
+    private static final String TAG = "WeatherInfoCodecBench";
+
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int MEASURED_ITERATIONS = 100000;
+
+    /** The weather information used in the benchmark, as produced by the web API. */
+    private static final WeatherInfo[] SAMPLES = {
+            new WeatherInfo("Lisbon", "clear sky", "http://api.openweathermap.org/img/w/01d.png",
+                    3.1, 350, 18.62, 17, 20, 63),
+            new WeatherInfo("London", "light intensity shower rain",
+                    "http://api.openweathermap.org/img/w/09d.png", 9.17, 230, 52.3, 50, 54.5, 87),
+            new WeatherInfo("Washington, D. C.", "céu limpo",
+                    "http://api.openweathermap.org/img/w/01n.png", 1.5, 10, 11.2, 9, 13.75, 40)
+    };
+
+    /**
+     * Writes the given information field by field, as {@link WeatherInfo#writeToParcel} used to.
+     */
+    private static void writeFields(WeatherInfo info, Parcel dest) {
+        dest.writeString(info.getCityName());
+        dest.writeString(info.getDescription());
+        dest.writeString(info.getIconURL());
+        dest.writeDouble(info.getWindSpeed());
+        dest.writeDouble(info.getWindDirection());
+        dest.writeDouble(info.getTemperature());
+        dest.writeDouble(info.getMaxTemperature());
+        dest.writeDouble(info.getMinTemperature());
+        dest.writeInt(info.getHumidity());
+    }
+
+    /**
+     * Reads the information written by {@link #writeFields(WeatherInfo, Parcel)}.
+     */
+    private static WeatherInfo readFields(Parcel in) {
+        final String name = in.readString(), description = in.readString();
+        final String iconURL = in.readString();
+        final double speed = in.readDouble(), deg = in.readDouble(), temp = in.readDouble();
+        final double tempMax = in.readDouble(), tempMin = in.readDouble();
+        return new WeatherInfo(name, description, iconURL, speed, deg, temp, tempMin, tempMax,
+                in.readInt());
+    }
+
+    /**
+     * Measures the average time, in nanoseconds, of writing (and reading back, if requested) the
+     * samples with the given form.
+     */
+    private static long measure(Parcel parcel, boolean compact, boolean read, int iterations) {
+        final long start = System.nanoTime();
+        for (int idx = 0; idx < iterations; ++idx) {
+            final WeatherInfo info = SAMPLES[idx % SAMPLES.length];
+            parcel.setDataPosition(0);
+            if (compact)
+                info.writeToParcel(parcel, 0);
+            else
+                writeFields(info, parcel);
+
+            if (read) {
+                parcel.setDataPosition(0);
+                if (compact)
+                    WeatherInfo.CREATOR.createFromParcel(parcel);
+                else
+                    readFields(parcel);
+            }
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    @Test
+    public void createFromParcel_ofParcelledInfo_producesEquivalentInfo() {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            for (WeatherInfo info : SAMPLES) {
+                parcel.setDataPosition(0);
+                info.writeToParcel(parcel, 0);
+                parcel.setDataPosition(0);
+                final WeatherInfo actual = WeatherInfo.CREATOR.createFromParcel(parcel);
+                assertEquals(info.toString(), actual.toString());
+                assertEquals(info.getIconURL(), actual.getIconURL());
+            }
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Test
+    public void benchmark_compactVersusFieldByField() {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            for (WeatherInfo info : SAMPLES) {
+                parcel.setDataPosition(0);
+                parcel.setDataSize(0);
+                writeFields(info, parcel);
+                final int fieldsSize = parcel.dataSize();
+
+                parcel.setDataPosition(0);
+                parcel.setDataSize(0);
+                info.writeToParcel(parcel, 0);
+                final int compactSize = parcel.dataSize();
+
+                Log.v(TAG, String.format("%s: %d bytes field by field, %d bytes compact",
+                        info.getCityName(), fieldsSize, compactSize));
+                assertTrue(compactSize < fieldsSize);
+            }
+
+            measure(parcel, false, true, WARMUP_ITERATIONS);
+            measure(parcel, true, true, WARMUP_ITERATIONS);
+
+            final long fieldsWrite = measure(parcel, false, false, MEASURED_ITERATIONS);
+            final long compactWrite = measure(parcel, true, false, MEASURED_ITERATIONS);
+            final long fieldsRoundTrip = measure(parcel, false, true, MEASURED_ITERATIONS);
+            final long compactRoundTrip = measure(parcel, true, true, MEASURED_ITERATIONS);
+
+            Log.v(TAG, String.format("Field by field: write %d ns/op, read %d ns/op",
+                    fieldsWrite, fieldsRoundTrip - fieldsWrite));
+            Log.v(TAG, String.format("Compact:        write %d ns/op, read %d ns/op",
+                    compactWrite, compactRoundTrip - compactWrite));
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package pdm.demos.weatherapp.utils;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.*;
+
+/**
+ * Class that contains the stress tests of the {@link MyAsyncTask} engine, namely, it checks that
+ * thousands of tasks are executed by a bounded number of threads, within acceptable latency.
+ *
+ * <p>These are not unit tests: they require actual looper threads and are therefore executed on a
+ * device.</p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class MyAsyncTaskStressTest {
+
+    private static final String TAG = "MyAsyncTaskStressTest";
+
+    /** The number of tasks fired by each test. */
+    private static final int TASK_COUNT = 5000;
+    /** The maximum time to wait for all tasks to complete, in seconds. */
+    private static final int TIMEOUT = 60;
+
+    /** The thread that plays the role of the caller (i.e. the main thread). */
+    private HandlerThread callerThread;
+    /** The handler of the caller thread. */
+    private Handler callerHandler;
+
+    @Before
+    public void setUp() {
+        callerThread = new HandlerThread("Caller");
+        callerThread.start();
+        callerHandler = new Handler(callerThread.getLooper());
+    }
+
+    @After
+    public void tearDown() {
+        callerThread.quit();
+    }
+
+    @Test
+    public void execute_withThousandsOfTasks_usesBoundedThreadsAndCompletesAll()
+            throws InterruptedException {
+
+        // Arrange
+        final CountDownLatch done = new CountDownLatch(TASK_COUNT);
+        final long[] latencies = new long[TASK_COUNT];
+        final AtomicInteger progressCount = new AtomicInteger();
+
+        // Act
+        for (int idx = 0; idx < TASK_COUNT; ++idx) {
+            final int taskIdx = idx;
+            final long start = System.nanoTime();
+            new MyAsyncTask<Integer, Integer, Integer>() {
+                @Override
+                protected Integer doInBackground(Integer input) {
+                    publishProgress(input);
+                    return input * 2;
+                }
+
+                @Override
+                protected void onProgressUpdate(Integer progress) {
+                    progressCount.incrementAndGet();
+                }
+
+                @Override
+                protected void onPostExecution(Integer output) {
+                    assertEquals(taskIdx * 2, output.intValue());
+                    assertSame(callerThread, Thread.currentThread());
+                    latencies[taskIdx] = System.nanoTime() - start;
+                    done.countDown();
+                }
+            }.execute(idx, callerHandler);
+        }
+
+        // Assert
+        assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+        assertTrue(MyAsyncTask.getWorkerThreadCount() <= MyAsyncTask.MAX_WORKER_THREADS);
+        assertEquals(0, MyAsyncTask.getPendingTaskCount());
+        assertEquals(TASK_COUNT, progressCount.get());
+
+        // Latencies are written on the caller thread, which the latch makes visible here
+        Arrays.sort(latencies);
+        final long p50 = TimeUnit.NANOSECONDS.toMillis(latencies[TASK_COUNT / 2]);
+        final long p99 = TimeUnit.NANOSECONDS.toMillis(latencies[TASK_COUNT * 99 / 100]);
+        Log.v(TAG, String.format("%d tasks on %d threads: p50 = %d ms, p99 = %d ms",
+                TASK_COUNT, MyAsyncTask.getWorkerThreadCount(), p50, p99));
+        assertTrue(p99 < TimeUnit.SECONDS.toMillis(TIMEOUT));
+    }
+
+    @Test
+    public void cancel_withQueuedTasks_signalsCancellationInsteadOfCompletion()
+            throws InterruptedException {
+
+        // Arrange
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(TASK_COUNT);
+        final AtomicInteger completedCount = new AtomicInteger();
+        final MyAsyncTask[] tasks = new MyAsyncTask[TASK_COUNT];
+
+        for (int idx = 0; idx < TASK_COUNT; ++idx) {
+            tasks[idx] = new MyAsyncTask<Void, Void, Void>() {
+                @Override
+                protected Void doInBackground(Void input) {
+                    try { release.await(); }
+                    catch (InterruptedException ignored) { }
+                    return null;
+                }
+
+                @Override
+                protected void onPostExecution(Void output) {
+                    completedCount.incrementAndGet();
+                }
+
+                @Override
+                protected void onCancelled() {
+                    cancelled.countDown();
+                }
+            }.execute(null, callerHandler);
+        }
+
+        // Act
+        for (MyAsyncTask task : tasks)
+            assertTrue(task.cancel(true));
+        release.countDown();
+
+        // Assert
+        assertTrue(cancelled.await(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(0, MyAsyncTask.getPendingTaskCount());
+        // Give a chance to any (wrongly) posted completion to be delivered
+        SystemClock.sleep(500);
+        assertEquals(0, completedCount.get());
+    }
+}
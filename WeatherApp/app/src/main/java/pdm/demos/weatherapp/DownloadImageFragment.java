@@ -1,21 +1,17 @@
 package pdm.demos.weatherapp;
 
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
 
-import java.io.BufferedInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-
+import pdm.demos.weatherapp.images.IconLoader;
+import pdm.demos.weatherapp.providers.Cancellable;
 import pdm.demos.weatherapp.utils.LifecycleLoggingFragment;
 
 
@@ -24,9 +20,12 @@ import pdm.demos.weatherapp.utils.LifecycleLoggingFragment;
  * asynchronously.
  *
  * The implementation ensures that the fragment instance is retained across screen orientation
- * reconfigurations, to preserve the asynchronous load progress state.
+ * reconfigurations, to preserve the asynchronous load progress state. Images are obtained through
+ * the application's {@link IconLoader}, which means that previously loaded images are displayed
+ * immediately. Images are decoded to the size of the icon slot ({@literal weather_icon_size}),
+ * which is known before layout and is the same in every orientation.
  */
-public class DownloadImageFragment extends LifecycleLoggingFragment {
+public class DownloadImageFragment extends LifecycleLoggingFragment implements IconLoader.Callback {
 
     /** The fragment initialization parameters */
     private static final String ARG_URI = "image_uri";
@@ -39,8 +38,10 @@ public class DownloadImageFragment extends LifecycleLoggingFragment {
     private ViewGroup fragmentRootContainer;
     /** The image's Uri. */
     private String imageUri;
-    /** The AsyncTask instance. */
-    private AsyncTask<Void, Void, Bitmap> bitmapAsyncTask;
+    /** The handle of the image load in progress, if any. */
+    private Cancellable iconRequest;
+    /** Whether the image has already been displayed. */
+    private boolean loaded;
 
     /**
      * Factory method that produces a new instance of this fragment with
@@ -82,8 +83,9 @@ public class DownloadImageFragment extends LifecycleLoggingFragment {
             imageView = (ImageView) fragmentRootContainer.findViewById(R.id.image_view);
         }
 
-        // Start loading bitmap
-        asyncDownloadBitmap();
+        // Start loading the image, unless it is already loaded or being loaded
+        if (!loaded && iconRequest == null && imageUri != null)
+            loadImage();
 
         return fragmentRootContainer;
     }
@@ -92,63 +94,32 @@ public class DownloadImageFragment extends LifecycleLoggingFragment {
     @Override
     public void onDestroy() {
         // The fragment instance is being destroyed. Lets cancel the background work if appropriate
-        if(bitmapAsyncTask != null && bitmapAsyncTask.getStatus() != AsyncTask.Status.FINISHED)
-            bitmapAsyncTask.cancel(true);
+        if (iconRequest != null)
+            iconRequest.cancel();
         super.onDestroy();
     }
 
     /**
-     * Method that downloads the bitmap in a background thread (using AsyncTask).
+     * Loads the image, decoded to the size of the icon slot.
      */
-    private void asyncDownloadBitmap() {
-        bitmapAsyncTask = new AsyncTask<Void, Void, Bitmap>() {
-            @Override
-            protected Bitmap doInBackground(Void... params) {
-                return doDownLoadBitmap();
-            }
-
-            @Override
-            protected void onPostExecute(Bitmap bitmap) {
-                progressBar.setVisibility(View.GONE);
-                // Update view's state
-                if (bitmap != null) {
-                    imageView.setImageBitmap(bitmap);
-                    imageView.setVisibility(View.VISIBLE);
-                }
-            }
-        }.execute();
+    private void loadImage() {
+        final int size = getResources().getDimensionPixelSize(R.dimen.weather_icon_size);
+        final WeatherApplication application = (WeatherApplication) getActivity().getApplication();
+        final Cancellable request = application.getIconLoader().load(imageUri, size, size, this);
+        // If the image was in memory, it has already been displayed
+        iconRequest = loaded ? null : request;
     }
 
-    /**
-     * Method that downloads the image and produces the corresponding {@link android.graphics.Bitmap}
-     * instance. Because it performs I/O, the method cannot be executed in the UI thread.
-     *
-     * @return The {@link android.graphics.Bitmap} instance with the downloaded image, or {@value null}
-     * if an error occurred.
-     */
-    private Bitmap doDownLoadBitmap() {
-        final URL url;
-        try {
-            url = new URL(imageUri.toString());
-            HttpURLConnection urlConnection = null;
-            try {
-                // Simulated delay, for debugging and demonstration purposes
-                try { Thread.sleep(2000); }
-                catch (InterruptedException ignored) { }
-
-                // Prepare to do actual work, while checking url availability
-                urlConnection = (HttpURLConnection) url.openConnection();
-                InputStream contentStream = new BufferedInputStream(urlConnection.getInputStream());
-                // Do actual download work (note that the input stream contents are lazily obtained)
-                return BitmapFactory.decodeStream(contentStream);
-
-            } finally {
-                if (urlConnection != null)
-                    urlConnection.disconnect();
-            }
-        }
-        catch (IOException e) {
-            return null;
+    /** {@inheritDoc} */
+    @Override
+    public void onIconLoaded(@NonNull String url, @Nullable Bitmap image) {
+        iconRequest = null;
+        loaded = true;
+        progressBar.setVisibility(View.GONE);
+        // Update view's state
+        if (image != null) {
+            imageView.setImageBitmap(image);
+            imageView.setVisibility(View.VISIBLE);
         }
     }
 }
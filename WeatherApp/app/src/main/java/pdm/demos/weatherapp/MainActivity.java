@@ -1,13 +1,20 @@
 package pdm.demos.weatherapp;
 
-import android.app.FragmentTransaction;
+import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.annotation.NonNull;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.Toast;
 
+import pdm.demos.weatherapp.prefetch.CityIndex;
+import pdm.demos.weatherapp.prefetch.Prefetcher;
+import pdm.demos.weatherapp.prefetch.RecentCities;
+import pdm.demos.weatherapp.providers.RequestRegistry;
 import pdm.demos.weatherapp.providers.WeatherInfo;
 import pdm.demos.weatherapp.providers.WeatherInfoProvider;
 import pdm.demos.weatherapp.providers.openweathermap.OpenWeatherProvider;
@@ -20,17 +27,44 @@ import pdm.demos.weatherapp.utils.MyAsyncTask;
  * A possible design approach is to associate activities (and fragments) to the Controller
  * role in the MVC design pattern. That's the approach we are going to use in this application.
  *
- * TODO: Preserve view state. Cancel background work upon activity destruction. Use headless
- * fragment to preserve asynchronous fetching of weather info across configuration changes
- * (if we are dealing with a screen orientation change)
+ * The asynchronous fetching of weather info is preserved across configuration changes (e.g.
+ * screen orientation changes) by the application's {@link RequestRegistry}: the activity keeps
+ * the id of the ongoing request in its saved state, and re-attaches to it once recreated, thereby
+ * neither issuing a second request nor losing its result. The request is cancelled when the
+ * activity is finished.
+ *
+ * While the user types the city name, the weather info of the likely cities (those recently asked
+ * for, those subscribed to background refreshes and, failing those, the known cities that match
+ * it) is prefetched by a {@link Prefetcher}, thereby taking the network latency off the critical
+ * path of the actual request. Prefetches yield to the actual request once it is made.
  */
 public class MainActivity extends LoggingActivity implements WeatherInfoProvider.Callback {
 
+    /** The keys of the activity's saved state. */
+    private static final String STATE_REQUEST_ID = "request_id",
+            STATE_PROVISIONAL_DELIVERED = "provisional_delivered";
+
     /** The edit text used to collect the city name entered by the user. */
     private EditText cityTextView;
     /** The buttons used to trigger fetching the weather information. */
     private Button buttonAsync, buttonRetro;
     private String tag;
+    /** Whether a provisional result of the ongoing request was displayed. */
+    private boolean provisionalDelivered;
+    /**
+     * Whether the weather activity displaying a provisional result is still shown, that is, the
+     * user has not navigated back to this activity since. Activities in the back stack are only
+     * recreated once navigated back to, hence the flag is not part of the saved state.
+     */
+    private boolean showingProvisional;
+    /** The id of the ongoing request, or {@link RequestRegistry#NO_REQUEST} if none. */
+    private long requestId = RequestRegistry.NO_REQUEST;
+    /** The prefetcher driven by the city name being typed. */
+    private Prefetcher prefetcher;
+    /** The cities recently asked for, which are the prefetcher's preferred candidates. */
+    private RecentCities recentCities;
+    /** The demo task in progress, if any. */
+    private MyAsyncTask<String, Void, WeatherInfo> demoTask;
 
     /**
      * Enables the user interface, thereby allowing for user input.
@@ -42,6 +76,15 @@ public class MainActivity extends LoggingActivity implements WeatherInfoProvider
         cityTextView.setEnabled(true);
     }
 
+    /**
+     * Rebuilds the index of the cities the user is likely to ask for.
+     */
+    private void updateCityIndex() {
+        final WeatherApplication app = (WeatherApplication) getApplication();
+        prefetcher.setIndex(new CityIndex(recentCities.get(),
+                app.getRefreshScheduler().getSubscriptions(), app.getCityDirectory()));
+    }
+
     /**
      * Disables the user interface, thereby inhibiting user input.
      */
@@ -68,22 +111,35 @@ public class MainActivity extends LoggingActivity implements WeatherInfoProvider
         startActivity(WeatherActivity.makeIntent(this, info));
     }
 
+    /**
+     * Navigates to {@link WeatherActivity} passing it the given weather information, or updates
+     * the instance already displayed.
+     * @param info The weather information to be displayed.
+     * @param age The age of the weather information, in milliseconds.
+     * @param update Whether the instance already displayed, if any, should be updated.
+     */
+    private void navigateToWeatherActivity(WeatherInfo info, long age, boolean update) {
+        final Intent intent = WeatherActivity.makeIntent(this, info, age);
+        if (update)
+            intent.addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        startActivity(intent);
+    }
+
     /**
      * Gets the weather information.
      */
     private void fetchWeatherInfo(String cityName) {
-
-        FragmentTransaction tx = getFragmentManager().beginTransaction();
-        final String tag = "HEADLESS_FRAGMENT";
-        tx.add(WeatherInfoRetainedFragment.newInstance(cityName), tag);
-        tx.commit();
+        final WeatherApplication app = (WeatherApplication) getApplication();
+        final RequestRegistry registry = app.getRequestRegistry();
+        requestId = registry.submit(cityName, app.getLanguage(), app.getUnits());
+        registry.attach(requestId, this);
     }
 
     /**
      * Merely used for demonstration purposes. Otherwise it is useless.
      */
     private void demoFetchWeatherInfoWithAsyncTask(String cityName) {
-        (new MyAsyncTask() {
+        demoTask = new MyAsyncTask<String, Void, WeatherInfo>() {
             private final WeatherApplication application;
             private final String language;
             private final OpenWeatherProvider.UnitSystem units;
@@ -111,10 +167,12 @@ public class MainActivity extends LoggingActivity implements WeatherInfoProvider
 
             @Override
             protected void onPostExecution(WeatherInfo weatherInfo) {
+                demoTask = null;
+                prefetcher.onRequestCompleted();
                 enableUI();
                 navigateToWeatherActivity(weatherInfo);
             }
-        }).execute(cityName);
+        }.execute(cityName);
     }
 
     /** {@inheritDoc} */
@@ -123,7 +181,25 @@ public class MainActivity extends LoggingActivity implements WeatherInfoProvider
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
+        final WeatherApplication app = (WeatherApplication) getApplication();
+        prefetcher = new Prefetcher(app.getWeatherInfoProvider(), app.getLanguage(),
+                app.getUnits(), new Handler());
+        recentCities = new RecentCities(this);
+        updateCityIndex();
+
         cityTextView = (EditText) findViewById(R.id.city);
+        cityTextView.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) { }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) { }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                prefetcher.onTextChanged(s.toString());
+            }
+        });
 
         (buttonRetro = (Button) findViewById(R.id.button_retro))
                 .setOnClickListener(new View.OnClickListener() {
@@ -132,6 +208,8 @@ public class MainActivity extends LoggingActivity implements WeatherInfoProvider
                         final String city = getValidatedUserInput();
                         if(city != null) {
                             disableUI();
+                            // Prefetches yield to the request, which joins that of its city
+                            prefetcher.onRequestStarted(city);
                             fetchWeatherInfo(city);
                         }
                     }
@@ -144,17 +222,98 @@ public class MainActivity extends LoggingActivity implements WeatherInfoProvider
                         final String city = getValidatedUserInput();
                         if(city != null) {
                             disableUI();
+                            prefetcher.onRequestStarted(city);
                             demoFetchWeatherInfoWithAsyncTask(city);
                         }
                     }
                 });
+
+        if (savedInstanceState != null) {
+            provisionalDelivered = savedInstanceState.getBoolean(STATE_PROVISIONAL_DELIVERED);
+            requestId = savedInstanceState.getLong(STATE_REQUEST_ID, RequestRegistry.NO_REQUEST);
+            if (requestId != RequestRegistry.NO_REQUEST) {
+                // Results produced while the activity was being recreated are handed over now
+                disableUI();
+                prefetcher.onRequestStarted(null);
+                final RequestRegistry registry =
+                        ((WeatherApplication) getApplication()).getRequestRegistry();
+                if (!registry.attach(requestId, this)) {
+                    // The request was lost along with the previous process
+                    requestId = RequestRegistry.NO_REQUEST;
+                    prefetcher.onRequestCompleted();
+                    enableUI();
+                }
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void onRestart() {
+        super.onRestart();
+        // The user navigated back, hence the final result must not bring the weather activity back
+        showingProvisional = false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Speculative requests are not worth the network or the battery when these are scarce
+        final WeatherApplication app = (WeatherApplication) getApplication();
+        prefetcher.setEnabled(app.getRefreshScheduler().isNetworkAvailable()
+                && !app.getRefreshScheduler().isBatteryLow());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putLong(STATE_REQUEST_ID, requestId);
+        outState.putBoolean(STATE_PROVISIONAL_DELIVERED, provisionalDelivered);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void onDestroy() {
+        // The demo task's result is of no use once the activity is gone
+        if (demoTask != null)
+            demoTask.cancel(true);
+        prefetcher.cancel();
+        // The request outlives the activity only if it is to be recreated
+        if (requestId != RequestRegistry.NO_REQUEST) {
+            final RequestRegistry registry =
+                    ((WeatherApplication) getApplication()).getRequestRegistry();
+            if (isFinishing())
+                registry.cancel(requestId);
+            else
+                registry.detach(requestId, this);
+        }
+        super.onDestroy();
     }
 
     @Override
     public void onResult(@NonNull WeatherInfoProvider.CallResult result) {
-        enableUI();
+        // User input is only allowed once the request is complete
+        final boolean provisional = result.isProvisional();
+        if (!provisional) {
+            requestId = RequestRegistry.NO_REQUEST;
+            prefetcher.onRequestCompleted();
+            enableUI();
+        }
+        final boolean update = showingProvisional, dismissed = provisionalDelivered && !update;
+        showingProvisional = provisionalDelivered = false;
         try {
-            navigateToWeatherActivity(result.getResult());
+            final WeatherInfo info = result.getResult();
+            // The final result updates the activity displaying the provisional one, if still
+            // shown, instead of bringing it back once the user navigated away from it
+            if (!dismissed)
+                navigateToWeatherActivity(info, result.getAge(), update);
+            showingProvisional = provisionalDelivered = provisional;
+            if (!provisional) {
+                recentCities.add(info.getCityName());
+                updateCityIndex();
+            }
         } catch (Exception e) {
             Toast.makeText(MainActivity.this,
                     R.string.error_msg_couldntget, Toast.LENGTH_LONG)
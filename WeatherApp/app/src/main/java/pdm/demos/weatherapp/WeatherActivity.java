@@ -10,6 +10,7 @@ import android.widget.TextView;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 import pdm.demos.weatherapp.providers.CardinalPoint;
 import pdm.demos.weatherapp.providers.WeatherInfo;
@@ -27,13 +28,21 @@ public class WeatherActivity extends LoggingActivity {
 
     /** Constant used to identify the extra bearing the weather information. */
     private static final String EXTRA_WEATHER_INFO = "WeatherActivity.Extra.WeatherInfo";
+    /** Constant used to identify the extra bearing the age of the weather information. */
+    private static final String EXTRA_AGE = "WeatherActivity.Extra.Age";
     /** Constant used to identify the view state containing the weather information. */
     private static final String VIEW_STATE_WEATHER_INFO = "WeatherActivity.ViewState.WeatherInfo";
+    /** Constant used to identify the view state containing the moment the information was obtained. */
+    private static final String VIEW_STATE_FETCHED_AT = "WeatherActivity.ViewState.FetchedAt";
+    /** The age below which the weather information is not marked as old, in milliseconds. */
+    private static final long MIN_DISPLAYED_AGE = 60 * 1000;
 
     /** The current configuration. */
     private Configuration currentConfiguration;
     /** The weather information currently displayed. */
     private WeatherInfo currentWeather;
+    /** The moment the weather information currently displayed was obtained, in milliseconds. */
+    private long fetchedAt;
 
     /**
      * Helper method that displays text on the given {@link TextView} instance.
@@ -67,11 +76,15 @@ public class WeatherActivity extends LoggingActivity {
     }
 
     /**
-     * Displays the current date.
+     * Displays the current date, together with the age of the weather information if it is not
+     * recent (e.g. because it is the last known information, while the network is unavailable).
      */
     private void displayCurrentDate() {
         final SimpleDateFormat format = new SimpleDateFormat("MMMM, d");
-        displayText(R.id.date, format.format(new Date()));
+        final long age = System.currentTimeMillis() - fetchedAt;
+        displayText(R.id.date, age < MIN_DISPLAYED_AGE ? format.format(new Date()) :
+                format.format(new Date()) + " " + getResources().getString(R.string.text_age,
+                        TimeUnit.MILLISECONDS.toMinutes(age)));
     }
 
     /**
@@ -99,7 +112,32 @@ public class WeatherActivity extends LoggingActivity {
      */
     @NonNull
     public static Intent makeIntent(@NonNull Context sender, @NonNull WeatherInfo weatherInfo) {
-        return new Intent(sender, WeatherActivity.class).putExtra(EXTRA_WEATHER_INFO, weatherInfo);
+        return makeIntent(sender, weatherInfo, 0);
+    }
+
+    /**
+     * Method that creates an {@link Intent} to be used to explicitly navigate to this activity.
+     *
+     * @param sender The context of the intent sender.
+     * @param weatherInfo The object containing the weather information to be displayed.
+     * @param age The time elapsed since the weather information was obtained, in milliseconds.
+     * @return The newly created explicit intent.
+     */
+    @NonNull
+    public static Intent makeIntent(@NonNull Context sender, @NonNull WeatherInfo weatherInfo,
+                                    long age) {
+        return new Intent(sender, WeatherActivity.class)
+                .putExtra(EXTRA_WEATHER_INFO, weatherInfo)
+                .putExtra(EXTRA_AGE, age);
+    }
+
+    /**
+     * Loads the weather information conveyed by the given intent.
+     * @param intent The intent.
+     */
+    private void loadFromIntent(@NonNull Intent intent) {
+        currentWeather = intent.getParcelableExtra(EXTRA_WEATHER_INFO);
+        fetchedAt = System.currentTimeMillis() - intent.getLongExtra(EXTRA_AGE, 0);
     }
 
     /** {@inheritDoc} */
@@ -110,9 +148,11 @@ public class WeatherActivity extends LoggingActivity {
 
         currentConfiguration = getResources().getConfiguration();
 
-        currentWeather = (WeatherInfo) (savedInstanceState != null ?
-                    savedInstanceState.getParcelable(VIEW_STATE_WEATHER_INFO) :
-                    getIntent().getParcelableExtra(EXTRA_WEATHER_INFO));
+        if (savedInstanceState != null) {
+            currentWeather = savedInstanceState.getParcelable(VIEW_STATE_WEATHER_INFO);
+            fetchedAt = savedInstanceState.getLong(VIEW_STATE_FETCHED_AT);
+        } else
+            loadFromIntent(getIntent());
 
         displayWeatherInfo(currentWeather);
 
@@ -127,10 +167,33 @@ public class WeatherActivity extends LoggingActivity {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>Called when the displayed information is updated (e.g. once fresh information replaces
+     * the last known one).</p>
+     */
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        setIntent(intent);
+
+        final String previousIconURL = currentWeather.getIconURL();
+        loadFromIntent(intent);
+        displayWeatherInfo(currentWeather);
+        if (!previousIconURL.equals(currentWeather.getIconURL()))
+            getFragmentManager().beginTransaction()
+                    .replace(
+                            R.id.weatherImage,
+                            DownloadImageFragment.newInstance(currentWeather.getIconURL())
+                    )
+                    .commit();
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
         outState.putParcelable(VIEW_STATE_WEATHER_INFO, currentWeather);
+        outState.putLong(VIEW_STATE_FETCHED_AT, fetchedAt);
     }
 }
@@ -1,16 +1,30 @@
 package pdm.demos.weatherapp;
 
-import android.app.AlarmManager;
 import android.app.Application;
-import android.app.PendingIntent;
-import android.content.Context;
 import android.content.res.Configuration;
 import android.support.annotation.MainThread;
 import android.support.annotation.WorkerThread;
 import android.util.Log;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import pdm.demos.weatherapp.cities.CityDirectory;
+import pdm.demos.weatherapp.history.WeatherHistory;
+import pdm.demos.weatherapp.images.IconAtlas;
+import pdm.demos.weatherapp.images.IconLoader;
+import pdm.demos.weatherapp.providers.CachingWeatherInfoProvider;
+import pdm.demos.weatherapp.providers.CircuitBreaker;
+import pdm.demos.weatherapp.providers.NormalizingWeatherInfoProvider;
+import pdm.demos.weatherapp.providers.RequestRegistry;
+import pdm.demos.weatherapp.providers.ResilientWeatherInfoProvider;
 import pdm.demos.weatherapp.providers.WeatherInfoProvider;
 import pdm.demos.weatherapp.providers.openweathermap.OpenWeatherProvider;
+import pdm.demos.weatherapp.refresh.RefreshScheduler;
+import pdm.demos.weatherapp.utils.HttpClientFactory;
+import pdm.demos.weatherapp.utils.Metrics;
 
 /**
  * Singleton class (note that we have one instance per application process) that plays the role
@@ -18,9 +32,32 @@ import pdm.demos.weatherapp.providers.openweathermap.OpenWeatherProvider;
  */
 public class WeatherApplication extends Application {
 
-    public static final int REFRESHER_SERVICE_CODE = 1;
+    /** Debugging tag used by the Android logger. */
+    private static final String TAG = "WeatherApplication";
+
+    /** The city subscribed by default to background refreshes. */
+    private static final String DEFAULT_SUBSCRIPTION = "Washington DC, USA";
+    /** The period of the export of metrics, in milliseconds. */
+    private static final long METRICS_EXPORT_PERIOD = 60 * 1000;
+
     /** The instance that provides the service of providing weather information. */
     private volatile WeatherInfoProvider weatherInfoProvider;
+    /** The cache of weather information, which fronts the backend. */
+    private volatile CachingWeatherInfoProvider weatherCache;
+    /** The provider used by background refreshes, which skips the cache (but fills it). */
+    private volatile WeatherInfoProvider refreshProvider;
+    /** The directory of the cities known to the application. */
+    private volatile CityDirectory cityDirectory;
+    /** The registry of the requests issued on behalf of activities. */
+    private volatile RequestRegistry requestRegistry;
+    /** The circuit breaker that guards the weather web API. */
+    private volatile CircuitBreaker circuitBreaker;
+    /** The scheduler of background refreshes. */
+    private volatile RefreshScheduler refreshScheduler;
+    /** The loader of weather icons. */
+    private volatile IconLoader iconLoader;
+    /** The persistent history of fetched weather information. */
+    private volatile WeatherHistory weatherHistory;
     /** The current language. */
     private String language;
     /** The unit system associated to the current locale. */
@@ -42,6 +79,85 @@ public class WeatherApplication extends Application {
         return weatherInfoProvider;
     }
 
+    /**
+     * @return The cache of weather information, keyed by canonical city ids, which tells how old
+     * the cached information is.
+     */
+    public CachingWeatherInfoProvider getWeatherCache() {
+        return weatherCache;
+    }
+
+    /**
+     * @return The weather provider used by background refreshes, which always obtains the current
+     * information, instead of cached one, and stores it in the cache.
+     */
+    public WeatherInfoProvider getRefreshProvider() {
+        return refreshProvider;
+    }
+
+    /**
+     * Reads the directory of the cities known to the application from the bundled city list.
+     * @return The directory, which is empty if the list could not be read.
+     */
+    private CityDirectory readCityDirectory() {
+        try {
+            final Reader list = new InputStreamReader(
+                    getResources().openRawResource(R.raw.cities), "UTF-8");
+            try {
+                return CityDirectory.read(list);
+            } finally {
+                list.close();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to read the city list", e);
+            return CityDirectory.EMPTY;
+        }
+    }
+
+    /**
+     * @return The directory of the cities known to the application, which normalizes city names to
+     * canonical ids.
+     */
+    public CityDirectory getCityDirectory() {
+        return cityDirectory;
+    }
+
+    /**
+     * @return The registry of the requests issued on behalf of activities, which outlives them.
+     */
+    public RequestRegistry getRequestRegistry() {
+        return requestRegistry;
+    }
+
+    /**
+     * @return The circuit breaker that guards the weather web API, which exposes its state and
+     * counters.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return The persistent history of fetched weather information.
+     */
+    public WeatherHistory getWeatherHistory() {
+        return weatherHistory;
+    }
+
+    /**
+     * @return The loader of weather icons.
+     */
+    public IconLoader getIconLoader() {
+        return iconLoader;
+    }
+
+    /**
+     * @return The scheduler of background refreshes.
+     */
+    public RefreshScheduler getRefreshScheduler() {
+        return refreshScheduler;
+    }
+
     /**
      * @return The current language.
      */
@@ -63,20 +179,46 @@ public class WeatherApplication extends Application {
 
         initLocaleConfiguration(getResources().getConfiguration());
 
-        // Instantiate the concrete weather provider implementation
-        weatherInfoProvider = new OpenWeatherProvider();
+        // Metrics are collected and exported (to logcat and to a file) only in debug builds
+        if (BuildConfig.DEBUG) {
+            Metrics.setEnabled(true);
+            Metrics.startPeriodicExport(METRICS_EXPORT_PERIOD,
+                    new File(getCacheDir(), "metrics.txt"));
+        }
+
+        // Configure the HTTP client shared by all web API proxies
+        HttpClientFactory.init(this);
+
+        // The city list is small (a few KB), hence it is read and indexed right away
+        cityDirectory = readCityDirectory();
+
+        // Instantiate the concrete weather provider implementation (backend), fronted by the cache,
+        // which serves the last known information right away (offline-first). Once a second
+        // backend is available, both are to be raced (see RacingWeatherInfoProvider), which with a
+        // single one would merely add overhead. The web API is guarded by retries and by a circuit
+        // breaker, whose failures the cache also covers. City names are normalized to canonical
+        // ids up front, so that all layers key on them.
+        final ResilientWeatherInfoProvider openWeather =
+                new ResilientWeatherInfoProvider(new OpenWeatherProvider());
+        circuitBreaker = openWeather.getCircuitBreaker();
+        weatherCache = new CachingWeatherInfoProvider(openWeather,
+                new File(getCacheDir(), "weather"), true);
+        weatherInfoProvider = new NormalizingWeatherInfoProvider(weatherCache, cityDirectory);
+        // Background refreshes must observe the source, lest they reschedule based on cached data
+        refreshProvider = new NormalizingWeatherInfoProvider(weatherCache.getRevalidatingProvider(),
+                cityDirectory);
+        requestRegistry = new RequestRegistry(weatherInfoProvider, cityDirectory);
 
-        final AlarmManager alarmManager = (AlarmManager)
-                getSystemService(Context.ALARM_SERVICE);
+        weatherHistory = new WeatherHistory(this);
 
-        final PendingIntent pendingIntent = PendingIntent.getService(
-                this, REFRESHER_SERVICE_CODE,
-                WeatherRefresherService.makeIntent(this, "Washington DC, USA"),
-                PendingIntent.FLAG_UPDATE_CURRENT
-        );
+        // Weather icons are bundled (see the packIconAtlas build task), or else downloaded
+        iconLoader = new IconLoader(new File(getCacheDir(), "icons"),
+                new IconAtlas(getAssets()));
 
-        alarmManager.setInexactRepeating(AlarmManager.RTC_WAKEUP,
-                0, 60*1000, pendingIntent);
+        // Background refreshes are scheduled per subscribed city (subscribing is idempotent)
+        refreshScheduler = new RefreshScheduler(this);
+        refreshScheduler.subscribe(DEFAULT_SUBSCRIPTION);
+        refreshScheduler.schedule();
     }
 
     /** {@inheritDoc} */
@@ -1,25 +1,43 @@
 package pdm.demos.weatherapp;
 
-import android.annotation.TargetApi;
 import android.app.IntentService;
 import android.app.Notification;
 import android.app.NotificationManager;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Build;
-import android.support.annotation.WorkerThread;
-import android.support.v4.app.NotificationCompat;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
 import android.util.Log;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import pdm.demos.weatherapp.history.WeatherHistory;
+import pdm.demos.weatherapp.providers.CachingWeatherInfoProvider;
+import pdm.demos.weatherapp.providers.CircuitBreaker;
 import pdm.demos.weatherapp.providers.WeatherInfo;
+import pdm.demos.weatherapp.providers.WeatherQuery;
+import pdm.demos.weatherapp.refresh.RefreshScheduler;
+import pdm.demos.weatherapp.utils.HttpClientFactory;
+import pdm.demos.weatherapp.utils.HttpMetrics;
 
 
 /**
- * TODO:
+ * Service that refreshes, in the background, the weather information of the subscribed cities
+ * whose refresh is due. It is activated by the alarm set by {@link RefreshScheduler} and, on each
+ * activation, drains the due set with one batch request, which bypasses the cache (see
+ * {@link WeatherApplication#getRefreshProvider()}), reports the outcome of each city back to
+ * the scheduler, records the results in the {@link WeatherHistory}, and finally sets the alarm for
+ * the next due subscription.
+ *
+ * Users are notified only of the cities whose weather has changed.
  */
 public class WeatherRefresherService extends IntentService {
 
-    private static final String EXTRA_CITY_NAME = "WeatherRefresherService.Extra.CityName";
+    /** Debugging tag used by the Android logger. */
+    private static final String TAG = "INTENT_SERVICE";
+
     public static final int ID = 123;
 
     private void showNotification(WeatherInfo info) {
@@ -35,18 +53,18 @@ public class WeatherRefresherService extends IntentService {
                     .setContentText(info.getDescription())
                     .build();
 
-            notificationManager.notify(ID, notification);
+            // One notification per city, replaced on each change
+            notificationManager.notify(info.getCityName(), ID, notification);
         }
     }
 
     /**
      * Creates the intent used to activate the service.
-     * @param cityName
-     * @return
+     * @param ctx The context.
+     * @return The intent.
      */
-    public static Intent makeIntent(Context ctx, String cityName) {
-        return new Intent(ctx, WeatherRefresherService.class)
-                .putExtra(EXTRA_CITY_NAME, cityName);
+    public static Intent makeIntent(Context ctx) {
+        return new Intent(ctx, WeatherRefresherService.class);
     }
 
     /**
@@ -56,21 +74,81 @@ public class WeatherRefresherService extends IntentService {
         super("WeatherRefresherService");
     }
 
+    /**
+     * Refreshes the given cities, reporting the outcome of each one to the scheduler and recording
+     * the obtained information in the weather history.
+     * @param application The application instance.
+     * @param scheduler The refresh scheduler.
+     * @param cityNames The names of the cities to be refreshed.
+     */
+    private void refresh(@NonNull WeatherApplication application,
+                         @NonNull RefreshScheduler scheduler, @NonNull Set<String> cityNames) {
+        final long start = System.currentTimeMillis();
+        Map<String, WeatherInfo> results;
+        try {
+            results = application.getRefreshProvider().getWeatherInfo(cityNames,
+                    application.getLanguage(), application.getUnits());
+        } catch (Exception e) {
+            Log.w(TAG, "Refresh failed: " + e + ", " + application.getCircuitBreaker());
+            results = Collections.emptyMap();
+        }
+
+        final WeatherHistory history = application.getWeatherHistory();
+        final CachingWeatherInfoProvider cache = application.getWeatherCache();
+        final long now = System.currentTimeMillis();
+        for (String cityName : cityNames) {
+            final WeatherInfo info = results.get(cityName);
+            if (info == null) {
+                scheduler.onFailed(cityName);
+                continue;
+            }
+
+            // Histories are kept per canonical id, just like the cached information. Observations
+            // are recorded when fetched, and only once, even if they are delivered again.
+            final WeatherQuery query = new WeatherQuery(
+                    application.getCityDirectory().canonicalize(cityName),
+                    application.getLanguage(), application.getUnits());
+            final long age = cache.getAge(query);
+            if (age >= 0 && now - age >= start)
+                history.record(query, info, now - age);
+            else
+                Log.v(TAG, "Not recording " + query + ": not fetched by this refresh");
+            if (scheduler.onRefreshed(cityName, info))
+                showNotification(info);
+        }
+        history.compactIfDue(now);
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void onHandleIntent(Intent intent) {
-        final String cityName = intent.getStringExtra(EXTRA_CITY_NAME);
         final WeatherApplication application = (WeatherApplication) getApplication();
-        try {
-            final WeatherInfo info = application.getWeatherInfoProvider().
-                    getWeatherInfo(cityName, application.getLanguage(),
-                            application.getUnits());
-
-            // Ugly as hell!
-            showNotification(info);
+        final RefreshScheduler scheduler = application.getRefreshScheduler();
+        if (!scheduler.isNetworkAvailable()) {
+            Log.v(TAG, "Refresh cycle deferred: no connectivity");
+            scheduler.defer();
+            return;
+        }
 
-        } catch (Exception e) {
-            Log.v("INTENT_SERVICE", e.toString());
+        // Do not count on the web API while it is known to be failing
+        final CircuitBreaker breaker = application.getCircuitBreaker();
+        if (breaker.isRejecting(SystemClock.elapsedRealtime())) {
+            Log.w(TAG, "Refresh cycle deferred: " + breaker);
+            scheduler.defer();
+            return;
         }
+
+        final HttpMetrics metrics = HttpClientFactory.getMetrics();
+        final long notModifiedBefore = metrics.getNotModifiedCount();
+        final long bytesSavedBefore = metrics.getBytesSaved();
+
+        final Set<String> due = scheduler.getDueCities();
+        if (!due.isEmpty())
+            refresh(application, scheduler, due);
+        scheduler.schedule();
+
+        Log.v(TAG, String.format("Refresh cycle: %d cities, %d not modified, %d bytes saved, %s",
+                due.size(), metrics.getNotModifiedCount() - notModifiedBefore,
+                metrics.getBytesSaved() - bytesSavedBefore, breaker));
     }
 }
@@ -0,0 +1,246 @@
+package pdm.demos.weatherapp.cities;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingResourceException;
+
+/**
+ * Class whose instances are directories of the cities known to the application, as read from the
+ * bundled city list ({@literal res/raw/cities.txt}), that normalize the city names entered by the
+ * user to canonical ids and answer prefix queries over them, without any I/O.
+ *
+ * <p>The canonical id of a city is its name followed by its country code (e.g. {@literal
+ * Lisbon,PT}), which is the format the weather web API matches most accurately. User input, such
+ * as {@literal lisbon}, {@literal Lisboa}, {@literal lisbon, pt} or {@literal Lisbon,PRT}, is
+ * matched ignoring case, accents and punctuation, against the names and alternative names of the
+ * cities. Input without a country code designates the most prominent city with that name.</p>
+ *
+ * <p>Names are indexed in a {@link CityTrie}. Instances are immutable and are therefore
+ * thread-safe.</p>
+ */
+public final class CityDirectory {
+
+    /** A directory without cities, which leaves all input as is. */
+    public static final CityDirectory EMPTY =
+            new CityDirectory(new ArrayList<City>(), new ArrayList<String>(), new int[0]);
+
+    /** The separator of the fields of each line of the city list. */
+    private static final String FIELD_SEPARATOR = "\t";
+    /** The separator of the alternative names of a city. */
+    private static final String ALIAS_SEPARATOR = ";";
+    /** The prefix of the comment lines of the city list. */
+    private static final String COMMENT = "#";
+
+    /**
+     * Class whose instances are the cities of the directory. Instances are immutable.
+     */
+    public static final class City {
+        /** The city name. */
+        private final String name;
+        /** The country code, in ISO 3166 alpha-2 format. */
+        private final String countryCode;
+        /** The canonical id. */
+        private final String id;
+
+        City(@NonNull String name, @NonNull String countryCode) {
+            this.name = name;
+            this.countryCode = countryCode;
+            id = name + ',' + countryCode;
+        }
+
+        /** @return The city name. */
+        @NonNull
+        public String getName() {
+            return name;
+        }
+
+        /** @return The country code, in ISO 3166 alpha-2 format. */
+        @NonNull
+        public String getCountryCode() {
+            return countryCode;
+        }
+
+        /** @return The canonical id of the city (e.g. {@literal Lisbon,PT}). */
+        @NonNull
+        public String getId() {
+            return id;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return id;
+        }
+    }
+
+    /** The cities, most prominent first. */
+    private final City[] cities;
+    /** The index of the cities by normalized name. */
+    private final CityTrie index;
+
+    /**
+     * Initiates an instance with the given cities.
+     * @param cities The cities, most prominent first.
+     * @param keys The normalized names of the cities, including alternative ones.
+     * @param keyCities The city of each name, in the same order.
+     */
+    private CityDirectory(@NonNull List<City> cities, @NonNull List<String> keys,
+                          @NonNull int[] keyCities) {
+        this.cities = cities.toArray(new City[cities.size()]);
+        index = new CityTrie(keys.toArray(new String[keys.size()]), keyCities);
+    }
+
+    /**
+     * Reads the directory from the given city list. Each line holds the name of a city, its
+     * country code and, optionally, its alternative names, separated by semicolons, all
+     * separated by tabs. Cities that share a name are listed most prominent first. Empty lines
+     * and lines starting with {@literal #} are ignored.
+     * @param list The city list, which is not closed.
+     * @return The directory.
+     * @throws IOException If the list could not be read or is malformed.
+     */
+    @NonNull
+    public static CityDirectory read(@NonNull Reader list) throws IOException {
+        final BufferedReader reader = new BufferedReader(list);
+        final List<City> cities = new ArrayList<>();
+        final List<String> keys = new ArrayList<>();
+        final List<Integer> keyCities = new ArrayList<>();
+
+        String line;
+        for (int lineNumber = 1; (line = reader.readLine()) != null; ++lineNumber) {
+            if (line.trim().isEmpty() || line.startsWith(COMMENT))
+                continue;
+
+            final String[] fields = line.split(FIELD_SEPARATOR);
+            if (fields.length < 2 || fields[0].trim().isEmpty() || fields[1].trim().length() != 2)
+                throw new IOException("Malformed city at line " + lineNumber + ": " + line);
+
+            final City city = new City(fields[0].trim(), fields[1].trim().toUpperCase(Locale.US));
+            keys.add(normalize(city.getName()));
+            keyCities.add(cities.size());
+            if (fields.length > 2)
+                for (String alias : fields[2].split(ALIAS_SEPARATOR)) {
+                    keys.add(normalize(alias));
+                    keyCities.add(cities.size());
+                }
+            cities.add(city);
+        }
+
+        final int[] keyCitiesArray = new int[keyCities.size()];
+        for (int idx = 0; idx < keyCitiesArray.length; ++idx)
+            keyCitiesArray[idx] = keyCities.get(idx);
+        return new CityDirectory(cities, keys, keyCitiesArray);
+    }
+
+    /**
+     * Normalizes the given city name (or prefix) for matching purposes: accents are removed,
+     * letters are lower cased and any other characters are collapsed into single spaces.
+     * @param name The name.
+     * @return The normalized name.
+     */
+    @NonNull
+    public static String normalize(@NonNull String name) {
+        final String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        final StringBuilder builder = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int idx = 0; idx < decomposed.length(); ++idx) {
+            final char c = decomposed.charAt(idx);
+            if (Character.getType(c) == Character.NON_SPACING_MARK)
+                continue;
+            if (!Character.isLetterOrDigit(c)) {
+                pendingSpace = builder.length() != 0;
+                continue;
+            }
+            if (pendingSpace) {
+                builder.append(' ');
+                pendingSpace = false;
+            }
+            builder.append(Character.toLowerCase(c));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Checks whether the given city is in the given country.
+     * @param city The city.
+     * @param country The country code, in ISO 3166 alpha-2 or alpha-3 format, in any case.
+     * @return {@literal true} if the city is in the country, {@literal false} otherwise.
+     */
+    private static boolean isInCountry(@NonNull City city, @NonNull String country) {
+        if (country.equalsIgnoreCase(city.getCountryCode()))
+            return true;
+        try {
+            return country.length() == 3 && country.equalsIgnoreCase(
+                    new Locale("", city.getCountryCode()).getISO3Country());
+        } catch (MissingResourceException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Finds the city designated by the given input, in the format {@literal name[,country]}.
+     * @param input The input.
+     * @return The city, or {@literal null} if the input designates no known city.
+     */
+    @Nullable
+    public City find(@NonNull String input) {
+        final int separator = input.indexOf(',');
+        final String name = separator < 0 ? input : input.substring(0, separator);
+        final String country = separator < 0 ? "" : input.substring(separator + 1).trim();
+
+        for (int city : index.get(normalize(name)))
+            if (country.isEmpty() || isInCountry(cities[city], country))
+                return cities[city];
+        return null;
+    }
+
+    /**
+     * Produces the canonical id of the city designated by the given input, in the format
+     * {@literal name[,country]}.
+     * @param input The input.
+     * @return The city's canonical id or, if the input designates no known city, the input
+     * without surrounding whitespace.
+     */
+    @NonNull
+    public String canonicalize(@NonNull String input) {
+        final City city = find(input);
+        return city != null ? city.getId() : input.trim();
+    }
+
+    /**
+     * Gets the cities whose names (or alternative names) start with the given prefix, in the
+     * format {@literal name[,country]}, where the country code may also be a prefix.
+     * @param prefix The prefix.
+     * @param limit The maximum number of cities.
+     * @return The cities, most prominent first.
+     */
+    @NonNull
+    public List<City> search(@NonNull String prefix, int limit) {
+        final int separator = prefix.indexOf(',');
+        final String name = separator < 0 ? prefix : prefix.substring(0, separator);
+        final String country = separator < 0 ? "" :
+                prefix.substring(separator + 1).trim().toUpperCase(Locale.US);
+
+        final List<City> result = new ArrayList<>(Math.min(limit, 8));
+        for (int city : index.getByPrefix(normalize(name))) {
+            if (result.size() == limit)
+                break;
+            if (cities[city].getCountryCode().startsWith(country))
+                result.add(cities[city]);
+        }
+        return result;
+    }
+
+    /** @return The number of cities in the directory. */
+    public int size() {
+        return cities.length;
+    }
+}
@@ -0,0 +1,165 @@
+package pdm.demos.weatherapp.cities;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Class whose instances are compact tries that map keys (i.e. normalized city names) to the
+ * indexes of the entries they identify. Several keys may identify the same entry (e.g. the
+ * alternative names of a city) and the same key may identify several entries (e.g. cities with
+ * the same name in different countries).
+ *
+ * <p>Once built, the trie is held in a handful of arrays, in breadth-first order, so that the
+ * children of each node are contiguous and sorted: a lookup takes a binary search per character,
+ * without chasing pointers, and the nodes of each level of a subtree form a contiguous range.
+ * Instances are immutable and are therefore thread-safe.</p>
+ */
+final class CityTrie {
+
+    /** The entries of a key that identifies no entries. */
+    private static final int[] NO_ENTRIES = new int[0];
+
+    /**
+     * Class whose instances are the nodes of the trie while it is being built.
+     */
+    private static final class Node {
+        final TreeMap<Character, Node> children = new TreeMap<>();
+        final List<Integer> entries = new ArrayList<>(1);
+    }
+
+    /** The character of the edge that leads to each node. The root's is unused. */
+    private final char[] labels;
+    /** The index of the first child of each node. */
+    private final int[] firstChild;
+    /** The number of children of each node. */
+    private final int[] childCount;
+    /** The entries of the keys, grouped by node, in insertion order within each node. */
+    private final int[] entries;
+    /** The position in {@link #entries} of the first entry of each node, plus the end position. */
+    private final int[] entriesStart;
+
+    /**
+     * Initiates an instance that maps each of the given keys to the corresponding entry.
+     * @param keys The keys.
+     * @param keyEntries The entry identified by each key, in the same order.
+     */
+    CityTrie(@NonNull String[] keys, @NonNull int[] keyEntries) {
+        final Node root = new Node();
+        int nodeCount = 1;
+        for (int idx = 0; idx < keys.length; ++idx) {
+            Node node = root;
+            for (int pos = 0; pos < keys[idx].length(); ++pos) {
+                final char c = keys[idx].charAt(pos);
+                Node child = node.children.get(c);
+                if (child == null) {
+                    node.children.put(c, child = new Node());
+                    ++nodeCount;
+                }
+                node = child;
+            }
+            if (!node.entries.contains(keyEntries[idx]))
+                node.entries.add(keyEntries[idx]);
+        }
+
+        labels = new char[nodeCount];
+        firstChild = new int[nodeCount];
+        childCount = new int[nodeCount];
+        entriesStart = new int[nodeCount + 1];
+        final List<Integer> flatEntries = new ArrayList<>(keys.length);
+
+        // Nodes are numbered breadth-first, so that the children of each node are contiguous
+        final Queue<Node> pending = new ArrayDeque<>();
+        pending.add(root);
+        int next = 1;
+        for (int index = 0; index < nodeCount; ++index) {
+            final Node node = pending.remove();
+            entriesStart[index] = flatEntries.size();
+            flatEntries.addAll(node.entries);
+            firstChild[index] = next;
+            childCount[index] = node.children.size();
+            for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+                labels[next++] = child.getKey();
+                pending.add(child.getValue());
+            }
+        }
+        entriesStart[nodeCount] = flatEntries.size();
+        entries = new int[flatEntries.size()];
+        for (int idx = 0; idx < entries.length; ++idx)
+            entries[idx] = flatEntries.get(idx);
+    }
+
+    /**
+     * Finds the node reached from the root through the given key.
+     * @param key The key.
+     * @return The node's index, or -1 if there is none.
+     */
+    private int find(@NonNull String key) {
+        int node = 0;
+        for (int pos = 0; pos < key.length() && node >= 0; ++pos) {
+            final int from = firstChild[node];
+            final int child = Arrays.binarySearch(labels, from, from + childCount[node],
+                    key.charAt(pos));
+            node = child >= 0 ? child : -1;
+        }
+        return node;
+    }
+
+    /**
+     * Gets the entries identified by the given key.
+     * @param key The key.
+     * @return The entries' indexes, in insertion order.
+     */
+    @NonNull
+    int[] get(@NonNull String key) {
+        final int node = find(key);
+        return node < 0 || entriesStart[node] == entriesStart[node + 1] ? NO_ENTRIES :
+                Arrays.copyOfRange(entries, entriesStart[node], entriesStart[node + 1]);
+    }
+
+    /**
+     * Gets the entries identified by the keys that start with the given prefix.
+     * @param prefix The prefix.
+     * @return The entries' indexes, without duplicates, in ascending order.
+     */
+    @NonNull
+    int[] getByPrefix(@NonNull String prefix) {
+        final int start = find(prefix);
+        if (start < 0)
+            return NO_ENTRIES;
+
+        // Numbered breadth-first, each level of the subtree is a contiguous range of nodes, whose
+        // entries are also contiguous
+        int[] found = NO_ENTRIES;
+        int count = 0;
+        for (int from = start, to = start + 1; from < to; ) {
+            final int first = entriesStart[from], last = entriesStart[to];
+            if (count + last - first > found.length)
+                found = Arrays.copyOf(found, Math.max(2 * found.length, count + last - first));
+            System.arraycopy(entries, first, found, count, last - first);
+            count += last - first;
+
+            final int nextTo = firstChild[to - 1] + childCount[to - 1];
+            from = firstChild[from];
+            to = nextTo;
+        }
+
+        Arrays.sort(found, 0, count);
+        int distinct = 0;
+        for (int idx = 0; idx < count; ++idx)
+            if (distinct == 0 || found[distinct - 1] != found[idx])
+                found[distinct++] = found[idx];
+        return Arrays.copyOf(found, distinct);
+    }
+
+    /** @return The number of nodes of the trie. */
+    int getNodeCount() {
+        return labels.length;
+    }
+}
@@ -0,0 +1,317 @@
+package pdm.demos.weatherapp.history;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pdm.demos.weatherapp.providers.WeatherInfo;
+import pdm.demos.weatherapp.providers.WeatherQuery;
+
+import static pdm.demos.weatherapp.history.WeatherHistoryDbHelper.*;
+
+/**
+ * Class whose instances persist the history of the weather information fetched for each city, in
+ * an SQLite database, and support time range queries over it.
+ *
+ * <p>Observations are appended as they are fetched and are keyed by city (see
+ * {@link WeatherQuery#getCityKey()}) and unit system. The store is kept bounded by compaction
+ * (see {@link #compact(long)}): raw observations older than {@link #RAW_RETENTION} are replaced by
+ * hourly buckets, which are in turn deleted once older than {@link #RETENTION}. Aggregates over
+ * compacted periods are therefore computed over the hourly averages.</p>
+ *
+ * <p>All operations perform I/O and must therefore be executed on a worker thread. Instances are
+ * thread-safe.</p>
+ */
+public final class WeatherHistory {
+
+    /** Debugging tag used by the Android logger. */
+    private static final String TAG = "WeatherHistory";
+
+    /** The duration of an hour, in milliseconds. */
+    private static final long HOUR = 60 * 60 * 1000;
+    /** The period during which raw observations are kept, in milliseconds. */
+    public static final long RAW_RETENTION = 24 * HOUR;
+    /** The period during which observations (i.e. hourly buckets) are kept, in milliseconds. */
+    public static final long RETENTION = 30 * 24 * HOUR;
+    /** The minimum interval between compactions, in milliseconds. */
+    private static final long COMPACTION_INTERVAL = HOUR;
+
+    /** The selection of the observations of a city within a time range. */
+    private static final String RANGE_SELECTION = CITY + " = ? AND " + UNITS + " = ? AND "
+            + TIMESTAMP + " >= ? AND " + TIMESTAMP + " < ?";
+
+    /** The columns used to build {@link WeatherInfo} instances, in constructor order. */
+    private static final String[] INFO_COLUMNS = { TIMESTAMP, NAME, DESCRIPTION, ICON, WIND_SPEED,
+            WIND_DIRECTION, TEMPERATURE, MIN_TEMPERATURE, MAX_TEMPERATURE, HUMIDITY };
+
+    /**
+     * Produces the SQL expression of the most recent value of the given column among the raw
+     * observations of the hour of the current row of the {@literal raw} table alias.
+     * @param column The column.
+     * @return The SQL expression.
+     */
+    private static String latestOfHour(String column) {
+        return "(SELECT " + column + " FROM " + TABLE + " AS latest"
+                + " WHERE latest." + CITY + " = raw." + CITY
+                + " AND latest." + UNITS + " = raw." + UNITS
+                + " AND latest." + RESOLUTION + " = " + RESOLUTION_RAW
+                + " AND latest." + TIMESTAMP + " / " + HOUR + " = raw." + TIMESTAMP + " / " + HOUR
+                + " ORDER BY latest." + TIMESTAMP + " DESC LIMIT 1)";
+    }
+
+    /** The statement that summarizes old raw observations into hourly buckets. */
+    private static final String COMPACTION_SQL = "INSERT INTO " + TABLE + " ("
+            + CITY + ", " + UNITS + ", " + TIMESTAMP + ", " + RESOLUTION + ", " + SAMPLES + ", "
+            + NAME + ", " + DESCRIPTION + ", " + ICON + ", " + TEMPERATURE + ", "
+            + MIN_TEMPERATURE + ", " + MAX_TEMPERATURE + ", " + HUMIDITY + ", "
+            + WIND_SPEED + ", " + WIND_DIRECTION + ")"
+            + " SELECT " + CITY + ", " + UNITS + ", (" + TIMESTAMP + " / " + HOUR + ") * " + HOUR
+            + ", " + RESOLUTION_HOURLY + ", SUM(" + SAMPLES + "), MAX(" + NAME + "), "
+            + latestOfHour(DESCRIPTION) + ", " + latestOfHour(ICON) + ", "
+            + "SUM(" + TEMPERATURE + " * " + SAMPLES + ") / SUM(" + SAMPLES + "), "
+            + "MIN(" + MIN_TEMPERATURE + "), MAX(" + MAX_TEMPERATURE + "), "
+            + "CAST(ROUND(SUM(" + HUMIDITY + " * " + SAMPLES + ") * 1.0 / SUM(" + SAMPLES + "))"
+            + " AS INTEGER), "
+            + "SUM(" + WIND_SPEED + " * " + SAMPLES + ") / SUM(" + SAMPLES + "), "
+            // Directions cannot be averaged linearly, hence the most recent one
+            + latestOfHour(WIND_DIRECTION)
+            + " FROM " + TABLE + " AS raw"
+            + " WHERE " + RESOLUTION + " = " + RESOLUTION_RAW + " AND " + TIMESTAMP + " < ?"
+            + " GROUP BY " + CITY + ", " + UNITS + ", " + TIMESTAMP + " / " + HOUR;
+
+    /** The query that computes temperature aggregates, weighted by the number of samples. */
+    private static final String STATS_SQL = "SELECT MIN(" + TEMPERATURE + "), MAX("
+            + TEMPERATURE + "), SUM(" + TEMPERATURE + " * " + SAMPLES + ") / SUM(" + SAMPLES
+            + "), SUM(" + SAMPLES + ") FROM " + TABLE + " WHERE " + RANGE_SELECTION;
+
+    /**
+     * Class whose instances are the observations of the weather at a given moment. Instances are
+     * immutable.
+     */
+    public static final class Observation {
+        /** The moment of the observation, in wall clock milliseconds. */
+        private final long timestamp;
+        /** The observed weather information. */
+        private final WeatherInfo info;
+
+        private Observation(long timestamp, @NonNull WeatherInfo info) {
+            this.timestamp = timestamp;
+            this.info = info;
+        }
+
+        /** @return The moment of the observation, in wall clock milliseconds. */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /** @return The observed weather information. */
+        @NonNull
+        public WeatherInfo getInfo() {
+            return info;
+        }
+    }
+
+    /**
+     * Class whose instances hold temperature aggregates over a time range. Instances are
+     * immutable.
+     */
+    public static final class TemperatureStats {
+        /** The aggregated values. */
+        private final double min, max, average;
+        /** The number of observations the aggregates were computed from. */
+        private final int sampleCount;
+
+        private TemperatureStats(double min, double max, double average, int sampleCount) {
+            this.min = min;
+            this.max = max;
+            this.average = average;
+            this.sampleCount = sampleCount;
+        }
+
+        /** @return The minimum temperature. */
+        public double getMin() {
+            return min;
+        }
+
+        /** @return The maximum temperature. */
+        public double getMax() {
+            return max;
+        }
+
+        /** @return The average temperature. */
+        public double getAverage() {
+            return average;
+        }
+
+        /** @return The number of observations the aggregates were computed from. */
+        public int getSampleCount() {
+            return sampleCount;
+        }
+    }
+
+    /** The database helper. */
+    private final WeatherHistoryDbHelper dbHelper;
+    /** The moment of the last compaction, in wall clock milliseconds. */
+    private volatile long lastCompaction;
+
+    /**
+     * Initiates an instance with the given context.
+     * @param context The context.
+     */
+    public WeatherHistory(@NonNull Context context) {
+        dbHelper = new WeatherHistoryDbHelper(context.getApplicationContext());
+    }
+
+    /**
+     * Produces the selection arguments of {@link #RANGE_SELECTION}.
+     */
+    @NonNull
+    private static String[] rangeArgs(@NonNull WeatherQuery query, long from, long to) {
+        return new String[] { query.getCityKey(), query.getUnits().toString(),
+                Long.toString(from), Long.toString(to) };
+    }
+
+    /**
+     * Produces the observation at the current position of the given cursor, whose columns are
+     * {@link #INFO_COLUMNS}.
+     */
+    @NonNull
+    private static Observation observationAt(@NonNull Cursor cursor) {
+        final WeatherInfo info = new WeatherInfo(cursor.getString(1), cursor.getString(2),
+                cursor.getString(3), cursor.getDouble(4), cursor.getDouble(5),
+                cursor.getDouble(6), cursor.getDouble(7), cursor.getDouble(8), cursor.getInt(9));
+        return new Observation(cursor.getLong(0), info);
+    }
+
+    /**
+     * Appends the given observation to the history.
+     * @param query The query that produced the weather information.
+     * @param info The weather information.
+     * @param timestamp The moment of the observation, in wall clock milliseconds.
+     */
+    @WorkerThread
+    public void record(@NonNull WeatherQuery query, @NonNull WeatherInfo info, long timestamp) {
+        final ContentValues values = new ContentValues();
+        values.put(CITY, query.getCityKey());
+        values.put(UNITS, query.getUnits().toString());
+        values.put(TIMESTAMP, timestamp);
+        values.put(NAME, info.getCityName());
+        values.put(DESCRIPTION, info.getDescription());
+        values.put(ICON, info.getIconURL());
+        values.put(TEMPERATURE, info.getTemperature());
+        values.put(MIN_TEMPERATURE, info.getMinTemperature());
+        values.put(MAX_TEMPERATURE, info.getMaxTemperature());
+        values.put(HUMIDITY, info.getHumidity());
+        values.put(WIND_SPEED, info.getWindSpeed());
+        values.put(WIND_DIRECTION, info.getWindDirection());
+        dbHelper.getWritableDatabase().insert(TABLE, null, values);
+    }
+
+    /**
+     * Gets the observations of the given city within the given time range, in chronological
+     * order.
+     * @param query The query that identifies the city and unit system.
+     * @param from The start of the range (inclusive), in wall clock milliseconds.
+     * @param to The end of the range (exclusive), in wall clock milliseconds.
+     * @return The observations.
+     */
+    @WorkerThread
+    @NonNull
+    public List<Observation> getObservations(@NonNull WeatherQuery query, long from, long to) {
+        final Cursor cursor = dbHelper.getReadableDatabase().query(TABLE, INFO_COLUMNS,
+                RANGE_SELECTION, rangeArgs(query, from, to), null, null, TIMESTAMP);
+        try {
+            final List<Observation> result = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext())
+                result.add(observationAt(cursor));
+            return result;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Gets the most recent observation of the given city.
+     * @param query The query that identifies the city and unit system.
+     * @return The observation, or {@literal null} if there is none.
+     */
+    @WorkerThread
+    @Nullable
+    public Observation getLatest(@NonNull WeatherQuery query) {
+        final Cursor cursor = dbHelper.getReadableDatabase().query(TABLE, INFO_COLUMNS,
+                RANGE_SELECTION, rangeArgs(query, 0, Long.MAX_VALUE), null, null,
+                TIMESTAMP + " DESC", "1");
+        try {
+            return cursor.moveToFirst() ? observationAt(cursor) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Computes the temperature aggregates of the given city within the given time range.
+     * @param query The query that identifies the city and unit system.
+     * @param from The start of the range (inclusive), in wall clock milliseconds.
+     * @param to The end of the range (exclusive), in wall clock milliseconds.
+     * @return The aggregates, or {@literal null} if there are no observations in the range.
+     */
+    @WorkerThread
+    @Nullable
+    public TemperatureStats getTemperatureStats(@NonNull WeatherQuery query, long from, long to) {
+        final Cursor cursor = dbHelper.getReadableDatabase()
+                .rawQuery(STATS_SQL, rangeArgs(query, from, to));
+        try {
+            if (!cursor.moveToFirst() || cursor.isNull(3))
+                return null;
+            return new TemperatureStats(cursor.getDouble(0), cursor.getDouble(1),
+                    cursor.getDouble(2), cursor.getInt(3));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Compacts the history: raw observations older than {@link #RAW_RETENTION} (rounded down to
+     * the hour) are replaced by hourly buckets and observations older than {@link #RETENTION} are
+     * deleted.
+     * @param now The current moment, in wall clock milliseconds.
+     */
+    @WorkerThread
+    public void compact(long now) {
+        final long rawCutoff = (now - RAW_RETENTION) / HOUR * HOUR;
+        final String[] rawArgs = { Long.toString(rawCutoff) };
+
+        final SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.execSQL(COMPACTION_SQL, rawArgs);
+            final int compacted = db.delete(TABLE,
+                    RESOLUTION + " = " + RESOLUTION_RAW + " AND " + TIMESTAMP + " < ?", rawArgs);
+            final int expired = db.delete(TABLE, TIMESTAMP + " < ?",
+                    new String[] { Long.toString(now - RETENTION) });
+            db.setTransactionSuccessful();
+            Log.v(TAG, String.format("Compacted %d observations, expired %d", compacted, expired));
+        } finally {
+            db.endTransaction();
+        }
+        lastCompaction = now;
+    }
+
+    /**
+     * Compacts the history if the last compaction took place more than an hour ago.
+     * @param now The current moment, in wall clock milliseconds.
+     */
+    @WorkerThread
+    public void compactIfDue(long now) {
+        if (now - lastCompaction >= COMPACTION_INTERVAL)
+            compact(now);
+    }
+}
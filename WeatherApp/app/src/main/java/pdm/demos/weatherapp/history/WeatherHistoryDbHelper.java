@@ -0,0 +1,81 @@
+package pdm.demos.weatherapp.history;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * Class responsible for creating and upgrading the weather history database.
+ *
+ * <p>The database has a single table, with one row per observation. Rows are either raw
+ * observations, as fetched, or hourly buckets that summarize the raw observations of an hour,
+ * produced by compaction (see {@link WeatherHistory#compact(long)}). The number of raw observations
+ * summarized by each row is held in the {@link #SAMPLES} column.</p>
+ */
+final class WeatherHistoryDbHelper extends SQLiteOpenHelper {
+
+    /** The database file name. */
+    private static final String DATABASE_NAME = "weather_history.db";
+    /** The database schema version. */
+    private static final int DATABASE_VERSION = 1;
+
+    /** The observations table and its columns. */
+    static final String TABLE = "observations";
+    static final String ID = "_id";
+    static final String CITY = "city";
+    static final String UNITS = "units";
+    static final String TIMESTAMP = "timestamp";
+    static final String RESOLUTION = "resolution";
+    static final String SAMPLES = "samples";
+    static final String NAME = "name";
+    static final String DESCRIPTION = "description";
+    static final String ICON = "icon";
+    static final String TEMPERATURE = "temperature";
+    static final String MIN_TEMPERATURE = "min_temperature";
+    static final String MAX_TEMPERATURE = "max_temperature";
+    static final String HUMIDITY = "humidity";
+    static final String WIND_SPEED = "wind_speed";
+    static final String WIND_DIRECTION = "wind_direction";
+
+    /** The values of the {@link #RESOLUTION} column. */
+    static final int RESOLUTION_RAW = 0, RESOLUTION_HOURLY = 1;
+
+    /**
+     * Initiates an instance with the given context.
+     * @param context The context.
+     */
+    WeatherHistoryDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + CITY + " TEXT NOT NULL, "
+                + UNITS + " TEXT NOT NULL, "
+                + TIMESTAMP + " INTEGER NOT NULL, "
+                + RESOLUTION + " INTEGER NOT NULL DEFAULT " + RESOLUTION_RAW + ", "
+                + SAMPLES + " INTEGER NOT NULL DEFAULT 1, "
+                + NAME + " TEXT, "
+                + DESCRIPTION + " TEXT, "
+                + ICON + " TEXT, "
+                + TEMPERATURE + " REAL NOT NULL, "
+                + MIN_TEMPERATURE + " REAL NOT NULL, "
+                + MAX_TEMPERATURE + " REAL NOT NULL, "
+                + HUMIDITY + " INTEGER NOT NULL, "
+                + WIND_SPEED + " REAL NOT NULL, "
+                + WIND_DIRECTION + " REAL NOT NULL)");
+
+        // All queries are range queries over the observations of a city
+        db.execSQL("CREATE INDEX " + TABLE + "_by_city_time ON " + TABLE
+                + " (" + CITY + ", " + UNITS + ", " + TIMESTAMP + ")");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // There is only one version so far
+    }
+}
@@ -0,0 +1,149 @@
+package pdm.demos.weatherapp.images;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class whose instances provide the weather icons bundled with the application, packed into a
+ * single image (the atlas) by the build's {@literal packIconAtlas} task.
+ *
+ * <p>The atlas is accompanied by an index, with one line per icon, in the format
+ * {@code <icon name> <left> <top> <width> <height>}. Both are loaded lazily, on first use. If they
+ * are not bundled, the atlas is simply empty.</p>
+ *
+ * <p>All operations perform I/O and must therefore be executed on a worker thread. Instances are
+ * thread-safe.</p>
+ */
+public final class IconAtlas {
+
+    /** Debugging tag used by the Android logger. */
+    private static final String TAG = "IconAtlas";
+
+    /** The asset names of the atlas and of its index. */
+    private static final String ATLAS_ASSET = "icons/atlas.png", INDEX_ASSET = "icons/atlas.idx";
+    /** The extension of icon file names, as used in icon URLs. */
+    private static final String ICON_EXTENSION = ".png";
+
+    /** The application's assets. */
+    private final AssetManager assets;
+    /** The bounds of each icon within the atlas, once loaded. Guarded by {@literal this}. */
+    private Map<String, Rect> index;
+    /** The decoder of atlas regions, once created. Guarded by {@literal this}. */
+    private BitmapRegionDecoder decoder;
+
+    /**
+     * Initiates an instance with the given assets.
+     * @param assets The application's assets.
+     */
+    public IconAtlas(@NonNull AssetManager assets) {
+        this.assets = assets;
+    }
+
+    /**
+     * Extracts the icon name from the given icon URL (e.g. {@literal 01d} from
+     * {@literal http://api.openweathermap.org/img/w/01d.png}).
+     * @param url The icon URL.
+     * @return The icon name, or {@literal null} if the URL does not refer to a PNG file.
+     */
+    @Nullable
+    public static String iconNameOf(@NonNull String url) {
+        if (!url.endsWith(ICON_EXTENSION))
+            return null;
+        return url.substring(url.lastIndexOf('/') + 1, url.length() - ICON_EXTENSION.length());
+    }
+
+    /**
+     * Loads the atlas index, if not loaded yet.
+     * @return The index.
+     */
+    @NonNull
+    private Map<String, Rect> getIndex() {
+        if (index != null)
+            return index;
+
+        final Map<String, Rect> entries = new HashMap<>();
+        BufferedReader in = null;
+        try {
+            in = new BufferedReader(new InputStreamReader(assets.open(INDEX_ASSET), "UTF-8"));
+            String line;
+            while ((line = in.readLine()) != null) {
+                final String[] fields = line.trim().split(" ");
+                if (fields.length != 5)
+                    continue;
+                final int left = Integer.parseInt(fields[1]), top = Integer.parseInt(fields[2]);
+                entries.put(fields[0], new Rect(left, top,
+                        left + Integer.parseInt(fields[3]), top + Integer.parseInt(fields[4])));
+            }
+        } catch (IOException | NumberFormatException e) {
+            Log.d(TAG, "No usable icon atlas index: " + e);
+            entries.clear();
+        } finally {
+            if (in != null)
+                try { in.close(); } catch (IOException ignored) { }
+        }
+
+        index = entries.isEmpty() ? Collections.<String, Rect>emptyMap() : entries;
+        return index;
+    }
+
+    /**
+     * Checks whether the icon with the given name is bundled.
+     * @param iconName The icon name.
+     * @return {@literal true} if the icon is bundled, {@literal false} otherwise.
+     */
+    @WorkerThread
+    public synchronized boolean contains(@NonNull String iconName) {
+        return getIndex().containsKey(iconName);
+    }
+
+    /**
+     * Decodes the icon with the given name, subsampled so that it is not larger than needed for
+     * the given size.
+     * @param iconName The icon name.
+     * @param targetWidth The width at which the icon is displayed, or 0 if unknown.
+     * @param targetHeight The height at which the icon is displayed, or 0 if unknown.
+     * @return The icon, or {@literal null} if it is not bundled or could not be decoded.
+     */
+    @WorkerThread
+    @Nullable
+    public synchronized Bitmap decode(@NonNull String iconName, int targetWidth,
+                                      int targetHeight) {
+        final Rect bounds = getIndex().get(iconName);
+        if (bounds == null)
+            return null;
+
+        if (decoder == null) {
+            InputStream in = null;
+            try {
+                in = assets.open(ATLAS_ASSET);
+                decoder = BitmapRegionDecoder.newInstance(in, false);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not open the icon atlas", e);
+                return null;
+            } finally {
+                if (in != null)
+                    try { in.close(); } catch (IOException ignored) { }
+            }
+        }
+
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = IconLoader.sampleSizeOf(bounds.right - bounds.left,
+                bounds.bottom - bounds.top, targetWidth, targetHeight);
+        return decoder.decodeRegion(bounds, options);
+    }
+}
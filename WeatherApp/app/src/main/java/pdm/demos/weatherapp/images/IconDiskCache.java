@@ -0,0 +1,175 @@
+package pdm.demos.weatherapp.images;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Class whose instances store the raw (i.e. encoded) bytes of downloaded images on disk, one file
+ * per URL. The total size of the stored files is bounded: once it is exceeded, the least recently
+ * used files are deleted, as given by their modification date, which is updated on each read.
+ *
+ * <p>All operations perform I/O and must therefore be executed on a worker thread. Instances are
+ * thread-safe.</p>
+ */
+final class IconDiskCache {
+
+    /** Debugging tag used by the Android logger. */
+    private static final String TAG = "IconDiskCache";
+
+    /** The directory where images are stored. */
+    private final File directory;
+    /** The maximum total size of the stored images, in bytes. */
+    private final long maxSize;
+
+    /**
+     * Initiates an instance with the given arguments.
+     * @param directory The directory where images are stored.
+     * @param maxSize The maximum total size of the stored images, in bytes.
+     */
+    IconDiskCache(@NonNull File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Produces the name of the file that holds the image with the given URL.
+     * @param url The image's URL.
+     * @return The file name.
+     */
+    @NonNull
+    private static String fileNameOf(@NonNull String url) {
+        final String lastSegment = url.substring(url.lastIndexOf('/') + 1);
+        final StringBuilder builder = new StringBuilder();
+        for (int idx = 0; idx < lastSegment.length() && idx < 32; ++idx) {
+            final char c = lastSegment.charAt(idx);
+            builder.append(Character.isLetterOrDigit(c) ? c : '_');
+        }
+        return builder.append('-').append(Integer.toHexString(url.hashCode())).toString();
+    }
+
+    /**
+     * Reads all the bytes of the given stream.
+     * @param in The stream.
+     * @return The bytes.
+     * @throws IOException If an I/O error occurs.
+     */
+    @NonNull
+    static byte[] readFully(@NonNull InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        final byte[] buffer = new byte[4096];
+        int count;
+        while ((count = in.read(buffer)) != -1)
+            out.write(buffer, 0, count);
+        return out.toByteArray();
+    }
+
+    /**
+     * Gets the bytes of the image with the given URL.
+     * @param url The image's URL.
+     * @return The image's bytes, or {@literal null} if the image is not stored.
+     */
+    @WorkerThread
+    @Nullable
+    synchronized byte[] get(@NonNull String url) {
+        final File file = new File(directory, fileNameOf(url));
+        if (!file.exists())
+            return null;
+
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            final byte[] bytes = readFully(in);
+            file.setLastModified(System.currentTimeMillis());
+            return bytes;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read " + file, e);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Stores the given bytes as those of the image with the given URL, trimming the cache if
+     * needed.
+     * @param url The image's URL.
+     * @param bytes The image's bytes.
+     */
+    @WorkerThread
+    synchronized void put(@NonNull String url, @NonNull byte[] bytes) {
+        if (bytes.length > maxSize || (!directory.exists() && !directory.mkdirs()))
+            return;
+
+        // Write to a temporary file first, so that readers never observe partial images
+        final File file = new File(directory, fileNameOf(url));
+        final File temp = new File(directory, file.getName() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(temp);
+            out.write(bytes);
+            out.close();
+            out = null;
+            if (!temp.renameTo(file))
+                Log.w(TAG, "Could not store " + file);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write " + temp, e);
+        } finally {
+            closeQuietly(out);
+            temp.delete();
+        }
+        trim();
+    }
+
+    /**
+     * Deletes the least recently used images until the total size is within bounds.
+     */
+    private void trim() {
+        final File[] files = directory.listFiles();
+        if (files == null)
+            return;
+
+        long size = 0;
+        for (File file : files)
+            size += file.length();
+        if (size <= maxSize)
+            return;
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                final long lhsModified = lhs.lastModified(), rhsModified = rhs.lastModified();
+                return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+            }
+        });
+        for (int idx = 0; idx < files.length && size > maxSize; ++idx) {
+            final long length = files[idx].length();
+            if (files[idx].delete())
+                size -= length;
+        }
+    }
+
+    /**
+     * Closes the given stream, ignoring errors.
+     * @param stream The stream, or {@literal null}.
+     */
+    private static void closeQuietly(@Nullable Closeable stream) {
+        if (stream == null)
+            return;
+        try {
+            stream.close();
+        } catch (IOException ignored) { }
+    }
+}
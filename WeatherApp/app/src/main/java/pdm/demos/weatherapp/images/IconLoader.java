@@ -0,0 +1,293 @@
+package pdm.demos.weatherapp.images;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import pdm.demos.weatherapp.providers.Cancellable;
+import pdm.demos.weatherapp.providers.Cancellables;
+import pdm.demos.weatherapp.utils.HttpClientFactory;
+import pdm.demos.weatherapp.utils.MyAsyncTask;
+
+/**
+ * Class whose instances load (weather icon) images, which are decoded to the size at which they
+ * are displayed.
+ *
+ * <p>Loading uses four tiers: an in-memory LRU of decoded bitmaps, bounded by their size in
+ * bytes; the icons bundled with the application (see {@link IconAtlas}); an on-disk cache of the
+ * encoded images (see {@link IconDiskCache}); and, finally, the network, through the shared HTTP
+ * client. Bundled icons therefore never require network I/O. Images found in memory are delivered synchronously, and
+ * can therefore be displayed in the same frame. Concurrent requests for the same image (and size)
+ * share a single background load, which is abandoned once all of them are cancelled.</p>
+ *
+ * <p>Instances are meant to be used from the main thread only, where callbacks are executed.</p>
+ */
+public final class IconLoader {
+
+    /** Debugging tag used by the Android logger. */
+    private static final String TAG = "IconLoader";
+
+    /** The default maximum size of the disk cache, in bytes. */
+    public static final long DEFAULT_DISK_CACHE_SIZE = 1024 * 1024;
+    /** The default maximum size of the memory cache, in bytes. */
+    public static final int DEFAULT_MEMORY_CACHE_SIZE =
+            (int) Math.min(Runtime.getRuntime().maxMemory() / 16, 4 * 1024 * 1024);
+
+    /**
+     * Contract to be supported by the recipients of loaded images.
+     */
+    public interface Callback {
+        /**
+         * Called on the main thread once the image is loaded.
+         * @param url The image's URL.
+         * @param image The image, or {@literal null} if it could not be loaded.
+         */
+        void onIconLoaded(@NonNull String url, @Nullable Bitmap image);
+    }
+
+    /**
+     * Class whose instances load an image in the background, on behalf of all the requests that
+     * joined it.
+     */
+    private final class Load extends MyAsyncTask<Void, Void, Bitmap> {
+        /** The key of the loaded image. */
+        private final String key;
+        /** The image's URL. */
+        private final String url;
+        /** The size at which the image is displayed. */
+        private final int targetWidth, targetHeight;
+        /** The callbacks of the requests that joined the load. */
+        private final List<Callback> callbacks;
+
+        private Load(@NonNull String key, @NonNull String url, int targetWidth, int targetHeight) {
+            this.key = key;
+            this.url = url;
+            this.targetWidth = targetWidth;
+            this.targetHeight = targetHeight;
+            callbacks = new ArrayList<>();
+        }
+
+        @Override
+        protected Bitmap doInBackground(Void input) {
+            final String iconName = IconAtlas.iconNameOf(url);
+            if (atlas != null && iconName != null && atlas.contains(iconName)) {
+                final Bitmap bundled = atlas.decode(iconName, targetWidth, targetHeight);
+                if (bundled != null)
+                    return bundled;
+            }
+
+            byte[] bytes = diskCache.get(url);
+            if (bytes == null) {
+                bytes = download(url);
+                if (bytes == null)
+                    return null;
+                diskCache.put(url, bytes);
+            }
+            return decodeSampled(bytes, targetWidth, targetHeight);
+        }
+
+        @Override
+        protected void onPostExecution(Bitmap image) {
+            inFlight.remove(key);
+            if (image != null)
+                memoryCache.put(key, image);
+            for (Callback callback : callbacks)
+                callback.onIconLoaded(url, image);
+        }
+    }
+
+    /** The decoded images, per key. */
+    private final LruCache<String, Bitmap> memoryCache;
+    /** The bundled icons, if any. */
+    private final IconAtlas atlas;
+    /** The encoded images. */
+    private final IconDiskCache diskCache;
+    /** The loads in progress, per key. Confined to the main thread. */
+    private final Map<String, Load> inFlight;
+
+    /**
+     * Initiates an instance with the given arguments.
+     * @param cacheDirectory The directory of the disk cache.
+     * @param atlas The bundled icons, or {@literal null} if there are none.
+     * @param diskCacheSize The maximum size of the disk cache, in bytes.
+     * @param memoryCacheSize The maximum size of the memory cache, in bytes.
+     */
+    public IconLoader(@NonNull File cacheDirectory, @Nullable IconAtlas atlas,
+                      long diskCacheSize, int memoryCacheSize) {
+        this.atlas = atlas;
+        diskCache = new IconDiskCache(cacheDirectory, diskCacheSize);
+        memoryCache = new LruCache<String, Bitmap>(memoryCacheSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap image) {
+                return image.getByteCount();
+            }
+        };
+        inFlight = new HashMap<>();
+    }
+
+    /**
+     * Initiates an instance with the default cache sizes.
+     * @param cacheDirectory The directory of the disk cache.
+     * @param atlas The bundled icons, or {@literal null} if there are none.
+     */
+    public IconLoader(@NonNull File cacheDirectory, @Nullable IconAtlas atlas) {
+        this(cacheDirectory, atlas, DEFAULT_DISK_CACHE_SIZE, DEFAULT_MEMORY_CACHE_SIZE);
+    }
+
+    /**
+     * Produces the key of the image with the given URL, decoded to the given size.
+     * @param url The image's URL.
+     * @param targetWidth The width at which the image is displayed.
+     * @param targetHeight The height at which the image is displayed.
+     * @return The key.
+     */
+    @NonNull
+    private static String keyOf(@NonNull String url, int targetWidth, int targetHeight) {
+        return url + '@' + targetWidth + 'x' + targetHeight;
+    }
+
+    /**
+     * Gets the image with the given URL, decoded to the given size, if it is held in memory.
+     * @param url The image's URL.
+     * @param targetWidth The width at which the image is displayed, or 0 if unknown.
+     * @param targetHeight The height at which the image is displayed, or 0 if unknown.
+     * @return The image, or {@literal null} if it is not held in memory.
+     */
+    @MainThread
+    @Nullable
+    public Bitmap getCached(@NonNull String url, int targetWidth, int targetHeight) {
+        return memoryCache.get(keyOf(url, targetWidth, targetHeight));
+    }
+
+    /**
+     * Loads the image with the given URL, decoded to the given size. If the image is held in
+     * memory, the callback is executed before the method returns.
+     * @param url The image's URL.
+     * @param targetWidth The width at which the image is displayed, or 0 if unknown.
+     * @param targetHeight The height at which the image is displayed, or 0 if unknown.
+     * @param callback The callback to be executed once the image is loaded.
+     * @return The request's handle, which must be cancelled if the image is no longer needed.
+     */
+    @MainThread
+    @NonNull
+    public Cancellable load(@NonNull String url, int targetWidth, int targetHeight,
+                            @NonNull final Callback callback) {
+        final Bitmap cached = getCached(url, targetWidth, targetHeight);
+        if (cached != null) {
+            callback.onIconLoaded(url, cached);
+            return Cancellables.NONE;
+        }
+
+        final String key = keyOf(url, targetWidth, targetHeight);
+        Load load = inFlight.get(key);
+        if (load == null) {
+            load = new Load(key, url, targetWidth, targetHeight);
+            inFlight.put(key, load);
+            load.execute(null);
+        }
+        load.callbacks.add(callback);
+
+        final Load joined = load;
+        return new Cancellable() {
+            private boolean cancelled;
+
+            @Override
+            public boolean cancel() {
+                if (cancelled || !joined.callbacks.remove(callback))
+                    return false;
+                cancelled = true;
+                if (joined.callbacks.isEmpty() && inFlight.get(key) == joined) {
+                    // The download, if running, is allowed to complete so that the disk cache
+                    // still benefits from it
+                    inFlight.remove(key);
+                    joined.cancel(false);
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled;
+            }
+        };
+    }
+
+    /**
+     * Downloads the image with the given URL.
+     * @param url The image's URL.
+     * @return The image's bytes, or {@literal null} if the download failed.
+     */
+    @WorkerThread
+    @Nullable
+    private static byte[] download(@NonNull String url) {
+        try {
+            final Request request = new Request.Builder().url(url).build();
+            final Response response = HttpClientFactory.getClient().newCall(request).execute();
+            final InputStream in = response.body().byteStream();
+            try {
+                return response.isSuccessful() ? IconDiskCache.readFully(in) : null;
+            } finally {
+                in.close();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w(TAG, "Could not download " + url, e);
+            return null;
+        }
+    }
+
+    /**
+     * Decodes the given image, subsampled so that it is not larger than needed for the given
+     * size.
+     * @param bytes The encoded image.
+     * @param targetWidth The width at which the image is displayed, or 0 if unknown.
+     * @param targetHeight The height at which the image is displayed, or 0 if unknown.
+     * @return The decoded image, or {@literal null} if it could not be decoded.
+     */
+    @WorkerThread
+    @Nullable
+    private static Bitmap decodeSampled(@NonNull byte[] bytes, int targetWidth, int targetHeight) {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+
+        options.inSampleSize = sampleSizeOf(options.outWidth, options.outHeight,
+                targetWidth, targetHeight);
+        options.inJustDecodeBounds = false;
+        return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+    }
+
+    /**
+     * Computes the largest power of two sample size that keeps the decoded image at least as
+     * large as the given target size.
+     * @param width The image's width.
+     * @param height The image's height.
+     * @param targetWidth The target width, or 0 if unknown.
+     * @param targetHeight The target height, or 0 if unknown.
+     * @return The sample size.
+     */
+    static int sampleSizeOf(int width, int height, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0)
+            return 1;
+
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight)
+            sampleSize *= 2;
+        return sampleSize;
+    }
+}
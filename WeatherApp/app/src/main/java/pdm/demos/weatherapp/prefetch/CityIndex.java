@@ -0,0 +1,156 @@
+package pdm.demos.weatherapp.prefetch;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import pdm.demos.weatherapp.cities.CityDirectory;
+
+/**
+ * Class whose instances index the names of the cities the user is likely to ask for, so that
+ * those that match what the user is typing are found without any I/O.
+ *
+ * <p>The index has three tiers: the cities recently asked for, ranked by recency, the remaining
+ * known cities (e.g. those subscribed to background refreshes), ranked alphabetically, and the
+ * cities of the {@link CityDirectory}, ranked by prominence. Matches of each tier precede those of
+ * the following ones. Names are matched by prefix, ignoring case, accents and punctuation (see
+ * {@link CityDirectory#normalize(String)}), and cities are designated by their canonical ids (see
+ * {@link CityDirectory#canonicalize(String)}), so that each city is matched once.</p>
+ *
+ * <p>Instances are immutable and are therefore thread-safe.</p>
+ */
+public final class CityIndex {
+
+    /** An index without cities. */
+    public static final CityIndex EMPTY =
+            new CityIndex(new ArrayList<String>(), new ArrayList<String>());
+
+    /** The canonical ids of the cities recently asked for, most recent first. */
+    private final String[] recent;
+    /** The normalized names of {@link #recent}, as given, with the same order. */
+    private final String[] recentKeys;
+    /** The canonical ids of the remaining known cities, in the order of {@link #knownKeys}. */
+    private final String[] known;
+    /** The normalized names of {@link #known}, as given, sorted. */
+    private final String[] knownKeys;
+    /** The directory of the cities. */
+    private final CityDirectory directory;
+
+    /**
+     * Normalizes the given name (or prefix) for matching purposes.
+     * @param name The name.
+     * @return The normalized name.
+     */
+    @NonNull
+    static String normalize(@NonNull String name) {
+        return CityDirectory.normalize(name);
+    }
+
+    /**
+     * Initiates an instance with the given cities, without a directory. Duplicates are ignored.
+     * @param recent The cities recently asked for, most recent first.
+     * @param known The remaining known cities, in no particular order.
+     */
+    public CityIndex(@NonNull List<String> recent, @NonNull Collection<String> known) {
+        this(recent, known, CityDirectory.EMPTY);
+    }
+
+    /**
+     * Initiates an instance with the given cities. Duplicates are ignored.
+     * @param recent The cities recently asked for, most recent first.
+     * @param known The remaining known cities, in no particular order.
+     * @param directory The directory of the cities, which also produces their canonical ids.
+     */
+    public CityIndex(@NonNull List<String> recent, @NonNull Collection<String> known,
+                     @NonNull CityDirectory directory) {
+        this.directory = directory;
+        final Set<String> seen = new HashSet<>();
+        final List<String> recentIds = new ArrayList<>(recent.size());
+        final List<String> recentNames = new ArrayList<>(recent.size());
+        for (String name : recent) {
+            final String id = directory.canonicalize(name);
+            if (seen.add(normalize(id))) {
+                recentIds.add(id);
+                recentNames.add(normalize(name));
+            }
+        }
+        this.recent = recentIds.toArray(new String[recentIds.size()]);
+        recentKeys = recentNames.toArray(new String[recentNames.size()]);
+
+        final List<String[]> knownNames = new ArrayList<>(known.size());
+        for (String name : known) {
+            final String id = directory.canonicalize(name);
+            if (seen.add(normalize(id)))
+                knownNames.add(new String[] { normalize(name), id });
+        }
+        final String[][] sorted = knownNames.toArray(new String[knownNames.size()][]);
+        Arrays.sort(sorted, new Comparator<String[]>() {
+            @Override
+            public int compare(String[] left, String[] right) {
+                return left[0].compareTo(right[0]);
+            }
+        });
+        this.known = new String[sorted.length];
+        knownKeys = new String[sorted.length];
+        for (int idx = 0; idx < sorted.length; ++idx) {
+            knownKeys[idx] = sorted[idx][0];
+            this.known[idx] = sorted[idx][1];
+        }
+    }
+
+    /**
+     * Gets the cities whose name starts with the given prefix, best ranked first.
+     * @param prefix The prefix.
+     * @param limit The maximum number of cities.
+     * @return The cities' canonical ids.
+     */
+    @NonNull
+    public List<String> match(@NonNull String prefix, int limit) {
+        final String key = normalize(prefix);
+        final List<String> result = new ArrayList<>(Math.min(limit, 8));
+        for (int idx = 0; idx < recentKeys.length && result.size() < limit; ++idx)
+            if (recentKeys[idx].startsWith(key))
+                result.add(recent[idx]);
+
+        // The matches of the known cities are contiguous, starting at the prefix's position
+        int idx = Arrays.binarySearch(knownKeys, key);
+        if (idx < 0)
+            idx = -idx - 1;
+        for (; idx < knownKeys.length && result.size() < limit; ++idx) {
+            if (!knownKeys[idx].startsWith(key))
+                break;
+            result.add(known[idx]);
+        }
+
+        if (result.size() < limit) {
+            final Set<String> matched = new HashSet<>();
+            for (String id : result)
+                matched.add(normalize(id));
+            for (CityDirectory.City city : directory.search(prefix, limit))
+                if (result.size() < limit && matched.add(normalize(city.getId())))
+                    result.add(city.getId());
+        }
+        return result;
+    }
+
+    /**
+     * Produces the canonical id of the given city name, as it would be designated by the index.
+     * @param name The name.
+     * @return The canonical id.
+     */
+    @NonNull
+    String canonicalize(@NonNull String name) {
+        return directory.canonicalize(name);
+    }
+
+    /** @return The number of cities in the index, besides those of the directory. */
+    public int size() {
+        return recent.length + known.length;
+    }
+}
@@ -0,0 +1,225 @@
+package pdm.demos.weatherapp.prefetch;
+
+import android.os.Handler;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import pdm.demos.weatherapp.providers.WeatherInfoFuture;
+import pdm.demos.weatherapp.providers.WeatherInfoProvider;
+import pdm.demos.weatherapp.utils.Metrics;
+
+/**
+ * Class whose instances speculatively fetch the weather information of the cities the user is
+ * likely to ask for, while the user types the city name, so that the information is already
+ * cached (see {@link pdm.demos.weatherapp.providers.CachingWeatherInfoProvider}) by the time the
+ * request is actually made. Requests made while a prefetch of the same information is in flight
+ * join its HTTP call (see
+ * {@link pdm.demos.weatherapp.providers.openweathermap.CallCoalescer}).
+ *
+ * <p>The text is debounced: only once it has been stable for {@link #DEBOUNCE_DELAY} is it matched
+ * against the {@link CityIndex}, and the best ranked {@link #MAX_CANDIDATES} cities are prefetched.
+ * Prefetches of cities that are no longer candidates are cancelled as the text changes, so that
+ * the number of speculative requests in flight never exceeds {@link #MAX_CANDIDATES}. Prefetching
+ * is suspended while disabled (e.g. while the network is unavailable or the battery is low), and
+ * its results are not delivered to anyone.</p>
+ *
+ * <p>Prefetches have lower priority than the requests made by the user: once one starts (see
+ * {@link #onRequestStarted(String)}), the prefetches of other cities are cancelled and no more are
+ * issued until it completes (see {@link #onRequestCompleted()}), so that they never compete with
+ * it for the network. The prefetch of the requested city, if in flight, is left to complete,
+ * because the request joins its HTTP call.</p>
+ *
+ * <p>Instances must only be used on the main thread.</p>
+ */
+@MainThread
+public final class Prefetcher {
+
+    /** The time the text must be stable before it is matched, in milliseconds. */
+    public static final long DEBOUNCE_DELAY = 300;
+    /** The maximum number of cities prefetched for any given text. */
+    public static final int MAX_CANDIDATES = 3;
+    /** The minimum length of the text for it to be matched. */
+    public static final int MIN_PREFIX_LENGTH = 2;
+
+    /** The counter of prefetches issued. */
+    private static final Metrics.Counter ISSUED = Metrics.counter("prefetch.issued");
+    /** The counter of prefetches cancelled because their city was no longer a candidate. */
+    private static final Metrics.Counter CANCELLED = Metrics.counter("prefetch.cancelled");
+
+    /** The provider whose cache is warmed. */
+    private final WeatherInfoProvider provider;
+    /** The language to be used on the results, encoded in ISO3. */
+    private final String language;
+    /** The unit system to be used on the results. */
+    private final WeatherInfoProvider.UnitSystem units;
+    /** The handler used to debounce the text. */
+    private final Handler handler;
+    /** The prefetches in flight, by the normalized name of their city, in candidate order. */
+    private final Map<String, WeatherInfoFuture> inFlight;
+    /** The task that matches the most recent text, once it is stable. */
+    private final Runnable debounced;
+
+    /** The index against which the text is matched. */
+    private CityIndex index;
+    /** Whether prefetching is enabled. */
+    private boolean enabled;
+    /** Whether prefetching is suspended because a request made by the user is in flight. */
+    private boolean suspended;
+    /** Whether the match of the text is pending, i.e. {@link #debounced} is posted. */
+    private boolean matchPending;
+    /** The most recent text. */
+    private String text;
+
+    /**
+     * Initiates an instance that warms the cache of the given provider.
+     * @param provider The provider.
+     * @param language The language to be used on the results, encoded in ISO3.
+     * @param units The unit system to be used on the results.
+     * @param handler The handler of the main thread, used to debounce the text.
+     */
+    public Prefetcher(@NonNull WeatherInfoProvider provider, @NonNull String language,
+                      @NonNull WeatherInfoProvider.UnitSystem units, @NonNull Handler handler) {
+        this.provider = provider;
+        this.language = language;
+        this.units = units;
+        this.handler = handler;
+        inFlight = new LinkedHashMap<>();
+        index = CityIndex.EMPTY;
+        enabled = true;
+        text = "";
+        debounced = new Runnable() {
+            @Override
+            public void run() {
+                matchPending = false;
+                prefetch(text);
+            }
+        };
+    }
+
+    /**
+     * Sets the index against which the text is matched.
+     * @param index The index.
+     */
+    public void setIndex(@NonNull CityIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Enables or disables prefetching. Disabling it cancels the prefetches in flight.
+     * @param enable Whether prefetching is enabled.
+     */
+    public void setEnabled(boolean enable) {
+        enabled = enable;
+        if (!enable)
+            cancel();
+    }
+
+    /**
+     * Signals that the text typed by the user has changed. The text is matched once it is stable.
+     * @param text The text.
+     */
+    public void onTextChanged(@NonNull String text) {
+        this.text = text;
+        cancelMatch();
+        if (enabled && !suspended) {
+            handler.postDelayed(debounced, DEBOUNCE_DELAY);
+            matchPending = true;
+        }
+    }
+
+    /**
+     * Cancels the pending match of the text, if any.
+     */
+    private void cancelMatch() {
+        if (matchPending) {
+            handler.removeCallbacks(debounced);
+            matchPending = false;
+        }
+    }
+
+    /**
+     * Signals that a request made by the user has started, thereby suspending prefetching until
+     * it completes. The prefetches in flight are cancelled, except that of the requested city, if
+     * any, which is left to complete (the request joins its HTTP call) and is no longer tracked.
+     * @param cityName The name of the requested city, or {@literal null} if unknown.
+     */
+    public void onRequestStarted(@Nullable String cityName) {
+        suspended = true;
+        if (cityName != null)
+            inFlight.remove(CityIndex.normalize(index.canonicalize(cityName)));
+        cancel();
+    }
+
+    /**
+     * Signals that the request made by the user has completed, thereby resuming prefetching.
+     */
+    public void onRequestCompleted() {
+        suspended = false;
+    }
+
+    /**
+     * Cancels the pending match of the text and the prefetches in flight.
+     */
+    public void cancel() {
+        cancelMatch();
+        prefetch("");
+    }
+
+    /**
+     * Prefetches the cities that match the given text, cancelling the prefetches of the cities
+     * that no longer match it.
+     * @param text The text.
+     */
+    void prefetch(@NonNull String text) {
+        final List<String> candidates =
+                enabled && !suspended && text.trim().length() >= MIN_PREFIX_LENGTH ?
+                index.match(text, MAX_CANDIDATES) : new ArrayList<String>();
+        final List<String> keys = new ArrayList<>(candidates.size());
+        for (String candidate : candidates)
+            keys.add(CityIndex.normalize(candidate));
+
+        final Iterator<Map.Entry<String, WeatherInfoFuture>> prefetches =
+                inFlight.entrySet().iterator();
+        while (prefetches.hasNext()) {
+            final Map.Entry<String, WeatherInfoFuture> prefetch = prefetches.next();
+            if (!keys.contains(prefetch.getKey())) {
+                prefetch.getValue().cancel();
+                prefetches.remove();
+                CANCELLED.increment();
+            }
+        }
+
+        for (int idx = 0; idx < candidates.size(); ++idx) {
+            final String key = keys.get(idx);
+            if (inFlight.containsKey(key))
+                continue;
+            final WeatherInfoFuture prefetch = provider.getWeatherInfoAsync(candidates.get(idx),
+                    language, units, new WeatherInfoProvider.Callback() {
+                        @Override
+                        public void onResult(@NonNull WeatherInfoProvider.CallResult result) {
+                            // The result is already cached. Cancelled prefetches are not called,
+                            // and prefetches left to complete may since have been replaced by
+                            // newer ones (which are still pending) for the same city
+                            final WeatherInfoFuture prefetch = inFlight.get(key);
+                            if (!result.isProvisional() && prefetch != null && prefetch.isDone())
+                                inFlight.remove(key);
+                        }
+                    });
+            if (!prefetch.isDone())
+                inFlight.put(key, prefetch);
+            ISSUED.increment();
+        }
+    }
+
+    /** @return The number of prefetches in flight. */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,75 @@
+package pdm.demos.weatherapp.prefetch;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class whose instances persist the names of the cities recently asked for by the user, most
+ * recent first, in the application's shared preferences. The list is bounded to
+ * {@link #CAPACITY} cities.
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public final class RecentCities {
+
+    /** The maximum number of cities kept. */
+    public static final int CAPACITY = 16;
+
+    /** The name of the shared preferences file. */
+    private static final String PREFERENCES_NAME = "recent_cities";
+    /** The key of the list of cities, which is stored as a single string, one city per line. */
+    private static final String KEY_CITIES = "cities";
+    /** The separator of the stored cities. */
+    private static final String SEPARATOR = "\n";
+
+    /** The shared preferences that store the list. */
+    private final SharedPreferences preferences;
+
+    /**
+     * Initiates an instance with the given context.
+     * @param context The context.
+     */
+    public RecentCities(@NonNull Context context) {
+        preferences = context.getApplicationContext()
+                .getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /** @return A copy of the list of cities, most recent first. */
+    @NonNull
+    public synchronized List<String> get() {
+        final String cities = preferences.getString(KEY_CITIES, "");
+        return cities.isEmpty() ? new ArrayList<String>() :
+                new ArrayList<>(Arrays.asList(cities.split(SEPARATOR)));
+    }
+
+    /**
+     * Adds the given city to the head of the list, removing any previous occurrence of it and,
+     * if the list is full, its least recent city.
+     * @param cityName The city name.
+     */
+    public synchronized void add(@NonNull String cityName) {
+        final String name = cityName.trim();
+        if (name.isEmpty())
+            return;
+
+        final List<String> cities = get();
+        final String key = CityIndex.normalize(name);
+        for (int idx = cities.size() - 1; idx >= 0; --idx)
+            if (CityIndex.normalize(cities.get(idx)).equals(key))
+                cities.remove(idx);
+        cities.add(0, name);
+
+        final StringBuilder builder = new StringBuilder();
+        for (int idx = 0; idx < cities.size() && idx < CAPACITY; ++idx) {
+            if (idx != 0)
+                builder.append(SEPARATOR);
+            builder.append(cities.get(idx));
+        }
+        preferences.edit().putString(KEY_CITIES, builder.toString()).apply();
+    }
+}
@@ -0,0 +1,132 @@
+package pdm.demos.weatherapp.providers;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Class whose instances keep the statistics of a {@link WeatherInfoProvider} backend, as
+ * observed by {@link RacingWeatherInfoProvider}: the latency of its requests and their error rate,
+ * both as exponentially weighted moving averages (EWMA), so that recent behaviour prevails.
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public final class BackendStats {
+
+    /** The weight of each new sample in the moving averages. */
+    public static final double SMOOTHING_FACTOR = 0.2;
+    /** The error rate above which the backend is considered unhealthy. */
+    public static final double MAX_HEALTHY_ERROR_RATE = 0.5;
+
+    /** The backend's name, used for logging purposes. */
+    private final String name;
+    /** The average latency, in milliseconds. Guarded by the instance's lock. */
+    private double latency;
+    /** The average error rate, between 0 and 1. Guarded by the instance's lock. */
+    private double errorRate;
+    /** Whether a latency sample has already been recorded. Guarded by the instance's lock. */
+    private boolean hasLatency;
+    /** The number of samples. Guarded by the instance's lock. */
+    private long sampleCount;
+
+    /**
+     * Initiates an instance with no samples.
+     * @param name The backend's name.
+     */
+    public BackendStats(@NonNull String name) {
+        this.name = name;
+    }
+
+    /**
+     * Adds a sample to the given average.
+     */
+    private static double average(boolean first, double current, double sample) {
+        return first ? sample : current + SMOOTHING_FACTOR * (sample - current);
+    }
+
+    private void addLatency(long sample) {
+        latency = average(!hasLatency, latency, sample);
+        hasLatency = true;
+    }
+
+    /**
+     * Records a successful request.
+     * @param latency The time taken by the request, in milliseconds.
+     */
+    public synchronized void onSuccess(long latency) {
+        addLatency(latency);
+        errorRate = average(sampleCount == 0, errorRate, 0);
+        sampleCount += 1;
+    }
+
+    /**
+     * Records a failed request. Its latency is not recorded, because failures are often faster
+     * than successes (e.g. when the network is down).
+     */
+    public synchronized void onFailure() {
+        errorRate = average(sampleCount == 0, errorRate, 1);
+        sampleCount += 1;
+    }
+
+    /**
+     * Records a request that was abandoned because another backend completed first. The given
+     * latency is a lower bound of the actual one, which is nevertheless recorded, so that slower
+     * backends are not ranked by stale samples.
+     * @param latency The time elapsed until the request was abandoned, in milliseconds.
+     */
+    public synchronized void onAbandoned(long latency) {
+        if (!hasLatency || latency > this.latency)
+            addLatency(latency);
+    }
+
+    /** @return The backend's name. */
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    /** @return The average latency, in milliseconds. */
+    public synchronized double getLatency() {
+        return latency;
+    }
+
+    /** @return The average error rate, between 0 and 1. */
+    public synchronized double getErrorRate() {
+        return errorRate;
+    }
+
+    /** @return {@literal true} if no request has been recorded yet. */
+    public synchronized boolean isCold() {
+        return sampleCount == 0;
+    }
+
+    /** @return The number of completed requests recorded. */
+    public synchronized long getSampleCount() {
+        return sampleCount;
+    }
+
+    /** @return {@literal true} if the backend's error rate is acceptable. */
+    public synchronized boolean isHealthy() {
+        return errorRate <= MAX_HEALTHY_ERROR_RATE;
+    }
+
+    /**
+     * Compares this backend with the given one.
+     * @param other The other backend's statistics.
+     * @return {@literal true} if this backend is preferable, that is, it is healthy and the other
+     * is not, or both have the same health and this one is faster.
+     */
+    public boolean isPreferableTo(@NonNull BackendStats other) {
+        final boolean healthy = isHealthy(), otherHealthy = other.isHealthy();
+        if (healthy != otherHealthy)
+            return healthy;
+        return getLatency() < other.getLatency();
+    }
+
+    /**
+     * Provides a printable representation of this object.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("%s [latency=%.0f ms, errors=%.0f%%, samples=%d]",
+                name, latency, errorRate * 100, sampleCount);
+    }
+}
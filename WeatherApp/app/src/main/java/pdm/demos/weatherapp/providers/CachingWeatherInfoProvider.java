@@ -0,0 +1,533 @@
+package pdm.demos.weatherapp.providers;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Class that implements a {@link WeatherInfoProvider} decorator that caches the results produced
+ * by another provider. The cache has two tiers: an in-memory LRU, which serves repeated lookups
+ * without any I/O, backed by a persistent on-disk store, which survives process restarts.
+ *
+ * <p>Each entry is considered fresh during its time to live. Once it expires, it may still be
+ * served (stale-while-revalidate) during a configurable period, while a single background request
+ * refreshes it. Entries older than that are not used.</p>
+ *
+ * <p>Disk I/O is never performed on the caller's thread by the asynchronous operation. Completion
+ * callbacks are always executed on the main thread, just like those of the decorated provider.
+ * Cancelling a request that missed the cache cancels the corresponding request to the decorated
+ * provider. Background refreshes are not cancelled, because their results are shared.</p>
+ *
+ * <p>In offline-first mode, the most recent entry is served whenever it is not fresh, regardless
+ * of its age, as a provisional result (see {@link CallResult#isProvisional()}) marked with its age.
+ * The information is then fetched from the decorated provider and its result is delivered as the
+ * final one. If fetching fails, the entry is delivered again as the final result, instead of the
+ * error, so that the last known information remains available while the network is not.</p>
+ *
+ * <p>Components that must observe the source's current information, such as background
+ * refreshes, use the revalidating view of the cache (see {@link #getRevalidatingProvider()}),
+ * which always obtains the information from the decorated provider and stores it.</p>
+ */
+public class CachingWeatherInfoProvider implements WeatherInfoProvider {
+
+    /** The default time to live of cache entries, in milliseconds. */
+    public static final long DEFAULT_TIME_TO_LIVE = 10 * 60 * 1000;
+    /** The default period during which stale entries may be served, in milliseconds. */
+    public static final long DEFAULT_STALE_WHILE_REVALIDATE = 30 * 60 * 1000;
+    /** The default number of entries held in memory. */
+    public static final int DEFAULT_MEMORY_CAPACITY = 32;
+
+    /** Debugging tag used by the Android logger. */
+    private static final String TAG = "CachingProvider";
+
+    /**
+     * Class whose instances are the cache entries. Instances are immutable.
+     */
+    private static final class Entry {
+        /** The cached weather information. */
+        final WeatherInfo info;
+        /** The instant (wall clock, in milliseconds) at which the information was obtained. */
+        final long fetchedAt;
+
+        Entry(@NonNull WeatherInfo info, long fetchedAt) {
+            this.info = info;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    /**
+     * Class whose instances store cache entries in the file system, one file per query.
+     */
+    private static final class DiskStore {
+        /** The version of the file format, used to discard files written by older versions. */
+        private static final int FORMAT_VERSION = 2;
+        /** The directory where entries are stored. */
+        private final File directory;
+
+        DiskStore(@NonNull File directory) {
+            this.directory = directory;
+        }
+
+        @WorkerThread
+        @Nullable
+        Entry read(@NonNull WeatherQuery query) {
+            final File file = new File(directory, query.toFileName());
+            if (!file.exists())
+                return null;
+
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                if (in.readInt() != FORMAT_VERSION)
+                    return null;
+                final long fetchedAt = in.readLong();
+                final byte[] representation = new byte[in.readUnsignedShort()];
+                in.readFully(representation);
+                return new Entry(WeatherInfoCodec.decode(representation), fetchedAt);
+            } catch (IOException | IllegalArgumentException e) {
+                Log.w(TAG, "Could not read cache entry for " + query, e);
+                return null;
+            } finally {
+                closeQuietly(in);
+            }
+        }
+
+        @WorkerThread
+        void write(@NonNull WeatherQuery query, @NonNull Entry entry) {
+            if (!directory.exists() && !directory.mkdirs())
+                return;
+
+            // Write to a temporary file first, so that readers never observe partial entries
+            final File file = new File(directory, query.toFileName());
+            final File temp = new File(directory, file.getName() + ".tmp");
+            DataOutputStream out = null;
+            try {
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+                final byte[] representation = WeatherInfoCodec.encode(entry.info);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(entry.fetchedAt);
+                out.writeShort(representation.length);
+                out.write(representation);
+                out.close();
+                out = null;
+                if (!temp.renameTo(file))
+                    Log.w(TAG, "Could not commit cache entry for " + query);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not write cache entry for " + query, e);
+            } finally {
+                closeQuietly(out);
+            }
+        }
+
+        private static void closeQuietly(Closeable closeable) {
+            if (closeable != null)
+                try { closeable.close(); }
+                catch (IOException ignored) { }
+        }
+    }
+
+    /**
+     * Class whose instance is the revalidating view of the cache: its operations skip the cache,
+     * obtaining the information from the decorated provider, whose results are then stored.
+     */
+    private final class Revalidating implements WeatherInfoProvider {
+
+        /** {@inheritDoc} */
+        @Override
+        @NonNull
+        public WeatherInfoFuture getWeatherInfoAsync(@NonNull String cityName,
+                                                     @NonNull String language,
+                                                     @NonNull UnitSystem units,
+                                                     @NonNull Callback completionCallback) {
+            final WeatherQuery query = new WeatherQuery(cityName, language, units);
+            final WeatherInfoFuture future = new WeatherInfoFuture(completionCallback);
+            return future.onCancel(source.getWeatherInfoAsync(cityName, language, units,
+                    new Callback() {
+                        @Override
+                        public void onResult(@NonNull CallResult result) {
+                            try {
+                                store(query, result.getResult());
+                            } catch (Exception ignored) {
+                                // Errors are not cached. They are reported to the caller.
+                            }
+                            future.onResult(result);
+                        }
+                    }));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public WeatherInfo getWeatherInfo(@NonNull String cityName, @NonNull String language,
+                                          @NonNull UnitSystem units) throws Exception {
+            final WeatherInfo info = source.getWeatherInfo(cityName, language, units);
+            store(new WeatherQuery(cityName, language, units), info);
+            return info;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        @NonNull
+        public Map<String, WeatherInfo> getWeatherInfo(@NonNull Collection<String> cityNames,
+                                                       @NonNull String language,
+                                                       @NonNull UnitSystem units)
+                throws Exception {
+            final Map<String, WeatherInfo> fetched =
+                    source.getWeatherInfo(cityNames, language, units);
+            for (Map.Entry<String, WeatherInfo> info : fetched.entrySet())
+                store(new WeatherQuery(info.getKey(), language, units), info.getValue());
+            return fetched;
+        }
+    }
+
+    /** The decorated provider, used to obtain the information that is not cached. */
+    private final WeatherInfoProvider source;
+    /** The in-memory tier. */
+    private final LruCache<WeatherQuery, Entry> memory;
+    /** The on-disk tier. */
+    private final DiskStore disk;
+    /** The time to live of cache entries, in milliseconds. */
+    private final long timeToLive;
+    /** The period, after expiration, during which stale entries may be served, in milliseconds. */
+    private final long staleWhileRevalidate;
+    /** The queries whose entries are currently being refreshed. Guarded by itself. */
+    private final Set<WeatherQuery> revalidating;
+    /** The executor used to perform disk I/O. A single thread ensures that writes are ordered. */
+    private final Executor ioExecutor;
+    /** The handler used to execute completion callbacks on the main thread. */
+    private final Handler mainHandler;
+    /** Whether the provider operates in offline-first mode. */
+    private final boolean offlineFirst;
+    /** The revalidating view of the cache. */
+    private final WeatherInfoProvider revalidatingProvider;
+
+    /**
+     * Initiates an instance with the given arguments.
+     * @param source The provider whose results are to be cached.
+     * @param directory The directory where the on-disk tier is to be stored.
+     * @param timeToLive The time to live of cache entries, in milliseconds.
+     * @param staleWhileRevalidate The period, after expiration, during which stale entries may
+     *                             still be served while they are refreshed, in milliseconds.
+     * @param memoryCapacity The maximum number of entries held in memory.
+     * @param offlineFirst Whether the provider operates in offline-first mode.
+     */
+    public CachingWeatherInfoProvider(@NonNull WeatherInfoProvider source, @NonNull File directory,
+                                      long timeToLive, long staleWhileRevalidate,
+                                      int memoryCapacity, boolean offlineFirst) {
+        this.source = source;
+        this.offlineFirst = offlineFirst;
+        this.timeToLive = timeToLive;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        memory = new LruCache<>(memoryCapacity);
+        disk = new DiskStore(directory);
+        revalidating = new HashSet<>();
+        ioExecutor = Executors.newSingleThreadExecutor();
+        mainHandler = new Handler(Looper.getMainLooper());
+        revalidatingProvider = new Revalidating();
+    }
+
+    /**
+     * Initiates an instance with the default cache settings.
+     * @param source The provider whose results are to be cached.
+     * @param directory The directory where the on-disk tier is to be stored.
+     * @param offlineFirst Whether the provider operates in offline-first mode.
+     */
+    public CachingWeatherInfoProvider(@NonNull WeatherInfoProvider source, @NonNull File directory,
+                                      boolean offlineFirst) {
+        this(source, directory, DEFAULT_TIME_TO_LIVE, DEFAULT_STALE_WHILE_REVALIDATE,
+                DEFAULT_MEMORY_CAPACITY, offlineFirst);
+    }
+
+    /**
+     * Initiates an instance with the default cache settings, which is not in offline-first mode.
+     * @param source The provider whose results are to be cached.
+     * @param directory The directory where the on-disk tier is to be stored.
+     */
+    public CachingWeatherInfoProvider(@NonNull WeatherInfoProvider source, @NonNull File directory) {
+        this(source, directory, false);
+    }
+
+    /**
+     * Gets the revalidating view of the cache, whose operations never serve cached information:
+     * they obtain it from the decorated provider, and store the results in the cache, thereby
+     * making them available to the users of the cache itself.
+     * @return The revalidating view.
+     */
+    @NonNull
+    public WeatherInfoProvider getRevalidatingProvider() {
+        return revalidatingProvider;
+    }
+
+    /**
+     * Gets the age of the cached information for the given query, that is, the time elapsed since
+     * it was obtained from the decorated provider (see {@link CallResult#getAge()}). Because it
+     * may perform I/O, the method cannot be executed in the UI thread.
+     * @param query The query.
+     * @return The age of the information, in milliseconds, or -1 if none is cached.
+     */
+    @WorkerThread
+    public long getAge(@NonNull WeatherQuery query) {
+        final Entry entry = lookup(query);
+        return entry == null ? -1 : Math.max(0, System.currentTimeMillis() - entry.fetchedAt);
+    }
+
+    /**
+     * Checks whether the given entry is still within its time to live.
+     * @param entry The entry to be checked.
+     * @return {@literal true} if the entry is fresh, {@literal false} otherwise.
+     */
+    private boolean isFresh(@NonNull Entry entry) {
+        return System.currentTimeMillis() - entry.fetchedAt < timeToLive;
+    }
+
+    /**
+     * Checks whether the given entry may still be served, even if it has expired.
+     * @param entry The entry to be checked.
+     * @return {@literal true} if the entry is usable, {@literal false} otherwise.
+     */
+    private boolean isUsable(@NonNull Entry entry) {
+        return System.currentTimeMillis() - entry.fetchedAt < timeToLive + staleWhileRevalidate;
+    }
+
+    /**
+     * Stores the given weather information in both tiers.
+     * @param query The query that produced the information.
+     * @param info The weather information.
+     */
+    private void store(@NonNull final WeatherQuery query, @NonNull WeatherInfo info) {
+        final Entry entry = new Entry(info, System.currentTimeMillis());
+        memory.put(query, entry);
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                disk.write(query, entry);
+            }
+        });
+    }
+
+    /**
+     * Gets the cache entry for the given query, looking it up on disk if it is not in memory.
+     * Because it may perform I/O, the method cannot be executed in the UI thread.
+     * @param query The query.
+     * @return The entry, or {@literal null} if none exists.
+     */
+    @WorkerThread
+    @Nullable
+    private Entry lookup(@NonNull WeatherQuery query) {
+        Entry entry = memory.get(query);
+        if (entry == null && (entry = disk.read(query)) != null)
+            memory.put(query, entry);
+        return entry;
+    }
+
+    /**
+     * Refreshes the entry for the given query in the background, unless a refresh is already
+     * in progress.
+     * @param query The query whose entry is to be refreshed.
+     */
+    private void revalidate(@NonNull final WeatherQuery query) {
+        synchronized (revalidating) {
+            if (!revalidating.add(query))
+                return;
+        }
+
+        source.getWeatherInfoAsync(query.getCityName(), query.getLanguage(), query.getUnits(),
+                new Callback() {
+                    @Override
+                    public void onResult(@NonNull CallResult result) {
+                        synchronized (revalidating) {
+                            revalidating.remove(query);
+                        }
+                        try {
+                            store(query, result.getResult());
+                        } catch (Exception e) {
+                            Log.w(TAG, "Could not revalidate " + query, e);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Produces the call result that conveys the information of the given entry.
+     * @param entry The cache entry.
+     * @param provisional Whether the result is provisional.
+     * @return The call result.
+     */
+    @NonNull
+    private static CallResult resultOf(@NonNull Entry entry, boolean provisional) {
+        final long age = Math.max(0, System.currentTimeMillis() - entry.fetchedAt);
+        return new CallResult(entry.info, age, provisional);
+    }
+
+    /**
+     * Delivers the given cached information to the given request, on the main thread.
+     * @param entry The cache entry.
+     * @param provisional Whether the information is delivered as a provisional result.
+     * @param future The request's handle.
+     */
+    private void deliver(@NonNull Entry entry, boolean provisional,
+                         @NonNull final WeatherInfoFuture future) {
+        final CallResult result = resultOf(entry, provisional);
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                future.onResult(result);
+            }
+        });
+    }
+
+    /**
+     * Serves the request from the given entry, if it is usable, triggering its refresh if it is
+     * stale. In offline-first mode, only fresh entries are served this way.
+     * @param query The query.
+     * @param entry The cache entry, or {@literal null} if none exists.
+     * @param future The request's handle.
+     * @return {@literal true} if the request was served, {@literal false} otherwise.
+     */
+    private boolean serveFromCache(@NonNull WeatherQuery query, @Nullable Entry entry,
+                                   @NonNull WeatherInfoFuture future) {
+        if (entry == null || !isUsable(entry) || (offlineFirst && !isFresh(entry)))
+            return false;
+
+        deliver(entry, false, future);
+        if (!isFresh(entry))
+            revalidate(query);
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @NonNull
+    public WeatherInfoFuture getWeatherInfoAsync(@NonNull String cityName, @NonNull String language,
+                                                 @NonNull UnitSystem units,
+                                                 @NonNull Callback completionCallback) {
+
+        final WeatherQuery query = new WeatherQuery(cityName, language, units);
+        final WeatherInfoFuture future = new WeatherInfoFuture(completionCallback);
+        if (serveFromCache(query, memory.get(query), future))
+            return future;
+
+        // Memory miss: check the on-disk tier before going to the source
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isCancelled())
+                    return;
+                final Entry entry = lookup(query);
+                if (serveFromCache(query, entry, future))
+                    return;
+
+                // In offline-first mode, the last known information is shown while fetching
+                final Entry lastKnown = offlineFirst ? entry : null;
+                if (lastKnown != null)
+                    deliver(lastKnown, true, future);
+
+                future.onCancel(source.getWeatherInfoAsync(query.getCityName(),
+                        query.getLanguage(), query.getUnits(), new Callback() {
+                            @Override
+                            public void onResult(@NonNull CallResult result) {
+                                WeatherInfo info = null;
+                                try {
+                                    info = result.getResult();
+                                } catch (Exception ignored) {
+                                    // Errors are not cached. They are reported to the caller,
+                                    // unless there is last known information to fall back to.
+                                }
+                                if (info != null)
+                                    store(query, info);
+                                future.onResult(info == null && lastKnown != null ?
+                                        resultOf(lastKnown, false) : result);
+                            }
+                        }));
+            }
+        });
+        return future;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public WeatherInfo getWeatherInfo(@NonNull String cityName, @NonNull String language,
+                                      @NonNull UnitSystem units) throws Exception {
+
+        final WeatherQuery query = new WeatherQuery(cityName, language, units);
+        final Entry entry = lookup(query);
+        if (entry != null && isUsable(entry)) {
+            if (!isFresh(entry))
+                revalidate(query);
+            return entry.info;
+        }
+
+        final WeatherInfo info;
+        try {
+            info = source.getWeatherInfo(cityName, language, units);
+        } catch (Exception e) {
+            if (offlineFirst && entry != null)
+                return entry.info;
+            throw e;
+        }
+        store(query, info);
+        return info;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Cities with usable cache entries are served from the cache. The remaining ones are
+     * obtained from the decorated provider with a single batch request.</p>
+     */
+    @Override
+    @NonNull
+    public Map<String, WeatherInfo> getWeatherInfo(@NonNull Collection<String> cityNames,
+                                                   @NonNull String language,
+                                                   @NonNull UnitSystem units) throws Exception {
+
+        final Map<String, WeatherInfo> result = new HashMap<>();
+        final List<String> misses = new ArrayList<>();
+        for (String cityName : cityNames) {
+            final WeatherQuery query = new WeatherQuery(cityName, language, units);
+            final Entry entry = lookup(query);
+            if (entry != null && isUsable(entry)) {
+                if (!isFresh(entry))
+                    revalidate(query);
+                result.put(cityName, entry.info);
+            } else
+                misses.add(cityName);
+        }
+
+        if (misses.isEmpty())
+            return result;
+
+        try {
+            final Map<String, WeatherInfo> fetched = source.getWeatherInfo(misses, language, units);
+            for (Map.Entry<String, WeatherInfo> info : fetched.entrySet())
+                store(new WeatherQuery(info.getKey(), language, units), info.getValue());
+            result.putAll(fetched);
+        } catch (Exception e) {
+            // Cached results are still worth returning
+            if (result.isEmpty())
+                throw e;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,23 @@
+package pdm.demos.weatherapp.providers;
+
+/**
+ * Contract to be supported by handles of operations that can be cancelled.
+ *
+ * <p>Once an operation is cancelled, its completion is no longer signalled to the interested
+ * parties and the resources it holds (e.g. sockets, threads) are released as soon as possible.</p>
+ */
+public interface Cancellable {
+
+    /**
+     * Cancels the operation, if it has not completed yet. Cancelling an operation that has already
+     * completed or that has already been cancelled has no effect.
+     * @return {@literal true} if the operation was cancelled by this call, {@literal false}
+     * otherwise.
+     */
+    boolean cancel();
+
+    /**
+     * @return {@literal true} if the operation was cancelled, {@literal false} otherwise.
+     */
+    boolean isCancelled();
+}
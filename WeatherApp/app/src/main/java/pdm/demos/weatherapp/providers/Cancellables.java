@@ -0,0 +1,27 @@
+package pdm.demos.weatherapp.providers;
+
+/**
+ * Utility class that contains common {@link Cancellable} handles.
+ */
+public final class Cancellables {
+
+    /**
+     * Prevent instantiation.
+     */
+    private Cancellables() { }
+
+    /**
+     * Handle of an operation that cannot be cancelled (e.g. because it was completed synchronously).
+     */
+    public static final Cancellable NONE = new Cancellable() {
+        @Override
+        public boolean cancel() {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+}
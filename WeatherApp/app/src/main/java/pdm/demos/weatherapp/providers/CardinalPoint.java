@@ -5,13 +5,67 @@ import java.util.Locale;
 /**
  * Enumeration that corresponds to the existing cardinal points.
  * Currently only en and pt languages are supported.
+ *
+ * <p>Wind directions are rendered often (e.g. on each display of weather information), and
+ * therefore both the conversion from degrees and the localized representation are served from
+ * precomputed tables, without allocating.</p>
  */
 public enum CardinalPoint {
 
     N, NNE, NE, ENE,
     E, ESE, SE, SSE,
     S, SSW, SW, WSW,
-    W, WNW, NW, NWN;
+    W, WNW, NW, NNW;
+
+    /** The number of degrees in a full circle. */
+    private static final int CIRCLE_ANGLE_IN_DEGREES = 360;
+
+    /** The cardinal points, which {@link #values()} would otherwise clone on each call. */
+    private static final CardinalPoint[] POINTS = values();
+
+    /**
+     * The size of the quantization step, in degrees: half the sector of each cardinal point, so
+     * that sector boundaries (e.g. N extends from -11.25 to 11.25 degrees) fall on step boundaries
+     * and the table lookup is exact. Finer compasses only require larger tables.
+     */
+    private static final double STEP_SIZE = (double) CIRCLE_ANGLE_IN_DEGREES / (2 * POINTS.length);
+
+    /**
+     * The cardinal point of each quantization step. The table has an additional entry, for angles
+     * that are rounded up to a full circle.
+     */
+    private static final CardinalPoint[] DIRECTION_BY_STEP =
+            new CardinalPoint[2 * POINTS.length + 1];
+
+    static {
+        for (int step = 0; step < DIRECTION_BY_STEP.length; ++step)
+            DIRECTION_BY_STEP[step] = POINTS[((step + 1) / 2) % POINTS.length];
+    }
+
+    /**
+     * Class whose instances hold the representations of all cardinal points in a given language.
+     */
+    private static final class Labels {
+        /** The language, as produced by {@link Locale#getLanguage()}. */
+        final String language;
+        /** The representations, indexed by ordinal. */
+        final String[] labels;
+
+        Labels(String language) {
+            this.language = language;
+            labels = new String[POINTS.length];
+            final boolean portuguese = language.equals("pt");
+            for (CardinalPoint point : POINTS)
+                labels[point.ordinal()] =
+                        portuguese ? point.name().replace('W', 'O') : point.name();
+        }
+    }
+
+    /**
+     * The representations in the language last used, which are replaced when the language changes
+     * (i.e. on configuration changes).
+     */
+    private static volatile Labels currentLabels = new Labels(Locale.getDefault().getLanguage());
 
     /**
      * Gets the cardinal point string representation according to the given locale.
@@ -19,11 +73,12 @@ public enum CardinalPoint {
      * @return The corresponding string representation.
      */
     public String toString(Locale locale) {
-        if(locale.getISO3Language().equals("pt"))
-            return toString().replace('W', 'O');
+        Labels labels = currentLabels;
+        if (!labels.language.equals(locale.getLanguage()))
+            currentLabels = labels = new Labels(locale.getLanguage());
 
         // Defaults to English
-        return toString();
+        return labels.labels[ordinal()];
     }
 
     /**
@@ -33,8 +88,9 @@ public enum CardinalPoint {
      * @return The corresponding cardinal point.
      */
     public static CardinalPoint windDegreesToDirection(double wind) {
-        final int CIRCLE_ANGLE_IN_DEGREES = 360;
-        final double slotSize = CIRCLE_ANGLE_IN_DEGREES / CardinalPoint.values().length;
-        return CardinalPoint.values()[(int)(((wind+slotSize/2)% CIRCLE_ANGLE_IN_DEGREES)/slotSize)];
+        double angle = wind % CIRCLE_ANGLE_IN_DEGREES;
+        if (angle < 0)
+            angle += CIRCLE_ANGLE_IN_DEGREES;
+        return DIRECTION_BY_STEP[(int) (angle / STEP_SIZE)];
     }
 }
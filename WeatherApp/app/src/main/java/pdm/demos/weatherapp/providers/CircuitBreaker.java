@@ -0,0 +1,198 @@
+package pdm.demos.weatherapp.providers;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Class whose instances implement the circuit breaker pattern, used to stop issuing requests to a
+ * backend that keeps failing, thereby failing fast instead of piling up requests on it.
+ *
+ * <p>The breaker is initially {@link State#CLOSED}, meaning that requests are allowed. After a
+ * number of consecutive failures it trips to {@link State#OPEN}, meaning that requests are
+ * rejected. Once the open period elapses it becomes {@link State#HALF_OPEN}: a single request (the
+ * probe) is allowed, whose success closes the breaker and whose failure opens it again, for twice
+ * the previous period (up to a maximum).</p>
+ *
+ * <p>Instants are given by the caller, in milliseconds, so that instances do not depend on a
+ * particular clock. Instances are thread-safe.</p>
+ */
+public final class CircuitBreaker {
+
+    /** The possible states of the breaker. */
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** The default number of consecutive failures that trip the breaker. */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    /** The default duration of the first open period, in milliseconds. */
+    public static final long DEFAULT_OPEN_DURATION = 30 * 1000;
+    /** The default maximum duration of open periods, in milliseconds. */
+    public static final long DEFAULT_MAX_OPEN_DURATION = 10 * 60 * 1000;
+
+    /**
+     * Class whose instances signal that a request was rejected because the breaker is open.
+     */
+    public static final class OpenException extends Exception {
+        OpenException(long retryAfter) {
+            super("Circuit open, retry in " + retryAfter / 1000 + " s");
+        }
+    }
+
+    private final int failureThreshold;
+    private final long initialOpenDuration;
+    private final long maxOpenDuration;
+
+    /** The current state. Guarded by the instance's lock. */
+    private State state;
+    /** The number of consecutive failures. */
+    private int consecutiveFailures;
+    /** The duration of the current (or last) open period. */
+    private long openDuration;
+    /** The instant at which the current open period ends. */
+    private long openUntil;
+    /** Whether the probe of the half-open state has been issued. */
+    private boolean probing;
+
+    private long successCount;
+    private long failureCount;
+    private long rejectedCount;
+    private long tripCount;
+
+    /**
+     * Initiates an instance with the default settings.
+     */
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION, DEFAULT_MAX_OPEN_DURATION);
+    }
+
+    /**
+     * Initiates an instance with the given settings.
+     * @param failureThreshold The number of consecutive failures that trip the breaker.
+     * @param openDuration The duration of the first open period, in milliseconds.
+     * @param maxOpenDuration The maximum duration of open periods, in milliseconds.
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration, long maxOpenDuration) {
+        this.failureThreshold = failureThreshold;
+        initialOpenDuration = openDuration;
+        this.maxOpenDuration = maxOpenDuration;
+        this.openDuration = openDuration;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Checks whether a request may be issued at the given instant, counting it as rejected if not.
+     * @param now The current instant, in milliseconds.
+     * @return {@literal true} if the request may be issued, {@literal false} otherwise.
+     */
+    public synchronized boolean allowRequest(long now) {
+        if (state == State.OPEN && now >= openUntil) {
+            state = State.HALF_OPEN;
+            probing = false;
+        }
+
+        if (state == State.CLOSED || (state == State.HALF_OPEN && !probing)) {
+            probing = state == State.HALF_OPEN;
+            return true;
+        }
+
+        rejectedCount += 1;
+        return false;
+    }
+
+    /**
+     * Produces the exception that signals the rejection of a request at the given instant.
+     * @param now The current instant, in milliseconds.
+     * @return The exception.
+     */
+    @NonNull
+    public synchronized OpenException rejection(long now) {
+        return new OpenException(Math.max(0, openUntil - now));
+    }
+
+    /**
+     * Records the success of an allowed request, which closes the breaker.
+     */
+    public synchronized void onSuccess() {
+        successCount += 1;
+        consecutiveFailures = 0;
+        openDuration = initialOpenDuration;
+        probing = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Records the failure of an allowed request at the given instant, which may open the breaker.
+     * @param now The current instant, in milliseconds.
+     */
+    public synchronized void onFailure(long now) {
+        failureCount += 1;
+        consecutiveFailures += 1;
+
+        if (state == State.HALF_OPEN) {
+            // The probe failed: the backend is still unavailable
+            openDuration = Math.min(maxOpenDuration, openDuration * 2);
+            trip(now);
+        } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            trip(now);
+        }
+    }
+
+    /**
+     * Records that an allowed request was abandoned (e.g. cancelled) without an outcome, so that
+     * a half-open breaker may issue another probe.
+     */
+    public synchronized void onAbandoned() {
+        probing = false;
+    }
+
+    private void trip(long now) {
+        state = State.OPEN;
+        openUntil = now + openDuration;
+        probing = false;
+        tripCount += 1;
+    }
+
+    /**
+     * Checks whether requests are being rejected at the given instant, that is, whether the
+     * breaker is open and its open period has not elapsed yet.
+     * @param now The current instant, in milliseconds.
+     * @return {@literal true} if requests are rejected, {@literal false} otherwise.
+     */
+    public synchronized boolean isRejecting(long now) {
+        return state == State.OPEN && now < openUntil;
+    }
+
+    /** @return The current state. */
+    @NonNull
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** @return The number of requests that succeeded. */
+    public synchronized long getSuccessCount() {
+        return successCount;
+    }
+
+    /** @return The number of requests that failed. */
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+
+    /** @return The number of requests rejected while the breaker was open. */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /** @return The number of times the breaker opened. */
+    public synchronized long getTripCount() {
+        return tripCount;
+    }
+
+    /**
+     * Provides a printable representation of this object.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("CircuitBreaker [state=%s, successes=%d, failures=%d, "
+                        + "rejected=%d, trips=%d]",
+                state, successCount, failureCount, rejectedCount, tripCount);
+    }
+}
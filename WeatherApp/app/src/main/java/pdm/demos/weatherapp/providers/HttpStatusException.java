@@ -0,0 +1,27 @@
+package pdm.demos.weatherapp.providers;
+
+/**
+ * Class whose instances signal that a web API responded with an HTTP error status. The status
+ * enables callers to distinguish transient failures (e.g. {@literal 503 Service Unavailable}),
+ * which are worth retrying, from permanent ones (e.g. {@literal 404 Not Found}).
+ */
+public class HttpStatusException extends Exception {
+
+    /** The HTTP status code. */
+    private final int statusCode;
+
+    /**
+     * Initiates an instance with the given status code.
+     * @param statusCode The HTTP status code.
+     * @param message The error message.
+     */
+    public HttpStatusException(int statusCode, String message) {
+        super(statusCode + " " + message);
+        this.statusCode = statusCode;
+    }
+
+    /** @return The HTTP status code. */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,82 @@
+package pdm.demos.weatherapp.providers;
+
+import android.support.annotation.NonNull;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import pdm.demos.weatherapp.cities.CityDirectory;
+
+/**
+ * Class that implements a {@link WeatherInfoProvider} decorator that normalizes the city names it
+ * receives to their canonical ids (see {@link CityDirectory#canonicalize(String)}) before passing
+ * them on to another provider. Placed in front of the remaining providers, it makes all of them
+ * (e.g. caches, and the coalescing of HTTP calls) key on the canonical ids, so that equivalent
+ * inputs, such as {@literal Lisbon}, {@literal lisbon, pt} and {@literal Lisbon,PT}, share the
+ * same information. City names unknown to the directory are passed on as they are.
+ *
+ * <p>Completion callbacks are executed on the main thread, as long as the decorated provider does
+ * so.</p>
+ */
+public class NormalizingWeatherInfoProvider implements WeatherInfoProvider {
+
+    /** The decorated provider. */
+    private final WeatherInfoProvider source;
+    /** The directory used to normalize city names. */
+    private final CityDirectory directory;
+
+    /**
+     * Initiates an instance that decorates the given provider.
+     * @param source The decorated provider.
+     * @param directory The directory used to normalize city names.
+     */
+    public NormalizingWeatherInfoProvider(@NonNull WeatherInfoProvider source,
+                                          @NonNull CityDirectory directory) {
+        this.source = source;
+        this.directory = directory;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @NonNull
+    public WeatherInfoFuture getWeatherInfoAsync(@NonNull String cityName, @NonNull String language,
+                                                 @NonNull UnitSystem units,
+                                                 @NonNull Callback completionCallback) {
+        return source.getWeatherInfoAsync(directory.canonicalize(cityName), language, units,
+                completionCallback);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public WeatherInfo getWeatherInfo(@NonNull String cityName, @NonNull String language,
+                                      @NonNull UnitSystem units) throws Exception {
+        return source.getWeatherInfo(directory.canonicalize(cityName), language, units);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Cities with the same canonical id are requested once.</p>
+     */
+    @Override
+    @NonNull
+    public Map<String, WeatherInfo> getWeatherInfo(@NonNull Collection<String> cityNames,
+                                                   @NonNull String language,
+                                                   @NonNull UnitSystem units) throws Exception {
+        final Map<String, String> canonical = new LinkedHashMap<>();
+        for (String cityName : cityNames)
+            canonical.put(cityName, directory.canonicalize(cityName));
+
+        final Map<String, WeatherInfo> fetched = source.getWeatherInfo(
+                new LinkedHashSet<>(canonical.values()), language, units);
+        final Map<String, WeatherInfo> result = new HashMap<>();
+        for (Map.Entry<String, String> cityName : canonical.entrySet()) {
+            final WeatherInfo info = fetched.get(cityName.getValue());
+            if (info != null)
+                result.put(cityName.getKey(), info);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,335 @@
+package pdm.demos.weatherapp.providers;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class that implements a composite {@link WeatherInfoProvider}, which obtains the information from
+ * two or more backends, racing them against each other. The first successful result wins; the
+ * requests still pending in the remaining backends are cancelled.
+ *
+ * <p>The latency and error rate of each backend are tracked (see {@link BackendStats}), and used to
+ * route requests: once all backends have been observed, requests are sent only to the currently
+ * preferred one (i.e. the fastest healthy backend), and raced in the remaining ones only if it
+ * fails. Periodically, and whenever no backend is healthy, requests are raced in all backends, so
+ * that their statistics remain current and recovering backends may regain preference.</p>
+ *
+ * <p>Completion callbacks are executed on the main thread, as long as the backends do so.</p>
+ */
+public class RacingWeatherInfoProvider implements WeatherInfoProvider {
+
+    /** Debugging tag used by the Android logger. */
+    private static final String TAG = "RacingProvider";
+
+    /** The period, in number of requests, of the requests raced in all backends. */
+    public static final int EXPLORATION_PERIOD = 10;
+
+    /** The backends. */
+    private final WeatherInfoProvider[] backends;
+    /** The statistics of each backend. */
+    private final BackendStats[] stats;
+    /** The number of requests issued so far, used to schedule exploration. */
+    private final AtomicLong requestCount;
+
+    /**
+     * Initiates an instance with the given backends. The order of the backends is their order of
+     * preference until statistics are available.
+     * @param backends The backends.
+     * @throws IllegalArgumentException If no backend is given.
+     */
+    public RacingWeatherInfoProvider(@NonNull WeatherInfoProvider... backends) {
+        if (backends.length == 0)
+            throw new IllegalArgumentException("At least one backend is required");
+
+        this.backends = backends.clone();
+        stats = new BackendStats[backends.length];
+        for (int idx = 0; idx < backends.length; ++idx)
+            stats[idx] = new BackendStats(backends[idx].getClass().getSimpleName());
+        requestCount = new AtomicLong();
+    }
+
+    /**
+     * @return The statistics of each backend, in the order the backends were specified.
+     */
+    @NonNull
+    public List<BackendStats> getStats() {
+        final List<BackendStats> result = new ArrayList<>(stats.length);
+        Collections.addAll(result, stats);
+        return result;
+    }
+
+    /**
+     * Produces the indexes of the backends, sorted by preference.
+     * @return The backend indexes.
+     */
+    @NonNull
+    int[] rank() {
+        final int[] order = new int[stats.length];
+        for (int idx = 0; idx < order.length; ++idx) {
+            // Insertion sort: there are only a few backends, and it is stable
+            int pos = idx;
+            for (; pos > 0 && stats[idx].isPreferableTo(stats[order[pos - 1]]); --pos)
+                order[pos] = order[pos - 1];
+            order[pos] = idx;
+        }
+        return order;
+    }
+
+    /**
+     * Decides whether the next request is to be raced in all backends.
+     * @param preferred The index of the preferred backend.
+     * @return {@literal true} if the request is to be raced in all backends, {@literal false} if
+     * it is to be sent only to the preferred one.
+     */
+    private boolean shouldRaceAll(int preferred) {
+        if (requestCount.getAndIncrement() % EXPLORATION_PERIOD == 0)
+            return true;
+        if (!stats[preferred].isHealthy())
+            return true;
+        for (BackendStats backend : stats)
+            if (backend.isCold())
+                return true;
+        return false;
+    }
+
+    /**
+     * Class whose instances represent asynchronous requests being raced. Instances are guarded by
+     * their own lock.
+     */
+    private final class Race implements Cancellable {
+        private final String cityName;
+        private final String language;
+        private final UnitSystem units;
+        /** The request's handle. */
+        private final WeatherInfoFuture result;
+        /** The backends, in the order they are to be started. */
+        private final int[] order;
+        /** The handles of the requests issued to each backend, if issued. */
+        private final WeatherInfoFuture[] requests;
+        /** The instant each request was issued, in milliseconds. */
+        private final long[] startedAt;
+        /** The number of backends started so far. */
+        private int startedCount;
+        /** The number of started requests still pending. */
+        private int pendingCount;
+        /** Whether the race is over, either completed or cancelled. */
+        private boolean over;
+
+        Race(@NonNull String cityName, @NonNull String language, @NonNull UnitSystem units,
+             @NonNull WeatherInfoFuture result, @NonNull int[] order) {
+            this.cityName = cityName;
+            this.language = language;
+            this.units = units;
+            this.result = result;
+            this.order = order;
+            requests = new WeatherInfoFuture[backends.length];
+            startedAt = new long[backends.length];
+        }
+
+        /**
+         * Starts the requests of the given number of backends, in order of preference.
+         * @param count The number of backends to start.
+         */
+        void start(int count) {
+            final int end;
+            synchronized (this) {
+                end = Math.min(order.length, startedCount + count);
+            }
+            while (true) {
+                final int backend;
+                synchronized (this) {
+                    if (over || startedCount >= end)
+                        return;
+                    backend = order[startedCount++];
+                    pendingCount += 1;
+                    startedAt[backend] = SystemClock.elapsedRealtime();
+                }
+                final WeatherInfoFuture request = backends[backend].getWeatherInfoAsync(
+                        cityName, language, units, new BackendCallback(backend));
+                synchronized (this) {
+                    if (!over) {
+                        requests[backend] = request;
+                        continue;
+                    }
+                }
+                // The race was decided (or cancelled) while the request was being issued
+                request.cancel();
+            }
+        }
+
+        /**
+         * Callback of the request issued to a given backend.
+         */
+        private final class BackendCallback implements Callback {
+            private final int backend;
+
+            BackendCallback(int backend) {
+                this.backend = backend;
+            }
+
+            @Override
+            public void onResult(@NonNull CallResult backendResult) {
+                onBackendResult(backend, backendResult);
+            }
+        }
+
+        /**
+         * Handles the result produced by the given backend.
+         */
+        void onBackendResult(int backend, @NonNull CallResult backendResult) {
+            if (backendResult.isProvisional()) {
+                result.onResult(backendResult);
+                return;
+            }
+
+            try {
+                backendResult.getResult();
+            } catch (Exception e) {
+                onBackendFailure(backend, e);
+                return;
+            }
+
+            final long now = SystemClock.elapsedRealtime();
+            final List<Integer> losers = new ArrayList<>();
+            final List<WeatherInfoFuture> loserRequests = new ArrayList<>();
+            synchronized (this) {
+                if (over)
+                    return;
+                over = true;
+                requests[backend] = null;
+                for (int idx = 0; idx < requests.length; ++idx)
+                    if (requests[idx] != null) {
+                        losers.add(idx);
+                        loserRequests.add(requests[idx]);
+                        requests[idx] = null;
+                    }
+            }
+
+            stats[backend].onSuccess(now - startedAt[backend]);
+            for (int idx = 0; idx < losers.size(); ++idx) {
+                final int loser = losers.get(idx);
+                if (loserRequests.get(idx).cancel())
+                    stats[loser].onAbandoned(now - startedAt[loser]);
+            }
+            result.onResult(backendResult);
+        }
+
+        /**
+         * Handles the failure of the given backend, starting the remaining ones, or completing the
+         * request with the error if all have failed.
+         */
+        private void onBackendFailure(int backend, @NonNull Exception error) {
+            final boolean allFailed;
+            synchronized (this) {
+                if (over)
+                    return;
+                pendingCount -= 1;
+                requests[backend] = null;
+                allFailed = startedCount == order.length && pendingCount == 0;
+                over = allFailed;
+            }
+
+            stats[backend].onFailure();
+            Log.v(TAG, "Backend failed: " + stats[backend]);
+            if (allFailed)
+                result.onResult(new CallResult(error));
+            else
+                start(order.length);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean cancel() {
+            final List<WeatherInfoFuture> pending = new ArrayList<>();
+            synchronized (this) {
+                if (over)
+                    return false;
+                over = true;
+                for (int idx = 0; idx < requests.length; ++idx)
+                    if (requests[idx] != null) {
+                        pending.add(requests[idx]);
+                        requests[idx] = null;
+                    }
+            }
+            for (WeatherInfoFuture request : pending)
+                request.cancel();
+            return true;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public synchronized boolean isCancelled() {
+            return over && result.isCancelled();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @NonNull
+    @Override
+    public WeatherInfoFuture getWeatherInfoAsync(@NonNull String cityName,
+                                                 @NonNull String language,
+                                                 @NonNull UnitSystem units,
+                                                 @NonNull Callback completionCallback) {
+        final WeatherInfoFuture result = new WeatherInfoFuture(completionCallback);
+        final int[] order = rank();
+        final Race race = new Race(cityName, language, units, result, order);
+        result.onCancel(race);
+        race.start(shouldRaceAll(order[0]) ? order.length : 1);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Backends are tried in order of preference, one at a time, until one succeeds.</p>
+     */
+    @Override
+    public WeatherInfo getWeatherInfo(@NonNull String cityName, @NonNull String language,
+                                      @NonNull UnitSystem units) throws Exception {
+        Exception lastError = null;
+        for (int backend : rank()) {
+            final long start = SystemClock.elapsedRealtime();
+            try {
+                final WeatherInfo info = backends[backend].getWeatherInfo(cityName, language, units);
+                stats[backend].onSuccess(SystemClock.elapsedRealtime() - start);
+                return info;
+            } catch (Exception e) {
+                stats[backend].onFailure();
+                lastError = e;
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Backends are tried in order of preference, one at a time, until one succeeds.</p>
+     */
+    @NonNull
+    @Override
+    public Map<String, WeatherInfo> getWeatherInfo(@NonNull Collection<String> cityNames,
+                                                   @NonNull String language,
+                                                   @NonNull UnitSystem units) throws Exception {
+        Exception lastError = null;
+        for (int backend : rank()) {
+            final long start = SystemClock.elapsedRealtime();
+            try {
+                final Map<String, WeatherInfo> infos =
+                        backends[backend].getWeatherInfo(cityNames, language, units);
+                stats[backend].onSuccess(SystemClock.elapsedRealtime() - start);
+                return infos;
+            } catch (Exception e) {
+                stats[backend].onFailure();
+                lastError = e;
+            }
+        }
+        throw lastError;
+    }
+}
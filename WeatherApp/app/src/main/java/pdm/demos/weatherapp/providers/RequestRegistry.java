@@ -0,0 +1,190 @@
+package pdm.demos.weatherapp.providers;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import pdm.demos.weatherapp.cities.CityDirectory;
+
+/**
+ * Class whose instances keep track of the weather information requests issued on behalf of
+ * components whose lifetime is shorter than the request's (i.e. activities, which are destroyed and
+ * recreated on configuration changes). Instances are meant to be process-scoped (see
+ * {@link pdm.demos.weatherapp.WeatherApplication#getRequestRegistry()}).
+ *
+ * <p>Requests are identified by the id produced by {@link #submit(String, String,
+ * WeatherInfoProvider.UnitSystem)}, which hosts keep in their saved state. A host attaches to a
+ * request to receive its results and detaches from it when destroyed. Results produced while no
+ * host is attached are retained, and handed over once, to the next host that attaches. Only the
+ * most recent result is retained: a final result supersedes a provisional one. Once the final
+ * result is handed over, the request is forgotten.</p>
+ *
+ * <p>Requests for the same information (see {@link WeatherQuery}) that are in flight are
+ * coalesced: submitting it again produces the id of the existing request, thereby never issuing a
+ * second network call, for instance, when the user repeats the request after rotating the screen.
+ * City names are normalized to their canonical ids (see {@link CityDirectory#canonicalize(String)})
+ * beforehand, so that equivalent inputs, such as {@literal Lisbon} and {@literal lisbon, pt}, are
+ * coalesced as well.</p>
+ *
+ * <p>Instances must only be used on the main thread, which is also the thread on which providers
+ * deliver results.</p>
+ */
+@MainThread
+public final class RequestRegistry {
+
+    /** The value of ids that denote no request. */
+    public static final long NO_REQUEST = 0;
+
+    /**
+     * Class whose instances hold the state of a request.
+     */
+    private final class Request implements WeatherInfoProvider.Callback {
+        /** The request's id. */
+        final long id;
+        /** The information being requested. */
+        final WeatherQuery query;
+        /** The handle of the asynchronous operation. */
+        WeatherInfoFuture future;
+        /** The host attached to the request, if any. */
+        WeatherInfoProvider.Callback host;
+        /** The most recent result produced while no host was attached, if any. */
+        WeatherInfoProvider.CallResult undelivered;
+
+        Request(long id, @NonNull WeatherQuery query) {
+            this.id = id;
+            this.query = query;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void onResult(@NonNull WeatherInfoProvider.CallResult result) {
+            // Results of cancelled requests are dropped
+            if (requests.get(id) != this)
+                return;
+
+            if (!result.isProvisional() && inFlight.get(query) == this)
+                inFlight.remove(query);
+
+            if (host != null)
+                deliver(this, result);
+            else
+                undelivered = result;
+        }
+    }
+
+    /** The provider that serves the requests. */
+    private final WeatherInfoProvider provider;
+    /** The directory used to normalize city names. */
+    private final CityDirectory directory;
+    /** The requests whose final result was not yet handed over, by id. */
+    private final Map<Long, Request> requests;
+    /** The requests whose final result was not yet produced, by the information requested. */
+    private final Map<WeatherQuery, Request> inFlight;
+    /** The id of the most recent request. */
+    private long lastId;
+
+    /**
+     * Initiates an instance that issues requests to the given provider.
+     * @param provider The provider.
+     * @param directory The directory used to normalize city names.
+     */
+    public RequestRegistry(@NonNull WeatherInfoProvider provider,
+                           @NonNull CityDirectory directory) {
+        this.provider = provider;
+        this.directory = directory;
+        requests = new HashMap<>();
+        inFlight = new HashMap<>();
+        lastId = NO_REQUEST;
+    }
+
+    /**
+     * Hands over the given result to the request's host. The request is forgotten if the result
+     * is the final one.
+     */
+    private void deliver(@NonNull Request request, @NonNull WeatherInfoProvider.CallResult result) {
+        // Forgotten before the host is called, so that it may submit a new request right away
+        if (!result.isProvisional())
+            requests.remove(request.id);
+        request.host.onResult(result);
+    }
+
+    /**
+     * Submits a request for the current weather info for the given city, unless one for the same
+     * information is in flight.
+     * @param cityName The city name.
+     * @param language The language to be used on the result, encoded in ISO3.
+     * @param units The unit system to be used on the result.
+     * @return The request's id.
+     */
+    public long submit(@NonNull String cityName, @NonNull String language,
+                       @NonNull WeatherInfoProvider.UnitSystem units) {
+        final String cityId = directory.canonicalize(cityName);
+        final WeatherQuery query = new WeatherQuery(cityId, language, units);
+        Request request = inFlight.get(query);
+        if (request != null)
+            return request.id;
+
+        request = new Request(++lastId, query);
+        requests.put(request.id, request);
+        inFlight.put(query, request);
+        request.future = provider.getWeatherInfoAsync(cityId, language, units, request);
+        return request.id;
+    }
+
+    /**
+     * Attaches the given host to the request with the given id, replacing any previous host, and
+     * hands over the result retained while no host was attached, if any.
+     * @param id The request's id.
+     * @param host The host.
+     * @return {@literal false} if the request is unknown (e.g. because it was cancelled, or the
+     * process was restarted since it was submitted), {@literal true} otherwise.
+     */
+    public boolean attach(long id, @NonNull WeatherInfoProvider.Callback host) {
+        final Request request = requests.get(id);
+        if (request == null)
+            return false;
+
+        request.host = host;
+        final WeatherInfoProvider.CallResult result = request.undelivered;
+        if (result != null) {
+            request.undelivered = null;
+            deliver(request, result);
+        }
+        return true;
+    }
+
+    /**
+     * Detaches the given host from the request with the given id, if it is attached. Subsequent
+     * results are retained until a host attaches.
+     * @param id The request's id.
+     * @param host The host.
+     */
+    public void detach(long id, @NonNull WeatherInfoProvider.Callback host) {
+        final Request request = requests.get(id);
+        if (request != null && request.host == host)
+            request.host = null;
+    }
+
+    /**
+     * Cancels the request with the given id, which is forgotten, along with its results.
+     * @param id The request's id.
+     * @return {@literal true} if the request was known, {@literal false} otherwise.
+     */
+    public boolean cancel(long id) {
+        final Request request = requests.remove(id);
+        if (request == null)
+            return false;
+
+        if (inFlight.get(request.query) == request)
+            inFlight.remove(request.query);
+        request.future.cancel();
+        return true;
+    }
+
+    /** @return The number of requests whose final result was not yet handed over. */
+    public int size() {
+        return requests.size();
+    }
+}
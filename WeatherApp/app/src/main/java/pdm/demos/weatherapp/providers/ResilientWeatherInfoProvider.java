@@ -0,0 +1,263 @@
+package pdm.demos.weatherapp.providers;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class that implements a {@link WeatherInfoProvider} decorator that shields the decorated
+ * provider (i.e. a web API proxy) from being hammered while it is failing, and the callers from
+ * transient failures.
+ *
+ * <p>Failed requests are retried, a bounded number of times, with exponential backoff and jitter
+ * (see {@link RetryPolicy}), but only if the failure is transient. Backend failures are tracked by
+ * a {@link CircuitBreaker}: while it is open, requests fail fast, without reaching the decorated
+ * provider, with a {@link CircuitBreaker.OpenException}. A {@link CachingWeatherInfoProvider}
+ * in front of this one serves the last known information in that case.</p>
+ *
+ * <p>Completion callbacks are executed on the main thread, just like those of the decorated
+ * provider. Cancelling a request cancels both the attempt in flight and any scheduled retry.</p>
+ */
+public class ResilientWeatherInfoProvider implements WeatherInfoProvider {
+
+    /** Debugging tag used by the Android logger. */
+    private static final String TAG = "ResilientProvider";
+
+    /** The decorated provider. */
+    private final WeatherInfoProvider source;
+    /** The breaker that guards the decorated provider. */
+    private final CircuitBreaker breaker;
+    /** The policy used to retry failed requests. */
+    private final RetryPolicy retryPolicy;
+    /** The number of retries performed. */
+    private final AtomicLong retryCount;
+    /** The handler used to schedule retries and to deliver results on the main thread. */
+    private final Handler mainHandler;
+
+    /**
+     * Initiates an instance with the default breaker and retry policy.
+     * @param source The decorated provider.
+     */
+    public ResilientWeatherInfoProvider(@NonNull WeatherInfoProvider source) {
+        this(source, new CircuitBreaker(), new RetryPolicy());
+    }
+
+    /**
+     * Initiates an instance with the given breaker and retry policy.
+     * @param source The decorated provider.
+     * @param breaker The circuit breaker.
+     * @param retryPolicy The retry policy.
+     */
+    public ResilientWeatherInfoProvider(@NonNull WeatherInfoProvider source,
+                                        @NonNull CircuitBreaker breaker,
+                                        @NonNull RetryPolicy retryPolicy) {
+        this.source = source;
+        this.breaker = breaker;
+        this.retryPolicy = retryPolicy;
+        retryCount = new AtomicLong();
+        mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * @return The circuit breaker, which exposes its state and counters.
+     */
+    @NonNull
+    public CircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    /** @return The number of retries performed. */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * Records the outcome of an allowed request in the breaker.
+     * @param error The request's error, or {@literal null} if it succeeded.
+     */
+    private void record(Exception error) {
+        // Errors specific to the request (e.g. unknown city) mean that the backend is available
+        if (error == null || !RetryPolicy.isBackendFailure(error))
+            breaker.onSuccess();
+        else
+            breaker.onFailure(SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * Checks whether the request that failed with the given error on the given attempt is to be
+     * retried.
+     */
+    private boolean shouldRetry(@NonNull Exception error, int attempt) {
+        return attempt < retryPolicy.getMaxAttempts() && RetryPolicy.isTransient(error)
+                && breaker.getState() == CircuitBreaker.State.CLOSED;
+    }
+
+    /**
+     * Class whose instances represent asynchronous requests, through all their attempts.
+     */
+    private final class Attempts implements Cancellable, Callback, Runnable {
+        private final String cityName;
+        private final String language;
+        private final UnitSystem units;
+        /** The request's handle. */
+        private final WeatherInfoFuture result;
+        /** The number of the current attempt. Accessed only on the main thread. */
+        private int attempt;
+        /** The handle of the attempt in flight, if any. */
+        private volatile WeatherInfoFuture current;
+        private volatile boolean cancelled;
+
+        Attempts(@NonNull String cityName, @NonNull String language, @NonNull UnitSystem units,
+                 @NonNull WeatherInfoFuture result) {
+            this.cityName = cityName;
+            this.language = language;
+            this.units = units;
+            this.result = result;
+        }
+
+        /**
+         * Issues the next attempt, unless the breaker rejects it.
+         */
+        @Override
+        public void run() {
+            if (cancelled)
+                return;
+
+            final long now = SystemClock.elapsedRealtime();
+            if (!breaker.allowRequest(now)) {
+                result.onResult(new CallResult(breaker.rejection(now)));
+                return;
+            }
+
+            attempt += 1;
+            current = source.getWeatherInfoAsync(cityName, language, units, this);
+            if (cancelled)
+                current.cancel();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void onResult(@NonNull CallResult attemptResult) {
+            if (attemptResult.isProvisional()) {
+                result.onResult(attemptResult);
+                return;
+            }
+
+            current = null;
+            Exception error = null;
+            try {
+                attemptResult.getResult();
+            } catch (Exception e) {
+                error = e;
+            }
+            record(error);
+
+            if (error != null && shouldRetry(error, attempt)) {
+                final long delay = retryPolicy.delayBefore(attempt);
+                retryCount.incrementAndGet();
+                Log.v(TAG, String.format("Retrying %s in %d ms: %s", cityName, delay, error));
+                mainHandler.postDelayed(this, delay);
+                return;
+            }
+
+            result.onResult(attemptResult);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean cancel() {
+            if (cancelled)
+                return false;
+            cancelled = true;
+            mainHandler.removeCallbacks(this);
+            final WeatherInfoFuture inFlight = current;
+            if (inFlight != null && inFlight.cancel())
+                breaker.onAbandoned();
+            return true;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @NonNull
+    @Override
+    public WeatherInfoFuture getWeatherInfoAsync(@NonNull String cityName,
+                                                 @NonNull String language,
+                                                 @NonNull UnitSystem units,
+                                                 @NonNull Callback completionCallback) {
+        final WeatherInfoFuture result = new WeatherInfoFuture(completionCallback);
+        final Attempts attempts = new Attempts(cityName, language, units, result);
+        result.onCancel(attempts);
+        // Attempts are always issued on the main thread, where their results are delivered
+        mainHandler.post(attempts);
+        return result;
+    }
+
+    /**
+     * Blocks the calling thread for the delay before the given retry.
+     */
+    private void backOff(int retry, @NonNull Exception error) {
+        final long delay = retryPolicy.delayBefore(retry);
+        retryCount.incrementAndGet();
+        Log.v(TAG, String.format("Retrying in %d ms: %s", delay, error));
+        SystemClock.sleep(delay);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public WeatherInfo getWeatherInfo(@NonNull String cityName, @NonNull String language,
+                                      @NonNull UnitSystem units) throws Exception {
+        for (int attempt = 1; ; ++attempt) {
+            final long now = SystemClock.elapsedRealtime();
+            if (!breaker.allowRequest(now))
+                throw breaker.rejection(now);
+
+            try {
+                final WeatherInfo info = source.getWeatherInfo(cityName, language, units);
+                record(null);
+                return info;
+            } catch (Exception e) {
+                record(e);
+                if (!shouldRetry(e, attempt))
+                    throw e;
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @NonNull
+    @Override
+    public Map<String, WeatherInfo> getWeatherInfo(@NonNull Collection<String> cityNames,
+                                                   @NonNull String language,
+                                                   @NonNull UnitSystem units) throws Exception {
+        for (int attempt = 1; ; ++attempt) {
+            final long now = SystemClock.elapsedRealtime();
+            if (!breaker.allowRequest(now))
+                throw breaker.rejection(now);
+
+            try {
+                final Map<String, WeatherInfo> infos =
+                        source.getWeatherInfo(cityNames, language, units);
+                record(null);
+                return infos;
+            } catch (Exception e) {
+                record(e);
+                if (!shouldRetry(e, attempt))
+                    throw e;
+                backOff(attempt, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package pdm.demos.weatherapp.providers;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Random;
+
+/**
+ * Class whose instances define how failed requests are retried: the maximum number of attempts,
+ * the delay between attempts, which grows exponentially and is randomized (full jitter) so that
+ * clients do not retry in lockstep, and which failures are worth retrying.
+ *
+ * <p>Retrying is only safe for idempotent requests, which all weather requests are (HTTP GET).</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public final class RetryPolicy {
+
+    /** The default maximum number of attempts, including the first one. */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    /** The default base delay, in milliseconds. */
+    public static final long DEFAULT_BASE_DELAY = 500;
+    /** The default maximum delay, in milliseconds. */
+    public static final long DEFAULT_MAX_DELAY = 8 * 1000;
+
+    /** The status code of responses to clients that issue too many requests. */
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    /** The source of the jitter. */
+    private final Random random;
+
+    /**
+     * Initiates an instance with the default settings.
+     */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY, new Random());
+    }
+
+    /**
+     * Initiates an instance with the given settings.
+     * @param maxAttempts The maximum number of attempts, including the first one.
+     * @param baseDelay The base delay, in milliseconds.
+     * @param maxDelay The maximum delay, in milliseconds.
+     * @param random The source of the jitter.
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, @NonNull Random random) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.random = random;
+    }
+
+    /** @return The maximum number of attempts, including the first one. */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Computes the delay before the given retry: a random value between zero and the exponential
+     * backoff (i.e. base delay times 2 to the power of the retry number, capped at the maximum).
+     * @param retry The retry number, starting at 1.
+     * @return The delay, in milliseconds.
+     */
+    public long delayBefore(int retry) {
+        final long backoff = retry > 30 ? maxDelay : Math.min(maxDelay, baseDelay << (retry - 1));
+        synchronized (random) {
+            return (long) (random.nextDouble() * backoff);
+        }
+    }
+
+    /**
+     * Checks whether the given error is transient, that is, whether retrying may succeed: network
+     * errors, server errors ({@literal 5xx}) and throttling ({@literal 429}).
+     * @param error The error.
+     * @return {@literal true} if the error is transient, {@literal false} otherwise.
+     */
+    public static boolean isTransient(@NonNull Throwable error) {
+        if (error instanceof HttpStatusException) {
+            final int status = ((HttpStatusException) error).getStatusCode();
+            return status >= HttpURLConnection.HTTP_INTERNAL_ERROR
+                    || status == HTTP_TOO_MANY_REQUESTS;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause())
+            if (cause instanceof IOException)
+                return true;
+        return false;
+    }
+
+    /**
+     * Checks whether the given error signals that the backend is unavailable, and must therefore
+     * be counted by the circuit breaker. Besides transient errors, these include authorization
+     * failures ({@literal 401} and {@literal 403}), which persist until the application is fixed.
+     * Other errors (e.g. {@literal 404} for unknown cities) are specific to the request.
+     * @param error The error.
+     * @return {@literal true} if the error signals an unavailable backend.
+     */
+    public static boolean isBackendFailure(@NonNull Throwable error) {
+        if (error instanceof HttpStatusException) {
+            final int status = ((HttpStatusException) error).getStatusCode();
+            if (status == HttpURLConnection.HTTP_UNAUTHORIZED
+                    || status == HttpURLConnection.HTTP_FORBIDDEN)
+                return true;
+        }
+        return isTransient(error);
+    }
+}
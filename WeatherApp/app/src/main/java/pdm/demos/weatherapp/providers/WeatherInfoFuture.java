@@ -0,0 +1,177 @@
+package pdm.demos.weatherapp.providers;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class whose instances are the handles of asynchronous weather information requests, as produced
+ * by {@link WeatherInfoProvider#getWeatherInfoAsync}.
+ *
+ * <p>Instances are completed by calling {@link #onResult(WeatherInfoProvider.CallResult)}, which
+ * forwards the result to the callback specified upon construction, unless the request has been
+ * cancelled. The callback is therefore executed at most once and never after a successful call to
+ * {@link #cancel()} on the thread that delivers results (i.e. the main thread). Provisional results
+ * (see {@link WeatherInfoProvider.CallResult#isProvisional()}) are also forwarded to the callback,
+ * but do not complete the request.</p>
+ *
+ * <p>Providers register the cancellation of the underlying work (e.g. the HTTP call) through
+ * {@link #onCancel(Cancellable)}, so that abandoned requests release their resources right away.
+ * Blocking retrieval of the result is supported through the {@link Future} contract, although it
+ * must never be used on the main thread.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public final class WeatherInfoFuture implements Future<WeatherInfo>, Cancellable,
+        WeatherInfoProvider.Callback {
+
+    /** The possible states of the request. */
+    private static final int PENDING = 0, COMPLETED = 1, CANCELLED = 2;
+
+    /** The current state of the request. */
+    private final AtomicInteger state;
+    /** The latch used to signal that the request is no longer pending. */
+    private final CountDownLatch done;
+    /** The callback to be executed on completion, if one was specified. */
+    private final WeatherInfoProvider.Callback completionCallback;
+    /** The handles of the underlying work, to be cancelled with the request. Guarded by itself. */
+    private final List<Cancellable> upstream;
+    /** The request's result, once completed. */
+    private volatile WeatherInfoProvider.CallResult result;
+
+    /**
+     * Initiates an instance with the given completion callback.
+     * @param completionCallback The callback to be executed once the request is completed, or
+     *                           {@literal null} if none is required.
+     */
+    public WeatherInfoFuture(@Nullable WeatherInfoProvider.Callback completionCallback) {
+        this.completionCallback = completionCallback;
+        state = new AtomicInteger(PENDING);
+        done = new CountDownLatch(1);
+        upstream = new ArrayList<>();
+    }
+
+    /**
+     * Registers the given handle, which is cancelled if the request is cancelled. If the request
+     * has already been cancelled, the handle is cancelled immediately, and if it has already been
+     * completed, the handle is ignored.
+     * @param work The handle of the underlying work.
+     * @return This instance, to enable fluent use.
+     */
+    @NonNull
+    public WeatherInfoFuture onCancel(@NonNull Cancellable work) {
+        synchronized (upstream) {
+            if (state.get() == PENDING) {
+                upstream.add(work);
+                return this;
+            }
+        }
+        if (state.get() == CANCELLED)
+            work.cancel();
+        return this;
+    }
+
+    /**
+     * Completes the request with the given result, unless it has already been completed or
+     * cancelled. Provisional results are forwarded to the callback while the request is pending,
+     * without completing it.
+     * @param result The request's result.
+     */
+    @Override
+    public void onResult(@NonNull WeatherInfoProvider.CallResult result) {
+        if (result.isProvisional()) {
+            if (state.get() == PENDING && completionCallback != null)
+                completionCallback.onResult(result);
+            return;
+        }
+
+        if (!state.compareAndSet(PENDING, COMPLETED))
+            return;
+
+        this.result = result;
+        synchronized (upstream) {
+            upstream.clear();
+        }
+        done.countDown();
+        if (completionCallback != null)
+            completionCallback.onResult(result);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean cancel() {
+        if (!state.compareAndSet(PENDING, CANCELLED))
+            return false;
+
+        final Cancellable[] work;
+        synchronized (upstream) {
+            work = upstream.toArray(new Cancellable[upstream.size()]);
+            upstream.clear();
+        }
+        done.countDown();
+        for (Cancellable handle : work)
+            handle.cancel();
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The underlying work is always cancelled, regardless of the given argument.</p>
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return cancel();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isCancelled() {
+        return state.get() == CANCELLED;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isDone() {
+        return state.get() != PENDING;
+    }
+
+    /**
+     * Produces the result of the completed request.
+     * @return The weather information.
+     * @throws ExecutionException If the request completed with an error.
+     */
+    private WeatherInfo report() throws ExecutionException {
+        if (state.get() == CANCELLED)
+            throw new CancellationException();
+        try {
+            return result.getResult();
+        } catch (Exception e) {
+            throw new ExecutionException(e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public WeatherInfo get() throws InterruptedException, ExecutionException {
+        done.await();
+        return report();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public WeatherInfo get(long timeout, @NonNull TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit))
+            throw new TimeoutException();
+        return report();
+    }
+}
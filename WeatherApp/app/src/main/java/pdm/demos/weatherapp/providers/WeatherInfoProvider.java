@@ -2,7 +2,9 @@ package pdm.demos.weatherapp.providers;
 
 import android.support.annotation.NonNull;
 
+import java.util.Collection;
 import java.util.Locale;
+import java.util.Map;
 
 import pdm.demos.weatherapp.providers.openweathermap.WeatherInfoDTO;
 
@@ -10,9 +12,9 @@ import pdm.demos.weatherapp.providers.openweathermap.WeatherInfoDTO;
  * Contract to be supported by all providers of weather information, either real or mocked. The
  * remainder of the code base is therefore decoupled from how this information is obtained.
  *
- * <p>The asynchronous operation signature is not appropriate because it hinders support for
- * cancellation, a fundamental property of production ready code. Perhaps we will deal with this
- * later. =)</p>
+ * <p>The asynchronous operation produces a {@link WeatherInfoFuture}, the handle through which the
+ * request may be cancelled, a fundamental property of production ready code. Cancelled requests do
+ * not signal their completion and release the resources they hold as soon as possible.</p>
  */
 public interface WeatherInfoProvider {
 
@@ -38,15 +40,21 @@ public interface WeatherInfoProvider {
     final class CallResult {
         private final WeatherInfo result;
         private final Exception error;
+        private final long age;
+        private final boolean provisional;
 
         /**
          * Prevent instantiation from outside code.
          * @param result The operation's result, if it executed successfully.
          * @param error The operation's error, if one occurred.
+         * @param age The age of the result, in milliseconds.
+         * @param provisional Whether the result will be followed by another one.
          */
-        private CallResult(WeatherInfo result, Exception error) {
+        private CallResult(WeatherInfo result, Exception error, long age, boolean provisional) {
             this.result = result;
             this.error = error;
+            this.age = age;
+            this.provisional = provisional;
         }
 
         /**
@@ -54,7 +62,18 @@ public interface WeatherInfoProvider {
          * @param result The operation's result.
          */
         public CallResult(@NonNull WeatherInfo result) {
-            this(result, null);
+            this(result, null, 0, false);
+        }
+
+        /**
+         * Initiates an instance with the given previously obtained result (e.g. from a cache).
+         * @param result The operation's result.
+         * @param age The time elapsed since the result was obtained, in milliseconds.
+         * @param provisional Whether the result is provisional, that is, it will be followed by
+         *                    another one, once the information is refreshed.
+         */
+        public CallResult(@NonNull WeatherInfo result, long age, boolean provisional) {
+            this(result, null, age, provisional);
         }
 
         /**
@@ -62,7 +81,23 @@ public interface WeatherInfoProvider {
          * @param error The operation's error.
          */
         public CallResult(@NonNull Exception error) {
-            this(null, error);
+            this(null, error, 0, false);
+        }
+
+        /**
+         * @return The time elapsed since the result was obtained from its source, in
+         * milliseconds, or 0 if it has just been obtained.
+         */
+        public long getAge() {
+            return age;
+        }
+
+        /**
+         * @return {@literal true} if the result is provisional, meaning that it will be followed
+         * by another one, once the information is refreshed, {@literal false} otherwise.
+         */
+        public boolean isProvisional() {
+            return provisional;
         }
 
         /**
@@ -84,7 +119,9 @@ public interface WeatherInfoProvider {
      */
     interface Callback {
         /**
-         * Called when the corresponding asynchronous operation is completed.
+         * Called when the corresponding asynchronous operation is completed. Providers that serve
+         * previously obtained information (see {@link CallResult#isProvisional()}) may call it
+         * once before completion, with a provisional result.
          * @param result The asynchronous call result. The actual result must be obtained by calling
          *               the {@link WeatherInfoProvider.CallResult} instance's.
          *               {@link CallResult#getResult()} method, which produces the result or, if an
@@ -95,16 +132,18 @@ public interface WeatherInfoProvider {
 
     /**
      * Asynchronous operation to get the current weather info for the given city. Completion is
-     * signaled by calling the received callback instance.All arguments
-     * must be non {@value null} values.
+     * signaled by calling the received callback instance, on the main thread, unless the operation
+     * is cancelled before. All arguments must be non {@value null} values.
      *
      * @param cityName The city name.
      * @param language The language to be used on the result, encoded in ISO3.
      * @param units The unit system to be used on the result.
      * @param completionCallback The callback to be executed once the operation is completed,
      *                           either successfully or in failure.
+     * @return The handle of the asynchronous operation, which may be used to cancel it.
      */
-    void getWeatherInfoAsync(@NonNull String cityName, @NonNull String language, @NonNull UnitSystem units,
+    @NonNull
+    WeatherInfoFuture getWeatherInfoAsync(@NonNull String cityName, @NonNull String language, @NonNull UnitSystem units,
                              @NonNull Callback completionCallback);
 
     /**
@@ -116,4 +155,20 @@ public interface WeatherInfoProvider {
      * @throws Exception If an error occurred while fetching the weather information.
      */
     WeatherInfo getWeatherInfo(@NonNull String cityName, @NonNull String language, @NonNull UnitSystem units) throws Exception;
+
+    /**
+     * Synchronous batch version of the operation to get the current weather info for the given
+     * cities. Providers are expected to obtain the information with as few round-trips as
+     * possible.
+     * @param cityNames The city names or, for providers that support them, city identifiers.
+     * @param language The language to be used on the result, encoded in ISO3.
+     * @param units The unit system to be used on the result.
+     * @return The resulting weather information, indexed by the corresponding element of
+     * {@code cityNames}. Cities whose information could not be obtained are absent.
+     * @throws Exception If the information could not be obtained for any of the cities.
+     */
+    @NonNull
+    Map<String, WeatherInfo> getWeatherInfo(@NonNull Collection<String> cityNames,
+                                            @NonNull String language, @NonNull UnitSystem units)
+            throws Exception;
 }
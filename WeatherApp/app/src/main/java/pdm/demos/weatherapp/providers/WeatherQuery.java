@@ -0,0 +1,118 @@
+package pdm.demos.weatherapp.providers;
+
+import android.support.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Class whose instances identify a weather information request, that is, the triple
+ * (city name, language, unit system). Instances are used as keys by the components that keep
+ * per request state (e.g. caches).
+ *
+ * <p>Instances are immutable and are therefore thread-safe.</p>
+ */
+public final class WeatherQuery {
+
+    /** The city name, as received from the caller. */
+    private final String cityName;
+    /** The language to be used on the result. */
+    private final String language;
+    /** The unit system to be used on the result. */
+    private final WeatherInfoProvider.UnitSystem units;
+    /** The city name normalized for comparison purposes (i.e. trimmed and lower case). */
+    private final String normalizedCityName;
+
+    /**
+     * Initiates an instance with the given arguments.
+     * @param cityName The city name.
+     * @param language The language to be used on the result, encoded in ISO3.
+     * @param units The unit system to be used on the result.
+     */
+    public WeatherQuery(@NonNull String cityName, @NonNull String language,
+                        @NonNull WeatherInfoProvider.UnitSystem units) {
+        this.cityName = cityName;
+        this.language = language;
+        this.units = units;
+        normalizedCityName = cityName.trim().toLowerCase(Locale.US);
+    }
+
+    /** @return The city name. */
+    @NonNull
+    public String getCityName() {
+        return cityName;
+    }
+
+    /**
+     * @return The key of the city, that is, its name normalized for comparison purposes. Queries
+     * for the same city, regardless of the language, have the same key.
+     */
+    @NonNull
+    public String getCityKey() {
+        return normalizedCityName;
+    }
+
+    /** @return The language to be used on the result. */
+    @NonNull
+    public String getLanguage() {
+        return language;
+    }
+
+    /** @return The unit system to be used on the result. */
+    @NonNull
+    public WeatherInfoProvider.UnitSystem getUnits() {
+        return units;
+    }
+
+    /**
+     * Produces a string representation of the query that can be safely used as a file name. The
+     * name depends only on the query's data, and not on {@link #hashCode()}, whose value for the
+     * unit system changes between processes, so that it remains the same across restarts.
+     * @return The file name.
+     */
+    @NonNull
+    public String toFileName() {
+        final StringBuilder builder = new StringBuilder();
+        for (int idx = 0; idx < normalizedCityName.length(); ++idx) {
+            final char c = normalizedCityName.charAt(idx);
+            builder.append(Character.isLetterOrDigit(c) ? c : '_');
+        }
+        // The hash (String's is specified, hence stable) tells apart names that differ only in
+        // the characters replaced above
+        final int hash = (normalizedCityName + '|' + language).hashCode();
+        return builder.append('-').append(language)
+                .append('-').append(units.name().toLowerCase(Locale.US))
+                .append('-').append(Integer.toHexString(hash))
+                .toString();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof WeatherQuery))
+            return false;
+
+        final WeatherQuery query = (WeatherQuery) other;
+        return units == query.units && language.equals(query.language)
+                && normalizedCityName.equals(query.normalizedCityName);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        int result = normalizedCityName.hashCode();
+        result = 31 * result + language.hashCode();
+        result = 31 * result + units.hashCode();
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return new StringBuilder("WeatherQuery [city=").append(cityName)
+                .append(", lang=").append(language)
+                .append(", units=").append(units).append(']')
+                .toString();
+    }
+}
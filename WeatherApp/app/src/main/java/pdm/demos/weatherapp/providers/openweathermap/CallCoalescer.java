@@ -0,0 +1,233 @@
+package pdm.demos.weatherapp.providers.openweathermap;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pdm.demos.weatherapp.providers.Cancellable;
+import pdm.demos.weatherapp.providers.WeatherInfoProvider.CallResult;
+import pdm.demos.weatherapp.providers.WeatherInfoProvider.Callback;
+import pdm.demos.weatherapp.providers.WeatherQuery;
+import pdm.demos.weatherapp.utils.Metrics;
+
+/**
+ * Class whose instances implement a single-flight policy for weather requests: concurrent requests
+ * with the same {@link WeatherQuery} join the request that is already in flight, instead of issuing
+ * their own HTTP call. Every caller receives the same {@link CallResult}.
+ *
+ * <p>The first caller for a given query becomes the leader and is responsible for issuing the call
+ * and for reporting its completion through {@link #complete(Flight, CallResult)}. Callbacks of
+ * asynchronous callers are always executed on the main thread, regardless of the thread that
+ * completes the call. The HTTP call is cancelled only when all the requests that joined it have
+ * left (see {@link #leave(WeatherQuery, Callback)}).</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public final class CallCoalescer {
+
+    /** The timer of the dispatch of results to the main thread, until their callbacks run. */
+    private static final Metrics.Timer DISPATCH_TIMER = Metrics.timer("pipeline.dispatch");
+    /** The counter of HTTP calls issued. */
+    private static final Metrics.Counter ISSUED = Metrics.counter("weather.calls.issued");
+    /** The counter of requests that joined a call already in flight. */
+    private static final Metrics.Counter COALESCED = Metrics.counter("weather.calls.coalesced");
+
+    /**
+     * Class whose instances are used by synchronous callers to wait for the result.
+     */
+    static final class Waiter implements Callback {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile CallResult result;
+
+        /** {@inheritDoc} */
+        @Override
+        public void onResult(@NonNull CallResult result) {
+            this.result = result;
+            done.countDown();
+        }
+
+        /**
+         * Blocks the calling thread until the result is available.
+         * @return The call result.
+         * @throws InterruptedException If the calling thread was interrupted while waiting.
+         */
+        @NonNull
+        CallResult await() throws InterruptedException {
+            done.await();
+            return result;
+        }
+    }
+
+    /**
+     * Class whose instances represent HTTP calls in flight. Instances are guarded by the map of
+     * calls in flight.
+     */
+    static final class Flight {
+        /** The query of the call. */
+        private final WeatherQuery query;
+        /** The callbacks of the requests that joined the call. */
+        private final List<Callback> callbacks;
+        /** The handle of the underlying HTTP call, once issued. */
+        private Cancellable call;
+
+        private Flight(@NonNull WeatherQuery query) {
+            this.query = query;
+            callbacks = new ArrayList<>();
+        }
+    }
+
+    /** The calls in flight, per query. Guarded by itself. */
+    private final Map<WeatherQuery, Flight> inFlight;
+    /** The number of HTTP calls actually issued. */
+    private final AtomicLong issuedCount;
+    /** The number of requests that joined a call already in flight. */
+    private final AtomicLong coalescedCount;
+    /** The number of HTTP calls cancelled because all their requests were cancelled. */
+    private final AtomicLong cancelledCount;
+    /** The handler used to execute completion callbacks on the main thread, once needed. */
+    private volatile Handler mainHandler;
+
+    /**
+     * Initiates an instance.
+     */
+    public CallCoalescer() {
+        inFlight = new HashMap<>();
+        issuedCount = new AtomicLong();
+        coalescedCount = new AtomicLong();
+        cancelledCount = new AtomicLong();
+    }
+
+    /**
+     * Gets the handler of the main thread, creating it on first use, so that synchronous callers
+     * never depend on the main looper. Concurrent first uses may create equivalent handlers.
+     * @return The handler.
+     */
+    @NonNull
+    private Handler getMainHandler() {
+        Handler handler = mainHandler;
+        if (handler == null)
+            mainHandler = handler = new Handler(Looper.getMainLooper());
+        return handler;
+    }
+
+    /**
+     * Registers the given callback as a recipient of the result of the request for the given
+     * query.
+     * @param query The request's query.
+     * @param callback The callback to be executed once the result is available.
+     * @return The new call in flight if the caller is the leader and must therefore issue the call,
+     * or {@literal null} if it joined a call already in flight.
+     */
+    @Nullable
+    Flight join(@NonNull WeatherQuery query, @NonNull Callback callback) {
+        synchronized (inFlight) {
+            Flight flight = inFlight.get(query);
+            if (flight != null) {
+                flight.callbacks.add(callback);
+                coalescedCount.incrementAndGet();
+                COALESCED.increment();
+                return null;
+            }
+
+            flight = new Flight(query);
+            flight.callbacks.add(callback);
+            inFlight.put(query, flight);
+            issuedCount.incrementAndGet();
+            ISSUED.increment();
+            return flight;
+        }
+    }
+
+    /**
+     * Associates the given call in flight to the handle of its underlying HTTP call, which is
+     * cancelled once all the requests that joined it leave.
+     * @param flight The call in flight.
+     * @param call The handle of the underlying HTTP call.
+     */
+    void issued(@NonNull Flight flight, @NonNull Cancellable call) {
+        synchronized (inFlight) {
+            if (inFlight.get(flight.query) == flight) {
+                flight.call = call;
+                return;
+            }
+        }
+        // All requests left before the call was issued
+        call.cancel();
+    }
+
+    /**
+     * Unregisters the given callback from the request for the given query. If it was the last one,
+     * the underlying HTTP call is cancelled.
+     * @param query The request's query.
+     * @param callback The callback to be unregistered.
+     */
+    void leave(@NonNull WeatherQuery query, @NonNull Callback callback) {
+        final Cancellable call;
+        synchronized (inFlight) {
+            final Flight flight = inFlight.get(query);
+            if (flight == null || !flight.callbacks.remove(callback) || !flight.callbacks.isEmpty())
+                return;
+            inFlight.remove(query);
+            call = flight.call;
+        }
+        cancelledCount.incrementAndGet();
+        if (call != null)
+            call.cancel();
+    }
+
+    /**
+     * Signals the completion of the given call in flight, delivering its result to all the
+     * registered callbacks.
+     * @param flight The completed call.
+     * @param result The call result.
+     */
+    void complete(@NonNull Flight flight, @NonNull final CallResult result) {
+        final List<Callback> callbacks;
+        synchronized (inFlight) {
+            // The call may have been abandoned, and even replaced by a new one for the same query
+            if (inFlight.get(flight.query) != flight)
+                return;
+            inFlight.remove(flight.query);
+            callbacks = flight.callbacks;
+        }
+
+        for (final Callback callback : callbacks) {
+            // Synchronous callers are blocked on a worker thread, waiting for the result
+            if (callback instanceof Waiter || Looper.myLooper() == Looper.getMainLooper())
+                callback.onResult(result);
+            else {
+                final long posted = DISPATCH_TIMER.start();
+                getMainHandler().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        DISPATCH_TIMER.stop(posted);
+                        callback.onResult(result);
+                    }
+                });
+            }
+        }
+    }
+
+    /** @return The number of HTTP calls actually issued. */
+    public long getIssuedCount() {
+        return issuedCount.get();
+    }
+
+    /** @return The number of requests that were served by joining a call already in flight. */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /** @return The number of HTTP calls cancelled because all their requests were cancelled. */
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+}
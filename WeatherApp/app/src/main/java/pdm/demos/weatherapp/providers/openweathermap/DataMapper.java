@@ -1,15 +1,46 @@
 package pdm.demos.weatherapp.providers.openweathermap;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
 
 import pdm.demos.weatherapp.providers.WeatherInfo;
+import pdm.demos.weatherapp.utils.Metrics;
 
 /**
  * Class whose instances are used to map between instances of {@link WeatherInfo} and instances of
  * {@link WeatherInfoDTO}.
+ *
+ * <p>Instances created with a {@link WeatherInfoInterner} reuse its strings and previously built
+ * {@link WeatherInfo} instances, instead of building new ones for each conversion.</p>
  */
 public class DataMapper {
 
+    /** The timer of the conversions of single DTOs. */
+    private static final Metrics.Timer MAP_TIMER = Metrics.timer("pipeline.map");
+
+    /** The interner used to build {@link WeatherInfo} instances, or {@literal null} if none. */
+    @Nullable
+    private final WeatherInfoInterner interner;
+
+    /**
+     * Initiates an instance that builds new {@link WeatherInfo} instances for each conversion.
+     */
+    public DataMapper() {
+        this(null);
+    }
+
+    /**
+     * Initiates an instance that uses the given interner.
+     * @param interner The interner used to build {@link WeatherInfo} instances, or
+     * {@literal null} if new instances are to be built for each conversion.
+     */
+    public DataMapper(@Nullable WeatherInfoInterner interner) {
+        this.interner = interner;
+    }
+
     /**
      * Converts the given {@link WeatherInfoDTO} instance to the corresponding {@link WeatherInfo}
      * instance.
@@ -18,6 +49,32 @@ public class DataMapper {
      */
     @NonNull
     public WeatherInfo convertFrom(@NonNull WeatherInfoDTO dto) {
+        final long start = MAP_TIMER.start();
+        try {
+            return map(dto);
+        } finally {
+            MAP_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Performs the conversion timed by {@link #convertFrom(WeatherInfoDTO)}.
+     */
+    @NonNull
+    private WeatherInfo map(@NonNull WeatherInfoDTO dto) {
+        if (interner != null)
+            return interner.obtain(
+                    dto.getCityName(),
+                    dto.getDescription(),
+                    dto.getWeatherIconName(),
+                    dto.getWindSpeed(),
+                    dto.getWindDirection(),
+                    dto.getTemperature(),
+                    dto.getLowestTemperature(),
+                    dto.getHighestTemperature(),
+                    dto.getHumidity()
+            );
+
         return new WeatherInfo(
                 dto.getCityName(),
                 dto.getDescription(),
@@ -30,4 +87,21 @@ public class DataMapper {
                 dto.getHumidity()
         );
     }
+
+    /**
+     * Converts the given {@link WeatherInfoListDTO} instance to the corresponding
+     * {@link WeatherInfo} instances, in a single pass over the list.
+     * @param dto The {@link WeatherInfoListDTO} instance to be converted.
+     * @return The resulting {@link WeatherInfo} instances, indexed by the string representation of
+     * the corresponding OpenWeatherMap city identifier.
+     */
+    @NonNull
+    public Map<String, WeatherInfo> convertFrom(@NonNull WeatherInfoListDTO dto) {
+        final WeatherInfoDTO[] list = dto.getList();
+        final Map<String, WeatherInfo> result = new HashMap<>(list.length * 2);
+        for (WeatherInfoDTO entry : list)
+            if (entry != null)
+                result.put(Long.toString(entry.getCityId()), convertFrom(entry));
+        return result;
+    }
 }
@@ -1,12 +1,30 @@
 package pdm.demos.weatherapp.providers.openweathermap;
 
 import android.support.annotation.NonNull;
-import android.util.Log;
 
-import java.io.IOException;
+import com.squareup.okhttp.OkHttpClient;
 
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import pdm.demos.weatherapp.providers.Cancellable;
+import pdm.demos.weatherapp.providers.HttpStatusException;
 import pdm.demos.weatherapp.providers.WeatherInfo;
+import pdm.demos.weatherapp.providers.WeatherInfoFuture;
 import pdm.demos.weatherapp.providers.WeatherInfoProvider;
+import pdm.demos.weatherapp.providers.WeatherQuery;
+import pdm.demos.weatherapp.utils.HttpClientFactory;
 import retrofit.Call;
 import retrofit.Callback;
 import retrofit.GsonConverterFactory;
@@ -18,22 +36,67 @@ import retrofit.Retrofit;
  *
  * <p>See <a href="http://openweathermap.org/">OpenWeatherMap</a> documentation for detailed
  * information.</p>
+ *
+ * <p>Concurrent requests for the same city, language and unit system are coalesced into a single
+ * HTTP call (see {@link CallCoalescer}). Cancelling an asynchronous request cancels the underlying
+ * HTTP call, unless other requests are still waiting for its result.</p>
+ *
+ * <p>Single city requests are conditional whenever a previous response for the same query carried
+ * validators ({@literal ETag} or {@literal Last-Modified}). {@literal 304 Not Modified} responses
+ * are served with the previously obtained information, without any parsing.</p>
+ *
+ * <p>Responses to single city requests are decoded by {@link StreamingConverterFactory}, straight
+ * from the response stream into {@link WeatherInfo} instances.</p>
+ *
+ * <p>Batch requests for cities specified through their OpenWeatherMap identifiers are served by the
+ * group endpoint, in chunks of at most {@link WebAPI#MAX_GROUP_SIZE} cities. The API does not
+ * support group requests by city name, so those are issued individually. Either way, all the
+ * resulting HTTP calls are performed in parallel.</p>
  */
 public class OpenWeatherProvider implements WeatherInfoProvider {
 
+    /** The maximum number of HTTP calls performed in parallel by batch requests. */
+    private static final int MAX_PARALLEL_CALLS = 4;
+    /** The time, in seconds, after which idle batch threads are terminated. */
+    private static final int BATCH_THREAD_KEEP_ALIVE = 30;
+
     /** The weather service API proxy */
     private final WebAPI serviceAPI;
-    /** The data mapper used to convert DTOs. */
+    /** The interner used to build the {@link WeatherInfo} instances of all requests. */
+    private final WeatherInfoInterner interner;
+    /** The data mapper used to convert the DTOs of batch requests. */
     private final DataMapper mapper;
+    /** The coalescer of concurrent identical requests. */
+    private final CallCoalescer coalescer;
+    /** The validators of previous responses, used to issue conditional requests. */
+    private final ValidatorCache validators;
+    /** The executor used to perform the HTTP calls of batch requests in parallel. */
+    private final ExecutorService batchExecutor;
 
     /**
-     * Initiates an instance.
+     * Initiates an instance that uses the OpenWeatherMap web API, through the process-wide HTTP
+     * client.
      */
     public OpenWeatherProvider() {
+        this(WebAPI.BASE_URL, HttpClientFactory.getClient());
+    }
+
+    /**
+     * Initiates an instance that uses the web API located at the given URL (e.g. a local stand-in
+     * used for testing and benchmarking), through the given HTTP client.
+     * @param baseUrl The base URL of the web API.
+     * @param client The HTTP client.
+     */
+    public OpenWeatherProvider(@NonNull String baseUrl, @NonNull OkHttpClient client) {
 
-        // Configure retrofit object
+        // Responses repeat themselves when polling, so their information is interned
+        interner = new WeatherInfoInterner();
+
+        // Configure retrofit object, sharing the given HTTP client
         final Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(WebAPI.BASE_URL)
+                .baseUrl(baseUrl)
+                .client(client)
+                .addConverterFactory(new StreamingConverterFactory(interner))
                 .addConverterFactory(GsonConverterFactory.create())
                 .build();
 
@@ -41,47 +104,272 @@ public class OpenWeatherProvider implements WeatherInfoProvider {
         serviceAPI = retrofit.create(WebAPI.class);
 
         // Create the data mapper
-        mapper = new DataMapper();
+        mapper = new DataMapper(interner);
+
+        coalescer = new CallCoalescer();
+
+        validators = new ValidatorCache();
+
+        // Bounded pool, whose threads are terminated when no batch requests are being served
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                MAX_PARALLEL_CALLS, MAX_PARALLEL_CALLS,
+                BATCH_THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+        batchExecutor = executor;
+    }
+
+    /**
+     * @return The coalescer of concurrent identical requests, which exposes the number of issued
+     * and coalesced requests.
+     */
+    @NonNull
+    public CallCoalescer getCallCoalescer() {
+        return coalescer;
+    }
+
+    /**
+     * @return The interner used to build weather information, which exposes the number of
+     * instances reused.
+     */
+    @NonNull
+    public WeatherInfoInterner getInterner() {
+        return interner;
+    }
+
+    /**
+     * Creates the HTTP call for the given query.
+     * @param query The request's query.
+     * @return The call instance, not yet executed.
+     */
+    private Call<WeatherInfo> createCall(@NonNull WeatherQuery query) {
+        final ValidatorCache.Validators previous = validators.get(query);
+        return serviceAPI.getCurrentWeatherInfo(WebAPI.API_KEY, query.getCityName(),
+                query.getLanguage(), query.getUnits().toString().toLowerCase(),
+                previous != null ? previous.entityTag : null,
+                previous != null ? previous.lastModified : null);
+    }
+
+    /**
+     * Converts the given HTTP response to the corresponding call result, updating the validators
+     * of the given query. {@literal 304 Not Modified} responses are served with the weather
+     * information of the previous response.
+     * @param query The request's query.
+     * @param response The HTTP response.
+     * @return The call result.
+     */
+    @NonNull
+    private CallResult toCallResult(@NonNull WeatherQuery query,
+                                    @NonNull Response<WeatherInfo> response) {
+        if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            final ValidatorCache.Validators previous = validators.get(query);
+            return previous != null ?
+                    new CallResult(previous.info) :
+                    new CallResult(new Exception("Not modified, but no previous response exists"));
+        }
+
+        if (!response.isSuccess())
+            return new CallResult(new HttpStatusException(response.code(), response.message()));
+
+        validators.update(query, response.headers(), response.body());
+        return new CallResult(response.body());
+    }
+
+    /**
+     * Produces a handle that cancels the given HTTP call, thereby releasing its socket.
+     * @param call The HTTP call.
+     * @return The handle.
+     */
+    @NonNull
+    private static Cancellable cancellableOf(@NonNull final Call<?> call) {
+        return new Cancellable() {
+            private volatile boolean cancelled;
+
+            @Override
+            public boolean cancel() {
+                if (cancelled)
+                    return false;
+                cancelled = true;
+                call.cancel();
+                return true;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled;
+            }
+        };
     }
 
     /** {@inheritDoc} */
     @Override
-    public void getWeatherInfoAsync(@NonNull String cityName, @NonNull String language, @NonNull UnitSystem units,
-                                    @NonNull final Callback completionCallback) {
+    @NonNull
+    public WeatherInfoFuture getWeatherInfoAsync(@NonNull String cityName, @NonNull String language,
+                                                 @NonNull UnitSystem units,
+                                                 @NonNull final Callback completionCallback) {
 
-        Log.v("AAAAA", units.toString().toLowerCase());
-        final Call<WeatherInfoDTO> call = serviceAPI
-                .getCurrentWeather(WebAPI.API_KEY, cityName, language, units.toString().toLowerCase());
+        final WeatherQuery query = new WeatherQuery(cityName, language, units);
+        final WeatherInfoFuture future = new WeatherInfoFuture(completionCallback);
+
+        // Cancelling the request means leaving the call in flight, which is itself cancelled
+        // once no other request is interested in its result
+        final CallCoalescer.Flight flight = coalescer.join(query, future);
+        future.onCancel(new Cancellable() {
+            private volatile boolean cancelled;
 
-        call.enqueue(new retrofit.Callback<WeatherInfoDTO>() {
             @Override
-            public void onResponse(Response<WeatherInfoDTO> response, Retrofit retrofit) {
+            public boolean cancel() {
+                if (cancelled)
+                    return false;
+                cancelled = true;
+                coalescer.leave(query, future);
+                return true;
+            }
 
-                final CallResult result = response.isSuccess() ?
-                        new CallResult(mapper.convertFrom(response.body())) :
-                        new CallResult(new Exception(response.errorBody().toString()));
+            @Override
+            public boolean isCancelled() {
+                return cancelled;
+            }
+        });
+        if (flight == null)
+            return future;
 
-                completionCallback.onResult(result);
+        final Call<WeatherInfo> call = createCall(query);
+        coalescer.issued(flight, cancellableOf(call));
+        call.enqueue(new retrofit.Callback<WeatherInfo>() {
+            @Override
+            public void onResponse(Response<WeatherInfo> response, Retrofit retrofit) {
+                coalescer.complete(flight, toCallResult(query, response));
             }
 
             @Override
             public void onFailure(Throwable t) {
-                completionCallback.onResult(new CallResult(new Exception(t)));
+                coalescer.complete(flight, new CallResult(new Exception(t)));
             }
         });
+        return future;
     }
 
     /** {@inheritDoc} */
     public WeatherInfo getWeatherInfo(@NonNull String cityName, @NonNull String language, @NonNull UnitSystem units)
                 throws Exception {
 
-        final Call<WeatherInfoDTO> call = serviceAPI
-                .getCurrentWeather(WebAPI.API_KEY, cityName, language, units.toString().toLowerCase());
+        final WeatherQuery query = new WeatherQuery(cityName, language, units);
+        final CallCoalescer.Waiter waiter = new CallCoalescer.Waiter();
+        final CallCoalescer.Flight flight = coalescer.join(query, waiter);
+        if (flight != null) {
+            CallResult result;
+            try {
+                result = toCallResult(query, createCall(query).execute());
+            } catch (Exception e) {
+                // Every error must be reported, otherwise joined callers would wait forever
+                result = new CallResult(e);
+            }
+            coalescer.complete(flight, result);
+        }
 
-        final Response<WeatherInfoDTO> response = call.execute();
-        if(!response.isSuccess())
-            throw new Exception(response.errorBody().toString());
+        return waiter.await().getResult();
+    }
+
+    /**
+     * Checks whether the given string is an OpenWeatherMap city identifier.
+     * @param city The string to be checked.
+     * @return {@literal true} if the string is a city identifier, {@literal false} otherwise.
+     */
+    private static boolean isCityId(@NonNull String city) {
+        if (city.isEmpty())
+            return false;
+        for (int idx = 0; idx < city.length(); ++idx)
+            if (!Character.isDigit(city.charAt(idx)))
+                return false;
+        return true;
+    }
+
+    /**
+     * Creates the task that obtains the weather information of the given group of cities, through
+     * a single HTTP call.
+     * @param cityIds The city identifiers.
+     * @param language The language to be used on the result.
+     * @param units The unit system to be used on the result.
+     * @return The task.
+     */
+    @NonNull
+    private Callable<Map<String, WeatherInfo>> createGroupTask(@NonNull final List<String> cityIds,
+                                                               @NonNull final String language,
+                                                               @NonNull final UnitSystem units) {
+        return new Callable<Map<String, WeatherInfo>>() {
+            @Override
+            public Map<String, WeatherInfo> call() throws Exception {
+                final StringBuilder ids = new StringBuilder();
+                for (String id : cityIds)
+                    ids.append(ids.length() == 0 ? "" : ",").append(id);
+
+                final Response<WeatherInfoListDTO> response = serviceAPI.getCurrentWeatherForGroup(
+                        WebAPI.API_KEY, ids.toString(), language, units.toString().toLowerCase()
+                ).execute();
+                if (!response.isSuccess())
+                    throw new HttpStatusException(response.code(), response.message());
+
+                return mapper.convertFrom(response.body());
+            }
+        };
+    }
+
+    /**
+     * Creates the task that obtains the weather information of the given city.
+     * @param cityName The city name.
+     * @param language The language to be used on the result.
+     * @param units The unit system to be used on the result.
+     * @return The task.
+     */
+    @NonNull
+    private Callable<Map<String, WeatherInfo>> createSingleTask(@NonNull final String cityName,
+                                                                @NonNull final String language,
+                                                                @NonNull final UnitSystem units) {
+        return new Callable<Map<String, WeatherInfo>>() {
+            @Override
+            public Map<String, WeatherInfo> call() throws Exception {
+                final Map<String, WeatherInfo> result = new HashMap<>(2);
+                result.put(cityName, getWeatherInfo(cityName, language, units));
+                return result;
+            }
+        };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @NonNull
+    public Map<String, WeatherInfo> getWeatherInfo(@NonNull Collection<String> cityNames,
+                                                   @NonNull String language,
+                                                   @NonNull UnitSystem units) throws Exception {
+
+        final List<Callable<Map<String, WeatherInfo>>> tasks = new ArrayList<>();
+        final List<String> cityIds = new ArrayList<>();
+        for (String city : cityNames) {
+            if (isCityId(city))
+                cityIds.add(city);
+            else
+                tasks.add(createSingleTask(city, language, units));
+        }
+        for (int from = 0; from < cityIds.size(); from += WebAPI.MAX_GROUP_SIZE) {
+            final int to = Math.min(from + WebAPI.MAX_GROUP_SIZE, cityIds.size());
+            tasks.add(createGroupTask(new ArrayList<>(cityIds.subList(from, to)), language, units));
+        }
+
+        final Map<String, WeatherInfo> result = new HashMap<>();
+        Exception error = null;
+        for (Future<Map<String, WeatherInfo>> task : batchExecutor.invokeAll(tasks)) {
+            try {
+                result.putAll(task.get());
+            } catch (ExecutionException e) {
+                // Partial results are preferable to none at all: keep the first error, if needed
+                if (error == null)
+                    error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
 
-        return mapper.convertFrom(response.body());
+        if (result.isEmpty() && error != null)
+            throw error;
+        return result;
     }
 }
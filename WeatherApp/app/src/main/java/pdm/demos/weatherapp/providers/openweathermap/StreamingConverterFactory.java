@@ -0,0 +1,62 @@
+package pdm.demos.weatherapp.providers.openweathermap;
+
+import android.support.annotation.Nullable;
+
+import com.squareup.okhttp.ResponseBody;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import pdm.demos.weatherapp.providers.WeatherInfo;
+import pdm.demos.weatherapp.utils.Metrics;
+import retrofit.Converter;
+
+/**
+ * Retrofit converter factory that produces {@link WeatherInfo} instances straight from response
+ * bodies, using {@link WeatherInfoStreamingParser}. Other types are not handled, and are therefore
+ * left to the converter factories registered after this one (e.g. GSON's).
+ */
+public final class StreamingConverterFactory extends Converter.Factory {
+
+    /** The timer of the decoding of response bodies. */
+    private static final Metrics.Timer DECODE_TIMER = Metrics.timer("pipeline.decode");
+
+    /**
+     * The converter instance. It is thread-safe and can therefore be shared.
+     */
+    private final Converter<ResponseBody, WeatherInfo> converter;
+
+    /**
+     * Initiates an instance whose converter builds new {@link WeatherInfo} instances.
+     */
+    public StreamingConverterFactory() {
+        this(null);
+    }
+
+    /**
+     * Initiates an instance whose converter uses the given interner.
+     * @param interner The interner used to build {@link WeatherInfo} instances, or
+     * {@literal null} if new instances are to be built for each response.
+     */
+    public StreamingConverterFactory(@Nullable final WeatherInfoInterner interner) {
+        converter = new Converter<ResponseBody, WeatherInfo>() {
+            @Override
+            public WeatherInfo convert(ResponseBody body) throws IOException {
+                final long start = DECODE_TIMER.start();
+                try {
+                    return WeatherInfoStreamingParser.parse(body.charStream(), interner);
+                } finally {
+                    body.close();
+                    DECODE_TIMER.stop(start);
+                }
+            }
+        };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Converter<ResponseBody, ?> fromResponseBody(Type type, Annotation[] annotations) {
+        return type == WeatherInfo.class ? converter : null;
+    }
+}
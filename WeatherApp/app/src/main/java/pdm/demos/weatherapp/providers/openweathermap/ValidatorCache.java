@@ -0,0 +1,82 @@
+package pdm.demos.weatherapp.providers.openweathermap;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.squareup.okhttp.Headers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import pdm.demos.weatherapp.providers.WeatherInfo;
+import pdm.demos.weatherapp.providers.WeatherQuery;
+
+/**
+ * Class whose instances hold the cache validators (i.e. {@literal ETag} and
+ * {@literal Last-Modified}) of the most recent responses, per {@link WeatherQuery}, together with
+ * the corresponding {@link WeatherInfo}. The validators are used to issue conditional requests and
+ * the weather information is used to serve {@literal 304 Not Modified} responses.
+ *
+ * <p>Only the most recently used queries are retained. Instances are thread-safe.</p>
+ */
+final class ValidatorCache {
+
+    /**
+     * Class whose instances hold the validators of a response. Instances are immutable.
+     */
+    static final class Validators {
+        /** The response's entity tag, or {@literal null} if none was present. */
+        final String entityTag;
+        /** The response's last modification date, or {@literal null} if none was present. */
+        final String lastModified;
+        /** The weather information conveyed by the response. */
+        final WeatherInfo info;
+
+        private Validators(String entityTag, String lastModified, @NonNull WeatherInfo info) {
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+            this.info = info;
+        }
+    }
+
+    /** The maximum number of retained queries. */
+    private static final int CAPACITY = 32;
+
+    /** The validators, per query, in access order. Guarded by itself. */
+    private final Map<WeatherQuery, Validators> validators =
+            new LinkedHashMap<WeatherQuery, Validators>(CAPACITY, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<WeatherQuery, Validators> eldest) {
+                    return size() > CAPACITY;
+                }
+            };
+
+    /**
+     * Gets the validators for the given query.
+     * @param query The query.
+     * @return The validators, or {@literal null} if none exist.
+     */
+    @Nullable
+    Validators get(@NonNull WeatherQuery query) {
+        synchronized (validators) {
+            return validators.get(query);
+        }
+    }
+
+    /**
+     * Updates the validators for the given query with those of the given response headers. If the
+     * response does not bear validators, any existing ones are discarded.
+     * @param query The query.
+     * @param headers The response headers.
+     * @param info The weather information conveyed by the response.
+     */
+    void update(@NonNull WeatherQuery query, @NonNull Headers headers, @NonNull WeatherInfo info) {
+        final String entityTag = headers.get("ETag"), lastModified = headers.get("Last-Modified");
+        synchronized (validators) {
+            if (entityTag == null && lastModified == null)
+                validators.remove(query);
+            else
+                validators.put(query, new Validators(entityTag, lastModified, info));
+        }
+    }
+}
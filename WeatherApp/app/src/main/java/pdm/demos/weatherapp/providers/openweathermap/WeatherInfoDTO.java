@@ -75,6 +75,9 @@ public final class WeatherInfoDTO {
     /** The HTTP response code. */
     private int cod;
 
+    /** The city identifier. */
+    private long id;
+
     /** The city name. */
     private String name;
 
@@ -108,6 +111,11 @@ public final class WeatherInfoDTO {
         return name == null ? EMPTY_STRING : name;
     }
 
+    /** @return The OpenWeatherMap city identifier. */
+    public long getCityId() {
+        return id;
+    }
+
     /** @return The HTTP response code. */
     public int getResponseCode() {
         return cod;
@@ -137,9 +145,18 @@ public final class WeatherInfoDTO {
 
     /** @return The URL that refers to the weather icon. */
     public String getWeatherIconURL() {
+        return getWeatherIconURL(getWeatherIconName());
+    }
+
+    /**
+     * Produces the URL that refers to the weather icon with the given name.
+     * @param iconName The weather icon name.
+     * @return The icon URL.
+     */
+    static String getWeatherIconURL(String iconName) {
         final String ICON_PATH = "/img/w/", ICON_EXTENSION = ".png";
         return new StringBuilder(WebAPI.BASE_URL)
-                .append(ICON_PATH).append(getWeatherIconName()).append(ICON_EXTENSION)
+                .append(ICON_PATH).append(iconName).append(ICON_EXTENSION)
                 .toString();
     }
 }
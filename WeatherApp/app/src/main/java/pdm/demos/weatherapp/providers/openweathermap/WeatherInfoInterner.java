@@ -0,0 +1,138 @@
+package pdm.demos.weatherapp.providers.openweathermap;
+
+import android.support.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import pdm.demos.weatherapp.providers.WeatherInfo;
+
+/**
+ * Class whose instances implement the flyweight policy used to build {@link WeatherInfo} instances
+ * from web API responses (see {@link DataMapper} and {@link WeatherInfoStreamingParser}).
+ *
+ * <p>When polling, most responses repeat the information of the previous ones. Strings (e.g.
+ * descriptions, city names) are therefore interned in a small table, icon URLs are built once per
+ * icon name, and the previously built {@link WeatherInfo} instance of each city is returned again
+ * whenever all its fields are equal to the new ones. Once steady state is reached, mapping a
+ * response does not retain any new objects. All tables are bounded, with LRU eviction.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public final class WeatherInfoInterner {
+
+    /** The default capacity of the tables. */
+    public static final int DEFAULT_CAPACITY = 128;
+
+    /**
+     * Class whose instances are maps with bounded capacity and LRU eviction.
+     */
+    private static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+        private final int capacity;
+
+        LruMap(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /** The interned strings. Guarded by the instance's lock. */
+    private final Map<String, String> strings;
+    /** The icon URLs, per icon name. Guarded by the instance's lock. */
+    private final Map<String, String> iconURLs;
+    /** The last built information, per city name. Guarded by the instance's lock. */
+    private final Map<String, WeatherInfo> infos;
+    /** The number of requests that were served with a previously built instance. */
+    private long reusedCount;
+
+    /**
+     * Initiates an instance with the default capacity.
+     */
+    public WeatherInfoInterner() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Initiates an instance with the given capacity.
+     * @param capacity The maximum number of entries of each table.
+     */
+    public WeatherInfoInterner(int capacity) {
+        strings = new LruMap<>(capacity);
+        iconURLs = new LruMap<>(capacity);
+        infos = new LruMap<>(capacity);
+    }
+
+    /**
+     * Gets the canonical instance of the given string.
+     * @param value The string.
+     * @return The interned string, which is equal to the given one.
+     */
+    @NonNull
+    public synchronized String intern(@NonNull String value) {
+        final String interned = strings.get(value);
+        if (interned != null)
+            return interned;
+        strings.put(value, value);
+        return value;
+    }
+
+    /**
+     * Gets the URL of the weather icon with the given name.
+     * @param iconName The icon name.
+     * @return The icon URL, built only the first time it is requested.
+     */
+    @NonNull
+    public synchronized String getWeatherIconURL(@NonNull String iconName) {
+        String url = iconURLs.get(iconName);
+        if (url == null) {
+            url = WeatherInfoDTO.getWeatherIconURL(iconName);
+            iconURLs.put(intern(iconName), url);
+        }
+        return url;
+    }
+
+    /**
+     * Gets a {@link WeatherInfo} instance with the given fields, reusing the previously built
+     * instance of the city if it is equal.
+     * @return The weather information.
+     */
+    @NonNull
+    public synchronized WeatherInfo obtain(@NonNull String name,
+                                           @NonNull String description,
+                                           @NonNull String iconName,
+                                           double speed,
+                                           double deg,
+                                           double temp,
+                                           double tempMin,
+                                           double tempMax,
+                                           int humidity) {
+        final WeatherInfo previous = infos.get(name);
+        if (previous != null
+                && previous.getDescription().equals(description)
+                && previous.getIconURL().equals(getWeatherIconURL(iconName))
+                && Double.compare(previous.getWindSpeed(), speed) == 0
+                && Double.compare(previous.getWindDirection(), deg) == 0
+                && Double.compare(previous.getTemperature(), temp) == 0
+                && Double.compare(previous.getMinTemperature(), tempMin) == 0
+                && Double.compare(previous.getMaxTemperature(), tempMax) == 0
+                && previous.getHumidity() == humidity) {
+            reusedCount += 1;
+            return previous;
+        }
+
+        final WeatherInfo info = new WeatherInfo(intern(name), intern(description),
+                getWeatherIconURL(iconName), speed, deg, temp, tempMin, tempMax, humidity);
+        infos.put(info.getCityName(), info);
+        return info;
+    }
+
+    /** @return The number of requests that were served with a previously built instance. */
+    public synchronized long getReusedCount() {
+        return reusedCount;
+    }
+}
@@ -0,0 +1,32 @@
+package pdm.demos.weatherapp.providers.openweathermap;
+
+/**
+ * Class that defines the DTO (Data Transfer Object) that contains the weather information of a
+ * group of cities, as obtained from the OpenWeatherMap Service API.
+ *
+ * <p>The same design decisions of {@link WeatherInfoDTO} apply: only the used fields are present,
+ * they are named according to GSON's conventions and getters return default values instead of
+ * letting {@literal null} references escape.</p>
+ */
+@SuppressWarnings("unused")
+public final class WeatherInfoListDTO {
+
+    /** The default value, returned whenever the list of results is not available. */
+    private static final WeatherInfoDTO[] EMPTY_LIST = new WeatherInfoDTO[0];
+
+    /** The number of results. */
+    private int cnt;
+
+    /** The weather information of each city. */
+    private WeatherInfoDTO[] list;
+
+    /** @return The number of results. */
+    public int getCount() {
+        return cnt;
+    }
+
+    /** @return The weather information of each city. */
+    public WeatherInfoDTO[] getList() {
+        return list == null ? EMPTY_LIST : list;
+    }
+}
@@ -0,0 +1,150 @@
+package pdm.demos.weatherapp.providers.openweathermap;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import pdm.demos.weatherapp.providers.WeatherInfo;
+
+/**
+ * Class that produces {@link WeatherInfo} instances directly from the JSON documents returned by
+ * the OpenWeatherMap current weather endpoint.
+ *
+ * <p>In contrast to the reflection based deserialization of {@link WeatherInfoDTO} followed by its
+ * conversion by {@link DataMapper}, the document is consumed by a streaming {@link JsonReader}: the
+ * used fields are pulled straight out of the stream, the remaining ones are skipped, and no
+ * intermediate object graph is built. Missing or {@literal null} fields produce the same default
+ * values produced by {@link WeatherInfoDTO}'s getters.</p>
+ *
+ * <p>If a {@link WeatherInfoInterner} is given, it is used to build the resulting instance.</p>
+ */
+public final class WeatherInfoStreamingParser {
+
+    /**
+     * Prevent instantiation.
+     */
+    private WeatherInfoStreamingParser() { }
+
+    /**
+     * Checks whether the next value is {@literal null}, consuming it if so.
+     * @param reader The JSON reader.
+     * @return {@literal true} if a {@literal null} value was consumed, {@literal false} otherwise.
+     * @throws IOException If the document could not be read.
+     */
+    private static boolean skipNull(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.NULL)
+            return false;
+        reader.nextNull();
+        return true;
+    }
+
+    /**
+     * Parses the given JSON document.
+     * @param in The reader that provides the document.
+     * @return The resulting {@link WeatherInfo} instance.
+     * @throws IOException If the document could not be read or is malformed.
+     */
+    @NonNull
+    public static WeatherInfo parse(@NonNull Reader in) throws IOException {
+        return parse(in, null);
+    }
+
+    /**
+     * Parses the given JSON document, using the given interner to build the result.
+     * @param in The reader that provides the document.
+     * @param interner The interner, or {@literal null} if a new instance is to be built.
+     * @return The resulting {@link WeatherInfo} instance.
+     * @throws IOException If the document could not be read or is malformed.
+     */
+    @NonNull
+    public static WeatherInfo parse(@NonNull Reader in, @Nullable WeatherInfoInterner interner)
+            throws IOException {
+        String name = "", description = "", icon = "";
+        double speed = 0, deg = 0, temp = 0, tempMin = 0, tempMax = 0;
+        int humidity = 0;
+
+        final JsonReader reader = new JsonReader(in);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String field = reader.nextName();
+            if (skipNull(reader))
+                continue;
+
+            switch (field) {
+                case "name":
+                    name = reader.nextString();
+                    break;
+
+                case "main":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        final String parameter = reader.nextName();
+                        if (skipNull(reader))
+                            continue;
+                        switch (parameter) {
+                            case "temp": temp = reader.nextDouble(); break;
+                            case "temp_min": tempMin = reader.nextDouble(); break;
+                            case "temp_max": tempMax = reader.nextDouble(); break;
+                            case "humidity": humidity = reader.nextInt(); break;
+                            default: reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+
+                case "wind":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        final String parameter = reader.nextName();
+                        if (skipNull(reader))
+                            continue;
+                        switch (parameter) {
+                            case "speed": speed = reader.nextDouble(); break;
+                            case "deg": deg = reader.nextDouble(); break;
+                            default: reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+
+                case "weather":
+                    // Only the first entry is used, just like WeatherInfoDTO does
+                    reader.beginArray();
+                    if (reader.hasNext() && !skipNull(reader)) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            final String parameter = reader.nextName();
+                            if (skipNull(reader))
+                                continue;
+                            switch (parameter) {
+                                case "description": description = reader.nextString(); break;
+                                case "icon": icon = reader.nextString(); break;
+                                default: reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    }
+                    while (reader.hasNext())
+                        reader.skipValue();
+                    reader.endArray();
+                    break;
+
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (interner != null)
+            return interner.obtain(name, description, icon,
+                    speed, deg, temp, tempMin, tempMax, humidity);
+
+        return new WeatherInfo(name, description, WeatherInfoDTO.getWeatherIconURL(icon),
+                speed, deg, temp, tempMin, tempMax, humidity);
+    }
+}
@@ -1,7 +1,9 @@
 package pdm.demos.weatherapp.providers.openweathermap;
 
+import pdm.demos.weatherapp.providers.WeatherInfo;
 import retrofit.Call;
 import retrofit.http.GET;
+import retrofit.http.Header;
 import retrofit.http.Query;
 
 /**
@@ -21,6 +23,9 @@ public interface WebAPI {
     /** The application's API key. */
     String API_KEY = "7b392e0c3fa214914168139b20ea1b81";
 
+    /** The maximum number of cities that can be specified in a single group request. */
+    int MAX_GROUP_SIZE = 20;
+
     /**
      * Gets the current weather information for the given city. The returned result is the best
      * match. Corresponds to HTTP requests in the form:
@@ -45,4 +50,63 @@ public interface WebAPI {
             @Query("lang") String lang,
             @Query("units") String units
     );
+
+    /**
+     * Gets the current weather information for the given city, just like
+     * {@link #getCurrentWeather(String, String, String, String)} does, but the response is decoded
+     * straight into the application's representation, without building the intermediate DTO
+     * graph. It requires the {@link StreamingConverterFactory} to be registered.
+     *
+     * <p>The request is conditional if validators of a previous response are specified. If the
+     * information has not changed since then, the response has the {@literal 304} status code and
+     * no body.</p>
+     *
+     * @param apiKey
+     *          The application's API key.
+     * @param city
+     *          The city name.
+     * @param lang
+     *          The language to be used in the query (e.g. pt, en).
+     * @param units
+     *          The unit system to be used.
+     * @param entityTag
+     *          The entity tag of a previous response, or {@literal null} if none is known.
+     * @param lastModified
+     *          The last modification date of a previous response, or {@literal null} if none is
+     *          known.
+     * @return The information of the current weather at the given city.
+     */
+    @GET("/data/2.5/weather")
+    Call<WeatherInfo> getCurrentWeatherInfo(
+            @Query("appid") String apiKey,
+            @Query("q") String city,
+            @Query("lang") String lang,
+            @Query("units") String units,
+            @Header("If-None-Match") String entityTag,
+            @Header("If-Modified-Since") String lastModified
+    );
+
+    /**
+     * Gets the current weather information for the given group of cities, in a single request.
+     * Corresponds to HTTP requests in the form:
+     * GET {@literal http://api.openweathermap.org/data/2.5/group?id=id1,id2&appid=api_key}
+     *
+     * @param apiKey
+     *          The application's API key.
+     * @param cityIds
+     *          The comma separated list of the OpenWeatherMap city identifiers (E.g. 2267057,2643743).
+     *          At most {@link #MAX_GROUP_SIZE} identifiers are accepted per request.
+     * @param lang
+     *          The language to be used in the query (e.g. pt, en).
+     * @param units
+     *          The unit system to be used.
+     * @return The information of the current weather at each of the given cities.
+     */
+    @GET("/data/2.5/group")
+    Call<WeatherInfoListDTO> getCurrentWeatherForGroup(
+            @Query("appid") String apiKey,
+            @Query("id") String cityIds,
+            @Query("lang") String lang,
+            @Query("units") String units
+    );
 }
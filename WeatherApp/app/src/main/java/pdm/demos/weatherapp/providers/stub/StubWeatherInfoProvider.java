@@ -0,0 +1,171 @@
+package pdm.demos.weatherapp.providers.stub;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import pdm.demos.weatherapp.providers.Cancellable;
+import pdm.demos.weatherapp.providers.WeatherInfo;
+import pdm.demos.weatherapp.providers.WeatherInfoFuture;
+import pdm.demos.weatherapp.providers.WeatherInfoProvider;
+
+/**
+ * Class that implements a local {@link WeatherInfoProvider}, which produces made up weather
+ * information without accessing the network. Its latency and failures are configurable, so that
+ * the remaining code (e.g. composite providers) can be exercised deterministically.
+ *
+ * <p>The produced information is derived from the city name, and is therefore the same for
+ * repeated requests. Completion callbacks are executed on the main thread, as required by the
+ * {@link WeatherInfoProvider} contract.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public class StubWeatherInfoProvider implements WeatherInfoProvider {
+
+    /** The handler used to complete asynchronous requests on the main thread. */
+    private final Handler mainHandler;
+    /** The latency of each request, in milliseconds. */
+    private volatile long latency;
+    /** Whether requests fail. */
+    private volatile boolean failing;
+    /** The number of requests received. */
+    private final AtomicInteger requestCount;
+    /** The number of asynchronous requests cancelled before completion. */
+    private final AtomicInteger cancelledCount;
+
+    /**
+     * Initiates an instance with the given latency.
+     * @param latency The latency of each request, in milliseconds.
+     */
+    public StubWeatherInfoProvider(long latency) {
+        this.latency = latency;
+        mainHandler = new Handler(Looper.getMainLooper());
+        requestCount = new AtomicInteger();
+        cancelledCount = new AtomicInteger();
+    }
+
+    /**
+     * Sets the latency of subsequent requests.
+     * @param latency The latency, in milliseconds.
+     */
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Sets whether subsequent requests fail.
+     * @param failing {@literal true} if requests are to fail, {@literal false} otherwise.
+     */
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    /** @return The number of requests received. */
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /** @return The number of asynchronous requests cancelled before completion. */
+    public int getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    /**
+     * Produces the made up weather information of the given city.
+     * @param cityName The city name.
+     * @param units The unit system.
+     * @return The weather information.
+     */
+    @NonNull
+    public static WeatherInfo infoOf(@NonNull String cityName, @NonNull UnitSystem units) {
+        final int seed = cityName.hashCode() & 0x7FFFFFFF;
+        final double celsius = seed % 40 - 5;
+        final double temp = units == UnitSystem.METRIC ? celsius : celsius * 9 / 5 + 32;
+        return new WeatherInfo(cityName, "clear sky", "http://api.openweathermap.org/img/w/01d.png",
+                seed % 20, seed % 360, temp, temp - 2, temp + 2, seed % 100);
+    }
+
+    /**
+     * Produces the result of a request for the given city, according to the current
+     * configuration.
+     */
+    @NonNull
+    private WeatherInfo produce(@NonNull String cityName, @NonNull UnitSystem units)
+            throws IOException {
+        if (failing)
+            throw new IOException("Stub backend failure");
+        return infoOf(cityName, units);
+    }
+
+    /** {@inheritDoc} */
+    @NonNull
+    @Override
+    public WeatherInfoFuture getWeatherInfoAsync(@NonNull final String cityName,
+                                                 @NonNull String language,
+                                                 @NonNull final UnitSystem units,
+                                                 @NonNull Callback completionCallback) {
+        requestCount.incrementAndGet();
+        final WeatherInfoFuture future = new WeatherInfoFuture(completionCallback);
+        final Runnable completion = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    future.onResult(new CallResult(produce(cityName, units)));
+                } catch (IOException e) {
+                    future.onResult(new CallResult(e));
+                }
+            }
+        };
+
+        future.onCancel(new Cancellable() {
+            private volatile boolean cancelled;
+
+            @Override
+            public boolean cancel() {
+                if (cancelled)
+                    return false;
+                cancelled = true;
+                mainHandler.removeCallbacks(completion);
+                cancelledCount.incrementAndGet();
+                return true;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled;
+            }
+        });
+        mainHandler.postDelayed(completion, latency);
+        return future;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public WeatherInfo getWeatherInfo(@NonNull String cityName, @NonNull String language,
+                                      @NonNull UnitSystem units) throws Exception {
+        requestCount.incrementAndGet();
+        SystemClock.sleep(latency);
+        return produce(cityName, units);
+    }
+
+    /** {@inheritDoc} */
+    @NonNull
+    @Override
+    public Map<String, WeatherInfo> getWeatherInfo(@NonNull Collection<String> cityNames,
+                                                   @NonNull String language,
+                                                   @NonNull UnitSystem units) throws Exception {
+        requestCount.incrementAndGet();
+        SystemClock.sleep(latency);
+        final Map<String, WeatherInfo> result = new HashMap<>();
+        for (String cityName : cityNames)
+            result.put(cityName, produce(cityName, units));
+        return result;
+    }
+}
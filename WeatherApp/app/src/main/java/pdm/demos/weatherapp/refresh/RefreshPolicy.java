@@ -0,0 +1,86 @@
+package pdm.demos.weatherapp.refresh;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Locale;
+
+import pdm.demos.weatherapp.providers.WeatherInfo;
+
+/**
+ * Utility class that defines how the refresh interval of a subscription adapts to the observed
+ * weather: the interval doubles each time a refresh produces the same result as the previous one
+ * and halves when conditions are volatile (i.e. the description changed or the temperature varied
+ * significantly). Intervals are always kept within [{@link #MIN_INTERVAL}, {@link #MAX_INTERVAL}].
+ */
+public final class RefreshPolicy {
+
+    /** The minimum refresh interval, in milliseconds. */
+    public static final long MIN_INTERVAL = 10 * 60 * 1000;
+    /** The refresh interval of new subscriptions, in milliseconds. */
+    public static final long INITIAL_INTERVAL = 30 * 60 * 1000;
+    /** The maximum refresh interval, in milliseconds. */
+    public static final long MAX_INTERVAL = 4 * 60 * 60 * 1000;
+    /** The temperature variation (in either unit system) above which conditions are volatile. */
+    public static final double VOLATILE_TEMPERATURE_DELTA = 2.0;
+    /** The factor applied to intervals while the battery is low. */
+    public static final int LOW_BATTERY_FACTOR = 2;
+
+    /** Prevent instantiation. */
+    private RefreshPolicy() { }
+
+    /**
+     * Produces the fingerprint of the given weather information, that is, a string that is equal
+     * for results that are indistinguishable to the user.
+     * @param info The weather information.
+     * @return The fingerprint.
+     */
+    @NonNull
+    public static String fingerprintOf(@NonNull WeatherInfo info) {
+        return String.format(Locale.US, "%s|%s|%d|%d|%d", info.getDescription(),
+                info.getIconURL(), Math.round(info.getTemperature()), info.getHumidity(),
+                Math.round(info.getWindSpeed()));
+    }
+
+    /**
+     * Computes the next refresh interval.
+     * @param interval The current refresh interval, in milliseconds.
+     * @param previousFingerprint The fingerprint of the previous result, or {@literal null} if
+     *                            there is none.
+     * @param previousTemperature The temperature of the previous result.
+     * @param info The weather information just obtained.
+     * @return The next refresh interval, in milliseconds.
+     */
+    public static long nextInterval(long interval, @Nullable String previousFingerprint,
+                                    double previousTemperature, @NonNull WeatherInfo info) {
+        if (previousFingerprint == null)
+            return clamp(interval);
+
+        if (previousFingerprint.equals(fingerprintOf(info)))
+            return clamp(interval * 2);
+
+        final boolean volatileConditions =
+                Math.abs(info.getTemperature() - previousTemperature) >= VOLATILE_TEMPERATURE_DELTA
+                || !previousFingerprint.startsWith(info.getDescription() + '|');
+        return clamp(volatileConditions ? interval / 2 : interval);
+    }
+
+    /**
+     * Computes the delay to be effectively used before the next refresh, given the device state.
+     * @param interval The refresh interval, in milliseconds.
+     * @param batteryLow Whether the battery is low and not charging.
+     * @return The delay, in milliseconds.
+     */
+    public static long effectiveDelay(long interval, boolean batteryLow) {
+        return batteryLow ? Math.min(interval * LOW_BATTERY_FACTOR, MAX_INTERVAL) : interval;
+    }
+
+    /**
+     * Clamps the given interval to the allowed range.
+     * @param interval The interval, in milliseconds.
+     * @return The clamped interval.
+     */
+    private static long clamp(long interval) {
+        return Math.max(MIN_INTERVAL, Math.min(MAX_INTERVAL, interval));
+    }
+}
@@ -0,0 +1,237 @@
+package pdm.demos.weatherapp.refresh;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import pdm.demos.weatherapp.WeatherRefresherService;
+import pdm.demos.weatherapp.providers.WeatherInfo;
+
+/**
+ * Class whose instances schedule the background refresh of weather information for the cities
+ * the user subscribed to.
+ *
+ * <p>Each subscription has its own refresh interval, which adapts to the observed weather as
+ * defined by {@link RefreshPolicy}. Subscriptions are persisted in the application's shared
+ * preferences, and therefore survive process restarts. A single (non wakeup) alarm is kept for the
+ * earliest due subscription: when it fires, {@link WeatherRefresherService} refreshes all the
+ * subscriptions due within {@link #BATCH_WINDOW}, so that nearly due cities share the wakeup.
+ * Refreshes are deferred while the device is offline, and slowed down while the battery is
+ * low.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public final class RefreshScheduler {
+
+    /** Debugging tag used by the Android logger. */
+    private static final String TAG = "RefreshScheduler";
+
+    /** The name of the shared preferences file that holds the subscriptions. */
+    private static final String PREFERENCES_NAME = "refresh_subscriptions";
+    /** The preference key of the set of subscribed cities. */
+    private static final String KEY_CITIES = "cities";
+    /** The preference key prefixes of each subscription's state. */
+    private static final String KEY_INTERVAL = "interval.", KEY_DUE = "due.",
+            KEY_FINGERPRINT = "fingerprint.", KEY_TEMPERATURE = "temperature.";
+
+    /** The request code of the refresh alarm's pending intent. */
+    private static final int REFRESHER_SERVICE_CODE = 1;
+    /** Subscriptions due within this time window, in milliseconds, are refreshed together. */
+    public static final long BATCH_WINDOW = 5 * 60 * 1000;
+    /** The battery level percentage below which the battery is considered low. */
+    private static final int LOW_BATTERY_LEVEL = 15;
+
+    /** The application context. */
+    private final Context context;
+    /** The persisted subscriptions. */
+    private final SharedPreferences preferences;
+
+    /**
+     * Initiates an instance with the given context.
+     * @param context The context.
+     */
+    public RefreshScheduler(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+        preferences = this.context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Subscribes the given city, which becomes due immediately. Subscribing an already
+     * subscribed city has no effect.
+     * @param cityName The city name.
+     */
+    public synchronized void subscribe(@NonNull String cityName) {
+        final Set<String> cities = getSubscriptions();
+        if (!cities.add(cityName))
+            return;
+
+        preferences.edit()
+                .putStringSet(KEY_CITIES, cities)
+                .putLong(KEY_INTERVAL + cityName, RefreshPolicy.INITIAL_INTERVAL)
+                .putLong(KEY_DUE + cityName, System.currentTimeMillis())
+                .apply();
+        schedule();
+    }
+
+    /**
+     * Unsubscribes the given city.
+     * @param cityName The city name.
+     */
+    public synchronized void unsubscribe(@NonNull String cityName) {
+        final Set<String> cities = getSubscriptions();
+        if (!cities.remove(cityName))
+            return;
+
+        preferences.edit()
+                .putStringSet(KEY_CITIES, cities)
+                .remove(KEY_INTERVAL + cityName)
+                .remove(KEY_DUE + cityName)
+                .remove(KEY_FINGERPRINT + cityName)
+                .remove(KEY_TEMPERATURE + cityName)
+                .apply();
+        schedule();
+    }
+
+    /** @return A copy of the set of subscribed cities. */
+    @NonNull
+    public synchronized Set<String> getSubscriptions() {
+        // The returned set must not be modified, hence the copy
+        return new HashSet<>(preferences.getStringSet(KEY_CITIES, new HashSet<String>()));
+    }
+
+    /** @return The subscribed cities whose refresh is due, including those due within the
+     * batching window. */
+    @NonNull
+    public synchronized Set<String> getDueCities() {
+        final long limit = System.currentTimeMillis() + BATCH_WINDOW;
+        final Set<String> due = new HashSet<>();
+        for (String cityName : getSubscriptions())
+            if (preferences.getLong(KEY_DUE + cityName, 0) <= limit)
+                due.add(cityName);
+        return due;
+    }
+
+    /**
+     * Records the refresh of the given city, adapting its refresh interval.
+     * @param cityName The city name.
+     * @param info The weather information just obtained.
+     * @return {@literal true} if the information differs from the previously obtained one,
+     * {@literal false} otherwise.
+     */
+    public synchronized boolean onRefreshed(@NonNull String cityName, @NonNull WeatherInfo info) {
+        if (!getSubscriptions().contains(cityName))
+            return false;
+
+        final String previousFingerprint = preferences.getString(KEY_FINGERPRINT + cityName, null);
+        final double previousTemperature = preferences.getFloat(KEY_TEMPERATURE + cityName, 0);
+        final long interval = RefreshPolicy.nextInterval(
+                preferences.getLong(KEY_INTERVAL + cityName, RefreshPolicy.INITIAL_INTERVAL),
+                previousFingerprint, previousTemperature, info);
+        final String fingerprint = RefreshPolicy.fingerprintOf(info);
+
+        preferences.edit()
+                .putLong(KEY_INTERVAL + cityName, interval)
+                .putLong(KEY_DUE + cityName, System.currentTimeMillis()
+                        + RefreshPolicy.effectiveDelay(interval, isBatteryLow()))
+                .putString(KEY_FINGERPRINT + cityName, fingerprint)
+                .putFloat(KEY_TEMPERATURE + cityName, (float) info.getTemperature())
+                .apply();
+
+        Log.v(TAG, String.format("%s refreshed, next in %d min", cityName, interval / 60000));
+        return !fingerprint.equals(previousFingerprint);
+    }
+
+    /**
+     * Records the failed refresh of the given city, which is retried after the minimum interval.
+     * @param cityName The city name.
+     */
+    public synchronized void onFailed(@NonNull String cityName) {
+        if (!getSubscriptions().contains(cityName))
+            return;
+
+        preferences.edit()
+                .putLong(KEY_DUE + cityName, System.currentTimeMillis()
+                        + RefreshPolicy.effectiveDelay(RefreshPolicy.MIN_INTERVAL, isBatteryLow()))
+                .apply();
+    }
+
+    /**
+     * Sets the refresh alarm for the earliest due subscription, replacing any existing one. If
+     * there are no subscriptions, the alarm is cancelled.
+     */
+    public synchronized void schedule() {
+        long earliest = Long.MAX_VALUE;
+        for (String cityName : getSubscriptions())
+            earliest = Math.min(earliest, preferences.getLong(KEY_DUE + cityName, 0));
+
+        if (earliest == Long.MAX_VALUE)
+            cancelAlarm();
+        else
+            setAlarm(Math.max(earliest, System.currentTimeMillis()));
+    }
+
+    /**
+     * Postpones the refresh of all due subscriptions, e.g. because the device is offline. Their
+     * due times are kept, so that they are refreshed as soon as the postponed alarm fires.
+     */
+    public synchronized void defer() {
+        setAlarm(System.currentTimeMillis() + RefreshPolicy.MIN_INTERVAL);
+    }
+
+    /** @return {@literal true} if the device has network connectivity, {@literal false} otherwise. */
+    public boolean isNetworkAvailable() {
+        final ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        final NetworkInfo network = connectivityManager.getActiveNetworkInfo();
+        return network != null && network.isConnected();
+    }
+
+    /** @return {@literal true} if the battery is low and not charging, {@literal false} otherwise. */
+    public boolean isBatteryLow() {
+        // The battery state is obtained from the sticky broadcast, without registering a receiver
+        final Intent battery = context.registerReceiver(null,
+                new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null)
+            return false;
+
+        final int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        final int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        final boolean charging = battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+        return !charging && level >= 0 && scale > 0 && level * 100 / scale < LOW_BATTERY_LEVEL;
+    }
+
+    /** @return The pending intent that activates the refresher service. */
+    private PendingIntent makePendingIntent() {
+        return PendingIntent.getService(context, REFRESHER_SERVICE_CODE,
+                WeatherRefresherService.makeIntent(context), PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    /**
+     * Sets the refresh alarm to the given time. The alarm does not wake up the device: if it is
+     * asleep, the refresh takes place when it wakes up for some other reason.
+     * @param time The alarm time, in wall clock milliseconds.
+     */
+    private void setAlarm(long time) {
+        final AlarmManager alarmManager =
+                (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.set(AlarmManager.RTC, time, makePendingIntent());
+    }
+
+    /** Cancels the refresh alarm. */
+    private void cancelAlarm() {
+        final AlarmManager alarmManager =
+                (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.cancel(makePendingIntent());
+    }
+}
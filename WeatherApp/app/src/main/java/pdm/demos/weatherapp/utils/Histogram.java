@@ -0,0 +1,168 @@
+package pdm.demos.weatherapp.utils;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class whose instances record the distribution of non-negative values (e.g. latencies, in
+ * nanoseconds), from which percentiles are computed.
+ *
+ * <p>Values are counted in log-linear buckets, in the manner of HdrHistogram: values below
+ * {@literal 2 * SUB_BUCKET_COUNT} have a bucket of their own, and each following power of two is
+ * split in {@link #SUB_BUCKET_COUNT} buckets of equal width. The relative error of the reported
+ * values is therefore bounded (about 3%), whatever their magnitude, and the memory used is fixed.
+ * Values above {@link #MAX_TRACKABLE_VALUE} are counted as that value.</p>
+ *
+ * <p>Recording is lock-free and does not allocate. Instances are thread-safe, but percentiles
+ * computed while values are being recorded are not necessarily consistent with each other.</p>
+ */
+public final class Histogram {
+
+    /** The number of bits that select the bucket within each power of two. */
+    private static final int SUB_BUCKET_BITS = 5;
+    /** The number of buckets within each power of two. */
+    public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /** The highest power of two tracked: 2^40 nanoseconds is over 18 minutes. */
+    private static final int MAX_MAGNITUDE = 40;
+    /** The highest value tracked with bounded error. */
+    public static final long MAX_TRACKABLE_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+    /** The number of values below which each value has a bucket of its own. */
+    private static final int LINEAR_BUCKET_COUNT = 2 * SUB_BUCKET_COUNT;
+    /** The total number of buckets. */
+    private static final int BUCKET_COUNT = LINEAR_BUCKET_COUNT +
+            (MAX_MAGNITUDE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    /** The number of values recorded in each bucket. */
+    private final AtomicLongArray buckets;
+    /** The number of values recorded. */
+    private final AtomicLong count;
+    /** The sum of the values recorded. */
+    private final AtomicLong sum;
+    /** The highest value recorded. */
+    private final AtomicLong max;
+
+    /**
+     * Initiates an empty instance.
+     */
+    public Histogram() {
+        buckets = new AtomicLongArray(BUCKET_COUNT);
+        count = new AtomicLong();
+        sum = new AtomicLong();
+        max = new AtomicLong();
+    }
+
+    /**
+     * Computes the index of the bucket of the given value.
+     * @param value The value, between 0 and {@link #MAX_TRACKABLE_VALUE}.
+     * @return The bucket index.
+     */
+    static int bucketOf(long value) {
+        if (value < LINEAR_BUCKET_COUNT)
+            return (int) value;
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = magnitude - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return LINEAR_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Computes the highest value counted in the given bucket.
+     * @param bucket The bucket index.
+     * @return The value.
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < LINEAR_BUCKET_COUNT)
+            return bucket;
+        final int shift = (bucket - LINEAR_BUCKET_COUNT) / SUB_BUCKET_COUNT + 1;
+        final long subBucket = (bucket - LINEAR_BUCKET_COUNT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Records the given value.
+     * @param value The value. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        final long clamped = Math.min(Math.max(value, 0), MAX_TRACKABLE_VALUE);
+        buckets.incrementAndGet(bucketOf(clamped));
+        count.incrementAndGet();
+        sum.addAndGet(clamped);
+        for (long current = max.get(); clamped > current; current = max.get())
+            if (max.compareAndSet(current, clamped))
+                break;
+    }
+
+    /** @return The number of values recorded. */
+    public long getCount() {
+        return count.get();
+    }
+
+    /** @return The highest value recorded, or 0 if none was recorded. */
+    public long getMax() {
+        return max.get();
+    }
+
+    /** @return The average of the values recorded, or 0 if none was recorded. */
+    public double getMean() {
+        final long total = count.get();
+        return total == 0 ? 0 : (double) sum.get() / total;
+    }
+
+    /**
+     * Computes the given percentile of the values recorded.
+     * @param percentile The percentile, between 0 and 100.
+     * @return The highest value equivalent to the percentile (i.e. that falls in the same bucket),
+     * or 0 if no value was recorded.
+     */
+    public long getPercentile(double percentile) {
+        final long total = count.get();
+        if (total == 0)
+            return 0;
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; ++bucket) {
+            seen += buckets.get(bucket);
+            if (seen >= rank)
+                return Math.min(highestValueOf(bucket), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Discards all the values recorded.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKET_COUNT; ++bucket)
+            buckets.set(bucket, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Provides a printable representation of this object, with values divided by the given unit.
+     * @param unit The unit's size (e.g. 1000 to print nanoseconds as microseconds).
+     * @param unitName The unit's name.
+     * @return The representation.
+     */
+    @NonNull
+    public String toString(long unit, @NonNull String unitName) {
+        return String.format("count=%d mean=%.1f%s p50=%.1f%s p90=%.1f%s p99=%.1f%s max=%.1f%s",
+                getCount(), getMean() / unit, unitName,
+                (double) getPercentile(50) / unit, unitName,
+                (double) getPercentile(90) / unit, unitName,
+                (double) getPercentile(99) / unit, unitName,
+                (double) getMax() / unit, unitName);
+    }
+
+    /**
+     * Provides a printable representation of this object.
+     */
+    @Override
+    public String toString() {
+        return toString(1, "");
+    }
+}
@@ -0,0 +1,195 @@
+package pdm.demos.weatherapp.utils;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.squareup.okhttp.Connection;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class whose instances collect metrics of the HTTP requests performed through the shared client
+ * (see {@link HttpClientFactory}), namely connection reuse, time to first byte and the bytes saved
+ * by conditional requests.
+ *
+ * <p>Instances are OkHttp network interceptors, and therefore observe each request that actually
+ * reaches the network (i.e. requests served by the response cache are not included). The time to
+ * first byte is measured from the moment the request is handed to the connection until the moment
+ * the response headers are received.</p>
+ *
+ * <p>The bytes saved by a {@literal 304 Not Modified} response are estimated as the size of the
+ * body of the most recent full response for the same URL, as transferred (i.e. its
+ * {@literal Content-Length}). Responses without a declared length do not contribute.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public final class HttpMetrics implements Interceptor {
+
+    /** Debugging tag used by the Android logger. */
+    private static final String TAG = "HttpMetrics";
+
+    /** The maximum number of URLs whose response size is retained. */
+    private static final int MAX_TRACKED_URLS = 64;
+
+    /** The timer of the HTTP stage of the pipeline, up to the reception of the headers. */
+    private static final Metrics.Timer HTTP_TIMER = Metrics.timer("pipeline.http");
+    /** The counter of responses with error status codes. */
+    private static final Metrics.Counter HTTP_ERRORS = Metrics.counter("http.errors");
+
+    /** The connections already observed. Weak keys prevent retaining evicted connections. */
+    private final Map<Connection, Boolean> knownConnections;
+    /** The number of requests that reached the network. */
+    private final AtomicLong requestCount;
+    /** The number of requests performed over a previously used connection. */
+    private final AtomicLong reusedConnectionCount;
+    /** The accumulated time to first byte, in nanoseconds. */
+    private final AtomicLong totalTimeToFirstByte;
+    /** The time to first byte of the most recent request, in nanoseconds. */
+    private final AtomicLong lastTimeToFirstByte;
+    /** The body size of the most recent full response, per URL, in access order. Guarded by itself. */
+    private final Map<String, Long> responseSizes;
+    /** The number of {@literal 304 Not Modified} responses. */
+    private final AtomicLong notModifiedCount;
+    /** The accumulated number of bytes saved by {@literal 304 Not Modified} responses. */
+    private final AtomicLong bytesSaved;
+
+    /**
+     * Initiates an instance.
+     */
+    public HttpMetrics() {
+        knownConnections = new WeakHashMap<>();
+        requestCount = new AtomicLong();
+        reusedConnectionCount = new AtomicLong();
+        totalTimeToFirstByte = new AtomicLong();
+        lastTimeToFirstByte = new AtomicLong();
+        responseSizes = new LinkedHashMap<String, Long>(MAX_TRACKED_URLS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > MAX_TRACKED_URLS;
+            }
+        };
+        notModifiedCount = new AtomicLong();
+        bytesSaved = new AtomicLong();
+    }
+
+    /**
+     * Records the use of the given connection.
+     * @param connection The connection.
+     * @return {@literal true} if the connection had already been used, {@literal false} otherwise.
+     */
+    private boolean recordConnection(Connection connection) {
+        if (connection == null)
+            return false;
+        synchronized (knownConnections) {
+            return knownConnections.put(connection, Boolean.TRUE) != null;
+        }
+    }
+
+    /**
+     * Records the body size of the given response, or the bytes it saved if it is a
+     * {@literal 304 Not Modified} response.
+     * @param url The request's URL.
+     * @param response The response.
+     */
+    private void recordSize(String url, Response response) {
+        if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            notModifiedCount.incrementAndGet();
+            final Long size;
+            synchronized (responseSizes) {
+                size = responseSizes.get(url);
+            }
+            if (size != null)
+                bytesSaved.addAndGet(size);
+            return;
+        }
+
+        if (response.code() != HttpURLConnection.HTTP_OK)
+            return;
+        final String length = response.header("Content-Length");
+        try {
+            if (length != null)
+                synchronized (responseSizes) {
+                    responseSizes.put(url, Long.parseLong(length));
+                }
+        } catch (NumberFormatException ignored) { }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        final Request request = chain.request();
+        final boolean reused = recordConnection(chain.connection());
+
+        final long probe = HTTP_TIMER.start();
+        final long start = System.nanoTime();
+        final Response response = chain.proceed(request);
+        final long timeToFirstByte = System.nanoTime() - start;
+        HTTP_TIMER.stop(probe);
+        if (response.code() >= HttpURLConnection.HTTP_BAD_REQUEST)
+            HTTP_ERRORS.increment();
+
+        requestCount.incrementAndGet();
+        if (reused)
+            reusedConnectionCount.incrementAndGet();
+        totalTimeToFirstByte.addAndGet(timeToFirstByte);
+        lastTimeToFirstByte.set(timeToFirstByte);
+        recordSize(request.urlString(), response);
+
+        Log.v(TAG, String.format("%s %s -> %d: %d ms to first byte (%s connection)",
+                request.method(), request.httpUrl().encodedPath(), response.code(),
+                TimeUnit.NANOSECONDS.toMillis(timeToFirstByte), reused ? "reused" : "new"));
+        return response;
+    }
+
+    /** @return The number of requests that reached the network. */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /** @return The number of requests performed over a previously used connection. */
+    public long getReusedConnectionCount() {
+        return reusedConnectionCount.get();
+    }
+
+    /** @return The average time to first byte, in milliseconds. */
+    public long getAverageTimeToFirstByte() {
+        final long count = requestCount.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalTimeToFirstByte.get() / count);
+    }
+
+    /** @return The time to first byte of the most recent request, in milliseconds. */
+    public long getLastTimeToFirstByte() {
+        return TimeUnit.NANOSECONDS.toMillis(lastTimeToFirstByte.get());
+    }
+
+    /** @return The number of {@literal 304 Not Modified} responses. */
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    /** @return The estimated number of bytes saved by {@literal 304 Not Modified} responses. */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return new StringBuilder("HttpMetrics [requests=").append(getRequestCount())
+                .append(", reused=").append(getReusedConnectionCount())
+                .append(", avgTTFB=").append(getAverageTimeToFirstByte()).append("ms")
+                .append(", lastTTFB=").append(getLastTimeToFirstByte()).append("ms")
+                .append(", notModified=").append(getNotModifiedCount())
+                .append(", bytesSaved=").append(getBytesSaved()).append(']')
+                .toString();
+    }
+}
@@ -12,38 +12,59 @@ import android.view.ViewGroup;
 /**
  * Abstract class that extends the Fragment class and overrides lifecycle callbacks for
  * logging various lifecycle events.
+ *
+ * <p>Callbacks are traced (see {@link LifecycleTracer}) with their timestamps, together with the
+ * fragment's time to interactive (from {@link #onCreate(Bundle)} to {@link #onResume()}).
+ * Callbacks are always logged; tracing only adds the bookkeeping (and the measurement appended to
+ * the log message of the first resume).</p>
  */
 public class LifecycleLoggingFragment extends Fragment {
 
     /** Debugging tag used by the Android logger. */
     protected final String TAG = getClass().getSimpleName();
 
+    /** The moment the fragment was created, in nanoseconds, or 0 if it was not traced. */
+    private long createdAt;
+
+    /**
+     * Helper method that traces the given event, if tracing is enabled, and logs it.
+     * @param event The event's name.
+     * @param message The log message.
+     */
+    private void trace(String event, String message) {
+        if (LifecycleTracer.isEnabled())
+            LifecycleTracer.record(TAG, hashCode(), event, LifecycleTracer.now(),
+                    LifecycleTracer.NO_DURATION);
+        Log.d(TAG, message);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void onAttach(Context context) {
         super.onAttach(context);
-        Log.d(TAG, "onAttach() - the fragment is being attached to its context");
+        trace("onAttach", "onAttach() - the fragment is being attached to its context");
     }
 
     /** {@inheritDoc} */
     @Override
     public void onAttach(Activity activity) {
         super.onAttach(activity);
-        Log.d(TAG, "onAttach() - the fragment is being attached to its activity");
+        trace("onAttach", "onAttach() - the fragment is being attached to its activity");
     }
 
     /** {@inheritDoc} */
     @Override
     public void onCreate(Bundle savedInstanceState){
+        createdAt = LifecycleTracer.isEnabled() ? LifecycleTracer.now() : 0;
         super.onCreate(savedInstanceState);
 
         if(savedInstanceState != null) {
             // The fragment is being re-created.
-            Log.d(TAG, "onCreate(): fragment re-created");
+            trace("onCreate", "onCreate(): fragment re-created");
 
         } else {
             // The fragment is being created anew.
-            Log.d(TAG, "onCreate(): fragment created anew");
+            trace("onCreate", "onCreate(): fragment created anew");
         }
     }
     /** {@inheritDoc} */
@@ -51,7 +72,7 @@ public class LifecycleLoggingFragment extends Fragment {
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
         final View view = super.onCreateView(inflater, container, savedInstanceState);
-        Log.d(TAG, "onCreateView() - the fragment is creating its view");
+        trace("onCreateView", "onCreateView() - the fragment is creating its view");
         return view;
     }
 
@@ -59,34 +80,44 @@ public class LifecycleLoggingFragment extends Fragment {
     @Override
     public void onStart(){
         super.onStart();
-        Log.d(TAG, "onStart() - the fragment is about to become visible");
+        trace("onStart", "onStart() - the fragment is about to become visible");
     }
 
     /** {@inheritDoc} */
     @Override
     public void onResume(){
         super.onResume();
-        Log.d(TAG, "onResume() - the fragment has become visible (it is now \"resumed\")");
+        if (createdAt == 0) {
+            trace("onResume",
+                    "onResume() - the fragment has become visible (it is now \"resumed\")");
+            return;
+        }
+        // Subsequent resumes are not measured from the creation
+        final long now = LifecycleTracer.now(), duration = now - createdAt;
+        createdAt = 0;
+        LifecycleTracer.record(TAG, hashCode(), "onResume (interactive)", now, duration);
+        Log.d(TAG, "onResume() - the fragment has become visible, "
+                + LifecycleTracer.formatDuration(duration) + " after being created");
     }
 
     /** {@inheritDoc} */
     @Override
     public void onPause(){
         super.onPause();
-        Log.d(TAG, "onPause() - the fragment is being hidden");
+        trace("onPause", "onPause() - the fragment is being hidden");
     }
 
     /** {@inheritDoc} */
     @Override
     public void onStop(){
         super.onStop();
-        Log.d(TAG, "onStop() - the fragment is no longer visible (it is now \"stopped\")");
+        trace("onStop", "onStop() - the fragment is no longer visible (it is now \"stopped\")");
     }
 
     /** {@inheritDoc} */
     @Override
     public void onDestroy(){
-        Log.d(TAG, "onDestroy() - the fragment is about to be destroyed");
+        trace("onDestroy", "onDestroy() - the fragment is about to be destroyed");
         super.onDestroy();
     }
 
@@ -94,6 +125,6 @@ public class LifecycleLoggingFragment extends Fragment {
     @Override
     public void onDetach() {
         super.onDetach();
-        Log.d(TAG, "onDetach() - the fragment is being detached from its context");
+        trace("onDetach", "onDetach() - the fragment is being detached from its context");
     }
 }
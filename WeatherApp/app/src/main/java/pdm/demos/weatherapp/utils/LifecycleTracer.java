@@ -0,0 +1,174 @@
+package pdm.demos.weatherapp.utils;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import pdm.demos.weatherapp.BuildConfig;
+
+/**
+ * Class that records the lifecycle events of activities and fragments (see {@link LoggingActivity}
+ * and {@link LifecycleLoggingFragment}), with monotonic timestamps, in a fixed-size ring buffer
+ * that can be dumped on demand (e.g. through {@literal adb shell dumpsys activity}).
+ *
+ * <p>Besides the events themselves, durations are recorded: the time from the creation of a
+ * component until it is resumed (i.e. its time to interactive), and the time taken to recreate
+ * an activity due to a configuration change, from the moment the previous instance is paused
+ * until the new one is resumed.</p>
+ *
+ * <p>Tracing is enabled by default on debug builds only. While it is disabled, the instrumented
+ * components neither read the clock nor build log messages.</p>
+ *
+ * <p>All operations are thread-safe, although lifecycle events occur on the main thread.</p>
+ */
+public final class LifecycleTracer {
+
+    /** Debugging tag used by the Android logger. */
+    private static final String TAG = "LifecycleTracer";
+
+    /** The number of events retained. */
+    public static final int CAPACITY = 256;
+    /** The value of durations that do not apply to the event. */
+    public static final long NO_DURATION = -1;
+
+    /** Whether events are being recorded. */
+    private static volatile boolean enabled = BuildConfig.DEBUG;
+
+    /** The events' timestamps, in nanoseconds. Guarded by the class' lock, as all the buffer. */
+    private static final long[] timestamps = new long[CAPACITY];
+    /** The events' components (i.e. their class names). */
+    private static final String[] components = new String[CAPACITY];
+    /** The events' component instances (i.e. their hash codes). */
+    private static final int[] instances = new int[CAPACITY];
+    /** The events' names. */
+    private static final String[] events = new String[CAPACITY];
+    /** The events' durations, in nanoseconds, or {@link #NO_DURATION}. */
+    private static final long[] durations = new long[CAPACITY];
+    /** The total number of events recorded, which determines the position of the next one. */
+    private static long recordedCount;
+
+    /** The moment the recreation of each activity started, by class name. */
+    private static final Map<String, Long> recreations = new HashMap<>();
+
+    /**
+     * Prevent instantiation.
+     */
+    private LifecycleTracer() { }
+
+    /** @return {@literal true} if events are being recorded. */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the recording of events.
+     * @param enable Whether events are to be recorded.
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /** @return The current monotonic timestamp, in nanoseconds. */
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the given event.
+     * @param component The component's name.
+     * @param instance The component instance's identity.
+     * @param event The event's name.
+     * @param timestamp The event's timestamp, in nanoseconds.
+     * @param duration The duration associated to the event, in nanoseconds, or
+     *                 {@link #NO_DURATION}.
+     */
+    public static synchronized void record(@NonNull String component, int instance,
+                                           @NonNull String event, long timestamp, long duration) {
+        final int slot = (int) (recordedCount++ % CAPACITY);
+        timestamps[slot] = timestamp;
+        components[slot] = component;
+        instances[slot] = instance;
+        events[slot] = event;
+        durations[slot] = duration;
+    }
+
+    /**
+     * Marks the start of the recreation of the given activity, due to a configuration change.
+     * Only the earliest mark is kept, until it is taken.
+     * @param component The activity's name.
+     * @param timestamp The timestamp, in nanoseconds.
+     */
+    public static synchronized void markRecreationStart(@NonNull String component,
+                                                        long timestamp) {
+        if (!recreations.containsKey(component))
+            recreations.put(component, timestamp);
+    }
+
+    /**
+     * Takes the start of the recreation of the given activity, if one was marked.
+     * @param component The activity's name.
+     * @return The timestamp, in nanoseconds, or {@link #NO_DURATION} if none was marked.
+     */
+    public static synchronized long takeRecreationStart(@NonNull String component) {
+        final Long start = recreations.remove(component);
+        return start != null ? start : NO_DURATION;
+    }
+
+    /**
+     * Formats the given duration.
+     * @param duration The duration, in nanoseconds.
+     * @return The formatted duration, in milliseconds.
+     */
+    @NonNull
+    public static String formatDuration(long duration) {
+        return String.format("%.1f ms", duration / 1e6);
+    }
+
+    /**
+     * Writes the recorded events, oldest first, to the given writer. Timestamps are relative to
+     * the oldest event.
+     * @param writer The writer.
+     * @param prefix The prefix of each line.
+     */
+    public static synchronized void dump(@NonNull PrintWriter writer, @NonNull String prefix) {
+        final long count = Math.min(recordedCount, CAPACITY);
+        writer.print(prefix);
+        writer.println(String.format("Lifecycle events (%d of %d):", count, recordedCount));
+        if (count == 0)
+            return;
+
+        final long first = recordedCount - count;
+        final long origin = timestamps[(int) (first % CAPACITY)];
+        for (long idx = first; idx < recordedCount; ++idx) {
+            final int slot = (int) (idx % CAPACITY);
+            writer.print(prefix);
+            writer.print(String.format("  +%10.1f ms %s [%d] %s", (timestamps[slot] - origin) / 1e6,
+                    components[slot], instances[slot], events[slot]));
+            if (durations[slot] != NO_DURATION)
+                writer.print(" (" + formatDuration(durations[slot]) + ")");
+            writer.println();
+        }
+    }
+
+    /**
+     * Writes the recorded events to the Android log.
+     */
+    public static void dumpToLog() {
+        final StringWriter buffer = new StringWriter();
+        dump(new PrintWriter(buffer), "");
+        for (String line : buffer.toString().split("\n"))
+            Log.i(TAG, line);
+    }
+
+    /**
+     * Discards the recorded events and the pending recreations.
+     */
+    public static synchronized void clear() {
+        recordedCount = 0;
+        recreations.clear();
+    }
+}
@@ -0,0 +1,144 @@
+package pdm.demos.weatherapp.utils;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Class whose instances are bounded pools of looper threads (i.e. {@link HandlerThread}) sharing a
+ * single work queue.
+ *
+ * <p>Threads are created on demand, up to the specified maximum, and are kept alive afterwards.
+ * Work items are handed to idle threads by posting them to the thread's {@link Handler}. When all
+ * threads are busy, work items wait in the queue and each thread that completes its current item
+ * takes the next one from the queue, in FIFO order.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+final class LooperThreadPool {
+
+    /**
+     * Class whose instances are the pool's threads.
+     */
+    private final class Worker {
+        /** The handler used to post work items to the thread. */
+        private final Handler handler;
+
+        private Worker(@NonNull String name) {
+            final HandlerThread thread =
+                    new HandlerThread(name, Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+
+        /**
+         * Executes the given work item on this thread. Once done, the thread takes the next work
+         * item from the queue or, if there is none, becomes idle.
+         * @param work The work item.
+         */
+        private void run(@NonNull final Runnable work) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        work.run();
+                    } finally {
+                        // Interruptions targeted at the work item must not leak into the next one
+                        Thread.interrupted();
+                        onIdle(Worker.this);
+                    }
+                }
+            });
+        }
+    }
+
+    /** The pool's name, used to name its threads. */
+    private final String name;
+    /** The maximum number of threads. */
+    private final int maxThreads;
+    /** The work items waiting for a thread. Guarded by itself. */
+    private final Deque<Runnable> queue;
+    /** The idle threads. Guarded by {@link #queue}. */
+    private final Deque<Worker> idleWorkers;
+    /** The number of threads created so far. Guarded by {@link #queue}. */
+    private int threadCount;
+
+    /**
+     * Initiates an instance with the given arguments.
+     * @param name The pool's name, used to name its threads.
+     * @param maxThreads The maximum number of threads.
+     */
+    LooperThreadPool(@NonNull String name, int maxThreads) {
+        if (maxThreads < 1)
+            throw new IllegalArgumentException("maxThreads must be positive");
+        this.name = name;
+        this.maxThreads = maxThreads;
+        queue = new ArrayDeque<>();
+        idleWorkers = new ArrayDeque<>();
+    }
+
+    /**
+     * Schedules the execution of the given work item.
+     * @param work The work item.
+     */
+    void execute(@NonNull Runnable work) {
+        Worker worker;
+        synchronized (queue) {
+            worker = idleWorkers.pollFirst();
+            if (worker == null) {
+                if (threadCount == maxThreads) {
+                    queue.addLast(work);
+                    return;
+                }
+                worker = new Worker(name + " #" + ++threadCount);
+            }
+        }
+        worker.run(work);
+    }
+
+    /**
+     * Removes the given work item from the queue, if it is still waiting for a thread.
+     * @param work The work item.
+     * @return {@literal true} if the work item was removed, {@literal false} otherwise.
+     */
+    boolean remove(@NonNull Runnable work) {
+        synchronized (queue) {
+            return queue.remove(work);
+        }
+    }
+
+    /**
+     * Called by the given thread once it completes a work item.
+     * @param worker The thread.
+     */
+    private void onIdle(@NonNull Worker worker) {
+        final Runnable next;
+        synchronized (queue) {
+            next = queue.pollFirst();
+            if (next == null) {
+                // Most recently used threads are reused first, so that the others stay cold
+                idleWorkers.addFirst(worker);
+                return;
+            }
+        }
+        worker.run(next);
+    }
+
+    /** @return The number of threads created so far. */
+    int getThreadCount() {
+        synchronized (queue) {
+            return threadCount;
+        }
+    }
+
+    /** @return The number of work items waiting for a thread. */
+    int getQueueLength() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package pdm.demos.weatherapp.utils;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class that provides the process-wide registry of metrics: counters, and timers of the stages of
+ * the weather fetch pipeline (e.g. HTTP, JSON decoding, mapping and dispatching to the main
+ * thread), whose latencies are recorded in {@link Histogram}s.
+ *
+ * <p>Metrics are obtained once, by name, and kept in static fields of the instrumented classes, so
+ * that probes do not look them up. Metrics are disabled by default: a disabled probe costs a
+ * volatile read, and neither reads the clock nor allocates. The registry's snapshot can be
+ * exported periodically to logcat and, optionally, to a file (see
+ * {@link #startPeriodicExport(long, File)}).</p>
+ *
+ * <p>All operations are thread-safe.</p>
+ */
+public final class Metrics {
+
+    /** Debugging tag used by the Android logger. */
+    private static final String TAG = "Metrics";
+
+    /** Whether probes record values. */
+    private static volatile boolean enabled;
+
+    /** The registered metrics, by name. Guarded by itself. */
+    private static final Map<String, Object> registry = new TreeMap<>();
+
+    /** The thread on which snapshots are exported, if periodic export is active. */
+    private static HandlerThread exportThread;
+
+    /**
+     * Prevent instantiation.
+     */
+    private Metrics() { }
+
+    /**
+     * Class whose instances are lock-free counters.
+     */
+    public static final class Counter {
+        private final AtomicLong value = new AtomicLong();
+
+        private Counter() { }
+
+        /** Increments the counter, if metrics are enabled. */
+        public void increment() {
+            if (enabled)
+                value.incrementAndGet();
+        }
+
+        /**
+         * Adds the given amount to the counter, if metrics are enabled.
+         * @param amount The amount.
+         */
+        public void add(long amount) {
+            if (enabled)
+                value.addAndGet(amount);
+        }
+
+        /** @return The counter's value. */
+        public long get() {
+            return value.get();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return String.valueOf(value.get());
+        }
+    }
+
+    /**
+     * Class whose instances time a given stage, recording its latencies in a histogram.
+     *
+     * <p>Usage: {@code final long start = TIMER.start(); ...; TIMER.stop(start);}. If metrics
+     * are disabled when the stage starts, the stage is not recorded.</p>
+     */
+    public static final class Timer {
+        private final Histogram histogram = new Histogram();
+
+        private Timer() { }
+
+        /**
+         * Marks the start of the stage.
+         * @return The value to be passed to {@link #stop(long)}.
+         */
+        public long start() {
+            return enabled ? System.nanoTime() : 0;
+        }
+
+        /**
+         * Marks the end of the stage, recording its latency.
+         * @param start The value returned by {@link #start()}.
+         */
+        public void stop(long start) {
+            if (start != 0)
+                histogram.record(System.nanoTime() - start);
+        }
+
+        /** @return The histogram of the stage's latencies, in nanoseconds. */
+        @NonNull
+        public Histogram getHistogram() {
+            return histogram;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return histogram.toString(1000, "us");
+        }
+    }
+
+    /**
+     * Enables or disables the recording of values by all probes.
+     * @param enable Whether probes record values.
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /** @return {@literal true} if probes record values. */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the metric with the given name, registering it if needed.
+     * @throws IllegalArgumentException If a metric of another type has the given name.
+     */
+    private static <T> T get(@NonNull String name, @NonNull Class<T> type) {
+        synchronized (registry) {
+            Object metric = registry.get(name);
+            if (metric == null) {
+                metric = type == Counter.class ? new Counter() : new Timer();
+                registry.put(name, metric);
+            }
+            if (!type.isInstance(metric))
+                throw new IllegalArgumentException("Metric " + name + " is not a " +
+                        type.getSimpleName());
+            return type.cast(metric);
+        }
+    }
+
+    /**
+     * Gets the counter with the given name, registering it if needed.
+     * @param name The counter's name.
+     * @return The counter.
+     * @throws IllegalArgumentException If a metric of another type has the given name.
+     */
+    @NonNull
+    public static Counter counter(@NonNull String name) {
+        return get(name, Counter.class);
+    }
+
+    /**
+     * Gets the timer with the given name, registering it if needed.
+     * @param name The timer's name.
+     * @return The timer.
+     * @throws IllegalArgumentException If a metric of another type has the given name.
+     */
+    @NonNull
+    public static Timer timer(@NonNull String name) {
+        return get(name, Timer.class);
+    }
+
+    /**
+     * Produces a snapshot of all registered metrics, one per line, sorted by name.
+     * @return The snapshot.
+     */
+    @NonNull
+    public static String snapshot() {
+        final StringBuilder result = new StringBuilder();
+        synchronized (registry) {
+            for (Map.Entry<String, Object> metric : registry.entrySet())
+                result.append(metric.getKey()).append(": ").append(metric.getValue()).append('\n');
+        }
+        return result.toString();
+    }
+
+    /**
+     * Exports a snapshot to logcat and, if given, appends it to the given file.
+     * @param file The file, or {@literal null} if none.
+     */
+    private static void export(@Nullable File file) {
+        final String snapshot = snapshot();
+        for (String line : snapshot.split("\n"))
+            Log.i(TAG, line);
+        if (file == null)
+            return;
+
+        try {
+            final Writer out = new FileWriter(file, true);
+            try {
+                out.write("# " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US)
+                        .format(new Date()) + '\n');
+                out.write(snapshot);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to export metrics to " + file, e);
+        }
+    }
+
+    /**
+     * Starts exporting snapshots periodically, on a background thread, replacing any previous
+     * periodic export. Snapshots are exported only while metrics are enabled.
+     * @param period The period, in milliseconds.
+     * @param file The file to which snapshots are appended, or {@literal null} if they are only
+     *             to be written to logcat.
+     */
+    public static synchronized void startPeriodicExport(final long period,
+                                                        @Nullable final File file) {
+        stopPeriodicExport();
+        exportThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        exportThread.start();
+        final Handler handler = new Handler(exportThread.getLooper());
+        handler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if (enabled)
+                    export(file);
+                handler.postDelayed(this, period);
+            }
+        }, period);
+    }
+
+    /**
+     * Stops exporting snapshots periodically, if it was started.
+     */
+    public static synchronized void stopPeriodicExport() {
+        if (exportThread != null) {
+            exportThread.quit();
+            exportThread = null;
+        }
+    }
+}
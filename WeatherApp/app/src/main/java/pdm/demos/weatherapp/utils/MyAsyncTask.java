@@ -1,24 +1,50 @@
 package pdm.demos.weatherapp.utils;
 
 import android.os.AsyncTask;
-import android.os.HandlerThread;
-
 import android.os.Handler;
-import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
 
-import pdm.demos.weatherapp.providers.WeatherInfo;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Unrealistic (due to its flawed simplicity) implementation of {@link AsyncTask}.
+ * Simplified implementation of {@link AsyncTask}.
  *
- * <p>Its sole purpose is to illustrate the use of the HaMer framework, where thread orchestration
+ * <p>Its purpose is to illustrate the use of the HaMer framework, where thread orchestration
  * is done through message exchange, in contrast to the concurrency programming model based on
  * synchronization and shared mutable state.</p>
  *
- * <p>The implementation is not generic, it does not support cancellation, and it uses unbounded
- * thread creation, just to name some of the existing flaws.</p>
+ * <p>Background work is executed by a bounded pool of looper threads, shared by all instances
+ * (see {@link #MAX_WORKER_THREADS}), with pending work waiting in a FIFO queue. Progress updates,
+ * completion and cancellation are signalled on the thread that called {@link #execute(Object)}
+ * (usually the main thread), through its {@link Handler}. Each instance can be executed only
+ * once.</p>
+ *
+ * @param <I> The type of the work's input.
+ * @param <P> The type of the progress units published during the work.
+ * @param <O> The type of the work's result.
  */
-public abstract class MyAsyncTask {
+public abstract class MyAsyncTask<I, P, O> {
+
+    /** The maximum number of threads used to execute background work. */
+    public static final int MAX_WORKER_THREADS =
+            Math.max(2, Math.min(Runtime.getRuntime().availableProcessors() + 1, 4));
+
+    /** The pool of threads shared by all instances. */
+    private static final LooperThreadPool pool =
+            new LooperThreadPool("MyAsyncTask", MAX_WORKER_THREADS);
+
+    /** The possible states of the task. */
+    private static final int CREATED = 0, PENDING = 1, RUNNING = 2, FINISHED = 3, CANCELLED = 4;
+
+    /** The task's current state. */
+    private final AtomicInteger state = new AtomicInteger(CREATED);
+    /** The handler of the thread that called {@link #execute(Object)}. */
+    private volatile Handler callerHandler;
+    /** The work item submitted to the pool. */
+    private volatile Runnable work;
+    /** The thread executing the background work, while it runs. Guarded by {@literal this}. */
+    private Thread runner;
 
     /**
      * Same semantics as its real counterpart: it should be overridden to specify the work to be
@@ -26,46 +52,163 @@ public abstract class MyAsyncTask {
      * @param input The work's input.
      * @return The result.
      */
-    protected abstract WeatherInfo doInBackground(final String input);
+    @WorkerThread
+    protected abstract O doInBackground(final I input);
 
     /**
      * Same semantics as its real counterpart: called on the thread which originally triggered the
-     * background work execution (i.e. the one that called {@link #execute(String)}, which is
-     * usually the process main thread) to signal.
+     * background work execution (i.e. the one that called {@link #execute(Object)}, which is
+     * usually the process main thread) to signal progress. It is not called once the task is
+     * cancelled.
+     * @param progress The progress unit, as published by {@link #publishProgress(Object)}.
+     */
+    protected void onProgressUpdate(P progress) { }
+
+    /**
+     * Same semantics as its real counterpart: called on the thread which originally triggered the
+     * background work execution to signal its completion. It is not called if the task is
+     * cancelled.
      * @param output The background work result.
      */
-    protected void onPostExecution(WeatherInfo output) { }
+    protected void onPostExecution(O output) { }
 
     /**
-     * Triggers the execution of the specified background work.
+     * Called on the thread which originally triggered the background work execution to signal
+     * that the task was cancelled. It is called instead of {@link #onPostExecution(Object)}.
+     */
+    protected void onCancelled() { }
+
+    /**
+     * Publishes the given progress unit, to be delivered to {@link #onProgressUpdate(Object)}.
+     * Should be called from {@link #doInBackground(Object)}.
+     * @param progress The progress unit.
+     */
+    @WorkerThread
+    protected final void publishProgress(final P progress) {
+        if (isCancelled())
+            return;
+        callerHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!isCancelled())
+                    onProgressUpdate(progress);
+            }
+        });
+    }
+
+    /**
+     * Triggers the execution of the specified background work. Notifications are delivered to the
+     * calling thread, which must therefore have a looper.
      * @param input The work's input.
+     * @return This instance, to enable fluent use.
+     * @throws IllegalStateException If the task has already been executed or cancelled.
      */
-    public void execute(final String input) {
-
-        // Unbound thread creation: usually a bad idea.
-        final HandlerThread worker = new HandlerThread("Worker");
-        worker.start();
-
-        // Send an object bearing the computation to be performed to the newly created thread
-        // (i.e. argument of post)
-        new Handler(worker.getLooper()).post(new Runnable() {
-            // This field is initialized by the same thread that instantiates its hosting object,
-            // that is, the thread calling execute
-            final Handler callerHandler = new Handler();
+    @NonNull
+    public final MyAsyncTask<I, P, O> execute(final I input) {
+        return execute(input, new Handler());
+    }
+
+    /**
+     * Triggers the execution of the specified background work, delivering notifications through
+     * the given handler.
+     * @param input The work's input.
+     * @param handler The handler used to deliver notifications.
+     * @return This instance, to enable fluent use.
+     * @throws IllegalStateException If the task has already been executed or cancelled.
+     */
+    @NonNull
+    public final MyAsyncTask<I, P, O> execute(final I input, @NonNull Handler handler) {
+        final Runnable work = new Runnable() {
             @Override
             public void run() {
-                // Executed on the "Worker" thread
-                final WeatherInfo info = doInBackground(input);
-                // Instantiate an object bearing the computation (and required state) to be
-                // performed in the original thread (e.g. the main thread)
-                callerHandler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        // This will run on the original thread
-                        onPostExecution(info);
+                // Executed on one of the pool's threads
+                if (!state.compareAndSet(PENDING, RUNNING))
+                    return;
+                synchronized (MyAsyncTask.this) {
+                    runner = Thread.currentThread();
+                }
+
+                final O output;
+                try {
+                    output = doInBackground(input);
+                } finally {
+                    synchronized (MyAsyncTask.this) {
+                        runner = null;
                     }
-                });
+                }
+
+                if (state.compareAndSet(RUNNING, FINISHED))
+                    callerHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            // This will run on the original thread
+                            onPostExecution(output);
+                        }
+                    });
+            }
+        };
+
+        // The fields are only assigned once the task is known not to have been executed, lest a
+        // second call redirects the notifications of the first. Cancellation reads them under the
+        // same lock, so that it never observes them unassigned.
+        synchronized (this) {
+            if (!state.compareAndSet(CREATED, PENDING))
+                throw new IllegalStateException("The task has already been executed or cancelled");
+            callerHandler = handler;
+            this.work = work;
+        }
+        pool.execute(work);
+        return this;
+    }
+
+    /**
+     * Cancels the task, unless it has already completed. If its background work has not started
+     * yet, it never will. Otherwise, its result is discarded. In both cases, {@link #onCancelled()}
+     * is called on the thread which originally triggered the execution.
+     * @param mayInterruptIfRunning Whether the thread executing the background work should be
+     *                              interrupted.
+     * @return {@literal true} if the task was cancelled, {@literal false} otherwise.
+     */
+    public final boolean cancel(boolean mayInterruptIfRunning) {
+        int current;
+        do {
+            current = state.get();
+            if (current == FINISHED || current == CANCELLED)
+                return false;
+        } while (!state.compareAndSet(current, CANCELLED));
+
+        if (current == CREATED)
+            return true;
+
+        final Handler handler;
+        synchronized (this) {
+            pool.remove(work);
+            if (mayInterruptIfRunning && runner != null)
+                runner.interrupt();
+            handler = callerHandler;
+        }
+
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                onCancelled();
             }
         });
+        return true;
+    }
+
+    /** @return {@literal true} if the task was cancelled, {@literal false} otherwise. */
+    public final boolean isCancelled() {
+        return state.get() == CANCELLED;
+    }
+
+    /** @return The number of threads created so far by the shared pool. */
+    public static int getWorkerThreadCount() {
+        return pool.getThreadCount();
+    }
+
+    /** @return The number of tasks waiting for a thread of the shared pool. */
+    public static int getPendingTaskCount() {
+        return pool.getQueueLength();
     }
 }
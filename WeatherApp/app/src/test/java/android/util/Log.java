@@ -0,0 +1,78 @@
+package android.util;
+
+/**
+ * Stand-in for the Android logger in JVM unit tests, which shadows the one of the mockable
+ * {@literal android.jar}, whose methods throw. It is needed by the network path (see
+ * {@code pdm.demos.weatherapp.utils.HttpMetrics}), which logs every request. Logging is the only
+ * Android behaviour stubbed for unit tests: the remaining framework methods (e.g. those of
+ * {@code Handler} and {@code Looper}) still throw, so that tests never silently depend on them.
+ *
+ * <p>Messages are discarded, except for warnings and errors, which are printed.</p>
+ */
+public final class Log {
+
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    public static final int ASSERT = 7;
+
+    /**
+     * Prevent instantiation.
+     */
+    private Log() { }
+
+    private static int print(String level, String tag, String msg, Throwable tr) {
+        System.err.println(level + "/" + tag + ": " + msg + (tr == null ? "" : " " + tr));
+        return 0;
+    }
+
+    public static boolean isLoggable(String tag, int level) {
+        return level >= WARN;
+    }
+
+    public static int v(String tag, String msg) {
+        return 0;
+    }
+
+    public static int v(String tag, String msg, Throwable tr) {
+        return 0;
+    }
+
+    public static int d(String tag, String msg) {
+        return 0;
+    }
+
+    public static int d(String tag, String msg, Throwable tr) {
+        return 0;
+    }
+
+    public static int i(String tag, String msg) {
+        return 0;
+    }
+
+    public static int i(String tag, String msg, Throwable tr) {
+        return 0;
+    }
+
+    public static int w(String tag, String msg) {
+        return print("W", tag, msg, null);
+    }
+
+    public static int w(String tag, String msg, Throwable tr) {
+        return print("W", tag, msg, tr);
+    }
+
+    public static int w(String tag, Throwable tr) {
+        return print("W", tag, "", tr);
+    }
+
+    public static int e(String tag, String msg) {
+        return print("E", tag, msg, null);
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        return print("E", tag, msg, tr);
+    }
+}
@@ -0,0 +1,169 @@
+package pdm.demos.weatherapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that runs microbenchmarks of the application's hot paths, measuring their time and their
+ * allocation per operation. Operations are run in rounds, after warm-up rounds that give the JIT
+ * compiler the opportunity to optimize them; the best round is reported.
+ *
+ * <p>Timings are only reported, because they depend on the machine running the tests. Allocations
+ * are compared against the published baseline ({@literal /benchmarks/baseline.properties}), and
+ * those above it are reported as well. Allocations depend on the JVM and on its JIT compiler
+ * (e.g. on escape analysis), hence the comparison is only enforced, making the tests fail, when
+ * the {@value #ENFORCE_BASELINE} system property is {@literal true}, which is meant for the JVM on
+ * which the baseline was measured. Changes that reduce the allocation of a hot path should lower
+ * the corresponding baseline entry.</p>
+ */
+public final class Microbenchmark {
+
+    /**
+     * Contract of the operations being measured. Operations return a value derived from their
+     * result, which is consumed so that the compiler does not eliminate them. Operations whose
+     * result is an object should also publish it (e.g. to a field), as the application does,
+     * otherwise its allocation may be elided, depending on the compiler's inlining decisions.
+     */
+    public interface Operation {
+        int run(int iteration);
+    }
+
+    /**
+     * Class whose instances are the measurements of an operation.
+     */
+    public static final class Result {
+        /** The name of the operation, which is the key of its baseline entry. */
+        public final String name;
+        /** The time per operation, in nanoseconds. */
+        public final double nanosPerOp;
+        /** The bytes allocated per operation, or -1 if the JVM does not report allocations. */
+        public final double bytesPerOp;
+
+        Result(String name, double nanosPerOp, double bytesPerOp) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-45s %9.1f ns/op %9s B/op", name, nanosPerOp,
+                    bytesPerOp < 0 ? "n/a" : String.format("%.1f", bytesPerOp));
+        }
+    }
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int ITERATIONS_PER_ROUND = 200000;
+
+    /** The system property that, when {@literal true}, makes the baseline a hard limit. */
+    public static final String ENFORCE_BASELINE = "benchmark.enforceBaseline";
+
+    /** The location of the published baseline. */
+    private static final String BASELINE = "/benchmarks/baseline.properties";
+    /** The allocation growth tolerated, relative to the baseline. */
+    private static final double ALLOCATION_TOLERANCE = 0.1;
+    /** The allocation growth tolerated, in bytes per operation, for cheap operations. */
+    private static final double MIN_ALLOCATION_TOLERANCE = 8;
+
+    /** Consumes the operations' results. */
+    private static volatile int sink;
+
+    private static Properties baseline;
+
+    /**
+     * Prevent instantiation.
+     */
+    private Microbenchmark() { }
+
+    /**
+     * Gets the number of bytes allocated so far by the current thread, if the JVM supports it.
+     * @return The number of bytes, or -1 if not supported.
+     */
+    private static long allocatedBytes() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        return ((com.sun.management.ThreadMXBean) bean)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Measures the given operation and prints the result.
+     * @param name The operation's name.
+     * @param operation The operation.
+     * @return The measurements.
+     */
+    public static Result measure(String name, Operation operation) {
+        double bestNanos = Double.MAX_VALUE, bestBytes = Double.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; ++round) {
+            int consumed = 0;
+            final long allocatedBefore = allocatedBytes();
+            final long start = System.nanoTime();
+            for (int idx = 0; idx < ITERATIONS_PER_ROUND; ++idx)
+                consumed += operation.run(idx);
+            final long elapsed = System.nanoTime() - start;
+            final long allocated = allocatedBytes() - allocatedBefore;
+            sink += consumed;
+
+            if (round >= WARMUP_ROUNDS) {
+                bestNanos = Math.min(bestNanos, (double) elapsed / ITERATIONS_PER_ROUND);
+                bestBytes = allocatedBefore < 0 ? -1 :
+                        Math.min(bestBytes, (double) allocated / ITERATIONS_PER_ROUND);
+            }
+        }
+
+        final Result result = new Result(name, bestNanos, bestBytes);
+        System.out.println(result);
+        return result;
+    }
+
+    private static synchronized Properties getBaseline() throws IOException {
+        if (baseline == null) {
+            final InputStream in = Microbenchmark.class.getResourceAsStream(BASELINE);
+            assertNotNull("Missing benchmark baseline " + BASELINE, in);
+            try {
+                baseline = new Properties();
+                baseline.load(in);
+            } finally {
+                in.close();
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * Measures the given operation, and checks that its allocation does not exceed the baseline.
+     * Allocations above the baseline are reported, and only fail if the baseline is enforced (see
+     * {@link #ENFORCE_BASELINE}).
+     * @param name The operation's name, which is the key of its baseline entry.
+     * @param operation The operation.
+     * @throws IOException If the baseline could not be loaded.
+     */
+    public static void measureAgainstBaseline(String name, Operation operation)
+            throws IOException {
+        final String entry = getBaseline().getProperty(name);
+        assertNotNull("Missing baseline entry for " + name, entry);
+
+        final Result result = measure(name, operation);
+        if (result.bytesPerOp < 0)
+            return;
+
+        final double expected = Double.parseDouble(entry);
+        final double tolerated = expected +
+                Math.max(MIN_ALLOCATION_TOLERANCE, expected * ALLOCATION_TOLERANCE);
+        if (result.bytesPerOp <= tolerated)
+            return;
+
+        final String message = String.format(
+                "%s allocates %.1f B/op, above the baseline of %.1f B/op",
+                name, result.bytesPerOp, expected);
+        if (Boolean.getBoolean(ENFORCE_BASELINE))
+            fail(message);
+        System.out.println("WARNING: " + message);
+    }
+}
@@ -0,0 +1,114 @@
+package pdm.demos.weatherapp.cities;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the CityDirectory class
+ */
+public class CityDirectoryTests {
+
+    /** The bundled city list, relative to the module's directory. */
+    private static final String BUNDLED_LIST = "src/main/res/raw/cities.txt";
+
+    private static final String LIST = "# Test cities\n"
+            + "Lisbon\tPT\tLisboa\n"
+            + "Porto\tPT\tOporto\n"
+            + "London\tGB\n"
+            + "\n"
+            + "Sao Paulo\tBR\tSão Paulo\n"
+            + "Washington\tUS\tWashington DC;Washington D.C.\n"
+            + "London\tCA\n"
+            + "Lima\tPE\n";
+
+    private static final CityDirectory DIRECTORY = read(LIST);
+
+    private static CityDirectory read(String list) {
+        try {
+            return CityDirectory.read(new StringReader(list));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static List<String> ids(List<CityDirectory.City> cities) {
+        final List<String> result = new ArrayList<>(cities.size());
+        for (CityDirectory.City city : cities)
+            result.add(city.getId());
+        return result;
+    }
+
+    @Test
+    public void canonicalize_withEquivalentInputs_producesSameId() {
+        for (String input : Arrays.asList("Lisbon", "lisbon", " LISBON ", "lisbon, pt",
+                "Lisbon,PT", "Lisbon,PRT", "Lisboa"))
+            assertEquals(input, "Lisbon,PT", DIRECTORY.canonicalize(input));
+    }
+
+    @Test
+    public void canonicalize_ignoresAccentsAndPunctuation() {
+        assertEquals("Sao Paulo,BR", DIRECTORY.canonicalize("são-paulo"));
+        assertEquals("Washington,US", DIRECTORY.canonicalize("Washington D.C., USA"));
+    }
+
+    @Test
+    public void canonicalize_withSharedName_prefersCountryOrFirstListed() {
+        assertEquals("London,GB", DIRECTORY.canonicalize("london"));
+        assertEquals("London,CA", DIRECTORY.canonicalize("london, ca"));
+    }
+
+    @Test
+    public void canonicalize_withUnknownCityOrCountry_trimsInput() {
+        assertEquals("Atlantis", DIRECTORY.canonicalize(" Atlantis "));
+        assertEquals("Lisbon, FR", DIRECTORY.canonicalize("Lisbon, FR"));
+        assertNull(DIRECTORY.find("Lisb"));
+    }
+
+    @Test
+    public void search_withPrefix_returnsCitiesMostProminentFirst() {
+        assertEquals(Arrays.asList("Lisbon,PT", "London,GB", "London,CA", "Lima,PE"),
+                ids(DIRECTORY.search("l", 10)));
+        assertEquals(Arrays.asList("Lisbon,PT", "London,GB"), ids(DIRECTORY.search("L", 2)));
+        assertEquals(Arrays.asList("Lisbon,PT", "Lima,PE"), ids(DIRECTORY.search("li", 10)));
+    }
+
+    @Test
+    public void search_withAliasOrCountryPrefix_matchesCities() {
+        assertEquals(Arrays.asList("Porto,PT"), ids(DIRECTORY.search("opo", 10)));
+        assertEquals(Arrays.asList("London,CA"), ids(DIRECTORY.search("lon, c", 10)));
+        assertTrue(DIRECTORY.search("x", 10).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void read_withMalformedLine_throws() throws IOException {
+        CityDirectory.read(new StringReader("Lisbon\tPortugal\n"));
+    }
+
+    @Test
+    public void read_bundledList_isWellFormed() throws IOException {
+        final Reader list = new InputStreamReader(new FileInputStream(new File(BUNDLED_LIST)),
+                "UTF-8");
+        final CityDirectory directory;
+        try {
+            directory = CityDirectory.read(list);
+        } finally {
+            list.close();
+        }
+
+        assertTrue(directory.size() > 200);
+        assertEquals("Lisbon,PT", directory.canonicalize("lisboa"));
+        assertEquals("London,GB", directory.canonicalize("London"));
+        assertEquals("Washington,US", directory.canonicalize("Washington DC, USA"));
+    }
+}
@@ -0,0 +1,21 @@
+package pdm.demos.weatherapp.images;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the IconAtlas class
+ */
+public class IconAtlasTests {
+
+    @Test
+    public void iconNameOf_withIconURL_returnsIconName() {
+        assertEquals("01d", IconAtlas.iconNameOf("http://api.openweathermap.org/img/w/01d.png"));
+    }
+
+    @Test
+    public void iconNameOf_withNonPngURL_returnsNull() {
+        assertNull(IconAtlas.iconNameOf("http://api.openweathermap.org/data/2.5/weather"));
+    }
+}
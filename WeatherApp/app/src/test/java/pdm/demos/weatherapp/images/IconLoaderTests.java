@@ -0,0 +1,27 @@
+package pdm.demos.weatherapp.images;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the IconLoader class
+ */
+public class IconLoaderTests {
+
+    @Test
+    public void sampleSizeOf_withUnknownTarget_doesNotSample() {
+        assertEquals(1, IconLoader.sampleSizeOf(200, 200, 0, 0));
+    }
+
+    @Test
+    public void sampleSizeOf_withSmallerTarget_keepsImageAtLeastAsLarge() {
+        assertEquals(4, IconLoader.sampleSizeOf(400, 400, 100, 90));
+        assertEquals(2, IconLoader.sampleSizeOf(400, 400, 101, 90));
+    }
+
+    @Test
+    public void sampleSizeOf_withLargerTarget_doesNotSample() {
+        assertEquals(1, IconLoader.sampleSizeOf(50, 50, 1080, 1920));
+    }
+}
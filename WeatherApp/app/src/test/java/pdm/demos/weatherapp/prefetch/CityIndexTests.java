@@ -0,0 +1,48 @@
+package pdm.demos.weatherapp.prefetch;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the CityIndex class
+ */
+public class CityIndexTests {
+
+    private static final CityIndex INDEX = new CityIndex(
+            Arrays.asList("Lisbon", "London", "Porto"),
+            Arrays.asList("Lima", "Leiria", "lisbon", "Lagos", "Paris", "Lille"));
+
+    @Test
+    public void match_withPrefix_ranksRecentBeforeKnown() {
+        assertEquals(Arrays.asList("Lisbon", "London", "Lagos", "Leiria"), INDEX.match("L", 4));
+    }
+
+    @Test
+    public void match_withKnownPrefix_returnsKnownAlphabetically() {
+        assertEquals(Arrays.asList("Lille", "Lima"), INDEX.match("li", 5).subList(1, 3));
+    }
+
+    @Test
+    public void match_ignoresCaseAndSurroundingWhitespace() {
+        assertEquals(Collections.singletonList("Porto"), INDEX.match("  pOR ", 3));
+    }
+
+    @Test
+    public void match_withoutMatches_returnsEmptyList() {
+        assertTrue(INDEX.match("x", 3).isEmpty());
+        assertTrue(INDEX.match("Parisx", 3).isEmpty());
+    }
+
+    @Test
+    public void constructor_withDuplicates_keepsMostRecentOccurrence() {
+        final CityIndex index = new CityIndex(Arrays.asList("Lisbon", "LISBON"),
+                Collections.singletonList("lisbon "));
+
+        assertEquals(1, index.size());
+        assertEquals(Collections.singletonList("Lisbon"), index.match("lis", 3));
+    }
+}
@@ -0,0 +1,173 @@
+package pdm.demos.weatherapp.prefetch;
+
+import android.os.Handler;
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import pdm.demos.weatherapp.providers.WeatherInfo;
+import pdm.demos.weatherapp.providers.WeatherInfoFuture;
+import pdm.demos.weatherapp.providers.WeatherInfoProvider;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the Prefetcher class
+ */
+public class PrefetcherTests {
+
+    /** The weather information used as result. */
+    private static final WeatherInfo INFO =
+            new WeatherInfo("Lisbon", "clear sky", "01d", 4.1, 320, 21, 18, 24, 60);
+
+    /**
+     * Class whose instances are providers that record the asynchronous requests issued, by city
+     * name, which are completed by the tests.
+     */
+    private static final class RecordingProvider implements WeatherInfoProvider {
+        final Map<String, WeatherInfoFuture> issued = new LinkedHashMap<>();
+
+        @NonNull
+        @Override
+        public WeatherInfoFuture getWeatherInfoAsync(@NonNull String cityName,
+                                                     @NonNull String language,
+                                                     @NonNull UnitSystem units,
+                                                     @NonNull Callback completionCallback) {
+            final WeatherInfoFuture future = new WeatherInfoFuture(completionCallback);
+            issued.put(cityName, future);
+            return future;
+        }
+
+        @Override
+        public WeatherInfo getWeatherInfo(@NonNull String cityName, @NonNull String language,
+                                          @NonNull UnitSystem units) {
+            throw new UnsupportedOperationException();
+        }
+
+        @NonNull
+        @Override
+        public Map<String, WeatherInfo> getWeatherInfo(@NonNull Collection<String> cityNames,
+                                                       @NonNull String language,
+                                                       @NonNull UnitSystem units) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private RecordingProvider provider;
+    private Prefetcher prefetcher;
+
+    @Before
+    public void setUp() {
+        provider = new RecordingProvider();
+        prefetcher = new Prefetcher(provider, "eng", WeatherInfoProvider.UnitSystem.METRIC,
+                new Handler());
+        prefetcher.setIndex(new CityIndex(Arrays.asList("Lisbon", "London"),
+                Arrays.asList("Lagos", "Leiria", "Lille", "Lima")));
+    }
+
+    @Test
+    public void prefetch_withShortPrefix_issuesNothing() {
+        prefetcher.prefetch(" L ");
+
+        assertTrue(provider.issued.isEmpty());
+    }
+
+    @Test
+    public void prefetch_withPrefix_issuesTopCandidates() {
+        prefetcher.prefetch("l");
+        assertTrue(provider.issued.isEmpty());
+
+        prefetcher.prefetch("li");
+
+        assertEquals(Arrays.asList("Lisbon", "Lille", "Lima"),
+                new ArrayList<>(provider.issued.keySet()));
+        assertEquals(Prefetcher.MAX_CANDIDATES, prefetcher.getInFlightCount());
+    }
+
+    @Test
+    public void prefetch_asPrefixChanges_cancelsStaleCandidatesOnly() {
+        prefetcher.prefetch("li");
+        final WeatherInfoFuture lisbon = provider.issued.get("Lisbon");
+        final WeatherInfoFuture lille = provider.issued.get("Lille");
+
+        prefetcher.prefetch("lis");
+
+        assertFalse(lisbon.isCancelled());
+        assertTrue(lille.isCancelled());
+        assertTrue(provider.issued.get("Lima").isCancelled());
+        assertEquals(1, prefetcher.getInFlightCount());
+        assertEquals(3, provider.issued.size());
+    }
+
+    @Test
+    public void prefetch_afterCompletion_forgetsPrefetch() {
+        prefetcher.prefetch("lis");
+        provider.issued.get("Lisbon").onResult(new WeatherInfoProvider.CallResult(INFO));
+
+        assertEquals(0, prefetcher.getInFlightCount());
+    }
+
+    @Test
+    public void cancel_cancelsAllPrefetches() {
+        prefetcher.prefetch("li");
+
+        prefetcher.cancel();
+
+        assertEquals(0, prefetcher.getInFlightCount());
+        for (WeatherInfoFuture prefetch : provider.issued.values())
+            assertTrue(prefetch.isCancelled());
+    }
+
+    @Test
+    public void prefetch_whenDisabled_issuesNothing() {
+        prefetcher.setEnabled(false);
+
+        prefetcher.prefetch("lis");
+
+        assertTrue(provider.issued.isEmpty());
+    }
+
+    @Test
+    public void onRequestStarted_keepsPrefetchOfRequestedCityOnly() {
+        prefetcher.prefetch("li");
+
+        prefetcher.onRequestStarted(" lisbon ");
+
+        assertFalse(provider.issued.get("Lisbon").isCancelled());
+        assertTrue(provider.issued.get("Lille").isCancelled());
+        assertTrue(provider.issued.get("Lima").isCancelled());
+        assertEquals(0, prefetcher.getInFlightCount());
+    }
+
+    @Test
+    public void prefetch_whileRequestInFlight_issuesNothingUntilCompleted() {
+        prefetcher.onRequestStarted("Lagos");
+
+        prefetcher.prefetch("lis");
+        assertTrue(provider.issued.isEmpty());
+
+        prefetcher.onRequestCompleted();
+        prefetcher.prefetch("lis");
+        assertEquals(Arrays.asList("Lisbon"), new ArrayList<>(provider.issued.keySet()));
+    }
+
+    @Test
+    public void prefetch_afterKeptPrefetchCompletes_keepsNewerPrefetch() {
+        prefetcher.prefetch("lis");
+        final WeatherInfoFuture kept = provider.issued.get("Lisbon");
+        prefetcher.onRequestStarted("Lisbon");
+        prefetcher.onRequestCompleted();
+        prefetcher.prefetch("lis");
+
+        kept.onResult(new WeatherInfoProvider.CallResult(INFO));
+
+        assertEquals(1, prefetcher.getInFlightCount());
+    }
+}
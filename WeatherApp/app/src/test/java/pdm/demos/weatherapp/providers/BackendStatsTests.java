@@ -0,0 +1,74 @@
+package pdm.demos.weatherapp.providers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the BackendStats class
+ */
+public class BackendStatsTests {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void onSuccess_withFirstSample_setsLatency() {
+        final BackendStats stats = new BackendStats("backend");
+        assertTrue(stats.isCold());
+
+        stats.onSuccess(100);
+
+        assertFalse(stats.isCold());
+        assertEquals(100, stats.getLatency(), DELTA);
+        assertEquals(0, stats.getErrorRate(), DELTA);
+    }
+
+    @Test
+    public void onSuccess_withFurtherSamples_movesAverageTowardsThem() {
+        final BackendStats stats = new BackendStats("backend");
+        stats.onSuccess(100);
+
+        stats.onSuccess(200);
+
+        assertEquals(100 + BackendStats.SMOOTHING_FACTOR * 100, stats.getLatency(), DELTA);
+    }
+
+    @Test
+    public void onFailure_repeatedly_makesBackendUnhealthy() {
+        final BackendStats stats = new BackendStats("backend");
+        stats.onSuccess(100);
+        assertTrue(stats.isHealthy());
+
+        for (int idx = 0; idx < 4; ++idx)
+            stats.onFailure();
+
+        assertFalse(stats.isHealthy());
+        assertEquals(100, stats.getLatency(), DELTA);
+    }
+
+    @Test
+    public void onAbandoned_withLowerLatency_isIgnored() {
+        final BackendStats stats = new BackendStats("backend");
+        stats.onSuccess(500);
+
+        stats.onAbandoned(100);
+
+        assertEquals(500, stats.getLatency(), DELTA);
+        assertEquals(1, stats.getSampleCount());
+    }
+
+    @Test
+    public void isPreferableTo_prefersHealthyThenFaster() {
+        final BackendStats fast = new BackendStats("fast"), slow = new BackendStats("slow");
+        fast.onSuccess(50);
+        slow.onSuccess(500);
+        assertTrue(fast.isPreferableTo(slow));
+        assertFalse(slow.isPreferableTo(fast));
+
+        fast.onFailure();
+        fast.onFailure();
+        fast.onFailure();
+        fast.onFailure();
+        assertTrue(slow.isPreferableTo(fast));
+    }
+}
@@ -0,0 +1,38 @@
+package pdm.demos.weatherapp.providers;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import pdm.demos.weatherapp.Microbenchmark;
+
+/**
+ * Class that contains the microbenchmarks associated to the CardinalPoint enumeration
+ */
+public class CardinalPointBenchmark {
+
+    @Test
+    public void benchmark_windDegreesToDirection() throws IOException {
+        Microbenchmark.measureAgainstBaseline("CardinalPoint.windDegreesToDirection",
+                new Microbenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        return CardinalPoint.windDegreesToDirection(iteration % 360).ordinal();
+                    }
+                });
+    }
+
+    @Test
+    public void benchmark_toStringWithLocale() throws IOException {
+        final CardinalPoint[] points = CardinalPoint.values();
+        final Locale locale = new Locale("pt", "PT");
+        Microbenchmark.measureAgainstBaseline("CardinalPoint.toString(Locale)",
+                new Microbenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        return points[iteration % points.length].toString(locale).length();
+                    }
+                });
+    }
+}
@@ -0,0 +1,50 @@
+package pdm.demos.weatherapp.providers;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the CardinalPoint enumeration
+ */
+public class CardinalPointTests {
+
+    @Test
+    public void windDegreesToDirection_atSectorBoundaries_returnsFollowingPoint() {
+        assertEquals(CardinalPoint.N, CardinalPoint.windDegreesToDirection(11.24));
+        assertEquals(CardinalPoint.NNE, CardinalPoint.windDegreesToDirection(11.25));
+        assertEquals(CardinalPoint.NNW, CardinalPoint.windDegreesToDirection(348.74));
+        assertEquals(CardinalPoint.N, CardinalPoint.windDegreesToDirection(348.75));
+    }
+
+    @Test
+    public void windDegreesToDirection_forEveryDegree_returnsNearestPoint() {
+        final CardinalPoint[] points = CardinalPoint.values();
+        for (int degrees = 0; degrees < 360; ++degrees) {
+            final int expected = (int) Math.round(degrees / 22.5) % points.length;
+            assertEquals(String.valueOf(degrees), points[expected],
+                    CardinalPoint.windDegreesToDirection(degrees));
+        }
+    }
+
+    @Test
+    public void windDegreesToDirection_outsideCircle_isNormalized() {
+        assertEquals(CardinalPoint.W, CardinalPoint.windDegreesToDirection(-90));
+        assertEquals(CardinalPoint.E, CardinalPoint.windDegreesToDirection(450));
+        assertEquals(CardinalPoint.N, CardinalPoint.windDegreesToDirection(-1e-20));
+    }
+
+    @Test
+    public void toString_withPortugueseLocale_usesOeste() {
+        assertEquals("ONO", CardinalPoint.WNW.toString(new Locale("pt", "PT")));
+        assertEquals("WNW", CardinalPoint.WNW.toString(Locale.UK));
+    }
+
+    @Test
+    public void toString_withSameLocale_returnsSameInstance() {
+        final Locale locale = new Locale("pt");
+        assertSame(CardinalPoint.SW.toString(locale), CardinalPoint.SW.toString(locale));
+    }
+}
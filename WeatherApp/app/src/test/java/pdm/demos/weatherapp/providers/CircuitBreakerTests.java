@@ -0,0 +1,93 @@
+package pdm.demos.weatherapp.providers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the CircuitBreaker class
+ */
+public class CircuitBreakerTests {
+
+    private static final int THRESHOLD = 3;
+    private static final long OPEN_DURATION = 1000;
+    private static final long MAX_OPEN_DURATION = 3000;
+
+    private static CircuitBreaker trippedAt(long now) {
+        final CircuitBreaker breaker =
+                new CircuitBreaker(THRESHOLD, OPEN_DURATION, MAX_OPEN_DURATION);
+        for (int idx = 0; idx < THRESHOLD; ++idx) {
+            assertTrue(breaker.allowRequest(now));
+            breaker.onFailure(now);
+        }
+        return breaker;
+    }
+
+    @Test
+    public void onFailure_belowThreshold_keepsBreakerClosed() {
+        final CircuitBreaker breaker =
+                new CircuitBreaker(THRESHOLD, OPEN_DURATION, MAX_OPEN_DURATION);
+
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+        breaker.onSuccess();
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest(0));
+    }
+
+    @Test
+    public void onFailure_atThreshold_opensBreakerAndRejectsRequests() {
+        final CircuitBreaker breaker = trippedAt(0);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.isRejecting(OPEN_DURATION - 1));
+        assertFalse(breaker.allowRequest(OPEN_DURATION - 1));
+        assertEquals(1, breaker.getRejectedCount());
+        assertEquals(1, breaker.getTripCount());
+    }
+
+    @Test
+    public void allowRequest_afterOpenPeriod_allowsSingleProbe() {
+        final CircuitBreaker breaker = trippedAt(0);
+
+        assertTrue(breaker.allowRequest(OPEN_DURATION));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(OPEN_DURATION));
+    }
+
+    @Test
+    public void onSuccess_ofProbe_closesBreaker() {
+        final CircuitBreaker breaker = trippedAt(0);
+        breaker.allowRequest(OPEN_DURATION);
+
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest(OPEN_DURATION));
+    }
+
+    @Test
+    public void onFailure_ofProbe_reopensBreakerForLongerPeriod() {
+        final CircuitBreaker breaker = trippedAt(0);
+        breaker.allowRequest(OPEN_DURATION);
+
+        breaker.onFailure(OPEN_DURATION);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(OPEN_DURATION * 3 - 1));
+        assertTrue(breaker.allowRequest(OPEN_DURATION * 3));
+    }
+
+    @Test
+    public void onAbandoned_ofProbe_allowsAnotherProbe() {
+        final CircuitBreaker breaker = trippedAt(0);
+        breaker.allowRequest(OPEN_DURATION);
+
+        breaker.onAbandoned();
+
+        assertTrue(breaker.allowRequest(OPEN_DURATION));
+    }
+}
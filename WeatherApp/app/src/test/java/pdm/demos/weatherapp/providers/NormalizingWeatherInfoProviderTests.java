@@ -0,0 +1,102 @@
+package pdm.demos.weatherapp.providers;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import pdm.demos.weatherapp.cities.CityDirectory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the NormalizingWeatherInfoProvider class
+ */
+public class NormalizingWeatherInfoProviderTests {
+
+    /** The weather information used as result. */
+    private static final WeatherInfo INFO =
+            new WeatherInfo("Lisbon", "clear sky", "01d", 4.1, 320, 21, 18, 24, 60);
+
+    /**
+     * Class whose instances are providers that record the city names requested and produce the
+     * same information for all of them.
+     */
+    private static final class RecordingProvider implements WeatherInfoProvider {
+        final List<String> requested = new ArrayList<>();
+
+        @NonNull
+        @Override
+        public WeatherInfoFuture getWeatherInfoAsync(@NonNull String cityName,
+                                                     @NonNull String language,
+                                                     @NonNull UnitSystem units,
+                                                     @NonNull Callback completionCallback) {
+            requested.add(cityName);
+            return new WeatherInfoFuture(completionCallback);
+        }
+
+        @Override
+        public WeatherInfo getWeatherInfo(@NonNull String cityName, @NonNull String language,
+                                          @NonNull UnitSystem units) {
+            requested.add(cityName);
+            return INFO;
+        }
+
+        @NonNull
+        @Override
+        public Map<String, WeatherInfo> getWeatherInfo(@NonNull Collection<String> cityNames,
+                                                       @NonNull String language,
+                                                       @NonNull UnitSystem units) {
+            final Map<String, WeatherInfo> result = new HashMap<>();
+            for (String cityName : cityNames) {
+                requested.add(cityName);
+                result.put(cityName, INFO);
+            }
+            return result;
+        }
+    }
+
+    private RecordingProvider source;
+    private NormalizingWeatherInfoProvider provider;
+
+    @Before
+    public void setUp() throws IOException {
+        source = new RecordingProvider();
+        provider = new NormalizingWeatherInfoProvider(source, CityDirectory.read(
+                new StringReader("Lisbon\tPT\tLisboa\nLondon\tGB\n")));
+    }
+
+    @Test
+    public void getWeatherInfo_withKnownCity_requestsCanonicalId() throws Exception {
+        assertSame(INFO, provider.getWeatherInfo("lisboa", "eng",
+                WeatherInfoProvider.UnitSystem.METRIC));
+        provider.getWeatherInfoAsync(" Atlantis ", "eng", WeatherInfoProvider.UnitSystem.METRIC,
+                new WeatherInfoProvider.Callback() {
+                    @Override
+                    public void onResult(@NonNull WeatherInfoProvider.CallResult result) { }
+                });
+
+        assertEquals(Arrays.asList("Lisbon,PT", "Atlantis"), source.requested);
+    }
+
+    @Test
+    public void getWeatherInfo_withEquivalentNames_requestsEachCityOnce() throws Exception {
+        final Map<String, WeatherInfo> result = provider.getWeatherInfo(
+                Arrays.asList("Lisbon", "lisbon, pt", "London", "Lisboa"), "eng",
+                WeatherInfoProvider.UnitSystem.METRIC);
+
+        assertEquals(Arrays.asList("Lisbon,PT", "London,GB"), source.requested);
+        assertEquals(4, result.size());
+        assertSame(INFO, result.get("lisbon, pt"));
+        assertSame(INFO, result.get("Lisboa"));
+    }
+}
@@ -0,0 +1,207 @@
+package pdm.demos.weatherapp.providers;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import pdm.demos.weatherapp.cities.CityDirectory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the RequestRegistry class
+ */
+public class RequestRegistryTests {
+
+    /** The weather information used as result. */
+    private static final WeatherInfo INFO =
+            new WeatherInfo("Lisbon", "clear sky", "01d", 4.1, 320, 21, 18, 24, 60);
+
+    /**
+     * Class whose instances are providers that record the asynchronous requests issued, which are
+     * completed by the tests.
+     */
+    private static final class RecordingProvider implements WeatherInfoProvider {
+        final List<WeatherInfoFuture> issued = new ArrayList<>();
+        final List<String> requested = new ArrayList<>();
+
+        @NonNull
+        @Override
+        public WeatherInfoFuture getWeatherInfoAsync(@NonNull String cityName,
+                                                     @NonNull String language,
+                                                     @NonNull UnitSystem units,
+                                                     @NonNull Callback completionCallback) {
+            final WeatherInfoFuture future = new WeatherInfoFuture(completionCallback);
+            issued.add(future);
+            requested.add(cityName);
+            return future;
+        }
+
+        @Override
+        public WeatherInfo getWeatherInfo(@NonNull String cityName, @NonNull String language,
+                                          @NonNull UnitSystem units) {
+            throw new UnsupportedOperationException();
+        }
+
+        @NonNull
+        @Override
+        public Map<String, WeatherInfo> getWeatherInfo(@NonNull Collection<String> cityNames,
+                                                       @NonNull String language,
+                                                       @NonNull UnitSystem units) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Class whose instances record the received results.
+     */
+    private static final class RecordingHost implements WeatherInfoProvider.Callback {
+        final List<WeatherInfoProvider.CallResult> results = new ArrayList<>();
+
+        @Override
+        public void onResult(@NonNull WeatherInfoProvider.CallResult result) {
+            results.add(result);
+        }
+    }
+
+    private RecordingProvider provider;
+    private RequestRegistry registry;
+
+    private long submit(String cityName) {
+        return registry.submit(cityName, "eng", WeatherInfoProvider.UnitSystem.METRIC);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        provider = new RecordingProvider();
+        registry = new RequestRegistry(provider, CityDirectory.read(
+                new StringReader("Lisbon\tPT\tLisboa\nLondon\tGB\n")));
+    }
+
+    @Test
+    public void submit_whileSameQueryInFlight_doesNotIssueSecondRequest() {
+        final long id = submit("Lisbon");
+
+        assertEquals(id, submit(" lisbon "));
+        assertNotEquals(id, submit("London"));
+        assertEquals(2, provider.issued.size());
+    }
+
+    @Test
+    public void submit_withEquivalentCityNames_issuesSingleRequestForCanonicalId() {
+        final long id = submit("Lisbon");
+
+        assertEquals(id, submit("lisbon, pt"));
+        assertEquals(id, submit("Lisboa"));
+        assertEquals(Arrays.asList("Lisbon,PT"), provider.requested);
+    }
+
+    @Test
+    public void submit_afterCompletion_issuesNewRequest() {
+        final long id = submit("Lisbon");
+        provider.issued.get(0).onResult(new WeatherInfoProvider.CallResult(INFO));
+
+        assertNotEquals(id, submit("Lisbon"));
+        assertEquals(2, provider.issued.size());
+    }
+
+    @Test
+    public void onResult_whileAttached_deliversItAndForgetsRequest() {
+        final RecordingHost host = new RecordingHost();
+        final long id = submit("Lisbon");
+        registry.attach(id, host);
+
+        provider.issued.get(0).onResult(new WeatherInfoProvider.CallResult(INFO));
+
+        assertEquals(1, host.results.size());
+        assertEquals(0, registry.size());
+        assertFalse(registry.attach(id, host));
+    }
+
+    @Test
+    public void attach_afterResultWhileDetached_handsItOverExactlyOnce() throws Exception {
+        final RecordingHost first = new RecordingHost(), second = new RecordingHost();
+        final long id = submit("Lisbon");
+        registry.attach(id, first);
+        registry.detach(id, first);
+
+        provider.issued.get(0).onResult(new WeatherInfoProvider.CallResult(INFO));
+        assertTrue(first.results.isEmpty());
+
+        assertTrue(registry.attach(id, second));
+        assertFalse(registry.attach(id, second));
+        assertEquals(1, second.results.size());
+        assertSame(INFO, second.results.get(0).getResult());
+        assertTrue(first.results.isEmpty());
+    }
+
+    @Test
+    public void attach_afterProvisionalAndFinalWhileDetached_handsOverFinalOnly() {
+        final RecordingHost host = new RecordingHost();
+        final long id = submit("Lisbon");
+
+        provider.issued.get(0).onResult(new WeatherInfoProvider.CallResult(INFO, 1000, true));
+        provider.issued.get(0).onResult(new WeatherInfoProvider.CallResult(INFO));
+        registry.attach(id, host);
+
+        assertEquals(1, host.results.size());
+        assertFalse(host.results.get(0).isProvisional());
+    }
+
+    @Test
+    public void attach_afterProvisionalWhileDetached_keepsRequestPending() {
+        final RecordingHost host = new RecordingHost();
+        final long id = submit("Lisbon");
+
+        provider.issued.get(0).onResult(new WeatherInfoProvider.CallResult(INFO, 1000, true));
+        registry.attach(id, host);
+
+        assertEquals(1, host.results.size());
+        assertTrue(host.results.get(0).isProvisional());
+        assertEquals(1, registry.size());
+        assertEquals(id, submit("Lisbon"));
+    }
+
+    @Test
+    public void detach_ofAnotherHost_keepsCurrentHostAttached() {
+        final RecordingHost previous = new RecordingHost(), current = new RecordingHost();
+        final long id = submit("Lisbon");
+        registry.attach(id, previous);
+        registry.attach(id, current);
+        registry.detach(id, previous);
+
+        provider.issued.get(0).onResult(new WeatherInfoProvider.CallResult(INFO));
+
+        assertTrue(previous.results.isEmpty());
+        assertEquals(1, current.results.size());
+    }
+
+    @Test
+    public void cancel_cancelsUnderlyingRequestAndDropsItsResults() {
+        final RecordingHost host = new RecordingHost();
+        final long id = submit("Lisbon");
+        registry.attach(id, host);
+
+        assertTrue(registry.cancel(id));
+        assertTrue(provider.issued.get(0).isCancelled());
+        assertFalse(registry.cancel(id));
+        assertFalse(registry.attach(id, host));
+        assertNotEquals(id, submit("Lisbon"));
+        assertTrue(host.results.isEmpty());
+    }
+
+    @Test
+    public void attach_ofUnknownRequest_returnsFalse() {
+        assertFalse(registry.attach(RequestRegistry.NO_REQUEST, new RecordingHost()));
+        assertFalse(registry.attach(42, new RecordingHost()));
+    }
+}
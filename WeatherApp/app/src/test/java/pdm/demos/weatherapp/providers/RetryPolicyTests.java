@@ -0,0 +1,59 @@
+package pdm.demos.weatherapp.providers;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the RetryPolicy class
+ */
+public class RetryPolicyTests {
+
+    @Test
+    public void delayBefore_growsExponentiallyUpToMaximum() {
+        final RetryPolicy policy = new RetryPolicy(10, 100, 1000, new Random(42));
+
+        for (int retry = 1; retry <= 40; ++retry) {
+            final long backoff = Math.min(1000, retry > 30 ? 1000 : 100L << (retry - 1));
+            for (int idx = 0; idx < 100; ++idx) {
+                final long delay = policy.delayBefore(retry);
+                assertTrue(delay >= 0 && delay < backoff);
+            }
+        }
+    }
+
+    @Test
+    public void delayBefore_isJittered() {
+        final RetryPolicy policy = new RetryPolicy(3, 1000, 8000, new Random(42));
+
+        final long first = policy.delayBefore(3);
+        boolean differs = false;
+        for (int idx = 0; idx < 10 && !differs; ++idx)
+            differs = policy.delayBefore(3) != first;
+
+        assertTrue(differs);
+    }
+
+    @Test
+    public void isTransient_withNetworkAndServerErrors_returnsTrue() {
+        assertTrue(RetryPolicy.isTransient(new Exception(new IOException("reset"))));
+        assertTrue(RetryPolicy.isTransient(new HttpStatusException(503, "Unavailable")));
+        assertTrue(RetryPolicy.isTransient(new HttpStatusException(429, "Too Many Requests")));
+    }
+
+    @Test
+    public void isTransient_withClientErrors_returnsFalse() {
+        assertFalse(RetryPolicy.isTransient(new HttpStatusException(404, "Not Found")));
+        assertFalse(RetryPolicy.isTransient(new HttpStatusException(401, "Unauthorized")));
+        assertFalse(RetryPolicy.isTransient(new Exception("Malformed")));
+    }
+
+    @Test
+    public void isBackendFailure_withAuthorizationErrors_returnsTrue() {
+        assertTrue(RetryPolicy.isBackendFailure(new HttpStatusException(401, "Unauthorized")));
+        assertFalse(RetryPolicy.isBackendFailure(new HttpStatusException(404, "Not Found")));
+    }
+}
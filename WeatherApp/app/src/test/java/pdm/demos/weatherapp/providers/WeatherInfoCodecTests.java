@@ -0,0 +1,117 @@
+package pdm.demos.weatherapp.providers;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the WeatherInfoCodec class
+ */
+public class WeatherInfoCodecTests {
+
+    private static void assertSameInfo(WeatherInfo expected, WeatherInfo actual) {
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.getIconURL(), actual.getIconURL());
+    }
+
+    @Test
+    public void decode_ofEncodedInfo_producesEquivalentInfo() {
+        final WeatherInfo info = new WeatherInfo("Lisbon", "clear sky",
+                "http://api.openweathermap.org/img/w/01n.png", 3.1, 350, 18.62, 17, 20, 63);
+
+        assertSameInfo(info, WeatherInfoCodec.decode(WeatherInfoCodec.encode(info)));
+    }
+
+    @Test
+    public void decode_ofEncodedInfoWithUnknownStrings_producesEquivalentInfo() {
+        final WeatherInfo info = new WeatherInfo("Washington, D. C.", "céu limpo",
+                "http://example.com/sunny.png", 0, 0, -12.5, -40.25, 0, 0);
+
+        assertSameInfo(info, WeatherInfoCodec.decode(WeatherInfoCodec.encode(info)));
+    }
+
+    @Test
+    public void decode_ofEncodedInfoWithAbsentStrings_producesEquivalentInfo() {
+        final WeatherInfo info = new WeatherInfo(null, null, null, 1, 2, 3, 4, 5, 6);
+
+        final WeatherInfo actual = WeatherInfoCodec.decode(WeatherInfoCodec.encode(info));
+
+        assertNull(actual.getCityName());
+        assertNull(actual.getDescription());
+        assertNull(actual.getIconURL());
+        assertEquals(info.toString(), actual.toString());
+    }
+
+    @Test
+    public void encode_withWellKnownStrings_producesCompactRepresentation() {
+        final WeatherInfo info = new WeatherInfo("Lisbon", "light intensity shower rain",
+                "http://api.openweathermap.org/img/w/09d.png", 9.17, 230, 52.3, 50, 54.5, 87);
+
+        // Version, city (tag, length and 6 characters), description, icon, 5 values and humidity
+        assertTrue(WeatherInfoCodec.encode(info).length <= 1 + 8 + 1 + 1 + 5 * 3 + 1);
+    }
+
+    @Test
+    public void decode_ofEncodedInfoWithCityNamedAsDescription_producesEquivalentInfo() {
+        final WeatherInfo info = new WeatherInfo("fog", "fog", null, 0, 0, 0, 0, 0, 0);
+
+        final byte[] representation = WeatherInfoCodec.encode(info);
+
+        assertSameInfo(info, WeatherInfoCodec.decode(representation));
+        // Version, city (tag, length and 3 characters), description (interned), ...
+        assertEquals(1, representation[1]);
+        assertEquals(3, representation[2]);
+    }
+
+    @Test
+    public void decode_ofEncodedInfoWithIconURLInDictionary_producesEquivalentInfo() {
+        final WeatherInfo info = new WeatherInfo("Lisbon", "clear sky", "clear sky",
+                0, 0, 0, 0, 0, 0);
+
+        assertSameInfo(info, WeatherInfoCodec.decode(WeatherInfoCodec.encode(info)));
+    }
+
+    @Test
+    public void decode_ofEncodedInfo_roundsWindDirectionToHundredths() {
+        final WeatherInfo info = new WeatherInfo("Lisbon", "clear sky", null,
+                3.1, 245.0037, 18.62, 17, 20, 63);
+
+        final WeatherInfo actual = WeatherInfoCodec.decode(WeatherInfoCodec.encode(info));
+
+        assertEquals(245.0, actual.getWindDirection(), 0);
+        assertEquals(info.getWindSpeed(), actual.getWindSpeed(), 0);
+        assertEquals(info.getTemperature(), actual.getTemperature(), 0);
+    }
+
+    @Test
+    public void iconCodeOf_withOpenWeatherMapIcons_roundTrips() {
+        for (String name : new String[] { "01d", "01n", "10d", "50n", "99n" }) {
+            final String url = "http://api.openweathermap.org/img/w/" + name + ".png";
+            assertEquals(url, WeatherInfoCodec.iconURLOf(WeatherInfoCodec.iconCodeOf(url)));
+        }
+    }
+
+    @Test
+    public void iconCodeOf_withOtherURLs_returnsMinusOne() {
+        assertEquals(-1, WeatherInfoCodec.iconCodeOf("http://api.openweathermap.org/img/w/.png"));
+        assertEquals(-1, WeatherInfoCodec.iconCodeOf("http://api.openweathermap.org/img/w/1dd.png"));
+        assertEquals(-1, WeatherInfoCodec.iconCodeOf("http://example.com/img/w/01d.png"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_withUnknownVersion_throws() {
+        final byte[] representation = WeatherInfoCodec.encode(
+                new WeatherInfo("Lisbon", "clear sky", null, 0, 0, 0, 0, 0, 0));
+        representation[0] = WeatherInfoCodec.VERSION + 1;
+        WeatherInfoCodec.decode(representation);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_withTruncatedRepresentation_throws() {
+        final byte[] representation = WeatherInfoCodec.encode(
+                new WeatherInfo("Lisbon", "clear sky", null, 0, 0, 0, 0, 0, 0));
+        WeatherInfoCodec.decode(Arrays.copyOf(representation, 5));
+    }
+}
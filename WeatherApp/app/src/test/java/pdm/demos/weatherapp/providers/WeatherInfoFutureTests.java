@@ -0,0 +1,136 @@
+package pdm.demos.weatherapp.providers;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the WeatherInfoFuture class
+ */
+public class WeatherInfoFutureTests {
+
+    /** The weather information used as result. */
+    private static final WeatherInfo INFO =
+            new WeatherInfo("Lisbon", "clear sky", "01d", 4.1, 320, 21, 18, 24, 60);
+
+    /**
+     * Class whose instances record the cancellations of the underlying work.
+     */
+    private static final class CountingCancellable implements Cancellable {
+        final AtomicInteger cancellations = new AtomicInteger();
+
+        @Override
+        public boolean cancel() {
+            cancellations.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancellations.get() != 0;
+        }
+    }
+
+    /**
+     * Class whose instances count the number of received results.
+     */
+    private static final class CountingCallback implements WeatherInfoProvider.Callback {
+        final AtomicInteger results = new AtomicInteger();
+
+        @Override
+        public void onResult(@NonNull WeatherInfoProvider.CallResult result) {
+            results.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void onResult_whenPending_deliversResultOnce() throws Exception {
+        final CountingCallback callback = new CountingCallback();
+        final WeatherInfoFuture future = new WeatherInfoFuture(callback);
+
+        future.onResult(new WeatherInfoProvider.CallResult(INFO));
+        future.onResult(new WeatherInfoProvider.CallResult(INFO));
+
+        assertEquals(1, callback.results.get());
+        assertTrue(future.isDone());
+        assertSame(INFO, future.get());
+    }
+
+    @Test
+    public void onResult_withProvisionalResult_forwardsWithoutCompleting() throws Exception {
+        final CountingCallback callback = new CountingCallback();
+        final WeatherInfoFuture future = new WeatherInfoFuture(callback);
+
+        future.onResult(new WeatherInfoProvider.CallResult(INFO, 60000, true));
+        assertEquals(1, callback.results.get());
+        assertFalse(future.isDone());
+
+        future.onResult(new WeatherInfoProvider.CallResult(INFO));
+        future.onResult(new WeatherInfoProvider.CallResult(INFO, 60000, true));
+        assertEquals(2, callback.results.get());
+        assertSame(INFO, future.get());
+    }
+
+    @Test
+    public void cancel_whenPending_cancelsUpstreamAndSuppressesCallback() {
+        final CountingCallback callback = new CountingCallback();
+        final CountingCancellable work = new CountingCancellable();
+        final WeatherInfoFuture future = new WeatherInfoFuture(callback).onCancel(work);
+
+        assertTrue(future.cancel());
+        assertFalse(future.cancel());
+        future.onResult(new WeatherInfoProvider.CallResult(INFO));
+
+        assertEquals(0, callback.results.get());
+        assertEquals(1, work.cancellations.get());
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void onCancel_afterCancellation_cancelsImmediately() {
+        final WeatherInfoFuture future = new WeatherInfoFuture(null);
+        future.cancel();
+
+        final CountingCancellable work = new CountingCancellable();
+        future.onCancel(work);
+
+        assertEquals(1, work.cancellations.get());
+    }
+
+    @Test
+    public void cancel_afterCompletion_hasNoEffect() {
+        final CountingCancellable work = new CountingCancellable();
+        final WeatherInfoFuture future = new WeatherInfoFuture(null).onCancel(work);
+        future.onResult(new WeatherInfoProvider.CallResult(INFO));
+
+        assertFalse(future.cancel());
+        assertEquals(0, work.cancellations.get());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void get_afterCancellation_throws() throws Exception {
+        final WeatherInfoFuture future = new WeatherInfoFuture(null);
+        future.cancel();
+        future.get();
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void get_afterError_throwsExecutionException() throws Exception {
+        final WeatherInfoFuture future = new WeatherInfoFuture(null);
+        future.onResult(new WeatherInfoProvider.CallResult(new Exception("Not found")));
+        future.get();
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void get_whenPending_timesOut() throws Exception {
+        new WeatherInfoFuture(null).get(10, TimeUnit.MILLISECONDS);
+    }
+}
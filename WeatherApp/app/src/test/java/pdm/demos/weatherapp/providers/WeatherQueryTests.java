@@ -0,0 +1,40 @@
+package pdm.demos.weatherapp.providers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the WeatherQuery class
+ */
+public class WeatherQueryTests {
+
+    @Test
+    public void toFileName_dependsOnlyOnQueryData() {
+        final WeatherQuery query =
+                new WeatherQuery(" Lisbon,PT ", "eng", WeatherInfoProvider.UnitSystem.METRIC);
+
+        assertEquals("lisbon_pt-eng-metric-f7b81847", query.toFileName());
+    }
+
+    @Test
+    public void toFileName_withEquivalentQueries_isTheSame() {
+        final WeatherQuery query =
+                new WeatherQuery("Lisbon,PT", "eng", WeatherInfoProvider.UnitSystem.IMPERIAL);
+        final WeatherQuery other =
+                new WeatherQuery("lisbon,pt", "eng", WeatherInfoProvider.UnitSystem.IMPERIAL);
+
+        assertEquals(query, other);
+        assertEquals(query.toFileName(), other.toFileName());
+    }
+
+    @Test
+    public void toFileName_withNamesDifferingInReplacedCharacters_differs() {
+        final WeatherQuery query =
+                new WeatherQuery("Lisbon,PT", "eng", WeatherInfoProvider.UnitSystem.METRIC);
+        final WeatherQuery other =
+                new WeatherQuery("Lisbon PT", "eng", WeatherInfoProvider.UnitSystem.METRIC);
+
+        assertNotEquals(query.toFileName(), other.toFileName());
+    }
+}
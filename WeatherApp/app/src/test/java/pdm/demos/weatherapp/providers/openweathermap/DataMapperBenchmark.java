@@ -0,0 +1,84 @@
+package pdm.demos.weatherapp.providers.openweathermap;
+
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+import pdm.demos.weatherapp.Microbenchmark;
+import pdm.demos.weatherapp.providers.WeatherInfo;
+
+/**
+ * Class that contains the microbenchmarks associated to the DataMapper class and to the icon URLs
+ * produced for its conversions
+ */
+public class DataMapperBenchmark {
+
+    private static final String[] ICON_NAMES = { "01d", "02n", "10d", "50n" };
+
+    private WeatherInfoDTO dto;
+    /**
+     * The result of the last operation. Results are published, as they are in the application, so
+     * that the compiler does not elide their allocation (which would depend on its inlining
+     * decisions, and therefore on the benchmarks run before).
+     */
+    private Object result;
+
+    @Before
+    public void setUp() throws IOException {
+        final InputStreamReader in = new InputStreamReader(
+                DataMapperBenchmark.class.getResourceAsStream("/openweathermap/london.json"),
+                Charset.forName("UTF-8"));
+        try {
+            dto = new Gson().fromJson(in, WeatherInfoDTO.class);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void benchmark_convertFrom() throws IOException {
+        final DataMapper mapper = new DataMapper();
+        Microbenchmark.measureAgainstBaseline("DataMapper.convertFrom",
+                new Microbenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        final WeatherInfo info = mapper.convertFrom(dto);
+                        result = info;
+                        return info.getHumidity();
+                    }
+                });
+    }
+
+    @Test
+    public void benchmark_convertFromWithInterner() throws IOException {
+        final DataMapper mapper = new DataMapper(new WeatherInfoInterner());
+        Microbenchmark.measureAgainstBaseline("DataMapper.convertFrom.interned",
+                new Microbenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        final WeatherInfo info = mapper.convertFrom(dto);
+                        result = info;
+                        return info.getHumidity();
+                    }
+                });
+    }
+
+    @Test
+    public void benchmark_getWeatherIconURL() throws IOException {
+        Microbenchmark.measureAgainstBaseline("WeatherInfoDTO.getWeatherIconURL",
+                new Microbenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        final String url = WeatherInfoDTO.getWeatherIconURL(
+                                ICON_NAMES[iteration % ICON_NAMES.length]);
+                        result = url;
+                        return url.length();
+                    }
+                });
+    }
+}
@@ -0,0 +1,294 @@
+package pdm.demos.weatherapp.providers.openweathermap;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Class whose instances are local stand-ins of the OpenWeatherMap web API (see {@link WebAPI}),
+ * which replay recorded responses, so that the network path (i.e. {@link OpenWeatherProvider} and
+ * the Retrofit stack beneath it) can be exercised and measured without the live service and its
+ * API key.
+ *
+ * <p>Both the current weather and the group endpoints are supported. Requests for the current
+ * weather of a recorded city (e.g. {@literal q=London,uk}) are answered with its recorded response;
+ * other cities are answered with the recorded responses in turn. The latency, the error rate
+ * (errors are {@literal 503 Service Unavailable} responses) and the payload size (recorded
+ * responses are padded with an unused field) are configurable, and may be changed while the
+ * server is running.</p>
+ *
+ * <p>The server is built on the HTTP server bundled with the JDK and therefore runs only on the
+ * JVM (i.e. in unit tests). Instances are thread-safe.</p>
+ */
+public final class MockWebAPIServer {
+
+    /** The recorded responses, as test resources. */
+    private static final String[] RECORDED_RESPONSES = {
+            "/openweathermap/lisbon.json",
+            "/openweathermap/london.json"
+    };
+
+    /** The number of threads that serve requests. */
+    private static final int SERVER_THREADS = 32;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    /** Extracts the city identifier and name from a recorded response. */
+    private static final Pattern CITY = Pattern.compile("\"id\":(\\d+),\"name\":\"([^\"]*)\"");
+
+    /**
+     * Class whose instances are recorded responses.
+     */
+    private static final class Recording {
+        final String cityId;
+        final String cityName;
+        final String body;
+
+        Recording(String body) {
+            final Matcher matcher = CITY.matcher(body);
+            if (!matcher.find())
+                throw new IllegalArgumentException("Recorded response without city: " + body);
+            cityId = matcher.group(1);
+            cityName = matcher.group(2).toLowerCase(Locale.ROOT);
+            this.body = body.trim();
+        }
+    }
+
+    private final List<Recording> recordings;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /** The source of randomness, for latencies and errors. Guarded by itself. */
+    private final Random random;
+    private volatile long minLatency;
+    private volatile long maxLatency;
+    private volatile double errorRate;
+    private volatile String padding;
+
+    private final AtomicLong requestCount;
+    private final AtomicLong errorCount;
+    private final AtomicLong nextRecording;
+
+    /**
+     * Initiates an instance, bound to an ephemeral port of the loopback interface, with no
+     * latency, no errors and no padding. The server must be started with {@link #start()}.
+     * @param seed The seed of the randomness of latencies and errors, so that runs are repeatable.
+     * @throws IOException If the recorded responses could not be loaded or the server could not
+     * be bound.
+     */
+    public MockWebAPIServer(long seed) throws IOException {
+        recordings = new ArrayList<>(RECORDED_RESPONSES.length);
+        for (String resource : RECORDED_RESPONSES)
+            recordings.add(new Recording(load(resource)));
+
+        random = new Random(seed);
+        padding = "";
+        requestCount = new AtomicLong();
+        errorCount = new AtomicLong();
+        nextRecording = new AtomicLong();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newFixedThreadPool(SERVER_THREADS);
+        server.setExecutor(executor);
+        server.createContext("/data/2.5/weather", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange, false);
+            }
+        });
+        server.createContext("/data/2.5/group", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange, true);
+            }
+        });
+    }
+
+    private static String load(String resource) throws IOException {
+        final InputStream in = MockWebAPIServer.class.getResourceAsStream(resource);
+        if (in == null)
+            throw new IOException("Missing recorded response " + resource);
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            for (int read; (read = in.read(buffer)) != -1; )
+                out.write(buffer, 0, read);
+            return new String(out.toByteArray(), UTF8);
+        } finally {
+            in.close();
+        }
+    }
+
+    /** Starts serving requests. */
+    public void start() {
+        server.start();
+    }
+
+    /** Stops serving requests and releases the port. */
+    public void shutdown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /** @return The base URL of the server, to be used instead of {@link WebAPI#BASE_URL}. */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Sets the latency of subsequent responses, which is uniformly distributed in the given
+     * interval.
+     * @param min The minimum latency, in milliseconds.
+     * @param max The maximum latency, in milliseconds.
+     */
+    public void setLatency(long min, long max) {
+        minLatency = min;
+        maxLatency = Math.max(min, max);
+    }
+
+    /**
+     * Sets the ratio of subsequent requests answered with {@literal 503 Service Unavailable}.
+     * @param errorRate The error rate, between 0 and 1.
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Sets the number of bytes added to each recorded response (in each element of group
+     * responses), through a field that clients ignore.
+     * @param bytes The number of bytes.
+     */
+    public void setPayloadPadding(int bytes) {
+        if (bytes == 0) {
+            padding = "";
+            return;
+        }
+        // The padding field itself takes 13 bytes: ,"padding":""
+        final char[] filler = new char[Math.max(0, bytes - 13)];
+        Arrays.fill(filler, 'x');
+        padding = ",\"padding\":\"" + new String(filler) + "\"";
+    }
+
+    /** @return The number of requests received. */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /** @return The number of requests answered with an error. */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * Parses the query string of the given request.
+     */
+    private static Map<String, String> parametersOf(HttpExchange exchange) throws IOException {
+        final Map<String, String> parameters = new HashMap<>();
+        final String query = exchange.getRequestURI().getRawQuery();
+        if (query == null)
+            return parameters;
+        for (String parameter : query.split("&")) {
+            final int separator = parameter.indexOf('=');
+            if (separator > 0)
+                parameters.put(parameter.substring(0, separator),
+                        URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+        }
+        return parameters;
+    }
+
+    /**
+     * Adds the configured padding to the given recorded response.
+     */
+    private String padded(Recording recording) {
+        final String body = recording.body;
+        return body.substring(0, body.length() - 1) + padding + "}";
+    }
+
+    /**
+     * Selects the recording of the given city.
+     */
+    private Recording recordingOf(String city) {
+        final String name = city == null ? "" : city.toLowerCase(Locale.ROOT);
+        for (Recording recording : recordings)
+            if (name.startsWith(recording.cityName))
+                return recording;
+        return recordings.get((int) (nextRecording.getAndIncrement() % recordings.size()));
+    }
+
+    /**
+     * Produces the body of the response to the given request.
+     */
+    private String bodyOf(Map<String, String> parameters, boolean group) {
+        if (!group)
+            return padded(recordingOf(parameters.get("q")));
+
+        final List<String> ids = Arrays.asList(String.valueOf(parameters.get("id")).split(","));
+        final StringBuilder list = new StringBuilder();
+        int count = 0;
+        for (Recording recording : recordings)
+            if (ids.contains(recording.cityId)) {
+                list.append(count++ == 0 ? "" : ",").append(padded(recording));
+            }
+        return "{\"cnt\":" + count + ",\"list\":[" + list + "]}";
+    }
+
+    /**
+     * Serves the given request, after the configured latency.
+     */
+    private void serve(HttpExchange exchange, boolean group) throws IOException {
+        requestCount.incrementAndGet();
+        final long latency;
+        final boolean fail;
+        synchronized (random) {
+            latency = minLatency + (long) (random.nextDouble() * (maxLatency - minLatency));
+            fail = random.nextDouble() < errorRate;
+        }
+
+        try {
+            if (latency > 0)
+                Thread.sleep(latency);
+
+            final int status;
+            final byte[] body;
+            if (fail) {
+                errorCount.incrementAndGet();
+                status = HttpURLConnection.HTTP_UNAVAILABLE;
+                body = "{\"cod\":503,\"message\":\"Service Unavailable\"}".getBytes(UTF8);
+            } else {
+                status = HttpURLConnection.HTTP_OK;
+                body = bodyOf(parametersOf(exchange), group).getBytes(UTF8);
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+            final OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+}
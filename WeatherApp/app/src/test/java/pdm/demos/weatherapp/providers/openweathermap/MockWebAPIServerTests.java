@@ -0,0 +1,113 @@
+package pdm.demos.weatherapp.providers.openweathermap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the MockWebAPIServer class
+ */
+public class MockWebAPIServerTests {
+
+    private MockWebAPIServer server;
+
+    /**
+     * Class whose instances are the responses received from the server.
+     */
+    private static final class Reply {
+        final int status;
+        final String body;
+        final long elapsed;
+
+        Reply(int status, String body, long elapsed) {
+            this.status = status;
+            this.body = body;
+            this.elapsed = elapsed;
+        }
+    }
+
+    private Reply get(String pathAndQuery) throws IOException {
+        final long start = System.nanoTime();
+        final HttpURLConnection connection =
+                (HttpURLConnection) new URL(server.getBaseUrl() + pathAndQuery).openConnection();
+        try {
+            final int status = connection.getResponseCode();
+            final InputStream in = status < 400 ?
+                    connection.getInputStream() : connection.getErrorStream();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            for (int read; (read = in.read(buffer)) != -1; )
+                out.write(buffer, 0, read);
+            in.close();
+            return new Reply(status, new String(out.toByteArray(), Charset.forName("UTF-8")),
+                    (System.nanoTime() - start) / 1000000);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebAPIServer(42);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdown();
+    }
+
+    @Test
+    public void weather_withRecordedCity_repliesWithItsRecording() throws IOException {
+        final Reply reply = get("/data/2.5/weather?q=London,uk&appid=key");
+
+        assertEquals(HttpURLConnection.HTTP_OK, reply.status);
+        assertTrue(reply.body.contains("\"name\":\"London\""));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void group_withRecordedIds_repliesWithList() throws IOException {
+        final Reply reply = get("/data/2.5/group?id=2267057,2643743,1&appid=key");
+
+        assertEquals(HttpURLConnection.HTTP_OK, reply.status);
+        assertTrue(reply.body.startsWith("{\"cnt\":2,\"list\":["));
+        assertTrue(reply.body.contains("\"name\":\"Lisbon\""));
+        assertTrue(reply.body.contains("\"name\":\"London\""));
+    }
+
+    @Test
+    public void weather_withPadding_repliesWithPaddedBody() throws IOException {
+        final int unpadded = get("/data/2.5/weather?q=Lisbon").body.length();
+        server.setPayloadPadding(1000);
+
+        final Reply reply = get("/data/2.5/weather?q=Lisbon");
+
+        assertEquals(unpadded + 1000, reply.body.length());
+        assertTrue(reply.body.endsWith("\"}"));
+    }
+
+    @Test
+    public void weather_withFullErrorRate_repliesWithServiceUnavailable() throws IOException {
+        server.setErrorRate(1);
+
+        assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, get("/data/2.5/weather?q=Lisbon").status);
+        assertEquals(1, server.getErrorCount());
+    }
+
+    @Test
+    public void weather_withLatency_repliesAfterIt() throws IOException {
+        server.setLatency(100, 100);
+
+        assertTrue(get("/data/2.5/weather?q=Lisbon").elapsed >= 100);
+    }
+}
@@ -0,0 +1,197 @@
+package pdm.demos.weatherapp.providers.openweathermap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import pdm.demos.weatherapp.providers.WeatherInfoProvider;
+import pdm.demos.weatherapp.utils.HttpClientFactory;
+
+/**
+ * Class that measures the network path of {@link OpenWeatherProvider} (i.e. the shared HTTP client,
+ * the Retrofit proxy, the converters and {@link DataMapper}) end to end, against a local stand-in
+ * of the web API ({@link MockWebAPIServer}).
+ *
+ * <p>Each scenario is run with 1, 4 and 16 concurrent callers, and reports the 50th and 99th
+ * percentiles of the request latency, the throughput, and the bytes allocated per request by the
+ * calling threads (which perform the synchronous HTTP calls, and therefore include the client and
+ * decoding costs, but not the server's). Callers ask for distinct cities, so that their requests
+ * are not coalesced. The benchmark does not assert on the measurements, because those depend on
+ * the machine running the tests, and is therefore not part of the unit tests: it is run by the
+ * build's {@literal benchmark} task.</p>
+ */
+public class OpenWeatherProviderBenchmark {
+
+    /** The numbers of concurrent callers of each scenario. */
+    private static final int[] CALLERS = { 1, 4, 16 };
+    private static final int WARMUP_REQUESTS = 200;
+    private static final int MEASURED_REQUESTS_PER_CALLER = 200;
+
+    /** The identifiers of the recorded cities, served by the group endpoint. */
+    private static final List<String> RECORDED_CITY_IDS = Arrays.asList("2267057", "2643743");
+
+    private MockWebAPIServer server;
+    private OpenWeatherProvider provider;
+
+    /**
+     * Contract of the requests being measured.
+     */
+    private interface Request {
+        void perform(int caller, int iteration) throws Exception;
+    }
+
+    /**
+     * Class whose instances are the measurements of a single caller.
+     */
+    private static final class CallerResult {
+        final long[] latencies;
+        final long allocatedBytes;
+
+        CallerResult(long[] latencies, long allocatedBytes) {
+            this.latencies = latencies;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    /**
+     * Gets the number of bytes allocated so far by the current thread, if the JVM supports it.
+     * @return The number of bytes, or -1 if not supported.
+     */
+    private static long allocatedBytes() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        return ((com.sun.management.ThreadMXBean) bean)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        final int idx = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+
+    /**
+     * Runs the given request with the given number of concurrent callers, and prints the
+     * measurements.
+     */
+    private void measure(String scenario, final Request request, int callers) throws Exception {
+        for (int idx = 0; idx < WARMUP_REQUESTS; ++idx)
+            request.perform(0, idx);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            final List<Callable<CallerResult>> tasks = new ArrayList<>(callers);
+            for (int idx = 0; idx < callers; ++idx) {
+                final int caller = idx;
+                tasks.add(new Callable<CallerResult>() {
+                    @Override
+                    public CallerResult call() throws Exception {
+                        final long[] latencies = new long[MEASURED_REQUESTS_PER_CALLER];
+                        final long allocatedBefore = allocatedBytes();
+                        for (int iteration = 0; iteration < latencies.length; ++iteration) {
+                            final long start = System.nanoTime();
+                            request.perform(caller, iteration);
+                            latencies[iteration] = System.nanoTime() - start;
+                        }
+                        return new CallerResult(latencies, allocatedBytes() - allocatedBefore);
+                    }
+                });
+            }
+
+            final long start = System.nanoTime();
+            final List<Future<CallerResult>> results = executor.invokeAll(tasks);
+            final long elapsed = System.nanoTime() - start;
+
+            final long[] latencies = new long[callers * MEASURED_REQUESTS_PER_CALLER];
+            long allocated = 0;
+            int count = 0;
+            for (Future<CallerResult> result : results) {
+                final CallerResult callerResult = result.get();
+                System.arraycopy(callerResult.latencies, 0, latencies, count,
+                        callerResult.latencies.length);
+                count += callerResult.latencies.length;
+                allocated += callerResult.allocatedBytes;
+            }
+            Arrays.sort(latencies);
+
+            System.out.println(String.format(
+                    "%s, %2d callers: p50 %5d us, p99 %6d us, %6.0f req/s, %s bytes/req",
+                    scenario, callers, percentile(latencies, 0.5) / 1000,
+                    percentile(latencies, 0.99) / 1000, count * 1e9 / elapsed,
+                    allocated < 0 ? "n/a" : String.valueOf(allocated / count)));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void measure(String scenario, Request request) throws Exception {
+        for (int callers : CALLERS)
+            measure(scenario, request, callers);
+    }
+
+    /**
+     * Produces a distinct city name for each caller, all served with the same recording.
+     */
+    private static String cityOf(int caller) {
+        return "London " + caller;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebAPIServer(42);
+        server.start();
+        provider = new OpenWeatherProvider(server.getBaseUrl(), HttpClientFactory.getClient());
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdown();
+    }
+
+    @Test
+    public void benchmark_singleCity() throws Exception {
+        measure("Single city, no latency", new Request() {
+            @Override
+            public void perform(int caller, int iteration) throws Exception {
+                provider.getWeatherInfo(cityOf(caller), "en",
+                        WeatherInfoProvider.UnitSystem.METRIC);
+            }
+        });
+    }
+
+    @Test
+    public void benchmark_singleCityWithLatencyAndPadding() throws Exception {
+        server.setLatency(5, 25);
+        server.setPayloadPadding(16 * 1024);
+        measure("Single city, 5-25 ms, 16 KiB", new Request() {
+            @Override
+            public void perform(int caller, int iteration) throws Exception {
+                provider.getWeatherInfo(cityOf(caller), "en",
+                        WeatherInfoProvider.UnitSystem.METRIC);
+            }
+        });
+    }
+
+    @Test
+    public void benchmark_groupOfCities() throws Exception {
+        measure("Group of cities, no latency", new Request() {
+            @Override
+            public void perform(int caller, int iteration) throws Exception {
+                // Group requests are not coalesced, but are performed by the provider's batch
+                // threads, whose allocations are therefore not accounted for
+                provider.getWeatherInfo(RECORDED_CITY_IDS, "en",
+                        WeatherInfoProvider.UnitSystem.METRIC);
+            }
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package pdm.demos.weatherapp.providers.openweathermap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import pdm.demos.weatherapp.providers.HttpStatusException;
+import pdm.demos.weatherapp.providers.WeatherInfo;
+import pdm.demos.weatherapp.providers.WeatherInfoProvider;
+import pdm.demos.weatherapp.utils.HttpClientFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the OpenWeatherProvider class, which exercise
+ * its network path against a local stand-in of the web API ({@link MockWebAPIServer})
+ */
+public class OpenWeatherProviderTests {
+
+    /** The identifiers of the recorded cities, served by the group endpoint. */
+    private static final List<String> RECORDED_CITY_IDS = Arrays.asList("2267057", "2643743");
+
+    private MockWebAPIServer server;
+    private OpenWeatherProvider provider;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebAPIServer(42);
+        server.start();
+        provider = new OpenWeatherProvider(server.getBaseUrl(), HttpClientFactory.getClient());
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdown();
+    }
+
+    @Test
+    public void getWeatherInfo_fromMockServer_producesRecordedInformation() throws Exception {
+        final WeatherInfo info = provider.getWeatherInfo("London,uk", "en",
+                WeatherInfoProvider.UnitSystem.METRIC);
+
+        assertEquals("London", info.getCityName());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void getWeatherInfo_withGroupOfIds_producesAllCities() throws Exception {
+        final Map<String, WeatherInfo> infos = provider.getWeatherInfo(RECORDED_CITY_IDS, "en",
+                WeatherInfoProvider.UnitSystem.METRIC);
+
+        assertEquals(RECORDED_CITY_IDS.size(), infos.size());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void getWeatherInfo_withServerErrors_throwsStatusException() throws Exception {
+        server.setErrorRate(1);
+        try {
+            provider.getWeatherInfo("London,uk", "en", WeatherInfoProvider.UnitSystem.METRIC);
+            fail("Expected an HttpStatusException");
+        } catch (HttpStatusException e) {
+            assertEquals(503, e.getStatusCode());
+        }
+    }
+}
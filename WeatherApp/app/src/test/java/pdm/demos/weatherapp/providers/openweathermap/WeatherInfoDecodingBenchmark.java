@@ -0,0 +1,125 @@
+package pdm.demos.weatherapp.providers.openweathermap;
+
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import pdm.demos.weatherapp.providers.WeatherInfo;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that compares the streaming decoding path ({@link WeatherInfoStreamingParser}) with the
+ * reflective one (GSON followed by {@link DataMapper}), using recorded response bodies.
+ *
+ * <p>The benchmark reports the average time per decoded response of each path. It does not assert
+ * on timings, because those depend on the machine running the tests.</p>
+ */
+public class WeatherInfoDecodingBenchmark {
+
+    /** The recorded response bodies. */
+    private static final String[] RECORDED_RESPONSES = {
+            "/openweathermap/london.json",
+            "/openweathermap/lisbon.json",
+            "/openweathermap/partial.json"
+    };
+
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int MEASURED_ITERATIONS = 100000;
+
+    private byte[][] bodies;
+    private Gson gson;
+    private DataMapper mapper;
+    private WeatherInfoInterner interner;
+
+    /**
+     * Loads the given recorded response body.
+     */
+    private static byte[] load(String resource) throws IOException {
+        final InputStream in = WeatherInfoDecodingBenchmark.class.getResourceAsStream(resource);
+        assertNotNull(resource, in);
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            for (int read; (read = in.read(buffer)) != -1; )
+                out.write(buffer, 0, read);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static Reader readerOf(byte[] body) {
+        return new InputStreamReader(new ByteArrayInputStream(body), Charset.forName("UTF-8"));
+    }
+
+    private WeatherInfo decodeWithGson(byte[] body) {
+        return mapper.convertFrom(gson.fromJson(readerOf(body), WeatherInfoDTO.class));
+    }
+
+    private WeatherInfo decodeWithStreaming(byte[] body) throws IOException {
+        return WeatherInfoStreamingParser.parse(readerOf(body));
+    }
+
+    private WeatherInfo decodeWithInterning(byte[] body) throws IOException {
+        return WeatherInfoStreamingParser.parse(readerOf(body), interner);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        bodies = new byte[RECORDED_RESPONSES.length][];
+        for (int idx = 0; idx < RECORDED_RESPONSES.length; ++idx)
+            bodies[idx] = load(RECORDED_RESPONSES[idx]);
+        gson = new Gson();
+        mapper = new DataMapper();
+        interner = new WeatherInfoInterner();
+    }
+
+    @Test
+    public void streamingAndReflectivePaths_produceSameResult() throws IOException {
+        for (byte[] body : bodies) {
+            final WeatherInfo expected = decodeWithGson(body), actual = decodeWithStreaming(body);
+            assertEquals(expected.toString(), actual.toString());
+            assertEquals(expected.getIconURL(), actual.getIconURL());
+        }
+    }
+
+    @Test
+    public void benchmark_streamingVersusReflective() throws IOException {
+        for (int idx = 0; idx < WARMUP_ITERATIONS; ++idx) {
+            decodeWithGson(bodies[idx % bodies.length]);
+            decodeWithStreaming(bodies[idx % bodies.length]);
+            decodeWithInterning(bodies[idx % bodies.length]);
+        }
+
+        long start = System.nanoTime();
+        for (int idx = 0; idx < MEASURED_ITERATIONS; ++idx)
+            decodeWithGson(bodies[idx % bodies.length]);
+        final long reflective = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int idx = 0; idx < MEASURED_ITERATIONS; ++idx)
+            decodeWithStreaming(bodies[idx % bodies.length]);
+        final long streaming = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int idx = 0; idx < MEASURED_ITERATIONS; ++idx)
+            decodeWithInterning(bodies[idx % bodies.length]);
+        final long interning = System.nanoTime() - start;
+
+        System.out.println(String.format("Gson + DataMapper: %d ns/op",
+                reflective / MEASURED_ITERATIONS));
+        System.out.println(String.format("Streaming parser:  %d ns/op", streaming / MEASURED_ITERATIONS));
+        System.out.println(String.format("With interner:     %d ns/op (%d instances reused)",
+                interning / MEASURED_ITERATIONS, interner.getReusedCount()));
+    }
+}
@@ -0,0 +1,82 @@
+package pdm.demos.weatherapp.providers.openweathermap;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import pdm.demos.weatherapp.providers.WeatherInfo;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the WeatherInfoInterner class
+ */
+public class WeatherInfoInternerTests {
+
+    private static Reader open(String resource) {
+        return new InputStreamReader(WeatherInfoInternerTests.class.getResourceAsStream(resource),
+                Charset.forName("UTF-8"));
+    }
+
+    @Test
+    public void obtain_withEqualFields_returnsPreviousInstance() {
+        final WeatherInfoInterner interner = new WeatherInfoInterner();
+
+        final WeatherInfo first = interner.obtain(new String("Lisbon"), new String("clear sky"),
+                new String("01d"), 3.1, 350, 18.62, 17, 20, 63);
+        final WeatherInfo second = interner.obtain(new String("Lisbon"), new String("clear sky"),
+                new String("01d"), 3.1, 350, 18.62, 17, 20, 63);
+
+        assertSame(first, second);
+        assertEquals(1, interner.getReusedCount());
+    }
+
+    @Test
+    public void obtain_withDifferentFields_returnsNewInstanceWithInternedStrings() {
+        final WeatherInfoInterner interner = new WeatherInfoInterner();
+
+        final WeatherInfo first = interner.obtain("Lisbon", "clear sky", "01d",
+                3.1, 350, 18.62, 17, 20, 63);
+        final WeatherInfo second = interner.obtain(new String("Lisbon"), new String("clear sky"),
+                new String("01d"), 3.1, 350, 18.7, 17, 20, 63);
+
+        assertNotSame(first, second);
+        assertNotEquals(first, second);
+        assertSame(first.getCityName(), second.getCityName());
+        assertSame(first.getDescription(), second.getDescription());
+        assertSame(first.getIconURL(), second.getIconURL());
+        assertEquals(0, interner.getReusedCount());
+    }
+
+    @Test
+    public void getWeatherIconURL_producesSameURLAsDTO() {
+        assertEquals(WeatherInfoDTO.getWeatherIconURL("10n"),
+                new WeatherInfoInterner().getWeatherIconURL("10n"));
+    }
+
+    @Test
+    public void intern_beyondCapacity_evictsLeastRecentlyUsed() {
+        final WeatherInfoInterner interner = new WeatherInfoInterner(2);
+        final String first = interner.intern(new String("a"));
+        interner.intern("b");
+        interner.intern("c");
+
+        assertNotSame(first, interner.intern(new String("a")));
+    }
+
+    @Test
+    public void parse_withInternerAndRepeatedResponse_returnsPreviousInstance() throws IOException {
+        final WeatherInfoInterner interner = new WeatherInfoInterner();
+
+        final WeatherInfo first =
+                WeatherInfoStreamingParser.parse(open("/openweathermap/lisbon.json"), interner);
+        final WeatherInfo second =
+                WeatherInfoStreamingParser.parse(open("/openweathermap/lisbon.json"), interner);
+
+        assertSame(first, second);
+        assertEquals(WeatherInfoStreamingParser.parse(open("/openweathermap/lisbon.json")), first);
+    }
+}
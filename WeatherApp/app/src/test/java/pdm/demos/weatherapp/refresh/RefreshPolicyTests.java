@@ -0,0 +1,63 @@
+package pdm.demos.weatherapp.refresh;
+
+import org.junit.Test;
+
+import pdm.demos.weatherapp.providers.WeatherInfo;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the RefreshPolicy class
+ */
+public class RefreshPolicyTests {
+
+    /** The weather information used as previous result. */
+    private static final WeatherInfo CLEAR =
+            new WeatherInfo("Lisbon", "clear sky", "01d", 4.1, 320, 21, 18, 24, 60);
+
+    @Test
+    public void nextInterval_withoutPreviousResult_keepsInterval() {
+        assertEquals(RefreshPolicy.INITIAL_INTERVAL,
+                RefreshPolicy.nextInterval(RefreshPolicy.INITIAL_INTERVAL, null, 0, CLEAR));
+    }
+
+    @Test
+    public void nextInterval_withIdenticalResult_backsOff() {
+        final String previous = RefreshPolicy.fingerprintOf(CLEAR);
+        assertEquals(2 * RefreshPolicy.INITIAL_INTERVAL,
+                RefreshPolicy.nextInterval(RefreshPolicy.INITIAL_INTERVAL, previous, 21, CLEAR));
+    }
+
+    @Test
+    public void nextInterval_withIdenticalResult_neverExceedsMaximum() {
+        final String previous = RefreshPolicy.fingerprintOf(CLEAR);
+        assertEquals(RefreshPolicy.MAX_INTERVAL,
+                RefreshPolicy.nextInterval(RefreshPolicy.MAX_INTERVAL, previous, 21, CLEAR));
+    }
+
+    @Test
+    public void nextInterval_withTemperatureSwing_tightens() {
+        final WeatherInfo warmer =
+                new WeatherInfo("Lisbon", "clear sky", "01d", 4.1, 320, 24, 18, 24, 60);
+        final String previous = RefreshPolicy.fingerprintOf(CLEAR);
+        assertEquals(RefreshPolicy.INITIAL_INTERVAL / 2,
+                RefreshPolicy.nextInterval(RefreshPolicy.INITIAL_INTERVAL, previous, 21, warmer));
+    }
+
+    @Test
+    public void nextInterval_withDescriptionChange_tightensUpToMinimum() {
+        final WeatherInfo rain =
+                new WeatherInfo("Lisbon", "light rain", "10d", 4.1, 320, 21, 18, 24, 60);
+        final String previous = RefreshPolicy.fingerprintOf(CLEAR);
+        assertEquals(RefreshPolicy.MIN_INTERVAL,
+                RefreshPolicy.nextInterval(RefreshPolicy.MIN_INTERVAL, previous, 21, rain));
+    }
+
+    @Test
+    public void effectiveDelay_withLowBattery_stretchesInterval() {
+        assertEquals(RefreshPolicy.INITIAL_INTERVAL * RefreshPolicy.LOW_BATTERY_FACTOR,
+                RefreshPolicy.effectiveDelay(RefreshPolicy.INITIAL_INTERVAL, true));
+        assertEquals(RefreshPolicy.INITIAL_INTERVAL,
+                RefreshPolicy.effectiveDelay(RefreshPolicy.INITIAL_INTERVAL, false));
+    }
+}
@@ -0,0 +1,63 @@
+package pdm.demos.weatherapp.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the Histogram class
+ */
+public class HistogramTests {
+
+    @Test
+    public void bucketOf_forEveryMagnitude_isConsistentWithHighestValue() {
+        for (long value = 1; value <= Histogram.MAX_TRACKABLE_VALUE; value = value * 3 + 1) {
+            final int bucket = Histogram.bucketOf(value);
+            assertTrue(value <= Histogram.highestValueOf(bucket));
+            assertTrue(bucket == 0 || value > Histogram.highestValueOf(bucket - 1));
+        }
+    }
+
+    @Test
+    public void getPercentile_withUniformValues_isWithinRelativeError() {
+        final Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100000; ++value)
+            histogram.record(value * 1000);
+
+        assertEquals(100000, histogram.getCount());
+        assertEquals(100000000, histogram.getMax());
+        assertEquals(50000000, histogram.getPercentile(50), 50000000 * 0.04);
+        assertEquals(99000000, histogram.getPercentile(99), 99000000 * 0.04);
+        assertEquals(50000500, histogram.getMean(), 1);
+    }
+
+    @Test
+    public void getPercentile_withSmallValues_isExact() {
+        final Histogram histogram = new Histogram();
+        for (long value = 0; value < 10; ++value)
+            histogram.record(value);
+
+        assertEquals(4, histogram.getPercentile(50));
+        assertEquals(9, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void record_withValueOutOfRange_isClamped() {
+        final Histogram histogram = new Histogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(Histogram.MAX_TRACKABLE_VALUE, histogram.getMax());
+    }
+
+    @Test
+    public void reset_discardsValues() {
+        final Histogram histogram = new Histogram();
+        histogram.record(42);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+}
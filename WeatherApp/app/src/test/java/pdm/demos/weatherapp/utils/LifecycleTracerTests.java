@@ -0,0 +1,85 @@
+package pdm.demos.weatherapp.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the LifecycleTracer class
+ */
+public class LifecycleTracerTests {
+
+    private static String dump() {
+        final StringWriter buffer = new StringWriter();
+        final PrintWriter writer = new PrintWriter(buffer);
+        LifecycleTracer.dump(writer, "> ");
+        writer.flush();
+        return buffer.toString();
+    }
+
+    @Before
+    public void setUp() {
+        LifecycleTracer.clear();
+    }
+
+    @After
+    public void tearDown() {
+        LifecycleTracer.clear();
+    }
+
+    @Test
+    public void dump_withNoEvents_printsHeaderOnly() {
+        assertEquals("> Lifecycle events (0 of 0):" + System.lineSeparator(), dump());
+    }
+
+    @Test
+    public void dump_withEvents_printsThemRelativeToTheOldest() {
+        LifecycleTracer.record("MainActivity", 42, "onCreate", 1000000,
+                LifecycleTracer.NO_DURATION);
+        LifecycleTracer.record("MainActivity", 42, "onResume (interactive)", 3500000, 2500000);
+
+        final String[] lines = dump().split(System.lineSeparator());
+        assertEquals(3, lines.length);
+        assertEquals("> Lifecycle events (2 of 2):", lines[0]);
+        assertEquals(String.format(">   +%10.1f ms MainActivity [42] onCreate", 0.0), lines[1]);
+        assertEquals(String.format(">   +%10.1f ms MainActivity [42] onResume (interactive) (%s)",
+                2.5, LifecycleTracer.formatDuration(2500000)), lines[2]);
+    }
+
+    @Test
+    public void record_beyondCapacity_retainsTheMostRecentEvents() {
+        final int total = LifecycleTracer.CAPACITY + 10;
+        for (int idx = 0; idx < total; ++idx)
+            LifecycleTracer.record("MainActivity", idx, "onStart", idx,
+                    LifecycleTracer.NO_DURATION);
+
+        final String[] lines = dump().split(System.lineSeparator());
+        assertEquals(LifecycleTracer.CAPACITY + 1, lines.length);
+        assertEquals(String.format("> Lifecycle events (%d of %d):",
+                LifecycleTracer.CAPACITY, total), lines[0]);
+        assertTrue(lines[1].endsWith("[10] onStart"));
+        assertTrue(lines[lines.length - 1].endsWith("[" + (total - 1) + "] onStart"));
+    }
+
+    @Test
+    public void takeRecreationStart_afterMarks_returnsTheEarliestOnce() {
+        LifecycleTracer.markRecreationStart("MainActivity", 100);
+        LifecycleTracer.markRecreationStart("MainActivity", 200);
+
+        assertEquals(100, LifecycleTracer.takeRecreationStart("MainActivity"));
+        assertEquals(LifecycleTracer.NO_DURATION,
+                LifecycleTracer.takeRecreationStart("MainActivity"));
+    }
+
+    @Test
+    public void takeRecreationStart_ofAnotherComponent_returnsNoDuration() {
+        LifecycleTracer.markRecreationStart("MainActivity", 100);
+
+        assertEquals(LifecycleTracer.NO_DURATION, LifecycleTracer.takeRecreationStart("Other"));
+    }
+}
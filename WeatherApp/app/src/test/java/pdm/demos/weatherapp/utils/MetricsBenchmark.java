@@ -0,0 +1,43 @@
+package pdm.demos.weatherapp.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import pdm.demos.weatherapp.Microbenchmark;
+
+/**
+ * Class that contains the microbenchmarks of the metrics probes, which are placed on the hot paths
+ * of the weather fetch pipeline
+ */
+public class MetricsBenchmark {
+
+    private static final Metrics.Timer TIMER = Metrics.timer("benchmark.timer");
+
+    private static final Microbenchmark.Operation PROBE = new Microbenchmark.Operation() {
+        @Override
+        public int run(int iteration) {
+            final long start = TIMER.start();
+            TIMER.stop(start);
+            return (int) start;
+        }
+    };
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+    }
+
+    @Test
+    public void benchmark_disabledTimer() throws IOException {
+        Metrics.setEnabled(false);
+        Microbenchmark.measureAgainstBaseline("Metrics.Timer.disabled", PROBE);
+    }
+
+    @Test
+    public void benchmark_enabledTimer() throws IOException {
+        Metrics.setEnabled(true);
+        Microbenchmark.measureAgainstBaseline("Metrics.Timer.enabled", PROBE);
+    }
+}
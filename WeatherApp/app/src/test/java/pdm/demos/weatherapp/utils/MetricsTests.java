@@ -0,0 +1,72 @@
+package pdm.demos.weatherapp.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Class that contains the unit tests associated to the Metrics class
+ */
+public class MetricsTests {
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+    }
+
+    @Test
+    public void counter_whenDisabled_isNotIncremented() {
+        final Metrics.Counter counter = Metrics.counter("test.disabled");
+        Metrics.setEnabled(false);
+        counter.increment();
+
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void counter_whenEnabled_isIncremented() {
+        final Metrics.Counter counter = Metrics.counter("test.enabled");
+        Metrics.setEnabled(true);
+        counter.increment();
+        counter.add(2);
+
+        assertEquals(3, counter.get());
+        assertSame(counter, Metrics.counter("test.enabled"));
+    }
+
+    @Test
+    public void timer_startedWhileDisabled_isNotRecorded() {
+        final Metrics.Timer timer = Metrics.timer("test.timer.disabled");
+        final long start = timer.start();
+        Metrics.setEnabled(true);
+        timer.stop(start);
+
+        assertEquals(0, timer.getHistogram().getCount());
+    }
+
+    @Test
+    public void timer_whenEnabled_recordsLatency() throws InterruptedException {
+        final Metrics.Timer timer = Metrics.timer("test.timer.enabled");
+        Metrics.setEnabled(true);
+        final long start = timer.start();
+        Thread.sleep(10);
+        timer.stop(start);
+
+        assertEquals(1, timer.getHistogram().getCount());
+        assertTrue(timer.getHistogram().getMax() >= 10000000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void timer_withCounterName_throws() {
+        Metrics.counter("test.clash");
+        Metrics.timer("test.clash");
+    }
+
+    @Test
+    public void snapshot_containsRegisteredMetrics() {
+        Metrics.counter("test.snapshot");
+
+        assertTrue(Metrics.snapshot().contains("test.snapshot: "));
+    }
+}